@@ -0,0 +1,153 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import core.Board;
+import core.GameSystem;
+import core.GameSystem.Direction;
+import core.Location;
+import gameobjects.Player;
+import iohandling.BoardParser;
+import renderer.Renderer;
+import tile.DoorOutTile;
+import tile.Tile;
+import tile.WaterTile;
+import util.Position;
+
+/**
+ * Benchmark for the garbage made by moving and drawing. It puts a player on the map and moves them back and forth between two tiles, then
+ * renders frames around them, and reports the bytes allocated by the thread for each move and each frame along with the time taken. The
+ * image a frame is drawn into is made fresh for each frame, so its size is reported apart from the rest of the frame. It is run with the
+ * board kept as arrays of tiles and again with it kept compactly.
+ *
+ * Run from the project folder, as the map and the images are read from there:
+ * AllocationBenchmark [map file] [moves] [frames]
+ */
+public class AllocationBenchmark {
+
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 800;
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional map file, number of moves and number of frames
+	 */
+	public static void main(String[] args) {
+		String fname = args.length > 0 ? args[0] : "map-new.txt";
+		int moves = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		int frames = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		run("tiles", BoardParser.parseBoardFName(fname), moves, frames);
+		Board board = BoardParser.parseBoardFName(fname);
+		board.compact();
+		run("compact", board, moves, frames);
+	}
+
+	/**
+	 * Measures moving and drawing on one board
+	 *
+	 * @param name - name of the board to report
+	 * @param board - board to play on
+	 * @param moves - number of moves to measure
+	 * @param frames - number of frames to measure
+	 */
+	private static void run(String name, Board board, int moves, int frames) {
+		GameSystem game = new GameSystem(null, board);
+		Location loc = board.getLocationById(0);
+		Player player = place(board, loc);
+		/* Warm up first so the figures are of compiled code */
+		move(game, player, moves);
+		long[] moved = move(game, player, moves);
+		System.out.println(name + ": " + String.format("%.1f", (double) moved[0] / moves) + " bytes a move, " + moved[1] / moves
+				+ " ns a move");
+
+		Renderer renderer = new Renderer();
+		render(renderer, board, player, frames / 4);
+		long[] drawn = render(renderer, board, player, frames);
+		long image = (long) WIDTH * HEIGHT * 4;
+		System.out.println(name + ": " + (drawn[0] / frames - image) / 1024 + " KB a frame besides the " + image / 1024 + " KB image, "
+				+ drawn[1] / frames / 1000 + " us a frame");
+	}
+
+	/**
+	 * Puts a new player on the first empty tile of a location whose east neighbour is also empty, so they can walk between the two
+	 *
+	 * @param board - board to put the player on
+	 * @param loc - location to put the player in
+	 * @return player - the player
+	 */
+	private static Player place(Board board, Location loc) {
+		for (int y = 0; y < loc.getHeight(); y++) {
+			for (int x = 0; x + 1 < loc.getWidth(); x++) {
+				if (walkable(loc.getTile(x, y)) && walkable(loc.getTile(x + 1, y))) {
+					Player player = new Player("bench", loc.getId(), Position.of(x, y), board);
+					board.addPlayer("bench", player);
+					board.editTile(player.getTile()).setGameObject(player);
+					player.setLoggedIn(true);
+					return player;
+				}
+			}
+		}
+		throw new IllegalStateException("There are no two empty tiles next to each other in " + loc.getName());
+	}
+
+	/**
+	 * Checks if a player can stand on a tile and walk off it without anything happening
+	 *
+	 * @param t - tile
+	 * @return boolean - true if the tile is empty ground
+	 */
+	private static boolean walkable(Tile t) {
+		return t.getGameObject() == null && !(t instanceof WaterTile) && !(t instanceof DoorOutTile);
+	}
+
+	/**
+	 * Moves a player east and west a number of times
+	 *
+	 * @param game - game the player is in
+	 * @param player - player to move
+	 * @param moves - number of moves
+	 * @return measured - bytes allocated and nanoseconds taken
+	 */
+	private static long[] move(GameSystem game, Player player, int moves) {
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < moves; i++) {
+			if (!game.movePlayer(player, i % 2 == 0 ? Direction.EAST : Direction.WEST)) {
+				throw new IllegalStateException("Move " + i + " was not made");
+			}
+		}
+		long took = System.nanoTime() - start;
+		return new long[] { allocatedBytes() - bytes, took };
+	}
+
+	/**
+	 * Renders a number of frames around a player, turning the view every frame
+	 *
+	 * @param renderer - renderer to draw with
+	 * @param board - board to draw
+	 * @param player - player to draw around
+	 * @param frames - number of frames
+	 * @return measured - bytes allocated and nanoseconds taken
+	 */
+	private static long[] render(Renderer renderer, Board board, Player player, int frames) {
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			renderer.paintBoard(board, player, WIDTH, HEIGHT, i);
+			renderer.rotateClockwise();
+		}
+		long took = System.nanoTime() - start;
+		return new long[] { allocatedBytes() - bytes, took };
+	}
+
+	/**
+	 * Gets the bytes this thread has allocated so far
+	 *
+	 * @return bytes - bytes allocated
+	 */
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
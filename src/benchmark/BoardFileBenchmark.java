@@ -0,0 +1,166 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import core.Board;
+import core.Location;
+import gameobjects.Tree;
+import iohandling.BoardFile;
+import iohandling.BoardParser;
+import iohandling.BoardWriter;
+import util.Position;
+
+/**
+ * Benchmark for loading and saving boards. It compares parsing a text map with BoardParser.parseBoardFName against reading the same board
+ * from a board file, reading a single location from the board file, and saving the whole board as text against saving a board file after
+ * a single tile has changed. It runs on the real map and on larger made up worlds.
+ *
+ * BoardFileBenchmark [map file] [seconds for each case]
+ */
+public class BoardFileBenchmark {
+
+	/**
+	 * Something to time
+	 */
+	private interface Task {
+		/**
+		 * Runs the task once
+		 *
+		 * @return count - anything counted by the task, so it cannot be skipped
+		 * @throws IOException - if a file cannot be used
+		 */
+		int run() throws IOException;
+	}
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional map file and seconds to time each case for
+	 * @throws IOException - if a file cannot be used
+	 */
+	public static void main(String[] args) throws IOException {
+		String fname = args.length > 0 ? args[0] : "map-new.txt";
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		run(fname, fname, seconds);
+		for (int across : new int[] { 8, 32 }) {
+			File text = File.createTempFile("world", ".txt");
+			text.deleteOnExit();
+			Files.write(text.toPath(), RegionBenchmark.world(across, 20).getBytes(StandardCharsets.UTF_8));
+			run(across * across + " location world", text.getPath(), seconds);
+		}
+	}
+
+	/**
+	 * Times loading and saving one board
+	 *
+	 * @param name - name of the board to report
+	 * @param textFname - text map of the board
+	 * @param seconds - how long to time each case for
+	 * @throws IOException - if a file cannot be used
+	 */
+	private static void run(String name, final String textFname, double seconds) throws IOException {
+		final File binary = File.createTempFile("world", ".map");
+		binary.deleteOnExit();
+		final File saved = File.createTempFile("saved", ".txt");
+		saved.deleteOnExit();
+		BoardFile.fromText(textFname, binary.getPath());
+		final Board board = BoardParser.parseBoardFName(textFname);
+		if (!BoardWriter.writeBoardToString(board).equals(BoardWriter.writeBoardToString(readBoard(binary.getPath())))) {
+			throw new IllegalStateException("The board file of " + name + " is not the same board");
+		}
+		final int id = board.getLocations().keySet().iterator().next();
+
+		double text = time(seconds, new Task() {
+			public int run() {
+				return BoardParser.parseBoardFName(textFname).getLocations().size();
+			}
+		});
+		double file = time(seconds, new Task() {
+			public int run() {
+				return readBoard(binary.getPath()).getLocations().size();
+			}
+		});
+		double single = time(seconds, new Task() {
+			public int run() throws IOException {
+				BoardFile f = BoardFile.open(binary.getPath());
+				try {
+					return f.readLocation(id, new Board()).getTiles().length;
+				} finally {
+					f.close();
+				}
+			}
+		});
+		System.out.println(name + " (" + new File(textFname).length() / 1024 + " KB text, " + binary.length() / 1024 + " KB board file): parse "
+				+ String.format("%.3f", text) + " ms, read board file " + String.format("%.3f", file) + " ms ("
+				+ String.format("%.1f", text / file) + "x faster), read one location " + String.format("%.3f", single) + " ms");
+
+		final BoardFile open = BoardFile.create(board, binary.getPath());
+		final Location loc = board.getLocationById(id);
+		double writeText = time(seconds, new Task() {
+			public int run() {
+				BoardWriter.writeBoard(board, saved.getPath());
+				return 1;
+			}
+		});
+		double save = time(seconds, new Task() {
+			public int run() throws IOException {
+				loc.editTile(new Position(0, 0)).setGameObject(loc.getTiles()[0][0].getGameObject() == null ? Tree.TREE : null);
+				open.save(board);
+				return 1;
+			}
+		});
+		open.close();
+		System.out.println(name + ": write text " + String.format("%.3f", writeText) + " ms, save board file after one change "
+				+ String.format("%.3f", save) + " ms (" + String.format("%.1f", writeText / save) + "x faster)");
+	}
+
+	/**
+	 * Reads a whole board file
+	 *
+	 * @param fname - name of the board file
+	 * @return board - the board
+	 */
+	private static Board readBoard(String fname) {
+		try {
+			BoardFile f = BoardFile.open(fname);
+			try {
+				return f.readBoard();
+			} finally {
+				f.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Runs a task over and over, warming up for a third of the time and then timing the rest
+	 *
+	 * @param seconds - how long to run for
+	 * @param task - task to time
+	 * @return millis - average time of each timed run in milliseconds
+	 * @throws IOException - if a file cannot be used
+	 */
+	private static double time(double seconds, Task task) throws IOException {
+		long warmup = System.nanoTime() + (long) (seconds / 3 * 1e9);
+		int sink = 0;
+		while (System.nanoTime() < warmup) {
+			sink += task.run();
+		}
+		long start = System.nanoTime();
+		long end = start + (long) (seconds * 2 / 3 * 1e9);
+		int runs = 0;
+		while (System.nanoTime() < end || runs == 0) {
+			sink += task.run();
+			runs++;
+		}
+		long took = System.nanoTime() - start;
+		if (sink == 0) {
+			System.out.println("nothing was run");
+		}
+		return took / 1e6 / runs;
+	}
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import core.Board;
+import core.GameSystem;
+import core.Location;
+import core.LocationPager;
+import iohandling.BoardFile;
+import iohandling.BoardParser;
+
+/**
+ * Benchmark for paging a world far larger than the heap would hold. It writes a made up world to a board file one location at a time,
+ * pages it with a budget of locations, starts a game on it, which reads every location once to give out the codes of keys and chests,
+ * and then moves across the world the way a player would, asking for the locations around each location in turn while the game ticks,
+ * the NPCs of the locations in memory move and the changes of each tick are taken as a room would take them. It reports how fast
+ * locations are read in and dropped and how much heap is used.
+ *
+ * Run with a small heap, such as -Xmx64m, to show the world does not need to fit in it.
+ *
+ * PagingBenchmark [locations along each side] [budget of locations in memory]
+ */
+public class PagingBenchmark {
+
+	private static final int NPCS = 4;
+	private static final long IDLE_MILLIS = 1000;
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional number of locations along each side of the world and budget of locations in memory
+	 * @throws IOException - if the board file cannot be used
+	 */
+	public static void main(String[] args) throws IOException {
+		int across = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+		int budget = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		File f = File.createTempFile("paged", ".map");
+		f.deleteOnExit();
+
+		long start = System.nanoTime();
+		BoardFile file = BoardFile.create(new Board(), f.getPath());
+		for (int id = 0; id < across * across; id++) {
+			Board one = BoardParser.parseBoardString(RegionBenchmark.location(new StringBuilder(), across, id, NPCS).toString());
+			file.writeLocation(one.getLocationById(id));
+		}
+		file.close();
+		System.out.println(across * across + " locations written in " + (System.nanoTime() - start) / 1000000 + " ms, board file "
+				+ f.length() / 1024 + " KB, heap " + usedHeap() / 1024 + " KB");
+
+		file = BoardFile.open(f.getPath(), true);
+		Board board = LocationPager.page(file, budget, IDLE_MILLIS);
+		LocationPager pager = board.getPager();
+		start = System.nanoTime();
+		GameSystem game = new GameSystem(null, board);
+		System.out.println("game started in " + (System.nanoTime() - start) / 1000000 + " ms, " + pager.getLoads() + " locations read, "
+				+ board.getLocations().size() + " in memory");
+
+		int loads = pager.getLoads();
+		int evictions = pager.getEvictions();
+		start = System.nanoTime();
+		int steps = 0;
+		int seen = 0;
+		/* Go back and forth along every row, so each location is visited once and left behind */
+		for (int y = 0; y < across; y++) {
+			for (int i = 0; i < across; i++) {
+				int x = y % 2 == 0 ? i : across - 1 - i;
+				Set<Integer> interest = board.getLocationsOfInterest(y * across + x);
+				seen += interest.size();
+				game.tick(steps++);
+				/* Take the changes of the tick the way a room does when it sends them to its clients */
+				for (Location changed : board.takeChangedLocations()) {
+					changed.takeChangedTiles();
+				}
+			}
+		}
+		long took = System.nanoTime() - start;
+		pager.flush();
+		System.out.println(steps + " locations crossed in " + took / 1000000 + " ms, " + (long) (steps / (took / 1e9)) + " a second, "
+				+ (pager.getLoads() - loads) + " locations read, " + (pager.getEvictions() - evictions) + " dropped, " + seen
+				+ " locations of interest");
+		System.out.println(board.getLocations().size() + " locations in memory with a budget of " + budget + ", heap " + usedHeap() / 1024
+				+ " KB");
+		file.close();
+	}
+
+	/**
+	 * Gets the heap in use once garbage has been collected
+	 *
+	 * @return bytes - heap in use
+	 */
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
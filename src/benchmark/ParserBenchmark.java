@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+import iohandling.BoardParser;
+import iohandling.BoardWriter;
+
+/**
+ * Benchmark for parsing boards. It parses the real map and larger made up worlds with the lexer and reports how long each parse takes and
+ * how fast text is read, next to the times recorded for the Scanner the parser used to read boards with before it had a lexer. Those were
+ * measured on one machine with this benchmark, so compare them with care on another, or check out the commit before the lexer to time
+ * the Scanner again.
+ *
+ * The lexer parses the locations of large boards on the common fork/join pool, run with
+ * -Djava.util.concurrent.ForkJoinPool.common.parallelism=1 and then without it to compare parsing them one after another with parsing them
+ * at once.
+ *
+ * ParserBenchmark [map file] [seconds for each case]
+ */
+public class ParserBenchmark {
+
+	/* Milliseconds the Scanner took to parse map-new.txt, then the 64 and 1024 location worlds, when it was last timed here */
+	private static final double SCANNER_MAP_MILLIS = 28.5;
+	private static final double[] SCANNER_WORLD_MILLIS = { 36.0, 614 };
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional map file and seconds to time each case for
+	 * @throws IOException - if the map file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		String fname = args.length > 0 ? args[0] : "map-new.txt";
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		System.out.println("fork/join pool threads: " + ForkJoinPool.commonPool().getParallelism());
+		run(fname, new String(Files.readAllBytes(Paths.get(fname)), StandardCharsets.UTF_8), seconds,
+				fname.equals("map-new.txt") ? SCANNER_MAP_MILLIS : Double.NaN);
+		int[] worlds = { 8, 32 };
+		for (int i = 0; i < worlds.length; i++) {
+			run(worlds[i] * worlds[i] + " location world", RegionBenchmark.world(worlds[i], 20), seconds, SCANNER_WORLD_MILLIS[i]);
+		}
+	}
+
+	/**
+	 * Times the parser on one board
+	 *
+	 * @param name - name of the board to report
+	 * @param board - board String to parse
+	 * @param seconds - how long to time the parser for
+	 * @param scanner - milliseconds the Scanner took to parse the board when it was recorded, NaN if it was not
+	 */
+	private static void run(String name, String board, double seconds, double scanner) {
+		String lexed = BoardWriter.writeBoardToString(BoardParser.parseBoardString(board));
+		if (!BoardWriter.writeBoardToString(BoardParser.parseBoardString(lexed)).equals(lexed)) {
+			throw new IllegalStateException("The parser does not read " + name + " back as it writes it");
+		}
+		double lexer = time(board, seconds);
+		System.out.println(name + " (" + board.length() / 1024 + " KB): lexer " + String.format("%.3f", lexer) + " ms, reads "
+				+ String.format("%.1f", board.length() / lexer / 1000) + " MB a second"
+				+ (Double.isNaN(scanner) ? "" : ", the Scanner took " + scanner + " ms when recorded"));
+	}
+
+	/**
+	 * Parses a board over and over, warming up for a third of the time and then timing the rest
+	 *
+	 * @param board - board String to parse
+	 * @param seconds - how long to parse for
+	 * @return millis - average time of each timed parse in milliseconds
+	 */
+	private static double time(String board, double seconds) {
+		long warmup = System.nanoTime() + (long) (seconds / 3 * 1e9);
+		int sink = 0;
+		while (System.nanoTime() < warmup) {
+			sink += BoardParser.parseBoardString(board).getLocations().size();
+		}
+		long start = System.nanoTime();
+		long end = start + (long) (seconds * 2 / 3 * 1e9);
+		int parses = 0;
+		while (System.nanoTime() < end || parses == 0) {
+			sink += BoardParser.parseBoardString(board).getLocations().size();
+			parses++;
+		}
+		long took = System.nanoTime() - start;
+		if (sink == 0) {
+			System.out.println("no locations parsed");
+		}
+		return took / 1e6 / parses;
+	}
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import clientserver.Server;
+import clientserver.ServerController;
+import core.Board;
+import core.GameSystem;
+import core.Location;
+import gameobjects.NPC;
+import iohandling.BoardParser;
+import tile.Tile;
+
+/**
+ * Benchmark for moving the board in regions on more than one thread. It builds a square world of outside locations full of NPCs, far bigger
+ * than the real map, then times the once a second NPC tick with the locations split into 1, 2, 4 and so on regions, up to the number of
+ * processors or the most regions asked for. After each run it checks every NPC is still on exactly one tile.
+ *
+ * RegionBenchmark [locations across] [npcs per location] [ticks] [most regions]
+ */
+public class RegionBenchmark {
+
+	static final int SIZE = 10;
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional number of locations along each side of the world, NPCs in each location, ticks to time and most regions to try
+	 */
+	public static void main(String[] args) {
+		int across = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int npcs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		int processors = Runtime.getRuntime().availableProcessors();
+		int most = args.length > 3 ? Integer.parseInt(args[3]) : processors;
+		System.out.println(across * across + " locations, " + across * across * npcs + " npcs, " + ticks + " ticks, " + processors + " processors");
+
+		for (int regions = 1; regions <= most; regions *= 2) {
+			Board board = BoardParser.parseBoardString(world(across, npcs));
+			GameSystem game = new ServerController(new Server(0), board).getGameSystem();
+			game.setRegionCount(regions);
+			/* Warm up before timing */
+			for (int t = 0; t < ticks / 4; t++) {
+				game.tick(0);
+			}
+			long start = System.nanoTime();
+			for (int t = 0; t < ticks; t++) {
+				game.tick(0);
+			}
+			long took = System.nanoTime() - start;
+			game.setRegionCount(1);
+			System.out.println("regions: " + regions + " ms per tick: " + String.format("%.3f", took / 1e6 / ticks) + " npc moves per second: "
+					+ (long) (across * across * npcs / 4.0 * ticks / (took / 1e9)) + " npcs on the board: " + countNPCs(board));
+		}
+	}
+
+	/**
+	 * Writes a world in the map file format, a grid of grass locations each joined to the locations beside it, with NPCs on the first tiles of
+	 * every location
+	 *
+	 * @param across - number of locations along each side
+	 * @param npcs - NPCs in each location
+	 * @return world - the map
+	 */
+	static String world(int across, int npcs) {
+		StringBuilder sb = new StringBuilder();
+		for (int id = 0; id < across * across; id++) {
+			location(sb, across, id, npcs);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes one location of a world made by world
+	 *
+	 * @param sb - builder to write the location to
+	 * @param across - number of locations along each side of the world
+	 * @param id - id of the location, its place in the grid going across each row in turn
+	 * @param npcs - NPCs in the location
+	 * @return sb - the builder
+	 */
+	static StringBuilder location(StringBuilder sb, int across, int id, int npcs) {
+		int x = id % across;
+		int y = id / across;
+		sb.append("Location{\nid: ").append(id).append("\nname: ?\nw: ").append(SIZE).append("\nh: ").append(SIZE).append("\n");
+		if (y > 0) {
+			sb.append("NORTH: ").append(id - across).append("\n");
+		}
+		if (x < across - 1) {
+			sb.append("EAST: ").append(id + 1).append("\n");
+		}
+		if (x > 0) {
+			sb.append("WEST: ").append(id - 1).append("\n");
+		}
+		if (y < across - 1) {
+			sb.append("SOUTH: ").append(id + across).append("\n");
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			/* Spread the NPCs out so they have room to move */
+			sb.append(i % (SIZE * SIZE / npcs) == 0 && i / (SIZE * SIZE / npcs) < npcs ? "(Grass(NPC(random,NORTH)))" : "(Grass)");
+			if (i % SIZE == SIZE - 1) {
+				sb.append("\n");
+			}
+		}
+		return sb.append("}\n");
+	}
+
+	/**
+	 * Counts the NPCs standing on the board
+	 *
+	 * @param board - board to count
+	 * @return count - number of tiles holding an NPC
+	 */
+	private static int countNPCs(Board board) {
+		int count = 0;
+		for (Location loc : board.getLocations().values()) {
+			for (Tile[] column : loc.getTiles()) {
+				for (Tile t : column) {
+					if (t.getGameObject() instanceof NPC) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+}
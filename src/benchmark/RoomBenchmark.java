@@ -0,0 +1,285 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import clientserver.FrameCodec;
+import clientserver.NioServer;
+import clientserver.Packet;
+import clientserver.PlayerCommand;
+import clientserver.Server;
+
+/**
+ * Benchmark for hosting many rooms in one server. It fills a number of rooms with four logged in players each, reports the heap and threads
+ * used to hold them, then has every player make a move four times a second and reports how many moves a second were acknowledged, how long the
+ * acknowledgements took and how many room ticks overran. A number of rooms is sustained while the moves are acknowledged within a tick or two
+ * and few ticks overrun.
+ *
+ * Run each number of rooms in its own JVM so the memory figures are not mixed up:
+ * RoomBenchmark thread|virtual|nio [rooms] [seconds] [port]
+ */
+public class RoomBenchmark {
+
+	private static final int PLAYERS = 4;
+	private static final long MOVE_INTERVAL_NANOS = 250000000L;
+
+	private Selector selector;
+	private List<Long> latencies = new ArrayList<Long>();
+	private int boards;
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - mode, followed by optional room count, seconds to make moves for and port
+	 * @throws Exception - if the benchmark cannot run
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1 || !(args[0].equals("thread") || args[0].equals("virtual") || args[0].equals("nio"))) {
+			System.out.println("Usage: RoomBenchmark thread|virtual|nio [rooms] [seconds] [port]");
+			return;
+		}
+		int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int port = args.length > 3 ? Integer.parseInt(args[3]) : 4700;
+		new RoomBenchmark().run(args[0], rooms, seconds, port);
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the benchmark against one server mode
+	 *
+	 * @param mode - thread, virtual or nio
+	 * @param rooms - number of rooms to fill
+	 * @param seconds - how long to make moves for
+	 * @param port - port to run the server on
+	 * @throws Exception - if the benchmark cannot run
+	 */
+	public void run(String mode, int rooms, int seconds, int port) throws Exception {
+		final Server server = mode.equals("nio") ? new NioServer(port) : new Server(port, mode.equals("virtual"));
+		Thread serverThread = new Thread(new Runnable() {
+			public void run() {
+				server.start();
+			}
+		}, "benchmark-server");
+		serverThread.setDaemon(true);
+		serverThread.start();
+		long deadline = System.currentTimeMillis() + 30000;
+		while (server.getRoomCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		int connections = rooms * PLAYERS;
+		Reader[] readers = new Reader[connections];
+		for (int i = 0; i < connections; i++) {
+			readers[i] = new Reader();
+		}
+		long heapBefore = usedHeap();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		selector = Selector.open();
+		SocketChannel[] channels = new SocketChannel[connections];
+		long joinStart = System.nanoTime();
+		for (int i = 0; i < connections; i++) {
+			channels[i] = connect(port);
+			channels[i].configureBlocking(false);
+			channels[i].register(selector, SelectionKey.OP_READ, readers[i]);
+			send(channels[i], new PlayerCommand("room join room" + i / PLAYERS));
+			send(channels[i], new PlayerCommand("login player" + i));
+		}
+		deadline = System.currentTimeMillis() + 60000;
+		while (boards < connections && System.currentTimeMillis() < deadline) {
+			poll(100);
+		}
+		long joinMillis = (System.nanoTime() - joinStart) / 1000000;
+		drain(1000);
+
+		long heapAfter = usedHeap();
+		int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+		String ticksBefore = server.getTickStats();
+
+		latencies.clear();
+		int sent = 0;
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		long nextRound = start;
+		int round = 0;
+		while (System.nanoTime() < end) {
+			if (System.nanoTime() >= nextRound) {
+				round++;
+				for (int i = 0; i < connections; i++) {
+					readers[i].sentAt[round % readers[i].sentAt.length] = System.nanoTime();
+					send(channels[i], new PlayerCommand("move player" + i + (round % 2 == 0 ? " north" : " south"), round));
+					sent++;
+				}
+				nextRound += MOVE_INTERVAL_NANOS;
+			}
+			poll(Math.max(1, (nextRound - System.nanoTime()) / 1000000));
+		}
+		drain(500);
+		Collections.sort(latencies);
+
+		System.out.println("mode:                 " + mode);
+		System.out.println("rooms:                " + server.getRoomCount() + " open, " + boards + " of " + connections + " players logged in in "
+				+ joinMillis + " ms");
+		System.out.println("server threads:       " + (threadsAfter - threadsBefore));
+		System.out.println("heap used:            " + (heapAfter - heapBefore) / 1024 + " KB, " + (heapAfter - heapBefore) / 1024 / rooms
+				+ " KB per room");
+		System.out.println("moves acknowledged:   " + latencies.size() + " of " + sent + ", " + latencies.size() / seconds + " a second");
+		System.out.println("move ack (us) median: " + percentile(50) + " p99: " + percentile(99) + " max: " + percentile(100));
+		System.out.println("before moves:         " + ticksBefore);
+		System.out.println("after moves:          " + server.getTickStats());
+		server.stop();
+	}
+
+	/**
+	 * Finds a percentile of the acknowledgement times
+	 *
+	 * @param percent - percentile to find
+	 * @return micros - time in microseconds, -1 if nothing was acknowledged
+	 */
+	private long percentile(int percent) {
+		if (latencies.isEmpty()) {
+			return -1;
+		}
+		return latencies.get(Math.min(latencies.size() - 1, latencies.size() * percent / 100)) / 1000;
+	}
+
+	/**
+	 * Opens a blocking connection to the server
+	 *
+	 * @param port - port of the server
+	 * @return channel - connected channel
+	 * @throws IOException - if the connection fails
+	 */
+	private SocketChannel connect(int port) throws IOException {
+		IOException last = null;
+		for (int attempt = 0; attempt < 100; attempt++) {
+			try {
+				return SocketChannel.open(new InetSocketAddress("localhost", port));
+			} catch (IOException e) {
+				last = e;
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException ie) {
+				}
+			}
+		}
+		throw last;
+	}
+
+	/**
+	 * Sends a command down a channel
+	 *
+	 * @param channel - channel to write to
+	 * @param command - command to send
+	 * @throws IOException - if writing fails
+	 */
+	private void send(SocketChannel channel, PlayerCommand command) throws IOException {
+		ByteBuffer frame = ByteBuffer.wrap(FrameCodec.encode(command));
+		while (frame.hasRemaining()) {
+			if (channel.write(frame) == 0) {
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * Reads and throws away everything that arrives for a while
+	 *
+	 * @param millis - time to drain for
+	 * @throws IOException - if reading fails
+	 */
+	private void drain(long millis) throws IOException {
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			poll(50);
+		}
+	}
+
+	/**
+	 * Reads every channel that is ready
+	 *
+	 * @param millis - longest time to wait for a channel
+	 * @throws IOException - if reading fails
+	 */
+	private void poll(long millis) throws IOException {
+		selector.select(millis);
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			((Reader) key.attachment()).read((SocketChannel) key.channel());
+		}
+	}
+
+	/**
+	 * Used heap after asking for a garbage collection
+	 *
+	 * @return bytes - used heap in bytes
+	 */
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Reads frames from one player connection and times the acknowledgement of each of its moves
+	 */
+	private class Reader {
+		ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+		long[] sentAt = new long[64];
+		boolean loggedIn;
+
+		/**
+		 * Reads whatever has arrived and looks through the complete frames
+		 *
+		 * @param channel - channel to read
+		 * @throws IOException - if reading fails
+		 */
+		void read(SocketChannel channel) throws IOException {
+			if (channel.read(buffer) < 0) {
+				channel.close();
+				return;
+			}
+			buffer.flip();
+			while (buffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+				int length = buffer.getInt(buffer.position());
+				if (buffer.remaining() < FrameCodec.HEADER_LENGTH + length) {
+					break;
+				}
+				buffer.position(buffer.position() + FrameCodec.HEADER_LENGTH);
+				Packet packet = FrameCodec.decodePacket(buffer.array(), buffer.position(), length);
+				buffer.position(buffer.position() + length);
+				if (packet.getType() == Packet.BOARD && !loggedIn) {
+					loggedIn = true;
+					boards++;
+				} else if (packet.getType() == Packet.ACK && packet.getSequence() > 0) {
+					long sent = sentAt[packet.getSequence() % sentAt.length];
+					if (sent != 0) {
+						latencies.add(System.nanoTime() - sent);
+						sentAt[packet.getSequence() % sentAt.length] = 0;
+					}
+				}
+			}
+			buffer.compact();
+			if (buffer.position() >= FrameCodec.HEADER_LENGTH && buffer.getInt(0) + FrameCodec.HEADER_LENGTH > buffer.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.getInt(0) + FrameCodec.HEADER_LENGTH);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import clientserver.FrameCodec;
+import clientserver.NioServer;
+import clientserver.Packet;
+import clientserver.PlayerCommand;
+import clientserver.Server;
+
+/**
+ * Benchmark comparing the thread per client server, on platform or virtual threads, with the non-blocking server. It opens a number of connections to a server running in this JVM,
+ * reports how many were accepted, the threads and heap used to hold them, how long a move made by the one logged in client takes to come back to
+ * it, and how long each time broadcast takes to reach every connection.
+ *
+ * Run each mode in its own JVM so the memory figures are not mixed up:
+ * ServerBenchmark thread|virtual|nio [connections] [rounds] [port]
+ */
+public class ServerBenchmark {
+
+	private static final String PLAYER = "benchmark";
+
+	private Selector selector;
+	private SocketChannel[] channels;
+	private long deltaReceived;
+	private Map<Integer, long[]> timeArrivals = new HashMap<Integer, long[]>();
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - mode, followed by optional connection count, round count and port
+	 * @throws Exception - if the benchmark cannot run
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1 || !(args[0].equals("thread") || args[0].equals("virtual") || args[0].equals("nio"))) {
+			System.out.println("Usage: ServerBenchmark thread|virtual|nio [connections] [rounds] [port]");
+			return;
+		}
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		int port = args.length > 3 ? Integer.parseInt(args[3]) : 4600;
+		new ServerBenchmark().run(args[0], connections, rounds, port);
+		System.exit(0);
+	}
+
+	/**
+	 * Runs the benchmark against one server mode
+	 *
+	 * @param mode - thread, virtual or nio
+	 * @param connections - number of connections to open
+	 * @param rounds - number of broadcasts to time
+	 * @param port - port to run the server on
+	 * @throws Exception - if the benchmark cannot run
+	 */
+	public void run(String mode, int connections, int rounds, int port) throws Exception {
+		long heapBefore = usedHeap();
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		final Server server = mode.equals("nio") ? new NioServer(port) : new Server(port, mode.equals("virtual"));
+		Thread serverThread = new Thread(new Runnable() {
+			public void run() {
+				server.start();
+			}
+		}, "benchmark-server");
+		serverThread.setDaemon(true);
+		serverThread.start();
+
+		selector = Selector.open();
+		channels = new SocketChannel[connections];
+		long connectStart = System.nanoTime();
+		/* The first connection logs in before the others so it is within the login limit */
+		channels[0] = connect(port);
+		send(channels[0], new PlayerCommand("login " + PLAYER));
+		awaitBoard(channels[0]);
+		for (int i = 1; i < connections; i++) {
+			channels[i] = connect(port);
+		}
+		for (int i = 0; i < connections; i++) {
+			channels[i].configureBlocking(false);
+			channels[i].register(selector, SelectionKey.OP_READ, new Reader(i));
+		}
+		long deadline = System.currentTimeMillis() + 30000;
+		while (server.getConnectionCount() < connections && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		long connectMillis = (System.nanoTime() - connectStart) / 1000000;
+		drain(500);
+
+		long heapAfter = usedHeap();
+		int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		timeArrivals.clear();
+		long[] latencies = new long[rounds];
+		for (int r = 0; r < rounds; r++) {
+			deltaReceived = 0;
+			long start = System.nanoTime();
+			send(channels[0], new PlayerCommand("move " + PLAYER + (r % 2 == 0 ? " north" : " south")));
+			long roundDeadline = System.currentTimeMillis() + 10000;
+			while (deltaReceived == 0 && System.currentTimeMillis() < roundDeadline) {
+				poll(100);
+			}
+			latencies[r] = deltaReceived == 0 ? -1 : (deltaReceived - start) / 1000;
+		}
+		Arrays.sort(latencies);
+		/* Wait for a few time broadcasts to have reached every connection */
+		long timeDeadline = System.currentTimeMillis() + 10000;
+		while (timeSpreads(connections).size() < 5 && System.currentTimeMillis() < timeDeadline) {
+			poll(100);
+		}
+		List<Long> spreads = timeSpreads(connections);
+
+		System.out.println("mode:                 " + mode);
+		System.out.println("connections accepted: " + server.getConnectionCount() + " of " + connections + " in " + connectMillis + " ms");
+		System.out.println("server threads:       " + (threadsAfter - threadsBefore));
+		System.out.println("heap used:            " + (heapAfter - heapBefore) / 1024 + " KB");
+		System.out.println("move round trip (us) median: " + latencies[rounds / 2] + " p90: " + latencies[rounds * 9 / 10] + " max: "
+				+ latencies[rounds - 1]);
+		System.out.println("time broadcast first to last connection (us) median: " + (spreads.isEmpty() ? -1 : spreads.get(spreads.size() / 2))
+				+ " max: " + (spreads.isEmpty() ? -1 : spreads.get(spreads.size() - 1)) + " over " + spreads.size() + " broadcasts");
+		server.stop();
+	}
+
+	/**
+	 * Opens a blocking connection to the server
+	 *
+	 * @param port - port of the server
+	 * @return channel - connected channel
+	 * @throws IOException - if the connection fails
+	 */
+	private SocketChannel connect(int port) throws IOException {
+		IOException last = null;
+		for (int attempt = 0; attempt < 100; attempt++) {
+			try {
+				return SocketChannel.open(new InetSocketAddress("localhost", port));
+			} catch (IOException e) {
+				last = e;
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException ie) {
+				}
+			}
+		}
+		throw last;
+	}
+
+	/**
+	 * Sends a command down a channel
+	 *
+	 * @param channel - channel to write to
+	 * @param command - command to send
+	 * @throws IOException - if writing fails
+	 */
+	private void send(SocketChannel channel, PlayerCommand command) throws IOException {
+		ByteBuffer frame = ByteBuffer.wrap(FrameCodec.encode(command));
+		while (frame.hasRemaining()) {
+			if (channel.write(frame) == 0) {
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * Blocks until the whole board arrives on a channel, which means the login has been accepted
+	 *
+	 * @param channel - blocking channel that has logged in
+	 * @throws IOException - if reading fails
+	 */
+	private void awaitBoard(SocketChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_LENGTH);
+		while (true) {
+			header.clear();
+			readFully(channel, header);
+			ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+			readFully(channel, body);
+			Packet packet = FrameCodec.decodePacket(body.array(), 0, body.capacity());
+			if (packet.getType() == Packet.BOARD) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Fills a buffer from a blocking channel
+	 *
+	 * @param channel - channel to read
+	 * @param buffer - buffer to fill
+	 * @throws IOException - if the channel closes first
+	 */
+	private void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Connection closed by server");
+			}
+		}
+	}
+
+	/**
+	 * Reads and throws away everything that arrives for a while
+	 *
+	 * @param millis - time to drain for
+	 * @throws IOException - if reading fails
+	 */
+	private void drain(long millis) throws IOException {
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			poll(50);
+		}
+	}
+
+	/**
+	 * Reads every channel that is ready and records when the logged in connection receives a board change and when each connection receives
+	 * each time broadcast
+	 *
+	 * @param millis - longest time to wait for a channel
+	 * @throws IOException - if reading fails
+	 */
+	private void poll(long millis) throws IOException {
+		selector.select(millis);
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			((Reader) key.attachment()).read((SocketChannel) key.channel());
+		}
+	}
+
+	/**
+	 * Works out how far apart the first and last connection received each time broadcast that has reached every connection
+	 *
+	 * @param connections - number of connections
+	 * @return spreads - sorted times between the first and last arrival in microseconds
+	 */
+	private List<Long> timeSpreads(int connections) {
+		List<Long> spreads = new ArrayList<Long>();
+		for (long[] arrival : timeArrivals.values()) {
+			if (arrival[2] == connections) {
+				spreads.add((arrival[1] - arrival[0]) / 1000);
+			}
+		}
+		Collections.sort(spreads);
+		return spreads;
+	}
+
+	/**
+	 * Used heap after asking for a garbage collection
+	 *
+	 * @return bytes - used heap in bytes
+	 */
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Reads frames from one benchmark connection
+	 */
+	private class Reader {
+		int index;
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+		/**
+		 * Constructor for a reader of a connection
+		 *
+		 * @param index - index of the connection
+		 */
+		Reader(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * Reads whatever has arrived and looks through the complete frames
+		 *
+		 * @param channel - channel to read
+		 * @throws IOException - if reading fails
+		 */
+		void read(SocketChannel channel) throws IOException {
+			if (channel.read(buffer) < 0) {
+				channel.close();
+				return;
+			}
+			buffer.flip();
+			while (buffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+				int length = buffer.getInt(buffer.position());
+				if (buffer.remaining() < FrameCodec.HEADER_LENGTH + length) {
+					break;
+				}
+				buffer.position(buffer.position() + FrameCodec.HEADER_LENGTH);
+				Packet packet = FrameCodec.decodePacket(buffer.array(), buffer.position(), length);
+				buffer.position(buffer.position() + length);
+				if (packet.getType() == Packet.DELTA && index == 0 && deltaReceived == 0) {
+					deltaReceived = System.nanoTime();
+				} else if (packet.getType() == Packet.TIME) {
+					long now = System.nanoTime();
+					long[] arrival = timeArrivals.get(packet.getTime());
+					if (arrival == null) {
+						timeArrivals.put(packet.getTime(), new long[] { now, now, 1 });
+					} else {
+						arrival[1] = now;
+						arrival[2]++;
+					}
+				}
+			}
+			buffer.compact();
+			if (buffer.position() >= FrameCodec.HEADER_LENGTH && buffer.getInt(0) + FrameCodec.HEADER_LENGTH > buffer.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.getInt(0) + FrameCodec.HEADER_LENGTH);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+	}
+}
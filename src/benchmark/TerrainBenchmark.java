@@ -0,0 +1,149 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import core.Board;
+import core.GameSystem.Direction;
+import core.Location;
+import gameobjects.GameObject;
+import iohandling.BoardParser;
+import iohandling.BoardWriter;
+import tile.Tile;
+
+/**
+ * Benchmark for the heap taken by the tiles of a board. It parses a board, measures the heap it holds with a Tile object for every tile,
+ * keeps its locations compactly and measures it again, then times walking every tile in every direction both ways, as views are made
+ * whenever a compact tile is asked for. It runs on the real map, on a made up world of 10,000 locations and on a made up forest of the same
+ * size whose tiles are nearly all trees and fences, and counts the game objects on each board and how many different objects they are.
+ *
+ * TerrainBenchmark [map file] [locations along each side of the made up worlds]
+ */
+public class TerrainBenchmark {
+
+	private static final int NPCS = 4;
+
+	/**
+	 * Main method of the benchmark
+	 *
+	 * @param args - optional map file and number of locations along each side of the made up world
+	 */
+	public static void main(String[] args) {
+		String fname = args.length > 0 ? args[0] : "map-new.txt";
+		int across = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		long base = usedHeap();
+		run(fname, BoardParser.parseBoardFName(fname), base);
+		String world = RegionBenchmark.world(across, NPCS);
+		Board board = BoardParser.parseBoardString(world);
+		world = null;
+		run(across * across + " location world", board, base);
+		board = null;
+		board = BoardParser.parseBoardString(forest(across));
+		run(across * across + " location forest", board, base);
+	}
+
+	/**
+	 * Makes a world whose tiles are all trees and fences, apart from a path along each edge of every location
+	 *
+	 * @param across - number of locations along each side of the world
+	 * @return text - text map of the world
+	 */
+	private static String forest(int across) {
+		StringBuilder sb = new StringBuilder();
+		for (int id = 0; id < across * across; id++) {
+			/* Keep the header of a location of the made up world and plant its tiles */
+			String location = RegionBenchmark.location(new StringBuilder(), across, id, 1).toString();
+			sb.append(location, 0, location.indexOf('('));
+			int size = RegionBenchmark.SIZE;
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					boolean edge = x == 0 || y == 0 || x == size - 1 || y == size - 1;
+					sb.append(edge ? "(Grass)" : (x + y) % 3 == 0 ? "(Grass(Fence))" : "(Grass(Tree))");
+				}
+				sb.append("\n");
+			}
+			sb.append("}\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Measures one board with arrays of tiles and then compactly
+	 *
+	 * @param name - name of the board to report
+	 * @param board - board just parsed
+	 * @param base - heap in use before the board was made
+	 */
+	private static void run(String name, Board board, long base) {
+		long tiles = usedHeap() - base;
+		long walkTiles = walk(board);
+		String text = BoardWriter.writeBoardToString(board);
+		int length = text.length();
+		int hash = text.hashCode();
+		text = null;
+		board.compact();
+		long compact = usedHeap() - base;
+		long walkCompact = walk(board);
+		text = BoardWriter.writeBoardToString(board);
+		if (text.length() != length || text.hashCode() != hash) {
+			throw new IllegalStateException("The compact board of " + name + " is not the same board");
+		}
+		Set<GameObject> distinct = Collections.newSetFromMap(new IdentityHashMap<GameObject, Boolean>());
+		int objects = 0;
+		for (Location loc : board.getLocations().values()) {
+			for (Tile t : loc.getOccupiedTiles()) {
+				distinct.add(t.getGameObject());
+				objects++;
+			}
+		}
+		System.out.println(name + " (" + board.getLocations().size() + " locations, " + objects + " game objects, " + distinct.size()
+				+ " different): tiles " + tiles / 1024 + " KB, compact " + compact / 1024
+				+ " KB (" + String.format("%.1f", (double) tiles / compact) + "x smaller), walk tiles " + walkTiles / 1000 + " us, walk compact "
+				+ walkCompact / 1000 + " us");
+	}
+
+	/**
+	 * Walks from every tile of every location in every direction a few times and times the last time
+	 *
+	 * @param board - board to walk
+	 * @return nanos - time of the last walk
+	 */
+	private static long walk(Board board) {
+		long took = 0;
+		int sink = 0;
+		for (int run = 0; run < 5; run++) {
+			long start = System.nanoTime();
+			for (Location loc : board.getLocations().values()) {
+				for (int x = 0; x < loc.getWidth(); x++) {
+					for (int y = 0; y < loc.getHeight(); y++) {
+						for (Direction d : Direction.values()) {
+							Tile t = loc.getTileInDirection(x, y, d);
+							if (t != null && t.getGameObject() == null) {
+								sink++;
+							}
+						}
+					}
+				}
+			}
+			took = System.nanoTime() - start;
+		}
+		if (sink == 0) {
+			System.out.println("nothing was walked");
+		}
+		return took;
+	}
+
+	/**
+	 * Gets the heap in use once garbage has been collected
+	 *
+	 * @return bytes - heap in use
+	 */
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -1,10 +1,11 @@
 package clientserver;
 
 import java.net.*;
-import java.util.Scanner;
 import java.io.*;
 import javax.swing.JFrame;
 
+import core.Board;
+import core.GameSystem.Direction;
 import gui.Menu;
 import iohandling.BoardParser;
 
@@ -16,8 +17,8 @@ import iohandling.BoardParser;
  *
  */
 public class Client {
-	private ObjectInputStream sInput; 
-	private ObjectOutputStream sOutput; 
+	private DataInputStream sInput; 
+	private DataOutputStream sOutput; 
 	private Socket socket;
 
 	private String server;
@@ -25,7 +26,13 @@ public class Client {
 	private ClientController clientController;
 	private JFrame menu;
 	private String username;
+	private String room;
 	private boolean loggedIn = false;
+	private Board board;
+	private int boardVersion;
+	private boolean awaitingBoard = false;
+	private int sequence;
+	private final MovePredictor predictor = new MovePredictor();
 
 	/**
 	 * Constructor for the client, that gets called when a method within the menu class is called
@@ -36,10 +43,24 @@ public class Client {
 	 * @param menu - The menu frame that the client is using
 	 */
 	public Client(String server, int port, String username, JFrame menu) {
+		this(server, port, username, null, menu);
+	}
+
+	/**
+	 * Constructor for a client that plays in a room of the server other than the main room, the room is made if it does not exist yet
+	 * 
+	 * @param server - The server that the client is trying to connect to
+	 * @param port - The port that the client is connecting to the server through
+	 * @param username - The username that the user has entered that is going to correspond to the client
+	 * @param room - The name of the room to join, null to play in the main room
+	 * @param menu - The menu frame that the client is using
+	 */
+	public Client(String server, int port, String username, String room, JFrame menu) {
 		this.menu = menu;
 		this.server = server;
 		this.port = port;
 		this.username = username;
+		this.room = room;
 
 		if (!this.start()) {
 			menu.dispose();
@@ -64,8 +85,8 @@ public class Client {
 		}
 		
 		try {
-			sInput = new ObjectInputStream(socket.getInputStream());
-			sOutput = new ObjectOutputStream(socket.getOutputStream());
+			sInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			sOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 		} catch (IOException e) {
 			System.out.println("Exception creating new Input/output Streams: " + e);
 			return false;
@@ -73,18 +94,44 @@ public class Client {
 
 		clientController = new ClientController(this);
 		new ListenFromServer().start();
+		if (room != null) {
+			sendMessage(new PlayerCommand("room join " + room));
+		}
 		sendMessage(new PlayerCommand("login " + this.username));
 		return true;
 	}
 
 	/**
-	 * Helper method that sends a player command through to the server
+	 * Helper method that sends a player command through to the server, each command is numbered so the server can acknowledge it
+	 * 
+	 * @param msg - message getting sent through to the server
+	 */
+	public synchronized void sendMessage(PlayerCommand msg) {
+		write(new PlayerCommand(msg.getMessage(), ++sequence));
+	}
+
+	/**
+	 * Method that sends a move through to the server and moves the player on the board straight away without waiting for the server to reply.
+	 * The move is checked against the board again when the server acknowledges it
+	 * 
+	 * @param direction - direction the player is moving
+	 */
+	public synchronized void sendMove(Direction direction) {
+		sequence++;
+		synchronized (predictor) {
+			predictor.predict(board, username, sequence, direction);
+		}
+		write(new PlayerCommand("move " + username + " " + direction.toString(), sequence));
+	}
+
+	/**
+	 * Helper method that writes a command that has been numbered to the server
 	 * 
 	 * @param msg - message getting sent through to the server
 	 */
-	public void sendMessage(PlayerCommand msg) {
+	private void write(PlayerCommand msg) {
 		try {
-			sOutput.writeObject(msg);
+			FrameCodec.writeFrame(sOutput, msg);
 		} catch (IOException e) {
 			System.out.println("Exception writing to server: " + e);
 		}
@@ -115,45 +162,84 @@ public class Client {
 		public void run() {
 			while (true) {
 				try {
-					Packet packet = (Packet) sInput.readObject();
-					if (packet.getType().equals("board")) {
+					Packet packet = FrameCodec.readPacket(sInput);
+					switch (packet.getType()) {
+					case Packet.BOARD:
 						if (!loggedIn) { //Initial login
 							menu.dispose();			
 							clientController.showGUI();
 							loggedIn = true;
 						}
-						clientController.sendBoard(BoardParser.parseBoardString(packet.getBoard())); //send board away to be draw
-					} else if (packet.getType().equals("string")) {
-						if (packet.getMessage().equals("fail login")) { //Failed to log in, creates a new menu to attempt to login again
-							menu.dispose();
-							new Menu();
-						}else if(packet.getMessage().contains("endgame")){ //When the game is over, gets the winning username and calls a method
-							String playerName = null;
-							try{
-								Scanner s = new Scanner(packet.getMessage());
-								s.next();
-								playerName = s.next();
-								s.close();
-							}catch(Exception e){
-								System.out.println(e);
-							}
-							if(playerName != null){
-								clientController.showEndGameScreen(playerName);
-							}
+						synchronized (predictor) { //A whole new board, apply the moves the server has not processed yet on top
+							board = BoardParser.parseBoardString(packet.getBoard());
+							boardVersion = packet.getVersion();
+							awaitingBoard = false;
+							predictor.forget();
+							predictor.replay(board, username, boardVersion);
+						}
+						clientController.sendBoard(board); //send board away to be draw
+						break;
+					case Packet.DELTA:
+						applyDelta(packet);
+						break;
+					case Packet.ACK: //Server has processed commands up to this one, stop predicting the moves it now holds
+						synchronized (predictor) {
+							predictor.acknowledge(packet.getSequence(), packet.getVersion());
+							predictor.rewind();
+							predictor.replay(board, username, boardVersion);
+						}
+						clientController.sendBoard(board);
+						break;
+					case Packet.LOGIN_FAILED: //Failed to log in, creates a new menu to attempt to login again
+						menu.dispose();
+						new Menu();
+						break;
+					case Packet.ENDGAME: //When the game is over, the message holds the winning username
+						if (packet.getMessage() != null) {
+							clientController.showEndGameScreen(packet.getMessage());
 						}
-					}else if(packet.getType().equals("time")){ //Updates the time of the server in client controller
+						break;
+					case Packet.TIME: //Updates the time of the server in client controller
 						clientController.updateTime(packet.getTime());
-					}else if(packet.getType().equals("popup") || packet.getType().equals("popupOne") || packet.getType().equals("popupBarOne")){ //Creates a popup with the correct message
+						break;
+					case Packet.POPUP:
+					case Packet.POPUP_ONE:
+					case Packet.POPUP_BAR_ONE: //Creates a popup with the correct message
 						clientController.showMessage(packet.getMessage());
+						break;
 					}
 				} catch (IOException e) {
 					clientController.hideGUI();
 					System.out.println("Server has close the connection: " + e);
 					break;
-				} catch (ClassNotFoundException e) {
-					
 				}
 			}
 		}
+
+		/**
+		 * Method that applies the changes to the board held within the packet, the server skips versions that change nothing this client can see
+		 * so each delta says which version it applies to. If a delta has been missed the whole board is requested from the server and deltas are
+		 * ignored until it arrives
+		 * 
+		 * @param packet - packet holding the delta of the board
+		 */
+		private void applyDelta(Packet packet) {
+			if (board == null || awaitingBoard || packet.getVersion() <= boardVersion) { //No board to apply to yet or an old delta
+				return;
+			}
+			if (packet.getBaseVersion() != boardVersion) { //Missed a delta, ask for the whole board
+				awaitingBoard = true;
+				sendMessage(new PlayerCommand("resync " + username));
+				return;
+			}
+			synchronized (predictor) {
+				//Undo the predicted moves, apply the changes and then the moves the server has not processed yet
+				predictor.rewind();
+				BoardParser.parseDeltaString(packet.getBoard(), board);
+				boardVersion = packet.getVersion();
+				predictor.replay(board, username, boardVersion);
+			}
+			clientController.sendBoard(board); //send board away to be draw
+		}
 	}
 }
@@ -0,0 +1,28 @@
+package clientserver;
+
+/**
+ * Interface for a connection between the server and a single client, the server uses this to send frames without knowing how the connection is
+ * being served
+ */
+interface ClientConnection {
+
+	/**
+	 * Getter for the unique id of the connection
+	 * 
+	 * @return id - id of the connection
+	 */
+	int getClientId();
+
+	/**
+	 * Method that attempts to write an encoded packet to the client, the same frame may be written to many clients
+	 * 
+	 * @param frame - Frame to send
+	 * @return boolean - If the client is still connected
+	 */
+	boolean writeToClient(Frame frame);
+
+	/**
+	 * Method that closes the connection to the client
+	 */
+	void close();
+}
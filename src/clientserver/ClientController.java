@@ -7,7 +7,6 @@ import core.Board;
 import core.GameSystem.Direction;
 import gui.GUI;
 import gui.GameOver;
-import gui.UltimateDijkstras;
 import core.Location;
 import gameobjects.Player;
 import iohandling.BoardWriter;
@@ -28,7 +27,6 @@ public class ClientController {
 	private Renderer renderer;
 	private Board board;
 	private int time;
-	private UltimateDijkstras uDijkstras;
 
 	/**
 	 * Constructor that gets called when the client is called, that makes this controller object
@@ -38,7 +36,6 @@ public class ClientController {
 	public ClientController(Client c) {
 		this.client = c;
 		renderer = new Renderer();
-		uDijkstras = null;
 		drawBoard();
 		time = 0;
 	}
@@ -156,10 +153,6 @@ public class ClientController {
 	 * @param dir - direction to move
 	 */
 	public void moveSinglePos(String dir) {
-		if(uDijkstras != null ){
-			uDijkstras.setPath(null);
-		}
-
 		//Get real direction from string input
 		Direction d = null;
 		if (dir.equals("N"))
@@ -181,68 +174,34 @@ public class ClientController {
 		if (t != null) {
 			Direction direction = Location.getDirDijkstras(board.getPlayer(getName()).getTile(), t);
 			if (direction != null) {
-				String command = "move " + getName() + " " + direction.toString();
-				sendMessage(new PlayerCommand(command));
+				client.sendMove(direction); //Moves the player straight away, the server corrects it if it disagrees
 			}
 			drawBoard();
 		}
 	}
 
 	/**
-	 * Move player to select position from current position using dijkstras algorithm
+	 * Move player to select position from current position, the server finds the path and walks the player along it one step each tick
 	 *
 	 * @param x - x-pos to move
 	 * @param y - y-pos to move
 	 */
-	public void moveWithUltimateDijkstras(int x, int y) {
-		//Reset path if moving
-		if (uDijkstras != null)
-			uDijkstras.setPath(null);
-
-		//Get tile at player position and x,y coord
+	public void goToTile(int x, int y) {
+		//Get tile at x,y coord
 		if (board != null) {
 			Position p = renderer.isoToIndex(x, y);
 			Location loc = board.getPlayer(getName()).getLocation();
 			Tile t = loc.getTileAtPosition(p);
 			renderer.selectTile(t);
 
-			//Create path to destination and start timer to move
+			//Ask the server to walk there
 			if (t != null) {
-				uDijkstras = new UltimateDijkstras(this, board.getPlayer(getName()).getTile(), loc, t);
-				uDijkstras.createPath();
-
-				uDijkstras.startTimer();
+				String command = "goto " + getName() + " " + t.getPos().getX() + " " + t.getPos().getY() + " " + t.getLocationID();
+				sendMessage(new PlayerCommand(command));
 			}
 		}
 	}
 
-	/**
-	 * Moves Player to tile (for dijkstras algorithm)
-	 *
-	 * @param t - tile to move to
-	 */
-	public void moveToPos(Tile t) {
-		Tile from = null;
-
-		//Checks that players position is the correct position
-		if(uDijkstras.oldTile == null){
-			from = board.getPlayer(getName()).getTile();
-			uDijkstras.oldTile = from;
-		}else{
-			from = uDijkstras.oldTile;
-		}
-
-		Direction d = Location.getDirDijkstras(from, t);
-
-		//Move player to tile
-		if (d != null) {
-			String command = "move " + getName() + " " + d.toString();
-			sendMessage(new PlayerCommand(command));
-		}
-		uDijkstras.oldTile = t;
-		drawBoard();
-	}
-
 	/**
 	 * Gets the inventory using the board and the name of the player and returns it
 	 *
@@ -0,0 +1,85 @@
+package clientserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An encoded frame that is ready to be written to any number of clients. The bytes are encoded once and never changed afterwards, so the same frame
+ * can be shared by every recipient of a broadcast and kept for as long as what it holds is still current
+ */
+public final class Frame {
+	private final byte[] bytes;
+	private final byte type;
+	private final int version;
+
+	/**
+	 * Constructor that encodes a packet into a frame
+	 *
+	 * @param packet - Packet to be encoded
+	 */
+	public Frame(Packet packet) {
+		this.bytes = FrameCodec.encode(packet);
+		this.type = packet.getType();
+		this.version = packet.getVersion();
+	}
+
+	/**
+	 * Constructor for a frame that has already been encoded
+	 *
+	 * @param bytes - bytes of the whole frame
+	 * @param type - opcode of the packet
+	 * @param version - board version of the packet
+	 */
+	Frame(byte[] bytes, byte type, int version) {
+		this.bytes = bytes;
+		this.type = type;
+		this.version = version;
+	}
+
+	/**
+	 * Getter for the kind of packet held in the frame
+	 *
+	 * @return type - opcode of the packet
+	 */
+	public byte getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for the board version of the packet held in the frame
+	 *
+	 * @return version - board version, 0 if the packet does not hold the board
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter for the length of the frame, including the header
+	 *
+	 * @return length - number of bytes in the frame
+	 */
+	public int length() {
+		return bytes.length;
+	}
+
+	/**
+	 * Gives a new read only buffer over the frame, each caller gets its own position
+	 *
+	 * @return buffer - buffer holding the whole frame
+	 */
+	ByteBuffer buffer() {
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the whole frame to a stream
+	 *
+	 * @param out - stream to write to
+	 * @throws IOException - if writing fails
+	 */
+	void writeTo(OutputStream out) throws IOException {
+		out.write(bytes);
+	}
+}
@@ -0,0 +1,569 @@
+package clientserver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+import core.BoardSnapshot;
+import core.GameSystem.Direction;
+import iohandling.BoardEncoder;
+
+/**
+ * Class that holds the wire protocol used between the client and the server, every message is sent as a frame made up of a four byte length
+ * followed by the body. Frames let the server read and write messages on non-blocking channels without knowing anything about what is inside them.
+ *
+ * The body starts with the protocol version and a one byte opcode for the kind of message, followed by the fields of that message. Whole numbers
+ * are written as varints and strings as a varint length followed by UTF-8 bytes, so no class descriptors are ever sent and each frame can be
+ * decoded on its own.
+ */
+public class FrameCodec {
+	public final static int HEADER_LENGTH = 4;
+	public final static int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+	public final static byte PROTOCOL_VERSION = 2;
+
+	/**
+	 * Encodes a packet into a whole frame, including the length header
+	 *
+	 * @param packet - Packet to be encoded
+	 * @return frame - bytes of the frame
+	 */
+	public static byte[] encode(Packet packet) {
+		FrameWriter out = new FrameWriter(packet.getBoard() == null ? 32 : packet.getBoard().length() + 32);
+		out.writeByte(packet.getType());
+		switch (packet.getType()) {
+		case Packet.BOARD:
+			out.writeVarint(packet.getTime());
+			out.writeVarint(packet.getVersion());
+			out.writeString(packet.getBoard());
+			break;
+		case Packet.DELTA:
+			out.writeVarint(packet.getTime());
+			out.writeVarint(packet.getBaseVersion());
+			out.writeVarint(packet.getVersion());
+			out.writeString(packet.getBoard());
+			break;
+		case Packet.TIME:
+			out.writeVarint(packet.getTime());
+			break;
+		case Packet.LOGIN_FAILED:
+			break;
+		case Packet.ENDGAME:
+			out.writeVarint(packet.getTime());
+			out.writeString(packet.getMessage());
+			break;
+		case Packet.ACK:
+			out.writeVarint(packet.getSequence());
+			out.writeVarint(packet.getVersion());
+			break;
+		default:
+			out.writeString(packet.getMessage());
+		}
+		return out.toFrame();
+	}
+
+	/**
+	 * Encodes a board packet straight from a snapshot of the board into a whole frame, the same frame encode gives for a packet holding the
+	 * board written to a String. The board is encoded into an array of exactly the right size and never becomes a String
+	 *
+	 * @param b - snapshot of the board
+	 * @param locations - ids of the locations to send, or null to send every location
+	 * @param time - time of the server
+	 * @param version - board version
+	 * @return frame - bytes of the frame
+	 */
+	public static byte[] encodeBoard(BoardSnapshot b, Set<Integer> locations, int time, int version) {
+		int length = BoardEncoder.length(b, locations);
+		FrameWriter out = new FrameWriter(1 + varintLength(time) + varintLength(version) + varintLength(length + 1) + length);
+		out.writeByte(Packet.BOARD);
+		out.writeVarint(time);
+		out.writeVarint(version);
+		out.writeVarint(length + 1);
+		out.writeBoard(b, locations, length);
+		return out.toFrame();
+	}
+
+	/**
+	 * Works out how many bytes a whole number takes as a varint
+	 *
+	 * @param value - number, treated as unsigned
+	 * @return length - number of bytes
+	 */
+	static int varintLength(int value) {
+		int length = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Decodes the packet held in the body of a frame
+	 *
+	 * @param body - array holding the body of the frame
+	 * @param offset - offset of the body within the array
+	 * @param length - length of the body
+	 * @return packet - packet held within the frame
+	 * @throws IOException - if the frame is not a valid packet
+	 */
+	public static Packet decodePacket(byte[] body, int offset, int length) throws IOException {
+		FrameReader in = new FrameReader(body, offset, length);
+		byte type = in.readByte();
+		Packet packet;
+		switch (type) {
+		case Packet.BOARD:
+			int time = in.readVarint();
+			int version = in.readVarint();
+			packet = new Packet(type, in.readString(), null, time, version);
+			break;
+		case Packet.DELTA:
+			time = in.readVarint();
+			int baseVersion = in.readVarint();
+			version = in.readVarint();
+			packet = new Packet(type, in.readString(), null, time, baseVersion, version);
+			break;
+		case Packet.TIME:
+			packet = new Packet(type, null, null, in.readVarint());
+			break;
+		case Packet.LOGIN_FAILED:
+			packet = new Packet(type, null, null, 0);
+			break;
+		case Packet.ENDGAME:
+			time = in.readVarint();
+			packet = new Packet(type, null, in.readString(), time);
+			break;
+		case Packet.POPUP:
+		case Packet.POPUP_ONE:
+		case Packet.POPUP_BAR_ONE:
+			packet = new Packet(type, null, in.readString(), 0);
+			break;
+		case Packet.ACK:
+			int sequence = in.readVarint();
+			packet = new Packet(type, sequence, in.readVarint());
+			break;
+		default:
+			throw new IOException("Unknown packet opcode: " + type);
+		}
+		in.checkFinished();
+		return packet;
+	}
+
+	/**
+	 * Encodes a command into a whole frame, including the length header. The opcode is followed by the sequence number of the command, then the
+	 * name and arguments of known actions are written as fields, anything else is sent as its text
+	 *
+	 * @param command - Command to be encoded
+	 * @return frame - bytes of the frame
+	 */
+	public static byte[] encode(PlayerCommand command) {
+		String[] words = command.getMessage().split(" ");
+		FrameWriter out = new FrameWriter(command.getMessage().length() + 8);
+		byte action = command.getAction();
+		try {
+			switch (action) {
+			case PlayerCommand.LOGIN:
+			case PlayerCommand.PICKUP:
+			case PlayerCommand.RESYNC:
+				checkWords(words, 2);
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				out.writeString(words[1]);
+				return out.toFrame();
+			case PlayerCommand.MOVE:
+				checkWords(words, 3);
+				byte direction = (byte) Direction.valueOf(words[2].toUpperCase()).ordinal();
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				out.writeString(words[1]);
+				out.writeByte(direction);
+				return out.toFrame();
+			case PlayerCommand.DROP:
+			case PlayerCommand.SIPHON:
+			case PlayerCommand.USE:
+				checkWords(words, 3);
+				int index = Integer.parseInt(words[2]);
+				if (index < 0) {
+					throw new IllegalArgumentException("Negative index");
+				}
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				out.writeString(words[1]);
+				out.writeVarint(index);
+				return out.toFrame();
+			case PlayerCommand.GOTO:
+				checkWords(words, 5);
+				int x = Integer.parseInt(words[2]);
+				int y = Integer.parseInt(words[3]);
+				int location = Integer.parseInt(words[4]);
+				if (x < 0 || y < 0 || location < 0) {
+					throw new IllegalArgumentException("Negative position");
+				}
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				out.writeString(words[1]);
+				out.writeVarint(x);
+				out.writeVarint(y);
+				out.writeVarint(location);
+				return out.toFrame();
+			case PlayerCommand.ROOM:
+				checkWords(words, 3);
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				out.writeString(words[1]);
+				out.writeString(words[2]);
+				return out.toFrame();
+			case PlayerCommand.CLOSE:
+				checkWords(words, 1);
+				out.writeByte(action);
+				out.writeVarint(command.getSequence());
+				return out.toFrame();
+			}
+		} catch (IllegalArgumentException e) {
+			/* Not in the usual form, fall through and send it as text */
+		}
+		out = new FrameWriter(command.getMessage().length() + 8);
+		out.writeByte(PlayerCommand.TEXT);
+		out.writeVarint(command.getSequence());
+		out.writeString(command.getMessage());
+		return out.toFrame();
+	}
+
+	/**
+	 * Decodes the command held in the body of a frame
+	 *
+	 * @param body - array holding the body of the frame
+	 * @param offset - offset of the body within the array
+	 * @param length - length of the body
+	 * @return command - command held within the frame
+	 * @throws IOException - if the frame is not a valid command
+	 */
+	public static PlayerCommand decodeCommand(byte[] body, int offset, int length) throws IOException {
+		FrameReader in = new FrameReader(body, offset, length);
+		byte action = in.readByte();
+		int sequence = in.readVarint();
+		String message;
+		switch (action) {
+		case PlayerCommand.TEXT:
+			message = in.readString();
+			break;
+		case PlayerCommand.LOGIN:
+		case PlayerCommand.PICKUP:
+		case PlayerCommand.RESYNC:
+			message = PlayerCommand.wordOf(action) + " " + in.readString();
+			break;
+		case PlayerCommand.MOVE:
+			String name = in.readString();
+			int direction = in.readByte();
+			if (direction < 0 || direction >= Direction.values().length) {
+				throw new IOException("Unknown direction: " + direction);
+			}
+			message = "move " + name + " " + Direction.values()[direction];
+			break;
+		case PlayerCommand.DROP:
+		case PlayerCommand.SIPHON:
+		case PlayerCommand.USE:
+			name = in.readString();
+			message = PlayerCommand.wordOf(action) + " " + name + " " + in.readVarint();
+			break;
+		case PlayerCommand.GOTO:
+			name = in.readString();
+			message = "goto " + name + " " + in.readVarint() + " " + in.readVarint() + " " + in.readVarint();
+			break;
+		case PlayerCommand.ROOM:
+			String verb = in.readString();
+			message = "room " + verb + " " + in.readString();
+			break;
+		case PlayerCommand.CLOSE:
+			message = "close";
+			break;
+		default:
+			throw new IOException("Unknown command opcode: " + action);
+		}
+		in.checkFinished();
+		if (message == null) {
+			throw new IOException("Missing command text");
+		}
+		return new PlayerCommand(message, sequence);
+	}
+
+	/**
+	 * Checks a command has the number of words its action takes
+	 *
+	 * @param words - words of the command
+	 * @param count - number of words expected
+	 */
+	private static void checkWords(String[] words, int count) {
+		if (words.length != count) {
+			throw new IllegalArgumentException("Expected " + count + " words");
+		}
+	}
+
+	/**
+	 * Checks the length read from a frame header
+	 *
+	 * @param length - length of the body of the frame
+	 * @throws IOException - if the length could not be a valid frame
+	 */
+	public static void checkLength(int length) throws IOException {
+		if (length < 1 || length > MAX_FRAME_LENGTH) {
+			throw new IOException("Invalid frame length: " + length);
+		}
+	}
+
+	/**
+	 * Writes a packet to a stream as a single frame
+	 *
+	 * @param out - stream to write to
+	 * @param packet - packet to be written
+	 * @throws IOException - if writing fails
+	 */
+	public static void writeFrame(DataOutputStream out, Packet packet) throws IOException {
+		out.write(encode(packet));
+		out.flush();
+	}
+
+	/**
+	 * Writes a command to a stream as a single frame
+	 *
+	 * @param out - stream to write to
+	 * @param command - command to be written
+	 * @throws IOException - if writing fails
+	 */
+	public static void writeFrame(DataOutputStream out, PlayerCommand command) throws IOException {
+		out.write(encode(command));
+		out.flush();
+	}
+
+	/**
+	 * Reads a single packet from a stream, blocking until it has arrived
+	 *
+	 * @param in - stream to read from
+	 * @return packet - packet held within the frame
+	 * @throws IOException - if reading fails or the frame is not valid
+	 */
+	public static Packet readPacket(DataInputStream in) throws IOException {
+		byte[] body = readBody(in);
+		return decodePacket(body, 0, body.length);
+	}
+
+	/**
+	 * Reads a single command from a stream, blocking until it has arrived
+	 *
+	 * @param in - stream to read from
+	 * @return command - command held within the frame
+	 * @throws IOException - if reading fails or the frame is not valid
+	 */
+	public static PlayerCommand readCommand(DataInputStream in) throws IOException {
+		byte[] body = readBody(in);
+		return decodeCommand(body, 0, body.length);
+	}
+
+	/**
+	 * Reads the body of a single frame from a stream
+	 *
+	 * @param in - stream to read from
+	 * @return body - bytes of the body of the frame
+	 * @throws IOException - if reading fails or the length is not valid
+	 */
+	private static byte[] readBody(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		checkLength(length);
+		byte[] body = new byte[length];
+		in.readFully(body);
+		return body;
+	}
+
+	/**
+	 * Growable array that a frame is written into, space for the header and protocol version is left at the start
+	 */
+	static class FrameWriter {
+		private byte[] bytes;
+		private int count;
+
+		/**
+		 * Constructor for a writer
+		 *
+		 * @param size - expected size of the body
+		 */
+		FrameWriter(int size) {
+			bytes = new byte[HEADER_LENGTH + 1 + size];
+			count = HEADER_LENGTH;
+			bytes[count++] = PROTOCOL_VERSION;
+		}
+
+		/**
+		 * Makes sure there is room for more bytes
+		 *
+		 * @param extra - number of bytes about to be written
+		 */
+		private void ensure(int extra) {
+			if (count + extra > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+			}
+		}
+
+		/**
+		 * Writes a single byte
+		 *
+		 * @param b - byte to write
+		 */
+		void writeByte(int b) {
+			ensure(1);
+			bytes[count++] = (byte) b;
+		}
+
+		/**
+		 * Writes a whole number using seven bits per byte, the top bit of each byte is set if another byte follows
+		 *
+		 * @param value - number to write, treated as unsigned
+		 */
+		void writeVarint(int value) {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				bytes[count++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[count++] = (byte) value;
+		}
+
+		/**
+		 * Writes a string as its length plus one followed by its UTF-8 bytes, a length of zero means the string is null
+		 *
+		 * @param s - string to write
+		 */
+		void writeString(String s) {
+			if (s == null) {
+				writeVarint(0);
+				return;
+			}
+			byte[] utf = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(utf.length + 1);
+			ensure(utf.length);
+			System.arraycopy(utf, 0, bytes, count, utf.length);
+			count += utf.length;
+		}
+
+		/**
+		 * Writes part of a board straight into the frame
+		 *
+		 * @param b - snapshot of the board
+		 * @param locations - ids of the locations to write, or null to write every location
+		 * @param length - number of bytes the board takes
+		 */
+		void writeBoard(BoardSnapshot b, Set<Integer> locations, int length) {
+			ensure(length);
+			try {
+				new BoardEncoder(ByteBuffer.wrap(bytes, count, length)).writeBoard(b, locations);
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+			count += length;
+		}
+
+		/**
+		 * Fills in the length header and returns the frame
+		 *
+		 * @return frame - bytes of the whole frame
+		 */
+		byte[] toFrame() {
+			int length = count - HEADER_LENGTH;
+			bytes[0] = (byte) (length >>> 24);
+			bytes[1] = (byte) (length >>> 16);
+			bytes[2] = (byte) (length >>> 8);
+			bytes[3] = (byte) length;
+			return count == bytes.length ? bytes : Arrays.copyOf(bytes, count);
+		}
+	}
+
+	/**
+	 * Reads the fields of a frame body, checking the protocol version first
+	 */
+	static class FrameReader {
+		private byte[] bytes;
+		private int position;
+		private int limit;
+
+		/**
+		 * Constructor for a reader of a frame body
+		 *
+		 * @param body - array holding the body of the frame
+		 * @param offset - offset of the body within the array
+		 * @param length - length of the body
+		 * @throws IOException - if the frame was written with another version of the protocol
+		 */
+		FrameReader(byte[] body, int offset, int length) throws IOException {
+			this.bytes = body;
+			this.position = offset;
+			this.limit = offset + length;
+			int version = readByte();
+			if (version != PROTOCOL_VERSION) {
+				throw new IOException("Unsupported protocol version: " + version);
+			}
+		}
+
+		/**
+		 * Reads a single byte
+		 *
+		 * @return b - byte read
+		 * @throws IOException - if the frame has ended
+		 */
+		byte readByte() throws IOException {
+			if (position >= limit) {
+				throw new IOException("Frame ended early");
+			}
+			return bytes[position++];
+		}
+
+		/**
+		 * Reads a whole number written by writeVarint
+		 *
+		 * @return value - number read
+		 * @throws IOException - if the frame has ended or the number is too long
+		 */
+		int readVarint() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Varint too long");
+		}
+
+		/**
+		 * Reads a string written by writeString
+		 *
+		 * @return s - string read, may be null
+		 * @throws IOException - if the frame has ended
+		 */
+		String readString() throws IOException {
+			int length = readVarint() - 1;
+			if (length < 0) {
+				return null;
+			}
+			if (length > limit - position) {
+				throw new IOException("Frame ended early");
+			}
+			String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return s;
+		}
+
+		/**
+		 * Checks that every byte of the frame has been read
+		 *
+		 * @throws IOException - if there are bytes left over
+		 */
+		void checkFinished() throws IOException {
+			if (position != limit) {
+				throw new IOException("Unexpected bytes at the end of the frame");
+			}
+		}
+	}
+}
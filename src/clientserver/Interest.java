@@ -0,0 +1,62 @@
+package clientserver;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The locations a logged in client can see and the version of the board it was last sent. Clients only get told about the locations they can see,
+ * so clients that can see the same locations and have the same version are sent exactly the same frames
+ */
+class Interest {
+	private final Set<Integer> locations;
+	private final String key;
+	private int version;
+
+	/**
+	 * Constructor for the interest of a client that has just been sent the board
+	 *
+	 * @param locations - ids of the locations the client can see
+	 * @param version - version of the board the client was sent
+	 */
+	Interest(Set<Integer> locations, int version) {
+		this.locations = locations;
+		this.key = new TreeSet<Integer>(locations).toString();
+		this.version = version;
+	}
+
+	/**
+	 * Getter for the locations the client can see
+	 *
+	 * @return locations - ids of the locations
+	 */
+	Set<Integer> getLocations() {
+		return locations;
+	}
+
+	/**
+	 * Getter for a key that is the same for every client that can see the same locations
+	 *
+	 * @return key - the location ids in order
+	 */
+	String getKey() {
+		return key;
+	}
+
+	/**
+	 * Getter for the version of the board the client was last sent
+	 *
+	 * @return version - board version
+	 */
+	int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Setter for the version of the board the client was last sent
+	 *
+	 * @param version - board version
+	 */
+	void setVersion(int version) {
+		this.version = version;
+	}
+}
@@ -0,0 +1,198 @@
+package clientserver;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import core.Board;
+import core.GameSystem.Direction;
+import core.Location;
+import gameobjects.Player;
+import tile.DoorOutTile;
+import tile.Tile;
+import tile.WaterTile;
+import util.Position;
+
+/**
+ * Moves the player on the client board as soon as a move is sent, rather than waiting for the server, using the same rules as the server. The
+ * moves the server has not acknowledged yet are kept so that whenever the server sends changes the prediction can be undone, the changes
+ * applied and the moves still on their way to the server applied again on top.
+ *
+ * The server acknowledges a command with the version of the board that holds its changes, an acknowledgement only removes moves once the board
+ * has reached that version so a move is never applied twice.
+ */
+public class MovePredictor {
+	private final ArrayDeque<Move> pending = new ArrayDeque<Move>();
+	private int ackSequence;
+	private int ackVersion;
+
+	/* Where the player was before the prediction was applied, so it can be undone */
+	private Player predicted;
+	private int startLocation;
+	private Position startPosition;
+	private Direction startFacing;
+
+	/**
+	 * Applies a move to the board straight away and remembers it until the server acknowledges it
+	 *
+	 * @param board - board shown to the player
+	 * @param name - username of the player
+	 * @param sequence - sequence number the move is sent with
+	 * @param direction - direction to move
+	 */
+	public synchronized void predict(Board board, String name, int sequence, Direction direction) {
+		pending.add(new Move(sequence, direction));
+		Player p = board == null ? null : board.getPlayer(name);
+		if (p != null) {
+			step(p, direction);
+		}
+	}
+
+	/**
+	 * Records that the server has processed every command up to a sequence number
+	 *
+	 * @param sequence - sequence number of the last command processed
+	 * @param version - version of the board that holds the changes made by the command
+	 */
+	public synchronized void acknowledge(int sequence, int version) {
+		ackSequence = sequence;
+		ackVersion = version;
+	}
+
+	/**
+	 * Undoes the prediction so the board is back to what the server last sent, must be called before changes from the server are applied
+	 */
+	public synchronized void rewind() {
+		if (predicted == null) {
+			return;
+		}
+		Player p = predicted;
+		predicted = null;
+		Tile now = tileOf(p);
+		if (now != null && now.getGameObject() == p) {
+			now.setGameObject(null);
+		}
+		p.setLocation(startLocation);
+		p.setPosition(startPosition);
+		p.setFacing(startFacing);
+		Tile start = tileOf(p);
+		if (start != null) {
+			start.setGameObject(p);
+		}
+	}
+
+	/**
+	 * Forgets the prediction without undoing it, used when a whole new board has replaced the one it was applied to
+	 */
+	public synchronized void forget() {
+		predicted = null;
+	}
+
+	/**
+	 * Removes the moves the board now holds and applies the moves that are still on their way to the server
+	 *
+	 * @param board - board shown to the player, holding the changes last sent by the server
+	 * @param name - username of the player
+	 * @param boardVersion - version of the board
+	 */
+	public synchronized void replay(Board board, String name, int boardVersion) {
+		if (boardVersion >= ackVersion) {
+			Iterator<Move> it = pending.iterator();
+			while (it.hasNext() && it.next().sequence <= ackSequence) {
+				it.remove();
+			}
+		}
+		Player p = board == null ? null : board.getPlayer(name);
+		if (p == null) {
+			return;
+		}
+		for (Move m : pending) {
+			step(p, m.direction);
+		}
+	}
+
+	/**
+	 * Getter for the number of moves waiting to be acknowledged
+	 *
+	 * @return count - moves the server has not acknowledged
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Moves the player one tile the same way GameSystem.movePlayer does, water needs a floating device, anything on a tile blocks it and door
+	 * tiles take the player to the door they lead to. Interactions are left to the server
+	 *
+	 * @param p - player to move
+	 * @param d - direction to move
+	 */
+	private void step(Player p, Direction d) {
+		Location loc = p.getLocation();
+		if (loc == null) {
+			return;
+		}
+		if (predicted == null) {
+			predicted = p;
+			startLocation = p.getLocationID();
+			startPosition = p.getPosition();
+			startFacing = p.getFacing();
+		}
+		Tile from = tileOf(p);
+		Tile to = loc.getTileInDirection(p.getPosition(), d);
+		p.setFacing(d);
+		if (to == null || to.getGameObject() != null) {
+			return;
+		}
+		if (to instanceof WaterTile && !p.getHasFloatingDevice()) {
+			return;
+		}
+		if (to instanceof DoorOutTile) {
+			DoorOutTile dot = (DoorOutTile) to;
+			Location out = p.getLocation().getBoard().getLocationById(dot.getOutLocationID());
+			if (out == null) {
+				return;
+			}
+			to = out.getTileAtPositionInLoc(dot.getDoorPos());
+			if (to == null || to.getGameObject() != null) {
+				return;
+			}
+			p.setFacing(Direction.SOUTH);
+		}
+		if (from != null && from.getGameObject() == p) {
+			from.setGameObject(null);
+		}
+		to.setGameObject(p);
+		p.setLocation(to.getLocationID());
+		p.setTile(to);
+	}
+
+	/**
+	 * Finds the tile a player is on without looking outside their location
+	 *
+	 * @param p - player to find
+	 * @return tile - tile the player is on, null if their location is not on the board
+	 */
+	private static Tile tileOf(Player p) {
+		Location loc = p.getLocation();
+		return loc == null ? null : loc.getTileAtPositionInLoc(p.getPosition());
+	}
+
+	/**
+	 * A move sent to the server that has not been acknowledged
+	 */
+	private static class Move {
+		final int sequence;
+		final Direction direction;
+
+		/**
+		 * Constructor for a move
+		 *
+		 * @param sequence - sequence number the move was sent with
+		 * @param direction - direction moved
+		 */
+		Move(int sequence, Direction direction) {
+			this.sequence = sequence;
+			this.direction = direction;
+		}
+	}
+}
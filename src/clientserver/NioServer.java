@@ -0,0 +1,341 @@
+package clientserver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server that serves every client from a small fixed set of I/O threads instead of a thread per client. Each I/O thread owns a selector and a share of
+ * the non-blocking socket channels, reading frames as they arrive and writing queued frames when the socket can take them, so a stalled client only
+ * ever holds up its own queue. Commands are handed to the same game logic as the thread per client server
+ */
+public class NioServer extends Server {
+	private final static int READ_BUFFER_SIZE = 8 * 1024;
+
+	private IOThread[] ioThreads;
+	private ServerSocketChannel serverChannel;
+	private int nextThread;
+
+	/**
+	 * Constructor for the server that uses one I/O thread per available processor
+	 *
+	 * @param port - The port of the server
+	 */
+	public NioServer(int port) {
+		this(port, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the server
+	 *
+	 * @param port - The port of the server
+	 * @param threads - Number of I/O threads serving the clients
+	 */
+	public NioServer(int port, int threads) {
+		super(port);
+		ioThreads = new IOThread[Math.max(1, threads)];
+	}
+
+	/**
+	 * Method that starts the server on a new server socket channel and the I/O threads, then waits for connections handing each accepted channel
+	 * to the I/O threads in turn
+	 */
+	@Override
+	public void start() {
+		keepGoing = true;
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().bind(new InetSocketAddress(port));
+			System.out.println("Waiting for clients on port " + port);
+			for (int i = 0; i < ioThreads.length; i++) {
+				ioThreads[i] = new IOThread(i);
+				ioThreads[i].start();
+			}
+			startGame();
+			while (keepGoing) {
+				SocketChannel channel = serverChannel.accept();
+				if (!keepGoing) {
+					channel.close();
+					break;
+				}
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				IOThread thread = ioThreads[nextThread++ % ioThreads.length];
+				NioConnection connection = new NioConnection(channel, thread);
+				addConnection(connection);
+				thread.register(connection);
+			}
+			/* If the server is closing */
+			try {
+				serverChannel.close();
+				closeConnections();
+				for (IOThread thread : ioThreads) {
+					thread.selector.close();
+				}
+			} catch (Exception e) {
+				display("Exception closing the server and clients: " + e);
+			}
+		} catch (IOException e) {
+			display("Exception on new ServerSocketChannel: " + e + "\n");
+		}
+	}
+
+	/**
+	 * Thread that owns a selector and serves all of the connections registered with it
+	 */
+	class IOThread extends Thread {
+		Selector selector;
+		Queue<NioConnection> registrations = new ConcurrentLinkedQueue<NioConnection>();
+		Queue<NioConnection> writeRequests = new ConcurrentLinkedQueue<NioConnection>();
+
+		/**
+		 * Constructor that opens the selector for the thread
+		 *
+		 * @param index - index of the thread, used for its name
+		 * @throws IOException - if the selector cannot be opened
+		 */
+		IOThread(int index) throws IOException {
+			super("nio-io-" + index);
+			selector = Selector.open();
+			setDaemon(true);
+		}
+
+		/**
+		 * Hands a new connection to this thread
+		 *
+		 * @param connection - connection to be served by this thread
+		 */
+		void register(NioConnection connection) {
+			registrations.add(connection);
+			selector.wakeup();
+		}
+
+		/**
+		 * Asks this thread to start writing the queued frames of a connection
+		 *
+		 * @param connection - connection with frames waiting to be written
+		 */
+		void requestWrite(NioConnection connection) {
+			writeRequests.add(connection);
+			selector.wakeup();
+		}
+
+		/**
+		 * Method that waits for channels to become ready and reads or writes them
+		 */
+		public void run() {
+			while (keepGoing) {
+				try {
+					selector.select();
+				} catch (IOException e) {
+					display("Exception selecting channels: " + e);
+					break;
+				} catch (ClosedSelectorException e) {
+					break;
+				}
+				NioConnection connection;
+				while ((connection = registrations.poll()) != null) {
+					connection.register(selector);
+				}
+				while ((connection = writeRequests.poll()) != null) {
+					connection.enableWrites();
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					connection = (NioConnection) key.attachment();
+					if (key.isValid() && key.isReadable()) {
+						connection.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						connection.write();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connection to a single client served by an I/O thread, frames written to the client are queued until the channel can take them and a
+	 * client that has been too slow to take what it has been sent is disconnected
+	 */
+	class NioConnection implements ClientConnection {
+		SocketChannel channel;
+		IOThread thread;
+		SelectionKey key;
+		int id;
+
+		ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		OutboundQueue outbound = new OutboundQueue();
+		ByteBuffer writing;
+		AtomicBoolean writeRequested = new AtomicBoolean(false);
+		AtomicBoolean closed = new AtomicBoolean(false);
+
+		/**
+		 * Constructor for a connection to a newly accepted channel
+		 *
+		 * @param channel - channel of the client
+		 * @param thread - I/O thread that serves the connection
+		 */
+		NioConnection(SocketChannel channel, IOThread thread) {
+			System.out.println("Client accepted");
+			this.id = newClientId();
+			this.channel = channel;
+			this.thread = thread;
+		}
+
+		/**
+		 * Getter for the id of the client
+		 *
+		 * @return id - id of the client
+		 */
+		public int getClientId() {
+			return id;
+		}
+
+		/**
+		 * Registers the channel with the selector of its I/O thread, only called on that thread
+		 *
+		 * @param selector - selector of the I/O thread
+		 */
+		void register(Selector selector) {
+			try {
+				key = channel.register(selector, SelectionKey.OP_READ, this);
+				if (!outbound.isEmpty()) {
+					enableWrites();
+				}
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		/**
+		 * Reads whatever has arrived on the channel and passes on every complete frame, only called on the I/O thread
+		 */
+		void read() {
+			try {
+				if (channel.read(readBuffer) < 0) {
+					close();
+					return;
+				}
+				readBuffer.flip();
+				while (readBuffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+					int length = readBuffer.getInt(readBuffer.position());
+					FrameCodec.checkLength(length);
+					if (readBuffer.remaining() < FrameCodec.HEADER_LENGTH + length) {
+						break;
+					}
+					readBuffer.position(readBuffer.position() + FrameCodec.HEADER_LENGTH);
+					PlayerCommand command = FrameCodec.decodeCommand(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(), length);
+					readBuffer.position(readBuffer.position() + length);
+					processCommand(this, command);
+				}
+				readBuffer.compact();
+				/* Grow the buffer if a frame is bigger than it */
+				if (readBuffer.position() >= FrameCodec.HEADER_LENGTH) {
+					int needed = FrameCodec.HEADER_LENGTH + readBuffer.getInt(0);
+					if (needed > readBuffer.capacity()) {
+						ByteBuffer larger = ByteBuffer.allocate(needed);
+						readBuffer.flip();
+						larger.put(readBuffer);
+						readBuffer = larger;
+					}
+				}
+			} catch (IOException e) {
+				display(id + " Exception reading channel: " + e);
+				close();
+			}
+		}
+
+		/**
+		 * Writes as many queued frames as the channel will take, only called on the I/O thread
+		 */
+		void write() {
+			try {
+				while (true) {
+					if (writing == null) {
+						Frame frame = outbound.poll();
+						if (frame == null) {
+							break;
+						}
+						writing = frame.buffer();
+					}
+					channel.write(writing);
+					if (writing.hasRemaining()) {
+						return;
+					}
+					writing = null;
+					outbound.completed();
+				}
+				key.interestOps(SelectionKey.OP_READ);
+				writeRequested.set(false);
+				/* A frame may have been queued after the queue was found empty */
+				if (!outbound.isEmpty() && writeRequested.compareAndSet(false, true)) {
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+			} catch (IOException e) {
+				display("Error sending message to " + id);
+				close();
+			}
+		}
+
+		/**
+		 * Starts watching the channel for when it can be written to, only called on the I/O thread
+		 */
+		void enableWrites() {
+			if (key != null && key.isValid()) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+
+		/**
+		 * Method that queues a frame to be written to the client by the I/O thread
+		 *
+		 * @param frame - Frame to send
+		 * @return boolean - If the client is still connected
+		 */
+		public boolean writeToClient(Frame frame) {
+			if (closed.get()) {
+				return false;
+			}
+			if (!outbound.offer(frame)) {
+				display("Disconnecting slow client " + id + ", " + outbound.getStats());
+				close();
+				return false;
+			}
+			if (writeRequested.compareAndSet(false, true)) {
+				thread.requestWrite(this);
+			}
+			return true;
+		}
+
+		/**
+		 * Method that closes the channel and logs out the player of this client, this only happens once
+		 */
+		public void close() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			outbound.close();
+			try {
+				if (key != null) {
+					key.cancel();
+				}
+				channel.close();
+			} catch (IOException e) {
+
+			}
+			disconnect(this);
+		}
+	}
+}
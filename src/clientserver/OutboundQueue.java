@@ -0,0 +1,327 @@
+package clientserver;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of frames waiting to be written to a single client. Broadcasting only ever adds to the queue, the frames are written by the
+ * writer of the connection, so a client on a slow link only holds up its own queue.
+ *
+ * When a whole board is queued, any boards and deltas it replaces that have not been sent yet are dropped, and likewise for the time. The queue
+ * keeps count of the bytes it holds and how long frames wait before they are written, a client that stays over budget for too long should be
+ * disconnected. A delta that arrives after a queued board already holding its version is dropped rather than queued
+ */
+public class OutboundQueue {
+	public final static int MAX_QUEUED_BYTES = 1024 * 1024;
+	public final static int HARD_QUEUED_BYTES = 4 * MAX_QUEUED_BYTES;
+	public final static long MAX_LATENCY_MILLIS = 5000;
+	public final static long GRACE_MILLIS = 10000;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final ArrayDeque<Entry> frames = new ArrayDeque<Entry>();
+
+	private Entry current;
+	private int queuedBytes;
+	private long bytesSent;
+	private long framesSent;
+	private long framesDropped;
+	private long totalLatencyMillis;
+	private long worstLatencyMillis;
+	private long overBudgetSince = -1;
+	private boolean closed;
+	private final Clock clock;
+
+	/**
+	 * Constructor for a queue timed by the system clock
+	 */
+	public OutboundQueue() {
+		this(Clock.systemUTC());
+	}
+
+	/**
+	 * Constructor for a queue timed by a given clock
+	 *
+	 * @param clock - Clock used for how long frames wait and how long the client has been over budget
+	 */
+	public OutboundQueue(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Adds a frame to the end of the queue, dropping any queued frames it replaces
+	 *
+	 * @param frame - Frame to be written to the client
+	 * @return boolean - false if the client has been over budget for too long or the queue is closed, the client should then be disconnected
+	 */
+	public boolean offer(Frame frame) {
+		lock.lock();
+		try {
+			if (closed) {
+				return false;
+			}
+			if (alreadyQueued(frame)) {
+				framesDropped++;
+				return withinBudget();
+			}
+			dropReplacedBy(frame);
+			frames.add(new Entry(frame, clock.millis()));
+			queuedBytes += frame.length();
+			notEmpty.signal();
+			return withinBudget();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks if a new frame is a delta whose changes are already held by a queued board
+	 *
+	 * @param frame - Frame about to be queued
+	 * @return boolean - true if a queued board is at or past the version of the delta
+	 */
+	private boolean alreadyQueued(Frame frame) {
+		if (frame.getType() != Packet.DELTA) {
+			return false;
+		}
+		for (Entry e : frames) {
+			if (e.frame.getType() == Packet.BOARD && e.frame.getVersion() >= frame.getVersion()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the queued frames that a new frame makes out of date
+	 *
+	 * @param frame - Frame about to be queued
+	 */
+	private void dropReplacedBy(Frame frame) {
+		if (frame.getType() != Packet.BOARD && frame.getType() != Packet.TIME) {
+			return;
+		}
+		Iterator<Entry> it = frames.iterator();
+		while (it.hasNext()) {
+			Frame queued = it.next().frame;
+			boolean replaced;
+			if (frame.getType() == Packet.TIME) {
+				replaced = queued.getType() == Packet.TIME;
+			} else {
+				replaced = queued.getType() == Packet.BOARD
+						|| (queued.getType() == Packet.DELTA && queued.getVersion() <= frame.getVersion());
+			}
+			if (replaced) {
+				it.remove();
+				queuedBytes -= queued.length();
+				framesDropped++;
+			}
+		}
+	}
+
+	/**
+	 * Checks how much is queued and how long the oldest frame has waited, only called while holding the lock
+	 *
+	 * @return boolean - false if the client has been over budget for longer than the grace period or has far too much queued
+	 */
+	private boolean withinBudget() {
+		if (queuedBytes > HARD_QUEUED_BYTES) {
+			return false;
+		}
+		long now = clock.millis();
+		if (!isOverBudget(now)) {
+			overBudgetSince = -1;
+			return true;
+		}
+		if (overBudgetSince < 0) {
+			overBudgetSince = now;
+		}
+		return now - overBudgetSince <= GRACE_MILLIS;
+	}
+
+	/**
+	 * Checks if too much is queued or the oldest frame has waited too long, only called while holding the lock
+	 *
+	 * @param now - current time in milliseconds
+	 * @return boolean - true if the client is over budget
+	 */
+	private boolean isOverBudget(long now) {
+		Entry oldest = current != null ? current : frames.peek();
+		return queuedBytes > MAX_QUEUED_BYTES || (oldest != null && now - oldest.queuedAt > MAX_LATENCY_MILLIS);
+	}
+
+	/**
+	 * Takes the next frame to write, waiting until there is one
+	 *
+	 * @return frame - next frame to write, null once the queue has been closed
+	 * @throws InterruptedException - if interrupted while waiting
+	 */
+	Frame take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (frames.isEmpty() && !closed) {
+				notEmpty.await();
+			}
+			return closed ? null : next();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the next frame to write without waiting
+	 *
+	 * @return frame - next frame to write, null if there is none
+	 */
+	public Frame poll() {
+		lock.lock();
+		try {
+			return frames.isEmpty() || closed ? null : next();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the head of the queue to being written, only called while holding the lock
+	 *
+	 * @return frame - frame being written
+	 */
+	private Frame next() {
+		current = frames.poll();
+		queuedBytes -= current.frame.length();
+		return current.frame;
+	}
+
+	/**
+	 * Records that the frame last taken has been completely written
+	 */
+	public void completed() {
+		lock.lock();
+		try {
+			if (current == null) {
+				return;
+			}
+			long latency = clock.millis() - current.queuedAt;
+			bytesSent += current.frame.length();
+			framesSent++;
+			totalLatencyMillis += latency;
+			worstLatencyMillis = Math.max(worstLatencyMillis, latency);
+			current = null;
+			/* A client that has caught up gets a new grace period the next time it falls behind */
+			if (!isOverBudget(clock.millis())) {
+				overBudgetSince = -1;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks if there are frames waiting to be taken
+	 *
+	 * @return boolean - true if nothing is queued
+	 */
+	boolean isEmpty() {
+		lock.lock();
+		try {
+			return frames.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the queue, throwing away anything not yet written and waking up the writer
+	 */
+	void close() {
+		lock.lock();
+		try {
+			closed = true;
+			frames.clear();
+			queuedBytes = 0;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks if the queue has been closed
+	 *
+	 * @return boolean - true once the queue is closed
+	 */
+	boolean isClosed() {
+		lock.lock();
+		try {
+			return closed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the number of bytes waiting to be written
+	 *
+	 * @return bytes - bytes queued
+	 */
+	public int getQueuedBytes() {
+		lock.lock();
+		try {
+			return queuedBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the number of bytes written to the client
+	 *
+	 * @return bytes - bytes sent
+	 */
+	long getBytesSent() {
+		lock.lock();
+		try {
+			return bytesSent;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Describes what has been sent to the client, used when logging a client that is disconnected
+	 *
+	 * @return stats - counts of bytes and frames with the average and worst time frames waited
+	 */
+	String getStats() {
+		lock.lock();
+		try {
+			return "sent " + bytesSent + " bytes in " + framesSent + " frames, dropped " + framesDropped + ", queued " + queuedBytes
+					+ " bytes, latency average " + (framesSent == 0 ? 0 : totalLatencyMillis / framesSent) + " ms worst " + worstLatencyMillis + " ms";
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A queued frame with the time it was queued
+	 */
+	private static class Entry {
+		final Frame frame;
+		final long queuedAt;
+
+		/**
+		 * Constructor for an entry
+		 *
+		 * @param frame - frame queued
+		 * @param queuedAt - time it was queued in milliseconds
+		 */
+		Entry(Frame frame, long queuedAt) {
+			this.frame = frame;
+			this.queuedAt = queuedAt;
+		}
+	}
+}
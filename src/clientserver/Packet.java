@@ -1,64 +1,144 @@
 package clientserver;
 
-import java.io.Serializable;
 /**
  * Class that holds all the information for the object that gets sent from the server back to the client
- * 
+ *
  * @author Simon Glew
  */
-public class Packet implements Serializable{
+public class Packet {
 
-	private static final long serialVersionUID = 7677212855723082352L;
-	private String type;
+	/* Kinds of packet, each is sent as a single byte opcode */
+	public static final byte BOARD = 1;
+	public static final byte DELTA = 2;
+	public static final byte TIME = 3;
+	public static final byte LOGIN_FAILED = 4;
+	public static final byte ENDGAME = 5;
+	public static final byte POPUP = 6;
+	public static final byte POPUP_ONE = 7;
+	public static final byte POPUP_BAR_ONE = 8;
+	public static final byte ACK = 9;
+
+	private byte type;
 	private String board;
 	private String message;
 	private int time;
-	
+	private int baseVersion;
+	private int version;
+	private int sequence;
+
 	/**
 	 * Constructor that gets called every time a message is being send from the server back to the client
-	 * 
-	 * @param type - Type of message being sent
-	 * @param board - The string holding the current board 
+	 *
+	 * @param type - Kind of packet being sent, one of the opcodes of this class
+	 * @param board - The string holding the current board
 	 * @param message - Message being send along with the packet
 	 * @param time - Current time of the server
 	 */
-	public Packet(String type, String board, String message, int time){
+	public Packet(byte type, String board, String message, int time){
+		this(type, board, message, time, 0);
+	}
+
+	/**
+	 * Constructor that gets called when a board or a delta of the board is being sent from the server back to the client
+	 *
+	 * @param type - Kind of packet being sent, one of the opcodes of this class
+	 * @param board - The string holding the current board or the changes to the board
+	 * @param message - Message being send along with the packet
+	 * @param time - Current time of the server
+	 * @param version - Version of the board held within the packet
+	 */
+	public Packet(byte type, String board, String message, int time, int version){
+		this(type, board, message, time, 0, version);
+	}
+
+	/**
+	 * Constructor that gets called when a delta of the board is being sent from the server back to the client
+	 *
+	 * @param type - Kind of packet being sent, one of the opcodes of this class
+	 * @param board - The changes to the board
+	 * @param message - Message being send along with the packet
+	 * @param time - Current time of the server
+	 * @param baseVersion - Version of the board the changes apply to
+	 * @param version - Version of the board once the changes have been applied
+	 */
+	public Packet(byte type, String board, String message, int time, int baseVersion, int version){
 		this.type = type;
 		this.board = board;
 		this.message = message;
 		this.time = time;
+		this.baseVersion = baseVersion;
+		this.version = version;
+	}
+
+	/**
+	 * Constructor that gets called when the server acknowledges a command sent from the client
+	 *
+	 * @param type - Kind of packet being sent, one of the opcodes of this class
+	 * @param sequence - Sequence number of the last command the server has processed from the client
+	 * @param version - Version of the board that holds the changes made by the command
+	 */
+	public Packet(byte type, int sequence, int version){
+		this(type, null, null, 0, 0, version);
+		this.sequence = sequence;
 	}
-	
+
 	/**
 	 * Getter for the time held within the packet
-	 * 
+	 *
 	 * @return time - Current time of server
 	 */
 	public int getTime(){
 		return this.time;
 	}
-	
+
 	/**
-	 * Getter for the type held within the packet
-	 * 
-	 * @return type - Type of message being send through
+	 * Getter for the kind of packet
+	 *
+	 * @return type - Opcode of the kind of message being send through
 	 */
-	public String getType(){
+	public byte getType(){
 		return this.type;
 	}
-	
+
 	/**
 	 * Getter for the board held within the packet
-	 * 
+	 *
 	 * @return board - Current board state within the server
 	 */
 	public String getBoard(){
 		return this.board;
 	}
-	
+
+	/**
+	 * Getter for the version of the board that a delta applies to
+	 *
+	 * @return baseVersion - Version of the board the client must have to apply the delta
+	 */
+	public int getBaseVersion(){
+		return this.baseVersion;
+	}
+
+	/**
+	 * Getter for the board version held within the packet
+	 *
+	 * @return version - Version of the board that the packet brings the client up to
+	 */
+	public int getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * Getter for the sequence number of the command being acknowledged
+	 *
+	 * @return sequence - Sequence number of the last command processed by the server
+	 */
+	public int getSequence(){
+		return this.sequence;
+	}
+
 	/**
 	 * Getter for the message held within the packet
-	 * 
+	 *
 	 * @return message - Message being sent along with the packet
 	 */
 	public String getMessage(){
@@ -1,33 +1,106 @@
 package clientserver;
-import java.io.*;
 
 /**
  * Class that holds all the information for the object that gets sent from the client to the server
- * 
+ *
  * @author Simon Glew
  *
  */
-public class PlayerCommand implements Serializable {
+public class PlayerCommand {
+
+	/* Actions a command can start with, each is sent as a single byte opcode */
+	public static final byte TEXT = 0;
+	public static final byte LOGIN = 1;
+	public static final byte MOVE = 2;
+	public static final byte DROP = 3;
+	public static final byte SIPHON = 4;
+	public static final byte USE = 5;
+	public static final byte PICKUP = 6;
+	public static final byte RESYNC = 7;
+	public static final byte CLOSE = 8;
+	public static final byte GOTO = 9;
+	public static final byte ROOM = 10;
+
+	private static final String[] ACTIONS = { null, "login", "move", "drop", "siphon", "use", "pickup", "resync", "close", "goto", "room" };
 
-	protected static final long serialVersionUID = 1112122200L;
 	private String message;
-	
+	private byte action;
+	private int sequence;
+
 	/**
 	 * Constructor that gets called every time a message is sent from the client to the server
-	 * 
+	 *
 	 * @param message - Message being sent across
 	 */
 	public PlayerCommand(String message) {
+		this(message, 0);
+	}
+
+	/**
+	 * Constructor that gets called when the client wants the server to acknowledge the message once it has been processed
+	 *
+	 * @param message - Message being sent across
+	 * @param sequence - Number the client gave the message, counting up from 1, or 0 if it does not need acknowledging
+	 */
+	public PlayerCommand(String message, int sequence) {
 		this.message = message;
+		this.sequence = sequence;
+		int space = message.indexOf(' ');
+		this.action = actionOf(space < 0 ? message : message.substring(0, space));
 	}
-	
+
 	/**
 	 * Getter for the message held within the object
-	 * 
+	 *
 	 * @return message - Message being sent along with the object
 	 */
 	public String getMessage() {
 		return message;
 	}
-}
 
+	/**
+	 * Getter for the sequence number the client gave the message
+	 *
+	 * @return sequence - Number of the message, 0 if it does not need acknowledging
+	 */
+	public int getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Getter for the action the message starts with
+	 *
+	 * @return action - Opcode of the action, TEXT if the message does not start with a known action
+	 */
+	public byte getAction() {
+		return action;
+	}
+
+	/**
+	 * Finds the opcode of an action
+	 *
+	 * @param word - First word of a message
+	 * @return action - Opcode of the action, TEXT if it is not a known action
+	 */
+	static byte actionOf(String word) {
+		for (byte i = 1; i < ACTIONS.length; i++) {
+			if (ACTIONS[i].equals(word)) {
+				return i;
+			}
+		}
+		return TEXT;
+	}
+
+	/**
+	 * Finds the word of an action
+	 *
+	 * @param action - Opcode of the action
+	 * @return word - First word of messages with this action, null if the opcode is not a known action
+	 */
+	static String wordOf(byte action) {
+		if (action <= TEXT || action >= ACTIONS.length) {
+			return null;
+		}
+		return ACTIONS[action];
+	}
+}
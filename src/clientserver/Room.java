@@ -0,0 +1,576 @@
+package clientserver;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import core.BoardSnapshot;
+import core.LocationPager;
+import gameobjects.Player;
+import iohandling.BoardDeltaWriter;
+
+/**
+ * A single game hosted by the server, with its own game system, board, players and clock. Clients join a room from the lobby before they log
+ * in and from then on every command they send is applied to that room.
+ *
+ * The game is only ever changed by the tick of the room, which runs on the shared tick pool of the server. Commands read from clients, and
+ * clients disconnecting, are added to a queue that is drained in order at the start of each tick, then the changes made during the tick are
+ * broadcast once. The board records which tiles change, so a tick that changed nothing broadcasts nothing. The tick and broadcasts still hold
+ * a lock so the list of clients and what they have been sent stay consistent, it is a ReentrantLock rather than synchronized so that client
+ * handlers running on virtual threads are not pinned to their carrier threads while they wait for it
+ *
+ * After each tick the room publishes a snapshot of its board, anything that only reads the game, such as writing the board to clients or to a
+ * save file, reads the snapshot from whatever thread it likes instead of the board
+ *
+ * Each logged in client is only sent the locations its player can see, these are the 3x3 locations around the player or just the interior the
+ * player is in. The changes to the board are filtered for each client and the client is sent a new board when the locations it can see change
+ */
+public class Room {
+	private final Server server;
+	private final ServerController serverController;
+	private String name;
+
+	private Map<Integer, String> IDtoUsername = new ConcurrentHashMap<Integer, String>();
+	private Map<Integer, Interest> interests = new ConcurrentHashMap<Integer, Interest>();
+	private List<ClientConnection> al = new CopyOnWriteArrayList<ClientConnection>();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private BoardDeltaWriter deltaWriter;
+	private Map<String, Frame> boardFrames = new HashMap<String, Frame>();
+	private int boardFramesVersion;
+	private final Queue<QueuedCommand> commands = new ConcurrentLinkedQueue<QueuedCommand>();
+	private final Map<ClientConnection, Integer> acks = new HashMap<ClientConnection, Integer>();
+	private TickScheduler ticker;
+	private int ticksPerSecond = Server.DEFAULT_TICKS_PER_SECOND;
+	private long clockStart;
+	private volatile int time;
+	private volatile BoardSnapshot snapshot;
+
+	/**
+	 * Constructor for a room, this gets called by the controller of the game the room holds
+	 *
+	 * @param server - server hosting the room
+	 * @param serverController - controller of the game played in the room
+	 */
+	Room(Server server, ServerController serverController) {
+		this.server = server;
+		this.serverController = serverController;
+	}
+
+	/**
+	 * Method that starts the clock of the room and its tick on the tick pool of the server
+	 *
+	 * @param name - name clients join the room by
+	 * @param ticksPerSecond - number of ticks each second
+	 * @param regionThreads - number of threads that move the regions of the board
+	 * @param pool - pool the tick runs on
+	 */
+	void start(String name, int ticksPerSecond, int regionThreads, ScheduledExecutorService pool) {
+		this.name = name;
+		this.ticksPerSecond = ticksPerSecond;
+		serverController.setRegionCount(regionThreads);
+		deltaWriter = new BoardDeltaWriter(serverController.requestBoard());
+		snapshot = BoardSnapshot.of(serverController.requestBoard());
+		clockStart = System.nanoTime();
+		ticker = new TickScheduler(ticksPerSecond, new TickScheduler.Tickable() {
+			public void tick(long tick) {
+				Room.this.tick(tick);
+			}
+		}, pool);
+		ticker.start();
+	}
+
+	/**
+	 * Method that stops the tick of the room, then once any tick that is running has finished stops the threads moving its regions and has a
+	 * paged board write back its changed locations and close its file. It waits on the lock of the room for the running tick
+	 *
+	 * @return stats - how the ticks of the room ran
+	 */
+	public String stop() {
+		if (ticker == null) {
+			return "not started";
+		}
+		ticker.stop();
+		lock.lock();
+		try {
+			serverController.setRegionCount(1);
+			LocationPager pager = serverController.requestBoard().getPager();
+			if (pager != null) {
+				pager.close();
+			}
+		} catch (IOException e) {
+			server.display("Room " + name + " could not write back its board: " + e);
+		} finally {
+			lock.unlock();
+		}
+		return ticker.getStats();
+	}
+
+	/**
+	 * Getter for the name of the room
+	 *
+	 * @return name - name clients join the room by
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for the scheduler running the ticks of the room
+	 *
+	 * @return ticker - scheduler of the room, null if the room has not been started
+	 */
+	TickScheduler getTicker() {
+		return ticker;
+	}
+
+	/**
+	 * Method that gets called on each tick of the room. The commands queued since the last tick are applied in the order they were read, then
+	 * players walking to a tile take a step WALK_STEPS_PER_SECOND times a second. The time of the room is whole seconds read from the clock
+	 * rather than a count of ticks, so it is the same whatever the tick rate, each time it changes it is broadcast to the clients and the game has
+	 * its once a second tick. Everything that changed on the board during the tick is broadcast together at the end, if anything did.
+	 *
+	 * Moves are queued rather than made straight away, so that they are made together with the moves of walking players and NPCs by the threads
+	 * that own each region of the board. Any queued moves are made before a command that is not a move so commands still apply in order
+	 *
+	 * @param tick - number of the tick
+	 */
+	public void tick(long tick) {
+		lock.lock();
+		try {
+			QueuedCommand queued;
+			while ((queued = commands.poll()) != null) {
+				if (queued.command != null && queued.command.getAction() == PlayerCommand.MOVE) {
+					queueMove(queued.connection, queued.command);
+					continue;
+				}
+				serverController.runQueuedMoves();
+				if (queued.command == null) {
+					removeConnection(queued.connection);
+				} else {
+					applyCommand(queued.connection, queued.command);
+				}
+			}
+			serverController.runQueuedMoves();
+			if (tick % Math.max(1, ticksPerSecond / Server.WALK_STEPS_PER_SECOND) == 0) {
+				serverController.step();
+			}
+			int seconds = (int) ((System.nanoTime() - clockStart) / 1000000000L);
+			if (seconds >= time) {
+				time = seconds;
+				broadcast(new Packet(Packet.TIME, null, null, time), 0);
+				time++;
+				serverController.tick(time);
+			}
+			serverController.sendMessages();
+			if (serverController.requestBoard().hasChanges()) {
+				broadcastBoardChanges();
+			}
+			publishSnapshot();
+			/* Nothing the clients can see changed, acknowledge the version they already have */
+			for (Map.Entry<ClientConnection, Integer> ack : acks.entrySet()) {
+				Interest interest = interests.get(ack.getKey().getClientId());
+				ack.getKey().writeToClient(new Frame(new Packet(Packet.ACK, ack.getValue(), interest == null ? 0 : interest.getVersion())));
+			}
+			acks.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that takes a new snapshot of the board if it has changed since the last one, only called on the tick while holding the lock
+	 *
+	 * @return snapshot - the snapshot now published
+	 */
+	private BoardSnapshot publishSnapshot() {
+		snapshot = BoardSnapshot.take(serverController.requestBoard(), snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Getter for the last snapshot of the board published by the room, it can be read on any thread
+	 *
+	 * @return snapshot - snapshot of the board, null if the room has not been started
+	 */
+	BoardSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Method that adds a client that has joined the room
+	 *
+	 * @param c - connection of the client
+	 */
+	void addConnection(ClientConnection c) {
+		al.add(c);
+	}
+
+	/**
+	 * Getter for the number of clients in the room
+	 *
+	 * @return count - clients that have joined and not disconnected
+	 */
+	int getConnectionCount() {
+		return al.size();
+	}
+
+	/**
+	 * Checks if a client has logged in to the room
+	 *
+	 * @param id - id of the client
+	 * @return boolean - true if the client has a player in the room
+	 */
+	boolean isLoggedIn(int id) {
+		return IDtoUsername.containsKey(id);
+	}
+
+	/**
+	 * Method that gets called when wanting to broadcast to all clients in the room, the packet is encoded once and the same frame is written to
+	 * every client
+	 *
+	 * @param packet - the packet object to get broadcasted to clients
+	 * @param id - id of client thread that the broadcast is coming from
+	 */
+	void broadcast(Packet packet, int id) {
+		lock.lock();
+		try {
+			Frame frame = new Frame(packet);
+			for (ClientConnection ct : al) {
+				sendTo(ct, packet.getType(), frame, id);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that sends a broadcast frame to one client if the packet is meant for it
+	 *
+	 * @param ct - client that may be sent the packet
+	 * @param type - the kind of packet being broadcast
+	 * @param frame - the encoded packet
+	 * @param id - id of client thread that the broadcast is coming from
+	 */
+	private void sendTo(ClientConnection ct, byte type, Frame frame, int id) {
+		/* If login fail we want to only call it on the id that broke */
+		if (type == Packet.LOGIN_FAILED || type == Packet.POPUP_ONE) {
+			if (ct.getClientId() == id) {
+				ct.writeToClient(frame);
+			}
+		}else if(type == Packet.POPUP_BAR_ONE){
+			if(ct.getClientId() != id){
+				ct.writeToClient(frame);
+			}
+		}else {
+			if (!ct.writeToClient(frame)) {
+				al.remove(ct);
+				server.display("Disconnected Client " + ct.getClientId() + " removed from list.");
+			}
+		}
+	}
+
+	/**
+	 * Method that gets called when the board may have changed, this sends each logged in client only the players and tiles that have changed
+	 * since the last broadcast within the locations it can see, nothing is sent if none of them have changed. A client whose player has moved
+	 * to where it can see other locations is sent a new board instead. Clients that can see the same locations and have the same version share
+	 * the same frame
+	 */
+	void broadcastBoardChanges() {
+		lock.lock();
+		try {
+			if (deltaWriter == null || deltaWriter.writeDelta(serverController.requestBoard()) == null) {
+				return;
+			}
+			int version = deltaWriter.getVersion();
+			Map<String, String> parts = new HashMap<String, String>();
+			Map<String, Frame> frames = new HashMap<String, Frame>();
+			for (ClientConnection ct : al) {
+				Interest interest = interests.get(ct.getClientId());
+				if (interest == null) {
+					continue;
+				}
+				Set<Integer> locations = getLocationsOfInterest(ct.getClientId());
+				if (!interest.getLocations().equals(locations)) {
+					sendBoard(ct);
+					continue;
+				}
+				if (!parts.containsKey(interest.getKey())) {
+					parts.put(interest.getKey(), deltaWriter.writeDeltaFor(locations));
+				}
+				String part = parts.get(interest.getKey());
+				if (part == null) {
+					continue;
+				}
+				String key = interest.getKey() + "@" + interest.getVersion();
+				Frame frame = frames.get(key);
+				if (frame == null) {
+					frame = new Frame(new Packet(Packet.DELTA, part, null, getServerTime(), interest.getVersion(), version));
+					frames.put(key, frame);
+				}
+				interest.setVersion(version);
+				writeAck(ct, version);
+				if (!ct.writeToClient(frame)) {
+					al.remove(ct);
+					server.display("Disconnected Client " + ct.getClientId() + " removed from list.");
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that sends the board to a single client, this is used when the client first logs in and when the client has missed a delta.
+	 * Any pending changes are broadcast first so the board sent matches the version it is stamped with
+	 *
+	 * @param id - id of the client to send the board to
+	 */
+	void sendBoard(int id) {
+		lock.lock();
+		try {
+			broadcastBoardChanges();
+			for (ClientConnection ct : al) {
+				if (ct.getClientId() == id) {
+					sendBoard(ct);
+					return;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Method that sends a client the part of the board its player can see and remembers what it was sent, only called while holding the lock.
+	 * The encoded board is kept and sent to every client that can see the same locations until the board version changes
+	 *
+	 * @param ct - client to send the board to
+	 */
+	private void sendBoard(ClientConnection ct) {
+		Set<Integer> locations = getLocationsOfInterest(ct.getClientId());
+		if (locations == null) {
+			return;
+		}
+		int version = deltaWriter.getVersion();
+		if (boardFramesVersion != version) {
+			boardFrames.clear();
+			boardFramesVersion = version;
+		}
+		Interest interest = new Interest(locations, version);
+		Frame frame = boardFrames.get(interest.getKey());
+		if (frame == null) {
+			frame = new Frame(FrameCodec.encodeBoard(publishSnapshot(), locations, getServerTime(), version), Packet.BOARD, version);
+			boardFrames.put(interest.getKey(), frame);
+		}
+		interests.put(ct.getClientId(), interest);
+		writeAck(ct, version);
+		ct.writeToClient(frame);
+	}
+
+	/**
+	 * Method that finds the locations the player of a client can see
+	 *
+	 * @param id - id of the client
+	 * @return locations - ids of the locations, null if the client has no player
+	 */
+	private Set<Integer> getLocationsOfInterest(int id) {
+		String username = IDtoUsername.get(id);
+		Player p = username == null ? null : serverController.getPlayerByUserName(username);
+		if (p == null) {
+			return null;
+		}
+		return serverController.requestBoard().getLocationsOfInterest(p.getLocationID());
+	}
+
+	/**
+	 * Method that queues a command read from a client in the room to be applied on the next tick
+	 *
+	 * @param c - connection that the command was read from
+	 * @param cm - command that was read
+	 */
+	void processCommand(ClientConnection c, PlayerCommand cm) {
+		commands.add(new QueuedCommand(c, cm));
+	}
+
+	/**
+	 * Method that applies a queued command and remembers to acknowledge it, only called on the tick while holding the lock
+	 *
+	 * @param c - connection that the command was read from
+	 * @param cm - command that was read
+	 */
+	private void applyCommand(ClientConnection c, PlayerCommand cm) {
+		if (cm.getSequence() > 0) {
+			acks.put(c, cm.getSequence());
+		}
+		handleCommand(c, cm);
+	}
+
+	/**
+	 * Method that queues a move command to be made with the other moves of the tick and remembers to acknowledge it, only called on the tick
+	 * while holding the lock
+	 *
+	 * @param c - connection that the command was read from
+	 * @param cm - move command that was read
+	 */
+	private void queueMove(ClientConnection c, PlayerCommand cm) {
+		if (cm.getSequence() > 0) {
+			acks.put(c, cm.getSequence());
+		}
+		serverController.queueMove(cm);
+	}
+
+	/**
+	 * Method that tells a client which commands of its have been processed, only called while holding the lock. The acknowledgement is queued
+	 * just before the frame holding the changes made by the commands so the client knows which version of the board they are in. Does nothing
+	 * if the client has no commands waiting to be acknowledged
+	 *
+	 * @param ct - client about to be sent a frame
+	 * @param version - version of the board the client will have once the frame is applied
+	 */
+	private void writeAck(ClientConnection ct, int version) {
+		Integer sequence = acks.remove(ct);
+		if (sequence != null) {
+			ct.writeToClient(new Frame(new Packet(Packet.ACK, sequence, version)));
+		}
+	}
+
+	/**
+	 * Method that applies a player command to the game, the changes to the board are broadcast at the end of the tick. Only called on the tick
+	 * while holding the lock
+	 *
+	 * @param c - connection that the command was read from
+	 * @param cm - command that was read
+	 */
+	private void handleCommand(ClientConnection c, PlayerCommand cm) {
+		int id = c.getClientId();
+		String parsed = serverController.parseInput(cm);
+		if (parsed.equals("true")) {
+			if (cm.getAction() == PlayerCommand.LOGIN) {
+				/* Check for login limit */
+				if (al.size() <= Server.LOGIN_LIMIT) {
+					/* Updates map with username */
+					IDtoUsername.put(id, cm.getMessage().substring(6));
+					/* Send the whole board to the new client, everyone else gets the changes */
+					sendBoard(id);
+				} else {
+					/* broadcast if you fail to login */
+					broadcast(new Packet(Packet.LOGIN_FAILED, null, null, 0), id);
+					remove(id);
+					c.close();
+				}
+			}
+		/* broadcast if you fail to login */
+		} else if (parsed.equals("fail login")) {
+			broadcast(new Packet(Packet.LOGIN_FAILED, null, null, 0), id);
+			remove(id);
+			c.close();
+		/* If the client has missed a change to the board */
+		} else if (parsed.equals("resync")) {
+			sendBoard(id);
+		/* Broadcast endgame */
+		} else if (parsed.equals("endgame")) {
+			broadcast(new Packet(Packet.ENDGAME, null, IDtoUsername.get(id), getServerTime()), id);
+		/* Should not get here */
+		} else {
+			server.display("Room " + name + " could not apply " + cm.getMessage() + ": " + parsed);
+		}
+	}
+
+	/**
+	 * Method that gets called once a client in the room has disconnected, the client is removed after any commands it sent before
+	 * disconnecting have been applied on the next tick
+	 *
+	 * @param c - connection that has disconnected
+	 */
+	void disconnect(ClientConnection c) {
+		commands.add(new QueuedCommand(c, null));
+	}
+
+	/**
+	 * Method that removes a disconnected client from the room and sets the player to logged out, only called on the tick while holding the
+	 * lock. The server is told once the room is empty so it can be closed
+	 *
+	 * @param c - connection that has disconnected
+	 */
+	private void removeConnection(ClientConnection c) {
+		int id = c.getClientId();
+		interests.remove(id);
+		acks.remove(c);
+		String username = IDtoUsername.remove(id);
+		Player p = username == null ? null : serverController.getPlayerByUserName(username);
+		if (p != null) {
+			p.setLoggedIn(false);
+			serverController.requestBoard().editTile(p.getTile()).setGameObject(null);
+		}
+		remove(id);
+		if (al.isEmpty()) {
+			server.roomEmpty(this);
+		}
+	}
+
+	/**
+	 * Method that returns the ID that is joined to a specific username
+	 *
+	 * @param username - Username that we want to find the ID for
+	 * @return ID - ID that is joined the specific Username
+	 */
+	int getID(String username){
+		for(Map.Entry<Integer, String> entry : IDtoUsername.entrySet()){
+			if(entry.getValue().equals(username)){
+				return entry.getKey();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Method that removes the client from the room, due to client being disconnected
+	 *
+	 * @param id - id that needs to be removed
+	 */
+	void remove(int id) {
+		for (ClientConnection ct : al) {
+			if (ct.getClientId() == id) {
+				al.remove(ct);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Getter for the time of the room
+	 *
+	 * @return time - seconds since the room was started
+	 */
+	int getServerTime(){
+		return time;
+	}
+
+	/**
+	 * A command read from a client waiting to be applied on the next tick
+	 */
+	private static class QueuedCommand {
+		final ClientConnection connection;
+		final PlayerCommand command;
+
+		/**
+		 * Constructor for a queued command
+		 *
+		 * @param connection - connection the command was read from
+		 * @param command - command read, null if the client has disconnected
+		 */
+		QueuedCommand(ClientConnection connection, PlayerCommand command) {
+			this.connection = connection;
+			this.command = command;
+		}
+	}
+}
@@ -1,32 +1,57 @@
 package clientserver;
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import core.GameSystem;
-import gameobjects.Player;
-import iohandling.BoardWriter;
+import core.Board;
+import core.BoardSnapshot;
+import core.LocationPager;
+import iohandling.BoardFile;
 
 /**
  * This is the class that holds all the information for the server, this holds all the exchanges of the clients, this holds all the information for the 
  * streams connecting the client and server
  * 
+ * The server hosts many rooms, each an independent game with its own board, players and clock. A client starts in the lobby and joins a room
+ * with a room command before logging in, a client that logs in without joining one plays in the main room. The ticks of every room are run on
+ * one shared pool of tick threads rather than a thread for each room, and a room other than the main room is closed once its last client
+ * has left. The main room can play a world too large for memory from a board file whose locations are paged in and out, the other rooms
+ * always play the map
+ *
  * @author Simon Glew
  *
  */
 public class Server {
-	private final static int LOGIN_LIMIT = 4;
+	final static int LOGIN_LIMIT = 4;
+	final static int DEFAULT_TICKS_PER_SECOND = 20;
+	final static int WALK_STEPS_PER_SECOND = 4;
+	public final static String MAIN_ROOM = "main";
+	final static String USAGE = "Usage: Server [port] [--mode thread|virtual|nio] [--tick-rate ticksPerSecond] [--region-threads threads]"
+			+ " [--paged boardFile [--page-budget locations] [--page-idle-millis millis]]";
+	final static int DEFAULT_PAGE_BUDGET = 1000;
+	final static int DEFAULT_PAGE_IDLE_MILLIS = 60000;
 	
-	private Map<Integer, String> IDtoUsername;
-	private ArrayList<ClientThread> al;
-
-	private ServerController serverController;
-	private TimeThread time;
+	private List<ClientConnection> al;
+	private final Map<String, Room> rooms = new HashMap<String, Room>();
+	private final Map<Integer, Room> roomOf = new ConcurrentHashMap<Integer, Room>();
+	private ScheduledExecutorService tickPool;
+	private int ticksPerSecond = DEFAULT_TICKS_PER_SECOND;
+	private int regionThreads = 1;
+	private int tickThreads = Runtime.getRuntime().availableProcessors();
+	private Board pagedWorld;
 
-	private static int uniqueId;
-	private int port;
-	private boolean keepGoing;
+	private static AtomicInteger uniqueId = new AtomicInteger();
+	int port;
+	volatile boolean keepGoing;
+	private boolean virtualThreads;
 
 	/**
 	 * Constructor for the server, this gets called when the main method of the class is called
@@ -34,9 +59,19 @@ public class Server {
 	 * @param port - The port of the server 
 	 */
 	public Server(int port) {
+		this(port, false);
+	}
+
+	/**
+	 * Constructor for the server that chooses what kind of thread each client is handled on
+	 *
+	 * @param port - The port of the server
+	 * @param virtualThreads - If each client should be handled on a virtual thread instead of a platform thread
+	 */
+	public Server(int port, boolean virtualThreads) {
 		this.port = port;
-		al = new ArrayList<ClientThread>();
-		IDtoUsername = new HashMap<Integer, String>();
+		this.virtualThreads = virtualThreads;
+		al = new CopyOnWriteArrayList<ClientConnection>();
 	}
 
 	/**
@@ -48,30 +83,19 @@ public class Server {
 		try {
 			ServerSocket serverSocket = new ServerSocket(port);
 			System.out.println("Waiting for clients on port " + port);
-			serverController = new ServerController(this);
-			time = new TimeThread();
-			time.start();
+			startGame();
 			while (keepGoing) {
 				Socket socket = serverSocket.accept();
 				if (!keepGoing)
 					break;
 				ClientThread t = new ClientThread(socket);
-				al.add(t);
+				addConnection(t);
 				t.start();
 			}
 			/* If the server is closing */
 			try {
 				serverSocket.close();
-				for (int i = 0; i < al.size(); ++i) {
-					ClientThread tc = al.get(i);
-					try {
-						tc.sInput.close();
-						tc.sOutput.close();
-						tc.socket.close();
-					} catch (IOException e) {
-
-					}
-				}
+				closeConnections();
 			} catch (Exception e) {
 				display("Exception closing the server and clients: " + e);
 			}
@@ -82,154 +106,458 @@ public class Server {
 		}
 	}
 
+	/**
+	 * Method that stops the server, the server wakes up from waiting for connections and closes all of the clients
+	 */
+	public void stop() {
+		keepGoing = false;
+		if (tickPool != null) {
+			display("Server tick: " + getTickStats());
+		}
+		/* Rooms are stopped outside the lock, as stopping a room waits for its running tick, which may be telling the server it is empty */
+		List<Room> stopping;
+		synchronized (rooms) {
+			stopping = new ArrayList<Room>(rooms.values());
+			rooms.clear();
+		}
+		for (Room room : stopping) {
+			room.stop();
+		}
+		if (tickPool != null) {
+			tickPool.shutdownNow();
+		}
+		try {
+			new Socket("localhost", port).close();
+		} catch (IOException e) {
+
+		}
+	}
+
+	/**
+	 * Method that sets how many times a second the server ticks, must be called before the server is started
+	 *
+	 * @param ticksPerSecond - number of ticks each second, at least 1
+	 */
+	public void setTicksPerSecond(int ticksPerSecond) {
+		if (ticksPerSecond < 1) {
+			throw new IllegalArgumentException("Tick rate must be at least 1: " + ticksPerSecond);
+		}
+		this.ticksPerSecond = ticksPerSecond;
+	}
+
+	/**
+	 * Method that sets how many threads move the board of each room on each tick, the locations are split into that many regions. Must be
+	 * called before the server is started
+	 *
+	 * @param regionThreads - number of threads, 1 makes every move on the tick thread
+	 */
+	public void setRegionThreads(int regionThreads) {
+		if (regionThreads < 1) {
+			throw new IllegalArgumentException("Region threads must be at least 1: " + regionThreads);
+		}
+		this.regionThreads = regionThreads;
+	}
+
+	/**
+	 * Method that sets how many threads run the ticks of all of the rooms, must be called before the server is started
+	 *
+	 * @param tickThreads - number of threads, by default one for each processor
+	 */
+	public void setTickThreads(int tickThreads) {
+		if (tickThreads < 1) {
+			throw new IllegalArgumentException("Tick threads must be at least 1: " + tickThreads);
+		}
+		this.tickThreads = tickThreads;
+	}
+
+	/**
+	 * Method that makes the main room play on a board file whose locations are read in as they are needed and dropped once they are not, see
+	 * LocationPager. Changed locations are written back to the file, so no other server may use it. Must be called before the server is started
+	 *
+	 * @param fname - name of the board file
+	 * @param budget - most locations to keep in memory, at least 1
+	 * @param idleMillis - milliseconds a location must not be used for before it is dropped
+	 * @throws IOException - if the file cannot be opened for writing or is not a board file
+	 */
+	public void setPagedWorld(String fname, int budget, long idleMillis) throws IOException {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Page budget must be at least 1: " + budget);
+		}
+		pagedWorld = LocationPager.page(BoardFile.open(fname, true), budget, idleMillis);
+	}
+
+	/**
+	 * Method that starts the pool the rooms tick on and opens the main room, this gets called once the server is listening for connections
+	 */
+	void startGame() {
+		tickPool = Executors.newScheduledThreadPool(tickThreads, new ThreadFactory() {
+			private final AtomicInteger made = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "server-tick-" + made.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		synchronized (rooms) {
+			openRoom(MAIN_ROOM, pagedWorld == null ? new ServerController(this) : new ServerController(this, pagedWorld));
+		}
+	}
+
+	/**
+	 * Method that creates a room and starts its tick, only called while holding the lock on the rooms
+	 *
+	 * @param name - name of the room
+	 * @param controller - controller of the game played in the room
+	 * @return room - the new room
+	 */
+	private Room openRoom(String name, ServerController controller) {
+		Room room = controller.getRoom();
+		room.start(name, ticksPerSecond, regionThreads, tickPool);
+		rooms.put(name, room);
+		return room;
+	}
+
+	/**
+	 * Method that gets called by a room once its last client has left, the room is closed unless it is the main room or a client has joined
+	 * it since
+	 *
+	 * @param room - room that is empty
+	 */
+	void roomEmpty(Room room) {
+		synchronized (rooms) {
+			if (room.getConnectionCount() > 0 || MAIN_ROOM.equals(room.getName()) || rooms.get(room.getName()) != room) {
+				return;
+			}
+			rooms.remove(room.getName());
+			display("Closed room " + room.getName() + ", tick: " + room.stop());
+		}
+	}
+
+	/**
+	 * Getter for the number of rooms open
+	 *
+	 * @return count - number of rooms, including the main room
+	 */
+	public int getRoomCount() {
+		synchronized (rooms) {
+			return rooms.size();
+		}
+	}
+
+	/**
+	 * Getter for the last snapshot of the board of a room, it can be read on any thread without holding up the game
+	 *
+	 * @param name - name of the room
+	 * @return snapshot - snapshot of the board, null if there is no such room
+	 */
+	public BoardSnapshot getSnapshot(String name) {
+		Room room = getRoom(name);
+		return room == null ? null : room.getSnapshot();
+	}
+
+	/**
+	 * Getter for a room that is open
+	 *
+	 * @param name - name of the room
+	 * @return room - the room, null if there is no such room
+	 */
+	public Room getRoom(String name) {
+		synchronized (rooms) {
+			return rooms.get(name);
+		}
+	}
+
+	/**
+	 * Describes how the ticks of every room have run so far
+	 *
+	 * @return stats - the number of rooms and the ticks they ran, overran and skipped between them
+	 */
+	public String getTickStats() {
+		long ticks = 0;
+		long overruns = 0;
+		long skipped = 0;
+		int count;
+		synchronized (rooms) {
+			count = rooms.size();
+			for (Room room : rooms.values()) {
+				ticks += room.getTicker().getTicks();
+				overruns += room.getTicker().getOverruns();
+				skipped += room.getTicker().getSkipped();
+			}
+		}
+		return count + " rooms on " + tickThreads + " tick threads, ran " + ticks + " ticks, " + overruns + " overran, " + skipped + " skipped";
+	}
+
+	/**
+	 * Method that starts a thread that reads from or writes to a client, this is a virtual thread if the server was asked for them and the JVM
+	 * supports them otherwise it is a platform thread
+	 *
+	 * @param handler - work to run on the thread
+	 * @param name - name of the thread if it is a platform thread
+	 */
+	void startHandler(Runnable handler, String name) {
+		if (virtualThreads) {
+			try {
+				/* Looked up at runtime so the server still runs on JVMs without virtual threads */
+				Method start = Thread.class.getMethod("startVirtualThread", Runnable.class);
+				start.invoke(null, handler);
+				return;
+			} catch (Exception e) {
+				display("Virtual threads are not available, using platform threads: " + e);
+				virtualThreads = false;
+			}
+		}
+		new Thread(handler, name).start();
+	}
+
+	/**
+	 * Method that adds a newly accepted connection to the list of connected clients, the client is in the lobby until it joins a room
+	 *
+	 * @param c - connection that was accepted
+	 */
+	void addConnection(ClientConnection c) {
+		al.add(c);
+	}
+
+	/**
+	 * Method that closes every connected client, this gets called when the server is closing
+	 */
+	void closeConnections() {
+		for (ClientConnection c : al) {
+			c.close();
+		}
+	}
+
+	/**
+	 * Method that gives out a new unique id for a connection
+	 *
+	 * @return id - unique id
+	 */
+	static int newClientId() {
+		return uniqueId.incrementAndGet();
+	}
+
 	/**
 	 * Helper method for displaying something to the console
 	 * 
 	 * @param msg - Message to be displayed
 	 */
-	private void display(String msg) {
+	void display(String msg) {
 		System.out.println(msg);
 	}
 
 	/**
-	 * Method that gets called when wanting to broadcast to all clients 
+	 * Method that gets called whenever a player command is read from a client. Room commands are answered straight away, anything else is
+	 * queued to be applied on the next tick of the room the client is in, a client still in the lobby joins the main room first
 	 * 
-	 * @param packet - the packet object to get broadcasted to clients
-	 * @param id - id of client thread that the broadcast is coming from
+	 * @param c - connection that the command was read from
+	 * @param cm - command that was read
 	 */
-	synchronized void broadcast(Packet packet, int id) {
-		for (int i = al.size(); --i >= 0;) {
-			ClientThread ct = al.get(i);
-			/* If login fail we want to only call it on the id that broke */
-			if (packet.getMessage() == "fail login" || packet.getType() == "popupOne") {
-				if (ct.id == id) {
-					ct.writeToClient(packet);
-				}
-			}else if(packet.getType() == "popupBarOne"){ 
-				if(ct.id != id){
-					ct.writeToClient(packet);
-				}
-			}else {
-				if (!ct.writeToClient(packet)) {
-					al.remove(i);
-					display("Disconnected Client " + ct.id + " removed from list.");
+	void processCommand(ClientConnection c, PlayerCommand cm) {
+		/*For closing the client */
+		if (cm.getAction() == PlayerCommand.CLOSE) {
+			c.close();
+			return;
+		}
+		if (cm.getAction() == PlayerCommand.ROOM) {
+			c.writeToClient(new Frame(new Packet(Packet.POPUP_ONE, null, enterRoom(c, cm), 0)));
+			return;
+		}
+		Room room = roomOf.get(c.getClientId());
+		if (room == null) {
+			synchronized (rooms) {
+				room = rooms.get(MAIN_ROOM);
+				if (room == null) {
+					return;
 				}
+				room.addConnection(c);
+				roomOf.put(c.getClientId(), room);
 			}
 		}
+		room.processCommand(c, cm);
 	}
-	
+
 	/**
-	 * Method that returns the ID that is joined to a specific username
-	 * 
-	 * @param username - Username that we want to find the ID for
-	 * @return ID - ID that is joined the specific Username
+	 * Method that moves a client from the lobby into a room. "room create name" opens a new room, "room join name" joins a room and opens it if
+	 * there is no room with that name yet. A client can change room until it logs in
+	 *
+	 * @param c - connection that the command was read from
+	 * @param cm - room command that was read
+	 * @return reply - message telling the client what happened
 	 */
-	public int getID(String username){
-		for(int i : IDtoUsername.keySet()){
-			if(IDtoUsername.get(i).equals(username)){
-				return i;
+	private String enterRoom(ClientConnection c, PlayerCommand cm) {
+		String[] words = cm.getMessage().split(" ");
+		if (words.length != 3 || !(words[1].equals("create") || words[1].equals("join"))) {
+			return "Use room create or room join followed by the name of the room";
+		}
+		String name = words[2];
+		int id = c.getClientId();
+		synchronized (rooms) {
+			if (!keepGoing || tickPool == null) {
+				return "The server is not running";
+			}
+			Room current = roomOf.get(id);
+			if (current != null && current.isLoggedIn(id)) {
+				return "You are already playing in room " + current.getName();
+			}
+			Room room = rooms.get(name);
+			if (room != null && words[1].equals("create")) {
+				return "Room " + name + " already exists";
+			}
+			if (room != null && room.getConnectionCount() >= LOGIN_LIMIT) {
+				return "Room " + name + " is full";
+			}
+			if (room == null) {
+				room = openRoom(name, new ServerController(this));
+			}
+			if (current != null && current != room) {
+				current.remove(id);
+				roomEmpty(current);
 			}
+			if (current != room) {
+				room.addConnection(c);
+				roomOf.put(id, room);
+			}
+			return "Joined room " + name;
 		}
-		return 0;
 	}
-
+	
 	/**
-	 * Method that removes the client from the list, due to client being disconnected
+	 * Method that gets called once a client has disconnected, the client is removed from its room after any commands it sent before
+	 * disconnecting have been applied on the next tick of the room
 	 * 
-	 * @param id - id that needs to be removed
+	 * @param c - connection that has disconnected
 	 */
-	synchronized void remove(int id) {
-		for (int i = 0; i < al.size(); ++i) {
-			ClientThread ct = al.get(i);
-			if (ct.id == id) {
-				al.remove(i);
-				return;
-			}
+	void disconnect(ClientConnection c) {
+		al.remove(c);
+		Room room = roomOf.remove(c.getClientId());
+		if (room != null) {
+			room.disconnect(c);
 		}
 	}
 	
 	/**
-	 * Gets the current server time
+	 * Getter for the number of clients currently connected
 	 * 
-	 * @return time - current server time
+	 * @return count - number of connected clients
 	 */
-	public int getServerTime(){
-		return time.getTime();
+	public int getConnectionCount() {
+		return al.size();
 	}
 
 	/**
 	 * Main method of the server, this is the method that gets called that makes the server 
 	 * 
-	 * @param args - Should only be one argument with the server port number
+	 * @param args - Can hold the server port number, then any of the options in USAGE: --mode "nio" to serve clients from a small set of
+	 *            non-blocking threads or "virtual" to handle each client on a virtual thread, --tick-rate the number of times a second the
+	 *            server ticks, --region-threads the number of threads that move the regions of the board, and --paged a board file the
+	 *            main room plays keeping at most --page-budget locations in memory and dropping those unused for --page-idle-millis
 	 */
 	public static void main(String[] args) {
 		int portNumber = 4518;
-		switch (args.length) {
-		case 1:
+		String mode = "thread";
+		int ticksPerSecond = DEFAULT_TICKS_PER_SECOND;
+		int regionThreads = 1;
+		String pagedWorld = null;
+		int pageBudget = DEFAULT_PAGE_BUDGET;
+		int pageIdleMillis = DEFAULT_PAGE_IDLE_MILLIS;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String option = args[i];
+				if (i == 0 && !option.startsWith("--")) {
+					portNumber = parseOption("port", option, 0, 65535);
+				} else if (option.equals("--mode")) {
+					mode = optionValue(args, ++i, option);
+					if (!(mode.equals("nio") || mode.equals("virtual") || mode.equals("thread"))) {
+						throw new IllegalArgumentException("Unknown mode: " + mode);
+					}
+				} else if (option.equals("--tick-rate")) {
+					ticksPerSecond = parseOption(option, optionValue(args, ++i, option), 1, Integer.MAX_VALUE);
+				} else if (option.equals("--region-threads")) {
+					regionThreads = parseOption(option, optionValue(args, ++i, option), 1, Integer.MAX_VALUE);
+				} else if (option.equals("--paged")) {
+					pagedWorld = optionValue(args, ++i, option);
+					if (!BoardFile.isBoardFile(pagedWorld)) {
+						throw new IllegalArgumentException("Not a board file: " + pagedWorld);
+					}
+				} else if (option.equals("--page-budget")) {
+					pageBudget = parseOption(option, optionValue(args, ++i, option), 1, Integer.MAX_VALUE);
+				} else if (option.equals("--page-idle-millis")) {
+					pageIdleMillis = parseOption(option, optionValue(args, ++i, option), 0, Integer.MAX_VALUE);
+				} else {
+					throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return;
+		}
+		Server server = mode.equals("nio") ? new NioServer(portNumber) : new Server(portNumber, mode.equals("virtual"));
+		server.setTicksPerSecond(ticksPerSecond);
+		server.setRegionThreads(regionThreads);
+		if (pagedWorld != null) {
 			try {
-				portNumber = Integer.parseInt(args[0]);
-			} catch (Exception e) {
+				server.setPagedWorld(pagedWorld, pageBudget, pageIdleMillis);
+			} catch (IOException e) {
+				System.err.println("Cannot open " + pagedWorld + " for writing: " + e);
 				return;
 			}
-		case 0:
-			break;
-		default:
-			return;
 		}
-		Server server = new Server(portNumber);
 		server.start();
 	}
 	
 	/**
-	 * Class that is a thread that holds the current time of the server, this increments each second and broadcasts to clients
-	 * 
-	 * @author Simon Glew
+	 * Method that gets the value given after an option of main
+	 *
+	 * @param args - arguments of main
+	 * @param i - index of the value
+	 * @param option - option the value is for
+	 * @return value - the value
 	 */
-	class TimeThread extends Thread {
-		int count;
-		
-		/**
-		 * Constructor that sets the initial time to 0
-		 */
-		TimeThread() {
-			count = 0;
+	private static String optionValue(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException(option + " needs a value");
 		}
-		
-		/**
-		 * Method that gets called on startup that broadcasts the current server time each second
-		 */
-		public void run() {
-			while (true) {
-				broadcast(new Packet("time", null, null, getTime()), 0);
-				count++;
-				serverController.tick(count);
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
+		return args[i];
+	}
 
-				}
-			}
+	/**
+	 * Method that reads the number given for an option of main
+	 *
+	 * @param option - option the number is for
+	 * @param value - text of the number
+	 * @param min - smallest number allowed
+	 * @param max - largest number allowed
+	 * @return number - the number
+	 */
+	private static int parseOption(String option, String value, int min, int max) {
+		int number;
+		try {
+			number = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(option + " must be a number: " + value);
 		}
-		
-		/**
-		 * Getter of the current time of the server
-		 * 
-		 * @return time - current time of the server
-		 */
-		public int getTime() {
-			return count;
+		if (number < min) {
+			throw new IllegalArgumentException(option + " must be at least " + min + ": " + value);
+		} else if (number > max) {
+			throw new IllegalArgumentException(option + " must be at most " + max + ": " + value);
 		}
+		return number;
 	}
 
 	/**
-	 * Class that is created whenever a new client is made within the server that creates the streams needed 
+	 * Class that is created whenever a new client is made within the server that creates the streams needed, it reads from the client on its own
+	 * platform or virtual thread and has a second thread that writes the frames queued for the client
 	 * 
 	 * @author Simon Glew
 	 */
-	class ClientThread extends Thread {
+	class ClientThread implements Runnable, ClientConnection {
 		Socket socket;
-		ObjectInputStream sInput;
-		ObjectOutputStream sOutput;
+		DataInputStream sInput;
+		DataOutputStream sOutput;
+		OutboundQueue outbound = new OutboundQueue();
 
 		int id;
 		PlayerCommand cm;
@@ -241,11 +569,13 @@ public class Server {
 		 */
 		ClientThread(Socket socket) {
 			System.out.println("Client accepted");
-			id = ++uniqueId;
+			id = newClientId();
 			this.socket = socket;
 			try {
-				sOutput = new ObjectOutputStream(socket.getOutputStream());
-				sInput = new ObjectInputStream(socket.getInputStream());
+				socket.setTcpNoDelay(true);
+				socket.setKeepAlive(true);
+				sOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				sInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 			} catch (IOException e) {
 				display("Exception creating new Input/output Streams: " + e);
 				return;
@@ -253,113 +583,105 @@ public class Server {
 		}
 
 		/**
-		 * Method that gets called after client thread is created that listens on the stream, parses the player command and calls the broadcast method with
-		 * the right packet being created
+		 * Getter for the id of the client
+		 *
+		 * @return id - id of the client
+		 */
+		public int getClientId() {
+			return id;
+		}
+
+		/**
+		 * Method that starts the threads that read from and write to the client
+		 */
+		void start() {
+			startHandler(this, "client-" + id);
+			startHandler(new Runnable() {
+				public void run() {
+					writeFrames();
+				}
+			}, "client-writer-" + id);
+		}
+
+		/**
+		 * Method that gets called after client thread is created that listens on the stream and passes each player command on to the server
 		 */
 		public void run() {
-			boolean keepGoing = true;
-			while (keepGoing) {
+			while (true) {
 				try {
-					cm = (PlayerCommand) sInput.readObject();
-					/*For closing the client thread */
-					if (cm.getMessage().equals("close")) {
-						this.close();
-					}
+					cm = FrameCodec.readCommand(sInput);
 				} catch (IOException e) {
 					display(id + " Exception reading Streams: " + e);
 					break;
-				} catch (ClassNotFoundException e) {
-					break;
-				}
-				String parsed = serverController.parseInput(cm);
-				if (parsed.equals("true")) {
-					if (cm.getMessage().contains("login")) {
-						/* Check for login limit */
-						if (al.size() <= LOGIN_LIMIT) {
-							/* Updates map with username */
-							IDtoUsername.put(id, cm.getMessage().substring(6));
-							/* Broadcast new board */
-							broadcast(new Packet("board", BoardWriter.writeBoardToString(serverController.requestBoard()), null, time.getTime()),id);
-						} else {
-							/* broadcast if you fail to login */
-							broadcast(new Packet("string", null, "fail login", 0), id);
-							remove(id);
-							this.close();
-						}
-					} else {
-						/* Broadcast new board */
-						broadcast(new Packet("board", BoardWriter.writeBoardToString(serverController.requestBoard()), null, time.getTime()), id);
-					}
-				/* broadcast if you fail to login */
-				} else if (parsed.equals("fail login")) {
-					broadcast(new Packet("string", null, "fail login", 0), id);
-					remove(id);
-					this.close();
-				/* If you cannot move due to something */
-				} else if (parsed.equals("false") && cm.getMessage().contains("move")) {
-					broadcast(new Packet("board", BoardWriter.writeBoardToString(serverController.requestBoard()), null,  time.getTime()), id);
-				/* Broadcast endgame */	
-				} else if (parsed.equals("endgame")) {
-					System.out.println("a");
-					broadcast(new Packet("string", null, "endgame " + IDtoUsername.get(id), time.getTime()), id);
-				/* Should not get here */
-				} else {
-					System.out.println("fail");
 				}
+				processCommand(this, cm);
 			}
 			/* remove myself from the arrayList containing the list of the connected Clients, and set you to logged out */
-			Player p = serverController.getPlayerByUserName(IDtoUsername.get(id));
-			if (p != null) {
-				p.setLoggedIn(false);
-				IDtoUsername.remove(id);
-				p.getTile().setGameObject(null);
+			disconnect(this);
+		}
+
+		/**
+		 * Method that writes the frames queued for the client until the connection is closed, the stream is only flushed once the queue is empty
+		 */
+		void writeFrames() {
+			try {
+				Frame frame;
+				while ((frame = outbound.take()) != null) {
+					frame.writeTo(sOutput);
+					if (outbound.isEmpty()) {
+						sOutput.flush();
+					}
+					outbound.completed();
+				}
+			} catch (IOException e) {
+				display("Error sending message to " + id + ": " + e);
+				close();
+			} catch (InterruptedException e) {
+				close();
 			}
-			remove(id);
 		}
 
 		/**
-		 * Method that attempts to close all the connections to the server
+		 * Method that attempts to close all the connections to the server, the socket is closed first so that a writer stuck on a stalled client
+		 * is woken up
 		 */
-		private void close() {
+		public void close() {
+			outbound.close();
 			try {
-				if (sOutput != null)
-					sOutput.close();
+				if (socket != null)
+					socket.close();
 			} catch (Exception e) {
 
 			}
 			try {
-				if (sInput != null)
-					sInput.close();
+				if (sOutput != null)
+					sOutput.close();
 			} catch (Exception e) {
 
 			}
 			try {
-				if (socket != null)
-					socket.close();
+				if (sInput != null)
+					sInput.close();
 			} catch (Exception e) {
 
 			}
 		}
 
 		/**
-		 * Method that attempts to write a packet to the client
+		 * Method that queues a frame to be written to the client, a client that has been too slow to take what it has been sent is disconnected
 		 * 
-		 * @param packet - Packet to send
+		 * @param frame - Frame to send
 		 * 
-		 * @return boolean - If sending was successful
+		 * @return boolean - If the client is still connected
 		 */
-		private boolean writeToClient(Packet packet) {
-			/* If client is still connected send the packet to it */
-			if (!socket.isConnected()) {
-				close();
+		public boolean writeToClient(Frame frame) {
+			if (outbound.isClosed()) {
 				return false;
 			}
-			try {
-				sOutput.writeObject(packet);
-			}
-			catch (IOException e) {
-				display("Error sending message to " + id);
-				display(e.toString());
+			if (!outbound.offer(frame)) {
+				display("Disconnecting slow client " + id + ", " + outbound.getStats());
+				close();
+				return false;
 			}
 			return true;
 		}
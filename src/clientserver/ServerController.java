@@ -1,12 +1,13 @@
 package clientserver;
 
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import core.Board;
 import core.GameSystem;
 import core.GameSystem.Direction;
 import gameobjects.Player;
-import iohandling.BoardWriter;
 import items.Banana;
 import items.Item;
 import tile.Tile;
@@ -20,7 +21,8 @@ import util.Position;
  */
 public class ServerController {
 	private GameSystem gameSystem;
-	private Server server;
+	private Room room;
+	private final Queue<Message> messages = new ConcurrentLinkedQueue<Message>();
 
 	/**
 	 * Constructor that gets called when a server is made and creates a new game system object
@@ -28,10 +30,39 @@ public class ServerController {
 	 * @param server - the server that the controller is connected to
 	 */
 	public ServerController(Server server) {
-		this.server = server;
+		this.room = new Room(server, this);
 		this.gameSystem = new GameSystem(this);
 	}
 
+	/**
+	 * Constructor for a controller whose game is played on a board that has already been loaded
+	 *
+	 * @param server - the server that the controller is connected to
+	 * @param board - board to play on
+	 */
+	public ServerController(Server server, Board board) {
+		this.room = new Room(server, this);
+		this.gameSystem = new GameSystem(this, board);
+	}
+
+	/**
+	 * Getter for the room the game is played in
+	 *
+	 * @return room - room holding the clients playing the game
+	 */
+	Room getRoom() {
+		return room;
+	}
+
+	/**
+	 * Getter for the game system the controller updates
+	 *
+	 * @return gameSystem - game logic of the server
+	 */
+	public GameSystem getGameSystem() {
+		return gameSystem;
+	}
+
 	/**
 	 * Getter for getting the board from the game system to be send back through the server
 	 *
@@ -52,6 +83,9 @@ public class ServerController {
 
 		if (s.hasNext()) {
 			String action = s.next();
+			if (!action.equals("resync")) {//Any other command from the player cancels a goto
+				stopWalking(message.getMessage().split(" "));
+			}
 			if (action.equals("move")) {//If move
 				return parseMoveCommand(s);
 			} else if (action.equals("login")) {//If Login
@@ -64,6 +98,11 @@ public class ServerController {
 				return parseUseItemCommand(s);
 			} else if (action.equals("pickup")) {//If pickup
 				return parsePickupItemCommand(s);
+			} else if (action.equals("goto")) {//If goto
+				return parseGotoCommand(s);
+			} else if (action.equals("resync")) {//If client missed a board change
+				s.close();
+				return "resync";
 			}
 
 			s.close();
@@ -74,6 +113,44 @@ public class ServerController {
 		return "false";//shouldnt get here
 	}
 
+	/**
+	 * Method used instead of parseInput for a move command so the move is made with the other moves of the tick, which may be in parallel with
+	 * moves in other regions of the board. Any goto the player was on is cancelled
+	 *
+	 * @param message - move command sent from the client
+	 * @return String - "true" if the move was queued, "false" if the command could not be read
+	 */
+	public String queueMove(PlayerCommand message) {
+		String[] words = message.getMessage().split(" ");
+		if (words.length < 3) {
+			return "false";
+		}
+		Player player = getPlayerByUserName(words[1]);
+		Direction direction = convertToDirection(words[2]);
+		if (player == null || direction == null) {
+			return "false";
+		}
+		gameSystem.stopWalking(player);
+		gameSystem.queueMovePlayer(player, direction);
+		return "true";
+	}
+
+	/**
+	 * Makes every move that has been queued, called before a command that is not a move so the commands are still applied in order
+	 */
+	public void runQueuedMoves() {
+		gameSystem.runMoves();
+	}
+
+	/**
+	 * Sets how many regions the board is split into, each region has its moves made by its own thread
+	 *
+	 * @param count - number of regions
+	 */
+	public void setRegionCount(int count) {
+		gameSystem.setRegionCount(count);
+	}
+
 	/**
 	 * Method that is called if pickup is the start of the player message, this finds the player and the tile the player is currently on and puts that item
 	 * on the tile into the the players inventory
@@ -96,7 +173,7 @@ public class ServerController {
 			}
 			Item i = (Item) t.getGameObject();
 
-			player.getInventory().add(i);
+			player.pickUpItem(i);
 			return "true";
 		} catch (Exception e) {
 			return "false";
@@ -118,29 +195,27 @@ public class ServerController {
 			if (p != null && p.isLoggedIn()) {
 				return "fail login";
 			} else if (p != null && !p.isLoggedIn()) {
-				gameSystem.getBoard().getLocationById(p.getLocation().getId()).getTileAtPosition(p.getPosition())
-						.setGameObject(p);
+				gameSystem.getBoard().editTile(p.getTile()).setGameObject(p);
 				p.setLoggedIn(true);
 				return "true";
 			} else {
-				if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(new Position(5, 5))
+				if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(5, 5)
 						.getGameObject() instanceof Player)) {
-					p = new Player(name, 0, new Position(5, 5), gameSystem.getBoard());
-				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(new Position(4, 5))
+					p = new Player(name, 0, Position.of(5, 5), gameSystem.getBoard());
+				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(4, 5)
 						.getGameObject() instanceof Player)) {
-					p = new Player(name, 0, new Position(4, 5), gameSystem.getBoard());
-				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(new Position(4, 4))
+					p = new Player(name, 0, Position.of(4, 5), gameSystem.getBoard());
+				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(4, 4)
 						.getGameObject() instanceof Player)) {
-					p = new Player(name, 0, new Position(4, 4), gameSystem.getBoard());
-				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(new Position(5, 4))
+					p = new Player(name, 0, Position.of(4, 4), gameSystem.getBoard());
+				} else if (!(gameSystem.getBoard().getLocationById(0).getTileAtPosition(5, 4)
 						.getGameObject() instanceof Player)) {
-					p = new Player(name, 0, new Position(5, 4), gameSystem.getBoard());
+					p = new Player(name, 0, Position.of(5, 4), gameSystem.getBoard());
 				}else{
 					return "fail login";
 				}
 				gameSystem.getBoard().addPlayer(name, p);
-				gameSystem.getBoard().getLocationById(p.getLocation().getId()).getTileAtPosition(p.getPosition())
-						.setGameObject(p);
+				gameSystem.getBoard().editTile(p.getTile()).setGameObject(p);
 				p.setLoggedIn(true);
 				return "true";
 			}
@@ -174,6 +249,48 @@ public class ServerController {
 		}
 	}
 
+	/**
+	 * Method that is called if goto is the start of the player message, this finds the player and the tile the player wants to walk to and starts the
+	 * player walking there, the player takes a step each tick until they arrive, the path is blocked or they send another command
+	 *
+	 * @param s - Scanner at current point along message
+	 * @return String - action needed for sending correct information back to client from server
+	 */
+	public String parseGotoCommand(Scanner s) {
+		try {
+			Player player = getPlayerByUserName(s.next());
+			int x = s.nextInt();
+			int y = s.nextInt();
+			int locationId = s.nextInt();
+
+			if (player == null)
+				return "false";
+
+			Tile t = gameSystem.getBoard().getLocationById(locationId).getTileAtPositionInLoc(x, y);
+			if (t == null || !gameSystem.walkPlayer(player, t))
+				return "false";
+			return "true";
+
+		} catch (Exception e) {
+			return "false";
+		}
+	}
+
+	/**
+	 * Method that stops the player who sent a command from walking
+	 *
+	 * @param words - words of the command, the second is the username of the player
+	 */
+	private void stopWalking(String[] words) {
+		if (words.length < 2) {
+			return;
+		}
+		Player player = gameSystem.getBoard().getPlayer(words[1]);
+		if (player != null) {
+			gameSystem.stopWalking(player);
+		}
+	}
+
 	/**
 	 * Method that makes a string of the direction and returns it as a direction
 	 *
@@ -271,7 +388,7 @@ public class ServerController {
 	}
 
 	/**
-	 * Method that gets called each second of the time thread and changes the npc movement
+	 * Method that gets called each second of server time and changes the npc movement
 	 *
 	 * @param time - current server time
 	 */
@@ -279,13 +396,20 @@ public class ServerController {
 		gameSystem.tick(time);
 	}
 
+	/**
+	 * Method that gets called on every tick of the server, which can be many times a second, and moves the players walking to a tile
+	 */
+	public void step(){
+		gameSystem.step();
+	}
+
 	/**
 	 * Method that gets the current server time
 	 *
 	 * @return time - current Server time
 	 */
 	public int getServerTime(){
-		return server.getServerTime();
+		return room.getServerTime();
 	}
 
 	/**
@@ -295,7 +419,7 @@ public class ServerController {
 	 * @param p - Player that you want to send the message to
 	 */
 	public void broadcastPlayerMessage(String message, Player p){
-		server.broadcast(new Packet("popupOne", null ,message, 0), server.getID(p.getUserName()));
+		messages.add(new Message(new Packet(Packet.POPUP_ONE, null ,message, 0), p));
 	}
 
 	/**
@@ -304,7 +428,7 @@ public class ServerController {
 	 * @param message - message that you want to send
 	 */
 	public void broadcastGameMessage(String message){
-		server.broadcast(new Packet("popup", null ,message, 0), 0);
+		messages.add(new Message(new Packet(Packet.POPUP, null ,message, 0), null));
 	}
 
 	/**
@@ -314,15 +438,36 @@ public class ServerController {
 	 * @param p - message you do not want sent to the player
 	 */
 	public void broadcastBarOnePlayer(String message, Player p){
-		server.broadcast(new Packet("popupBarOne", null, message, 0), server.getID(p.getUserName()));
+		messages.add(new Message(new Packet(Packet.POPUP_BAR_ONE, null, message, 0), p));
 	}
 
 	/**
-	 * Calls the broadcast method with giving it a board to send
-	 *
-	 * @param b - board that you want to send
+	 * Sends the popups raised since the last call, called by the server on each tick. Popups are queued rather than sent straight away as they can
+	 * be raised by the threads moving regions of the board, which must not wait on the server while the tick is waiting on them
 	 */
-	public void broadcastBoard(Board b){
-		server.broadcast(new Packet("board", BoardWriter.writeBoardToString(b), null, getServerTime()), 0);
+	public void sendMessages(){
+		Message m;
+		while ((m = messages.poll()) != null) {
+			room.broadcast(m.packet, m.player == null ? 0 : room.getID(m.player.getUserName()));
+		}
+	}
+
+	/**
+	 * A popup waiting to be sent
+	 */
+	private static class Message {
+		final Packet packet;
+		final Player player;
+
+		/**
+		 * Constructor for a popup
+		 *
+		 * @param packet - popup to send
+		 * @param player - player the popup is about, null if it is for everyone
+		 */
+		Message(Packet packet, Player player) {
+			this.packet = packet;
+			this.player = player;
+		}
 	}
 }
@@ -0,0 +1,216 @@
+package clientserver;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a tick at a fixed rate on a pool of threads shared with other schedulers, so many rooms can tick without a thread each. After each tick
+ * the next one is scheduled on the pool, so a tick never runs at the same time as the one before it. Each tick is scheduled from when the first
+ * tick was due rather than from when the last one finished, so the rate does not drift by however long a tick takes.
+ *
+ * A tick that takes longer than the tick period is counted as an overrun. If the scheduler falls more than a whole period behind, the ticks it
+ * missed are skipped and counted rather than run back to back to catch up
+ *
+ * Time is read from a Clock so the accounting can be tested without waiting, by default one that reads System.nanoTime
+ */
+public class TickScheduler implements Runnable {
+	private final int ticksPerSecond;
+	private final long periodNanos;
+	private final Tickable task;
+	private final ScheduledExecutorService pool;
+	private final Clock clock;
+
+	private volatile boolean running;
+	private volatile long ticks;
+	private volatile long overruns;
+	private volatile long skipped;
+	private volatile long worstTickNanos;
+
+	/* Only used by the tick running, the pool orders one tick after the next */
+	private long tick;
+	private long due;
+
+	/**
+	 * Work done on each tick
+	 */
+	public interface Tickable {
+		/**
+		 * Method that gets called on each tick
+		 *
+		 * @param tick - number of the tick, counting up from 0 and including any ticks that were skipped
+		 */
+		void tick(long tick);
+	}
+
+	/**
+	 * Constructor for a scheduler, no ticks run until start is called
+	 *
+	 * @param ticksPerSecond - number of ticks to run each second
+	 * @param task - work to do on each tick
+	 * @param pool - pool the ticks run on
+	 */
+	public TickScheduler(int ticksPerSecond, Tickable task, ScheduledExecutorService pool) {
+		this(ticksPerSecond, task, pool, new NanoClock());
+	}
+
+	/**
+	 * Constructor for a scheduler that reads the time from a clock, no ticks run until start is called
+	 *
+	 * @param ticksPerSecond - number of ticks to run each second
+	 * @param task - work to do on each tick
+	 * @param pool - pool the ticks run on
+	 * @param clock - clock used for when ticks are due and how long they take
+	 */
+	public TickScheduler(int ticksPerSecond, Tickable task, ScheduledExecutorService pool, Clock clock) {
+		if (ticksPerSecond < 1) {
+			throw new IllegalArgumentException("Tick rate must be at least 1: " + ticksPerSecond);
+		}
+		this.ticksPerSecond = ticksPerSecond;
+		this.periodNanos = 1000000000L / ticksPerSecond;
+		this.task = task;
+		this.pool = pool;
+		this.clock = clock;
+	}
+
+	/**
+	 * Starts running ticks, the first tick runs straight away
+	 */
+	public void start() {
+		running = true;
+		due = now();
+		schedule(0);
+	}
+
+	/**
+	 * Stops running ticks, a tick that is running finishes but no more are scheduled
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * Method that runs one tick then schedules the next, unless stopped
+	 */
+	public void run() {
+		if (!running) {
+			return;
+		}
+		long start = now();
+		try {
+			task.tick(tick);
+		} catch (RuntimeException e) {
+			System.out.println("Exception on server tick " + tick + ": " + e);
+		}
+		long end = now();
+		long took = end - start;
+		ticks++;
+		if (took > periodNanos) {
+			overruns++;
+		}
+		if (took > worstTickNanos) {
+			worstTickNanos = took;
+		}
+		tick++;
+		due += periodNanos;
+		if (end - due >= periodNanos) {
+			long behind = (end - due) / periodNanos;
+			skipped += behind;
+			tick += behind;
+			due += behind * periodNanos;
+		}
+		if (running) {
+			schedule(due - now());
+		}
+	}
+
+	/**
+	 * Reads the clock in nanoseconds
+	 *
+	 * @return nanos - time of the clock
+	 */
+	private long now() {
+		Instant instant = clock.instant();
+		return instant.getEpochSecond() * 1000000000L + instant.getNano();
+	}
+
+	/**
+	 * Schedules the next tick on the pool, the scheduler stops if the pool has been shut down
+	 *
+	 * @param delayNanos - time until the tick is due, run straight away if it is not positive
+	 */
+	private void schedule(long delayNanos) {
+		try {
+			pool.schedule(this, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			running = false;
+		}
+	}
+
+	/**
+	 * Getter for the tick rate
+	 *
+	 * @return ticksPerSecond - number of ticks run each second
+	 */
+	public int getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Getter for the number of ticks that have run
+	 *
+	 * @return ticks - ticks run, not counting skipped ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Getter for the number of ticks that took longer than the tick period
+	 *
+	 * @return overruns - ticks that overran
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Getter for the number of ticks that were skipped because the scheduler fell behind
+	 *
+	 * @return skipped - ticks skipped
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Describes how the ticks have run, logged when the server closes
+	 *
+	 * @return stats - rate, count of ticks run, overrun and skipped and the longest tick
+	 */
+	public String getStats() {
+		return ticksPerSecond + " ticks per second, ran " + ticks + " ticks, " + overruns + " overran, " + skipped + " skipped, worst "
+				+ worstTickNanos / 1000 + " us";
+	}
+
+	/**
+	 * Clock that reads System.nanoTime, which unlike the time of day never jumps, so the ticks keep their rate if the system clock is set
+	 */
+	private static class NanoClock extends Clock {
+		public Instant instant() {
+			return Instant.ofEpochSecond(0, System.nanoTime());
+		}
+
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+}
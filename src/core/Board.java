@@ -1,15 +1,31 @@
 package core;
 
 import java.awt.Point;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import core.GameSystem.Direction;
 import gameobjects.Player;
+import tile.Tile;
+import util.IntObjectMap;
+import util.PackedPosition;
 
 /**
  * Board holds a collection players and locations.
  *
+ * A board can be paged by a LocationPager, then it only holds the locations
+ * in memory and getLocations only gives those, getLocationById reads any
+ * other location in from disk and getLocationIds gives every location.
+ *
  * @author Jonathan, Jack
  *
  */
@@ -17,14 +33,21 @@ import gameobjects.Player;
 public class Board {
 	private Map<String, Player> players;
 	private Map<Integer, Location> locations;
+	private Set<Location> changedLocations;
+	private LocationPager pager;
+
+	/* Direction.values makes a new array every time it is called */
+	private static final Direction[] DIRECTIONS = Direction.values();
 
 	/**
 	 * Constructor for board object Create new empty maps for locations and
-	 * players
+	 * players, players are held in a concurrent map as clients log in and
+	 * out from their own threads
 	 */
 	public Board() {
 		this.locations = new HashMap<Integer, Location>();
-		this.players = new HashMap<String, Player>();
+		this.players = new ConcurrentHashMap<String, Player>();
+		this.changedLocations = Collections.newSetFromMap(new ConcurrentHashMap<Location, Boolean>());
 	}
 
 	/**
@@ -53,7 +76,161 @@ public class Board {
 	 * @return location object
 	 */
 	public Location getLocationById(Integer id) {
-		return locations.get(id);
+		if (pager == null) {
+			return locations.get(id);
+		}
+		if (id == null) {
+			return null;
+		}
+		Location loc = locations.get(id);
+		if (loc == null) {
+			return pager.load(id);
+		}
+		pager.used(id);
+		return loc;
+	}
+
+	/**
+	 * Get the ids of every location, including those a paged board does not
+	 * hold in memory
+	 *
+	 * @return ids of locations
+	 */
+	public Set<Integer> getLocationIds() {
+		return pager == null ? locations.keySet() : pager.getLocationIds();
+	}
+
+	/**
+	 * Check if a location is held in memory, on a board that is not paged
+	 * this is whether the board has the location
+	 *
+	 * @param id - id of the location, may be null
+	 * @return boolean - true if the location is in memory
+	 */
+	public boolean isInMemory(Integer id) {
+		return id != null && locations.containsKey(id);
+	}
+
+	/**
+	 * Get the pager of the board
+	 *
+	 * @return pager - pager reading locations in and out, null if every
+	 *         location is held in memory
+	 */
+	public LocationPager getPager() {
+		return pager;
+	}
+
+	/**
+	 * Set the pager of the board, done by LocationPager.page
+	 *
+	 * @param pager - pager of the board
+	 */
+	void setPager(LocationPager pager) {
+		this.pager = pager;
+	}
+
+	/**
+	 * Drops the locations a paged board no longer needs in memory, does
+	 * nothing if the board is not paged. Must only be called when no other
+	 * thread is using the board
+	 *
+	 * @throws IOException - if a changed location cannot be written back
+	 */
+	public void evictLocations() throws IOException {
+		if (pager != null) {
+			pager.evict();
+		}
+	}
+
+	/**
+	 * Keeps the tiles of every location in memory compactly, see
+	 * Location.compact
+	 *
+	 * @return count - number of locations that are compact
+	 */
+	public int compact() {
+		int count = 0;
+		for (Location loc : locations.values()) {
+			if (loc.compact()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get a tile that can be changed at the same place as a tile, copying it
+	 * first if it is shared by every game on the map
+	 *
+	 * @param t - tile to change
+	 * @return tile - tile of this board at the same place
+	 */
+	public Tile editTile(Tile t) {
+		Location loc = getLocationById(t.getLocationID());
+		/* A view of a compact location already changes the location itself, so no other is made */
+		if (t.isViewOf(loc)) {
+			return t;
+		}
+		return loc.editTile(t.getPos());
+	}
+
+	/**
+	 * Record that a tile has changed without its game object being replaced,
+	 * such as a chest being emptied or an NPC turning
+	 *
+	 * @param t - tile that has changed
+	 */
+	public void tileChanged(Tile t) {
+		getLocationById(t.getLocationID()).tileChanged(t.getPos());
+	}
+
+	/**
+	 * Called by a location the first time one of its tiles changes after its
+	 * changes were last taken
+	 *
+	 * @param location - location that has changed
+	 */
+	void locationChanged(Location location) {
+		changedLocations.add(location);
+	}
+
+	/**
+	 * Check if anything on the board has changed since the changed locations
+	 * were last taken
+	 *
+	 * @return boolean - true if any location has changed
+	 */
+	public boolean hasChanges() {
+		return !changedLocations.isEmpty();
+	}
+
+	/**
+	 * Takes the locations that have changed since this was last called, the
+	 * changed tiles of each are then taken from the location
+	 *
+	 * @return locations - locations with changed tiles
+	 */
+	public List<Location> takeChangedLocations() {
+		List<Location> taken = new ArrayList<Location>();
+		Iterator<Location> it = changedLocations.iterator();
+		while (it.hasNext()) {
+			taken.add(it.next());
+			it.remove();
+		}
+		return taken;
+	}
+
+	/**
+	 * Get the tile this board now has at the same place as a tile, which may
+	 * be a different object if the tile has been copied since it was found
+	 *
+	 * @param t - tile that was found earlier
+	 * @return tile - tile of this board at the same place
+	 */
+	public Tile getCurrentTile(Tile t) {
+		Location loc = getLocationById(t.getLocationID());
+		return loc == null ? null : loc.getTile(t.getPos().getX(), t.getPos().getY());
 	}
 
 	/**
@@ -134,7 +311,8 @@ public class Board {
 	 */
 	public Map<Point, Integer> mapLocations(int id, int x, int y, Map<Point, Integer> map) {
 		Location loc = getLocationById(id);
-		if (map.containsKey(new Point(x, y))) {
+		// Boards sent to clients only hold the locations near the player
+		if (loc == null || map.containsKey(new Point(x, y))) {
 			return map;
 		}
 		map.put(new Point(x, y), id);
@@ -149,6 +327,98 @@ public class Board {
 		return map;
 	}
 
+	/**
+	 * Get the ids of the locations a player in a location can see, this is the
+	 * location and the 8 locations around it, or only the location if it is an
+	 * interior
+	 *
+	 * @param id
+	 *            of the location the player is in
+	 * @return set of location ids, empty if there is no such location
+	 */
+	public Set<Integer> getLocationsOfInterest(int id) {
+		Set<Integer> ids = new HashSet<Integer>();
+		Location loc = getLocationById(id);
+		if (loc == null) {
+			return ids;
+		}
+		if (loc.isInterior()) {
+			ids.add(id);
+			return ids;
+		}
+		IntObjectMap<Location> grid = mapLocationGrid(id, 1);
+		for (int key : grid.keys()) {
+			ids.add(grid.get(key).getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Map the locations around a location by their offset from it, the keys
+	 * are offsets packed by PackedPosition.packOffset. Only locations at most
+	 * radius locations away in each direction are mapped, and only those are
+	 * read in on a paged board
+	 *
+	 * @param id - id of the location in the middle
+	 * @param radius - how many locations away to go in each direction
+	 * @return grid - locations by packed offset, empty if there is no such
+	 *         location
+	 */
+	public IntObjectMap<Location> mapLocationGrid(int id, int radius) {
+		IntObjectMap<Location> grid = new IntObjectMap<Location>(9);
+		Location start = getLocationById(id);
+		if (start == null) {
+			return grid;
+		}
+		int[] queue = new int[16];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = PackedPosition.packOffset(0, 0);
+		grid.put(queue[0], start);
+		while (head < tail) {
+			int at = queue[head++];
+			Location loc = grid.get(at);
+			for (Direction d : DIRECTIONS) {
+				Integer next = loc.getNeighbours().get(d);
+				int x = PackedPosition.offsetX(at) + offsetX(d);
+				int y = PackedPosition.offsetY(at) + offsetY(d);
+				if (next == null || Math.abs(x) > radius || Math.abs(y) > radius) {
+					continue;
+				}
+				int key = PackedPosition.packOffset(x, y);
+				if (grid.get(key) != null) {
+					continue;
+				}
+				Location found = getLocationById(next);
+				if (found == null) {
+					continue;
+				}
+				grid.put(key, found);
+				if (tail == queue.length) {
+					queue = Arrays.copyOf(queue, tail * 2);
+				}
+				queue[tail++] = key;
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Get the location at an offset from a location, found through the
+	 * neighbours of the locations between them
+	 *
+	 * @param id - id of the location to start from
+	 * @param x - locations east, negative for west
+	 * @param y - locations north, negative for south
+	 * @return location - location at the offset, null if there is none
+	 */
+	public Location getLocationAt(int id, int x, int y) {
+		if (x == 0 && y == 0) {
+			return getLocationById(id);
+		}
+		return mapLocationGrid(id, Math.max(Math.abs(x), Math.abs(y))).get(PackedPosition.packOffset(x, y));
+	}
+
 	/**
 	 * Get point representation of offset of direction
 	 * @param d - direction to be offset
@@ -168,6 +438,24 @@ public class Board {
 		return null;
 	}
 
+	/**
+	 * Get the x part of the offset of a direction, without making a Point
+	 * @param d - direction
+	 * @return x - 1 for east, -1 for west, otherwise 0
+	 */
+	private static int offsetX(Direction d) {
+		return d == Direction.EAST ? 1 : d == Direction.WEST ? -1 : 0;
+	}
+
+	/**
+	 * Get the y part of the offset of a direction, without making a Point
+	 * @param d - direction
+	 * @return y - 1 for north, -1 for south, otherwise 0
+	 */
+	private static int offsetY(Direction d) {
+		return d == Direction.NORTH ? 1 : d == Direction.SOUTH ? -1 : 0;
+	}
+
 	/**
 	 * Add player to board
 	 * @param userName - name of the player
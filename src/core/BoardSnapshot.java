@@ -0,0 +1,274 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.GameSystem.Direction;
+import gameobjects.Player;
+import iohandling.BoardEncoder;
+
+/**
+ * An unchanging copy of the state of a board, holding the save strings of
+ * its players and the strings of its tiles. A snapshot is taken on the thread
+ * that changes the board, after that it can be read from any thread without
+ * locking, so writing boards to clients or files, and anything else that only
+ * reads the game, does not hold up the game.
+ *
+ * A new snapshot shares everything that has not changed with the snapshot
+ * taken before it. Locations whose version has not changed are reused as
+ * they are, and within a changed location every column of tiles that is the
+ * same is reused, so taking a snapshot costs what has changed rather than the
+ * whole board. Tiles shared by every game on a map give every snapshot the
+ * same string. The bytes a location is encoded as are also kept with it, so
+ * a location that has not changed is only ever encoded once
+ *
+ */
+public final class BoardSnapshot {
+
+	private final Map<Integer, LocationSnapshot> locations;
+	private final List<PlayerSnapshot> players;
+
+	/**
+	 * Constructor for a snapshot
+	 *
+	 * @param locations - snapshots of the locations by id, in board order
+	 * @param players - snapshots of the players
+	 */
+	private BoardSnapshot(Map<Integer, LocationSnapshot> locations, List<PlayerSnapshot> players) {
+		this.locations = Collections.unmodifiableMap(locations);
+		this.players = Collections.unmodifiableList(players);
+	}
+
+	/**
+	 * Takes a snapshot of a board without reusing an earlier one
+	 *
+	 * @param b - board to take a snapshot of
+	 * @return snapshot - snapshot of the board
+	 */
+	public static BoardSnapshot of(Board b) {
+		return take(b, null);
+	}
+
+	/**
+	 * Takes a snapshot of a board, reusing the parts of an earlier snapshot of
+	 * the same board that have not changed. Only called on the thread that
+	 * changes the board
+	 *
+	 * @param b - board to take a snapshot of
+	 * @param previous - earlier snapshot of the board, or null
+	 * @return snapshot - snapshot of the board, the earlier snapshot itself if
+	 *         nothing has changed
+	 */
+	public static BoardSnapshot take(Board b, BoardSnapshot previous) {
+		boolean changed = previous == null || previous.locations.size() != b.getLocations().size();
+		Map<Integer, LocationSnapshot> locations = new LinkedHashMap<Integer, LocationSnapshot>();
+		for (Location loc : b.getLocations().values()) {
+			LocationSnapshot last = previous == null ? null : previous.locations.get(loc.getId());
+			if (last != null && last.version == loc.getVersion()) {
+				locations.put(loc.getId(), last);
+			} else {
+				locations.put(loc.getId(), new LocationSnapshot(loc, last));
+				changed = true;
+			}
+		}
+		if (!changed) {
+			return previous;
+		}
+		List<PlayerSnapshot> players = new ArrayList<PlayerSnapshot>();
+		for (Player p : b.getPlayers().values()) {
+			players.add(new PlayerSnapshot(p.getUserName(), p.getLocationID(), p.toSaveString()));
+		}
+		return new BoardSnapshot(locations, players);
+	}
+
+	/**
+	 * Get the snapshots of the locations
+	 *
+	 * @return map - location snapshots by id
+	 */
+	public Map<Integer, LocationSnapshot> getLocations() {
+		return locations;
+	}
+
+	/**
+	 * Get the snapshot of a location
+	 *
+	 * @param id - id of the location
+	 * @return location - snapshot of the location, null if there is none
+	 */
+	public LocationSnapshot getLocationById(Integer id) {
+		return locations.get(id);
+	}
+
+	/**
+	 * Get the snapshots of the players
+	 *
+	 * @return list - player snapshots
+	 */
+	public List<PlayerSnapshot> getPlayers() {
+		return players;
+	}
+
+	/**
+	 * An unchanging copy of a location
+	 */
+	public static final class LocationSnapshot {
+		private final int id;
+		private final int version;
+		private final Map<Direction, Integer> neighbours;
+		private final String[][] tiles;
+		private byte[] bytes;
+
+		/**
+		 * Constructor that copies a location, reusing the columns of an
+		 * earlier copy that have not changed
+		 *
+		 * @param loc - location to copy
+		 * @param last - earlier copy of the location, or null
+		 */
+		private LocationSnapshot(Location loc, LocationSnapshot last) {
+			this.id = loc.getId();
+			this.version = loc.getVersion();
+			Map<Direction, Integer> neighbours = new EnumMap<Direction, Integer>(Direction.class);
+			neighbours.putAll(loc.getNeighbours());
+			this.neighbours = Collections.unmodifiableMap(neighbours);
+			int width = loc.getWidth();
+			this.tiles = new String[width][];
+			for (int i = 0; i < width; i++) {
+				String[] column = new String[loc.getHeight()];
+				boolean same = last != null && last.tiles.length == width && last.tiles[i].length == column.length;
+				for (int j = 0; j < column.length; j++) {
+					column[j] = loc.getTileString(i, j);
+					same = same && column[j].equals(last.tiles[i][j]);
+				}
+				tiles[i] = same ? last.tiles[i] : column;
+			}
+		}
+
+		/**
+		 * Get id of location
+		 *
+		 * @return id
+		 */
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * Get version of the location the copy was made at
+		 *
+		 * @return version
+		 */
+		public int getVersion() {
+			return version;
+		}
+
+		/**
+		 * Get neighbours of location
+		 *
+		 * @return map - ids of the neighbouring locations by direction
+		 */
+		public Map<Direction, Integer> getNeighbours() {
+			return neighbours;
+		}
+
+		/**
+		 * Get width of location
+		 *
+		 * @return width - number of columns of tiles
+		 */
+		public int getWidth() {
+			return tiles.length;
+		}
+
+		/**
+		 * Get height of location
+		 *
+		 * @return height - number of tiles in each column
+		 */
+		public int getHeight() {
+			return tiles[0].length;
+		}
+
+		/**
+		 * Get the string of a tile, in the form written to map files
+		 *
+		 * @param x - column of the tile
+		 * @param y - row of the tile
+		 * @return string - string of the tile
+		 */
+		public String getTile(int x, int y) {
+			return tiles[x][y];
+		}
+
+		/**
+		 * Get the location as it is written in a map file, encoded as UTF-8.
+		 * It is encoded the first time it is asked for and then kept. Two
+		 * threads asking at once may both encode it, they get the same bytes
+		 * which must not be changed
+		 *
+		 * @return bytes - the location encoded by BoardEncoder
+		 */
+		public byte[] getBytes() {
+			byte[] b = bytes;
+			if (b == null) {
+				b = BoardEncoder.encodeLocation(this);
+				bytes = b;
+			}
+			return b;
+		}
+	}
+
+	/**
+	 * An unchanging copy of a player
+	 */
+	public static final class PlayerSnapshot {
+		private final String userName;
+		private final int locationID;
+		private final String saveString;
+
+		/**
+		 * Constructor for a copy of a player
+		 *
+		 * @param userName - username of the player
+		 * @param locationID - id of the location of the player
+		 * @param saveString - save string of the player
+		 */
+		private PlayerSnapshot(String userName, int locationID, String saveString) {
+			this.userName = userName;
+			this.locationID = locationID;
+			this.saveString = saveString;
+		}
+
+		/**
+		 * Getter for the username of the player
+		 *
+		 * @return username - username of the player
+		 */
+		public String getUserName() {
+			return userName;
+		}
+
+		/**
+		 * Getter for the id of the location of the player
+		 *
+		 * @return locationID - id of the location of the player
+		 */
+		public int getLocationID() {
+			return locationID;
+		}
+
+		/**
+		 * Getter for the save string of the player
+		 *
+		 * @return saveString - string the player is written as
+		 */
+		public String getSaveString() {
+			return saveString;
+		}
+	}
+}
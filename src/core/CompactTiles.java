@@ -0,0 +1,271 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.GameSystem.Direction;
+import gameobjects.GameObject;
+import tile.DoorOutTile;
+import tile.GrassTile;
+import tile.SandTile;
+import tile.StoneTile;
+import tile.Tile;
+import tile.WaterTile;
+import tile.WoodTile;
+import util.IntObjectMap;
+import util.Position;
+
+/**
+ * The tiles of a location kept compactly. The ground of each cell is a byte
+ * in an array that never changes once made, so every game of a map can share
+ * it, the game objects are kept in a map from the cell to the object that
+ * only has entries for the cells that have something on them, and the doors
+ * out are kept in another map as they are the only tiles that hold more than
+ * their ground. No Tile is kept, a view of a cell is made when one is asked
+ * for.
+ *
+ * Drawing reads the image of the ground and the game object of each cell
+ * without making a view, but getTile, editTile and the tiles found by
+ * position or direction still make one on every call. A move finds the tile
+ * it goes to that way and the player keeps it as the tile they stand on, so
+ * moving on a compact location makes a view each move where moving on an
+ * array of tiles makes nothing.
+ *
+ * The objects are changed by whichever thread is moving the region of the
+ * location and can be read by the threads of the regions next to it, so they
+ * are only used while holding the lock of this object.
+ *
+ */
+final class CompactTiles {
+
+	static final byte GRASS = 0;
+	static final byte STONE = 1;
+	static final byte SAND = 2;
+	static final byte WATER = 3;
+	static final byte WOOD = 4;
+	static final byte DOOR_OUT = 5;
+
+	/* The strings of the tiles with nothing on them, which is what most cells are */
+	private static final String[] NAMES = { "Grass", "Stone", "Sand", "Water", "Wood" };
+
+	/* The images of each kind of ground other than a door out */
+	private static final String[] IMAGES = { GrassTile.IMAGE, StoneTile.IMAGE, SandTile.IMAGE, WaterTile.IMAGE, WoodTile.IMAGE };
+
+	final int width;
+	final int height;
+	private final byte[] terrain;
+	private final IntObjectMap<DoorOutTile> exits;
+	private final IntObjectMap<GameObject> objects;
+
+	/**
+	 * Constructor for compact tiles
+	 *
+	 * @param width - width of the location
+	 * @param height - height of the location
+	 * @param terrain - ground of each cell, column by column
+	 * @param exits - door out of each cell that is one, these are never changed
+	 * @param objects - game object of each cell that has one
+	 */
+	private CompactTiles(int width, int height, byte[] terrain, IntObjectMap<DoorOutTile> exits, IntObjectMap<GameObject> objects) {
+		this.width = width;
+		this.height = height;
+		this.terrain = terrain;
+		this.exits = exits;
+		this.objects = objects;
+	}
+
+	/**
+	 * Makes compact tiles out of an array of tiles
+	 *
+	 * @param tiles - tiles of a location
+	 * @return compact - compact tiles, null if any tile is not one of the kinds of tile on a map
+	 */
+	static CompactTiles of(Tile[][] tiles) {
+		int width = tiles.length;
+		int height = tiles[0].length;
+		byte[] terrain = new byte[width * height];
+		IntObjectMap<DoorOutTile> exits = new IntObjectMap<DoorOutTile>(0);
+		IntObjectMap<GameObject> objects = new IntObjectMap<GameObject>(0);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				Tile t = tiles[x][y];
+				int kind = kindOf(t);
+				if (kind < 0) {
+					return null;
+				}
+				int cell = x * height + y;
+				terrain[cell] = (byte) kind;
+				if (kind == DOOR_OUT) {
+					DoorOutTile door = (DoorOutTile) t;
+					exits.put(cell, new DoorOutTile(Position.of(x, y), null, door.getOutLocationID(), door.getDoorPos()));
+				}
+				objects.put(cell, t.getGameObject());
+			}
+		}
+		return new CompactTiles(width, height, terrain, exits, objects);
+	}
+
+	/**
+	 * Makes a copy for another game, the ground and the doors out are shared
+	 * and the map of game objects is copied
+	 *
+	 * @return copy - copy of the tiles
+	 */
+	synchronized CompactTiles copy() {
+		return new CompactTiles(width, height, terrain, exits, new IntObjectMap<GameObject>(objects));
+	}
+
+	/**
+	 * Gets the kind of a tile
+	 *
+	 * @param t - tile
+	 * @return kind - kind of the tile, -1 if it is not one of the kinds of tile on a map
+	 */
+	private static int kindOf(Tile t) {
+		if (t == null) {
+			return -1;
+		}
+		Class<?> c = t.getClass();
+		if (c == GrassTile.class) {
+			return GRASS;
+		} else if (c == StoneTile.class) {
+			return STONE;
+		} else if (c == SandTile.class) {
+			return SAND;
+		} else if (c == WaterTile.class) {
+			return WATER;
+		} else if (c == WoodTile.class) {
+			return WOOD;
+		} else if (c == DoorOutTile.class) {
+			return DOOR_OUT;
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes a view of a cell
+	 *
+	 * @param location - location the tiles belong to
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @return tile - a new view of the cell
+	 */
+	Tile view(Location location, int x, int y) {
+		int cell = cell(x, y);
+		Position pos = Position.of(x, y);
+		Tile t;
+		switch (terrain[cell]) {
+		case GRASS:
+			t = new GrassTile(pos, null);
+			break;
+		case STONE:
+			t = new StoneTile(pos, null);
+			break;
+		case SAND:
+			t = new SandTile(pos, null);
+			break;
+		case WATER:
+			t = new WaterTile(pos, null);
+			break;
+		case WOOD:
+			t = new WoodTile(pos, null);
+			break;
+		default:
+			DoorOutTile door = exits.get(cell);
+			t = new DoorOutTile(pos, null, door.getOutLocationID(), door.getDoorPos());
+		}
+		t.makeView(location);
+		return t;
+	}
+
+	/**
+	 * Gets the string of a cell, the same as toString of its tile. A cell
+	 * with nothing on it that is not a door out is not made into a view
+	 *
+	 * @param location - location the tiles belong to
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @return string - string of the cell
+	 */
+	String toString(Location location, int x, int y) {
+		int cell = cell(x, y);
+		byte kind = terrain[cell];
+		if (kind != DOOR_OUT && get(x, y) == null) {
+			return NAMES[kind];
+		}
+		return view(location, x, y).toString();
+	}
+
+	/**
+	 * Gets the file name of the image of the ground of a cell, the same as
+	 * getImage of its tile
+	 *
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @param viewing - current viewing direction
+	 * @return fname - file name of the image
+	 */
+	String image(int x, int y, Direction viewing) {
+		byte kind = terrain[cell(x, y)];
+		return kind == DOOR_OUT ? DoorOutTile.image(viewing) : IMAGES[kind];
+	}
+
+	/**
+	 * Gets the game object of a cell
+	 *
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @return gameObject - game object on the cell, null if there is none
+	 */
+	synchronized GameObject get(int x, int y) {
+		return objects.get(cell(x, y));
+	}
+
+	/**
+	 * Sets the game object of a cell
+	 *
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @param gameObject - game object to put on the cell, null to take it off
+	 * @return old - game object that was on the cell
+	 */
+	synchronized GameObject set(int x, int y, GameObject gameObject) {
+		return objects.put(cell(x, y), gameObject);
+	}
+
+	/**
+	 * Gets the positions of the cells that have a game object on them
+	 *
+	 * @return positions - positions of the cells, in no particular order
+	 */
+	synchronized List<Position> occupied() {
+		List<Position> found = new ArrayList<Position>(objects.size());
+		for (int cell : objects.keys()) {
+			found.add(Position.of(cell / height, cell % height));
+		}
+		return found;
+	}
+
+	/**
+	 * Checks if any cell is a door out
+	 *
+	 * @return boolean - true if there is a door out
+	 */
+	boolean hasExits() {
+		return exits.size() > 0;
+	}
+
+	/**
+	 * Gets the index of a cell in the ground array
+	 *
+	 * @param x - x-pos of the cell
+	 * @param y - y-pos of the cell
+	 * @return cell - index of the cell
+	 */
+	private int cell(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			throw new ArrayIndexOutOfBoundsException(x + "," + y);
+		}
+		return x * height + y;
+	}
+}
@@ -1,8 +1,25 @@
 package core;
 
+import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import clientserver.ServerController;
 import gameobjects.Chest;
@@ -10,7 +27,6 @@ import gameobjects.Door;
 import gameobjects.GameObject;
 import gameobjects.NPC;
 import gameobjects.Player;
-import iohandling.BoardParser;
 import items.Banana;
 import items.Fish;
 import items.FishingRod;
@@ -21,12 +37,21 @@ import items.Teleporter;
 import tile.DoorOutTile;
 import tile.Tile;
 import tile.WaterTile;
-import util.Position;
 
 /**
  * Main class for running the game, stored server side and used to alter the
  * state of the game
  *
+ * Moves made on a tick are queued and made together. The locations can be
+ * split into regions that are each moved by their own worker thread, a move
+ * that would leave a region is handed off and made once all of the workers
+ * have finished
+ *
+ * On a board paged by a LocationPager only the NPCs of the locations in
+ * memory move, they are added and removed as their locations are read in and
+ * dropped, and they do not walk into locations that are not in memory. Locations that are no longer needed are dropped at the end of each
+ * once a second tick
+ *
  * @author Jack Slater
  *
  */
@@ -38,6 +63,13 @@ public class GameSystem {
 
 	private Map<NPC, Location> NPCs;
 
+	private Map<String, ArrayDeque<Tile>> walks = new HashMap<String, ArrayDeque<Tile>>();
+
+	private Region[] regions;
+	private Map<Integer, Region> regionOf = new HashMap<Integer, Region>();
+	private List<Region.Move> walkSteps = new ArrayList<Region.Move>();
+	private ExecutorService workers;
+
 	private boolean nightTime = false;
 
 	public final Integer WINNING_BANANA_COUNT = 5;
@@ -55,10 +87,32 @@ public class GameSystem {
 	}
 
 	public GameSystem(ServerController serverController) {
+		this(serverController, MapTemplate.load("map-new.txt").newBoard());
+	}
+
+	/**
+	 * Constructor for a game on a board that has already been loaded
+	 *
+	 * @param serverController - controller the game tells about changes
+	 * @param board - board to play on
+	 */
+	public GameSystem(ServerController serverController, Board board) {
 		this.serverController = serverController;
-		this.board = BoardParser.parseBoardFName("map-new.txt");
+		this.board = board;
 		generateCodes();
 		storeNpcs();
+		if (board.getPager() != null) {
+			board.getPager().addListener(new LocationPager.Listener() {
+				public void locationLoaded(Location location) {
+					storeNpcs(location);
+				}
+
+				public void locationEvicted(Location location) {
+					NPCs.values().removeAll(Collections.singleton(location));
+				}
+			});
+		}
+		setRegionCount(1);
 	}
 
 	/**
@@ -74,37 +128,46 @@ public class GameSystem {
 	 * Method used to store all of the NPCs from the board in a map
 	 */
 	public void storeNpcs() {
-		NPCs = new HashMap<NPC, Location>();
+		NPCs = new ConcurrentHashMap<NPC, Location>();
 
 		for (Location location : board.getLocations().values()) {
-			for (Tile ta[] : location.getTiles()) {
-				for (Tile t : ta) {
-					if (t.getGameObject() instanceof NPC) {
-						NPCs.put((NPC) t.getGameObject(), location);
-					}
-				}
+			storeNpcs(location);
+		}
+	}
+
+	/**
+	 * Method used to store the NPCs of a single location
+	 *
+	 * @param location - location whose NPCs are stored
+	 */
+	private void storeNpcs(Location location) {
+		for (Tile t : location.getOccupiedTiles()) {
+			if (t.getGameObject() instanceof NPC) {
+				NPCs.put((NPC) t.getGameObject(), location);
 			}
 		}
 	}
 
 	/**
 	 * Method used to randomize the codes for all of the cests and keys int he
-	 * game so that every key and chest has a matching pair
+	 * game so that every key and chest has a matching pair. The tiles of the
+	 * keys and chests are kept rather than the objects, so on a paged board
+	 * locations can be dropped while the codes are given out and read in
+	 * again to have their codes set
 	 */
 	public void generateCodes() {
-		ArrayList<Chest> chests = new ArrayList<Chest>();
-		ArrayList<Key> keys = new ArrayList<Key>();
-
-		for (Location location : board.getLocations().values()) {
-			for (Tile ta[] : location.getTiles()) {
-				for (Tile t : ta) {
-					if (t.getGameObject() instanceof Chest) {
-						chests.add((Chest) t.getGameObject());
-					} else if (t.getGameObject() instanceof Key) {
-						keys.add((Key) t.getGameObject());
-					}
+		ArrayList<Tile> chests = new ArrayList<Tile>();
+		ArrayList<Tile> keys = new ArrayList<Tile>();
+
+		for (Integer id : new ArrayList<Integer>(board.getLocationIds())) {
+			for (Tile t : board.getLocationById(id).getOccupiedTiles()) {
+				if (t.getGameObject() instanceof Chest) {
+					chests.add(t);
+				} else if (t.getGameObject() instanceof Key) {
+					keys.add(t);
 				}
 			}
+			evictLocations();
 		}
 
 		if (keys.size() != chests.size()) {
@@ -116,11 +179,16 @@ public class GameSystem {
 			int randy = (int) (Math.random() * keys.size());
 			int orton = (int) (Math.random() * keys.size());
 
-			keys.get(randy).setCode(i);
-			chests.get(orton).setCode(i);
-			chests.get(orton).setContents(new Banana("Banana"));
+			Tile key = board.getCurrentTile(keys.get(randy));
+			((Key) key.getGameObject()).setCode(i);
+			board.tileChanged(key);
+			Tile chest = board.getCurrentTile(chests.get(orton));
+			((Chest) chest.getGameObject()).setCode(i);
+			((Chest) chest.getGameObject()).setContents(Banana.BANANA);
+			board.tileChanged(chest);
 			keys.remove(randy);
 			chests.remove(orton);
+			evictLocations();
 		}
 
 	}
@@ -137,26 +205,27 @@ public class GameSystem {
 
 		Location playerLoc = p.getLocation();
 		Tile playerTil = p.getTile();
-		Position playerPos = playerTil.getPos();
+		int x = playerTil.getX();
+		int y = playerTil.getY();
 
 		Tile newTile = null;
 
 		switch (d) {
 
 		case NORTH:
-			newTile = playerLoc.getTileInDirection(playerPos, Direction.NORTH);
+			newTile = playerLoc.getTileInDirection(x, y, Direction.NORTH);
 			p.setFacing(Direction.NORTH);
 			break;
 		case EAST:
-			newTile = playerLoc.getTileInDirection(playerPos, Direction.EAST);
+			newTile = playerLoc.getTileInDirection(x, y, Direction.EAST);
 			p.setFacing(Direction.EAST);
 			break;
 		case WEST:
-			newTile = playerLoc.getTileInDirection(playerPos, Direction.WEST);
+			newTile = playerLoc.getTileInDirection(x, y, Direction.WEST);
 			p.setFacing(Direction.WEST);
 			break;
 		case SOUTH:
-			newTile = playerLoc.getTileInDirection(playerPos, Direction.SOUTH);
+			newTile = playerLoc.getTileInDirection(x, y, Direction.SOUTH);
 			p.setFacing(Direction.SOUTH);
 			break;
 		}
@@ -177,17 +246,17 @@ public class GameSystem {
 							.getGameObject() != null) {
 						return false;
 					}
-					playerTil.setGameObject(null);
+					board.editTile(playerTil).setGameObject(null);
 
 					p.setLocation(dot.getOutLocationID());
 					p.setTile(board.getLocationById(dot.getOutLocationID()).getTileAtPosition(dot.getDoorPos()));
 
-					board.getLocationById(dot.getOutLocationID()).getTileAtPosition(dot.getDoorPos()).setGameObject(p);
+					board.editTile(board.getLocationById(dot.getOutLocationID()).getTileAtPosition(dot.getDoorPos())).setGameObject(p);
 					p.setFacing(Direction.SOUTH);
 					return true;
 				}
-				playerTil.setGameObject(null);
-				newTile.setGameObject(p);
+				board.editTile(playerTil).setGameObject(null);
+				board.editTile(newTile).setGameObject(p);
 				p.setTile(newTile);
 				p.setLocation(board.getLocationById(newTile.getLocationID()));
 				return true;
@@ -213,13 +282,355 @@ public class GameSystem {
 		}else{
 			nightTime = false;
 		}
-		for (NPC n : NPCs.keySet()) {
-			int randy = (int) (Math.random() * 4);
-			if (randy == 0) {
-				moveNPC(n);
+		if (!nightTime) {
+			for (NPC n : NPCs.keySet()) {
+				int randy = (int) (Math.random() * 4);
+				if (randy == 0) {
+					queueMove(NPCs.get(n), new Region.Move(n));
+				}
 			}
 		}
+		runMoves();
+		evictLocations();
+
+	}
 
+	/**
+	 * Method used to drop the locations of a paged board that are no longer
+	 * needed. A location that cannot be written back is kept in memory and
+	 * tried again next time
+	 */
+	private void evictLocations() {
+		try {
+			board.evictLocations();
+		} catch (IOException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Method called by the server on every tick, which can be many times a
+	 * second, it moves each player that is walking to a tile one step
+	 */
+	public void step() {
+		advanceWalks();
+		runMoves();
+	}
+
+	/**
+	 * Method used to start a player walking to a tile, the path is found now
+	 * and the player takes one step along it each server tick. Any walk the player
+	 * was already on is replaced
+	 *
+	 * @param p - player that is walking
+	 * @param end - tile to walk to
+	 * @return boolean - false if there is no path to the tile
+	 */
+	public boolean walkPlayer(Player p, Tile end) {
+		stopWalking(p);
+		ArrayDeque<Tile> path = PathFinder.findPath(board, p, end);
+		if (path == null) {
+			return false;
+		}
+		if (!path.isEmpty()) {
+			walks.put(p.getUserName(), path);
+		}
+		return true;
+	}
+
+	/**
+	 * Method used to stop a player walking, called when the player sends any
+	 * other command
+	 *
+	 * @param p - player to stop
+	 */
+	public void stopWalking(Player p) {
+		walks.remove(p.getUserName());
+	}
+
+	/**
+	 * Method used to check if a player is walking to a tile
+	 *
+	 * @param p - player to check
+	 * @return boolean - true if the player still has steps to take
+	 */
+	public boolean isWalking(Player p) {
+		return walks.containsKey(p.getUserName());
+	}
+
+	/**
+	 * Method called each tick to queue a step along their path for every
+	 * walking player. A walk is cancelled if the next tile has become blocked,
+	 * or once the moves are made if the step did not put the player where the
+	 * path expected
+	 *
+	 * @return boolean - true if any player is taking a step
+	 */
+	public boolean advanceWalks() {
+		Iterator<Map.Entry<String, ArrayDeque<Tile>>> it = walks.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, ArrayDeque<Tile>> walk = it.next();
+			Player p = board.getPlayer(walk.getKey());
+			ArrayDeque<Tile> path = walk.getValue();
+			if (p == null || !p.isLoggedIn() || path.isEmpty()) {
+				it.remove();
+				continue;
+			}
+			Tile next = board.getCurrentTile(path.poll());
+			Direction d = p.getLocation().getDirOfTile(p.getPosition(), next);
+			if (d == null || !PathFinder.canWalkOnto(p, next)) {
+				it.remove();
+				continue;
+			}
+			Region.Move move = new Region.Move(p, d, next);
+			queueMove(p.getLocation(), move);
+			walkSteps.add(move);
+		}
+		return !walkSteps.isEmpty();
+	}
+
+	/**
+	 * Method used to queue a move for a player, the move is made with the
+	 * other moves of the tick when runMoves is called
+	 *
+	 * @param p - player to be moved
+	 * @param d - direction to be moved too
+	 */
+	public void queueMovePlayer(Player p, Direction d) {
+		queueMove(p.getLocation(), new Region.Move(p, d, null));
+	}
+
+	/**
+	 * Method used to split the locations of the board into regions that are
+	 * each moved by their own worker thread. The outside locations are laid
+	 * out on a grid and split into bands of neighbouring columns, so few moves
+	 * cross from one region to another, insides of buildings are shared out
+	 * after them
+	 *
+	 * @param count - number of regions, 1 makes every move on the calling
+	 *            thread
+	 */
+	public void setRegionCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Region count must be at least 1: " + count);
+		}
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+		List<Integer> order = new ArrayList<Integer>();
+		Set<Integer> placed = new HashSet<Integer>();
+		List<Integer> ids = new ArrayList<Integer>(board.getLocationIds());
+		Collections.sort(ids);
+		/* A paged board is split by id, laying it out on a grid would read in every location */
+		for (Integer id : board.getPager() == null ? ids : Collections.<Integer> emptyList()) {
+			if (placed.contains(id) || board.getLocationById(id).isInterior()) {
+				continue;
+			}
+			final Map<Point, Integer> grid = board.mapLocations(id, 0, 0, new HashMap<Point, Integer>());
+			List<Point> points = new ArrayList<Point>(grid.keySet());
+			Collections.sort(points, new Comparator<Point>() {
+				public int compare(Point a, Point b) {
+					return a.x != b.x ? Integer.compare(a.x, b.x) : Integer.compare(a.y, b.y);
+				}
+			});
+			for (Point point : points) {
+				if (placed.add(grid.get(point))) {
+					order.add(grid.get(point));
+				}
+			}
+		}
+		for (Integer id : ids) {
+			if (placed.add(id)) {
+				order.add(id);
+			}
+		}
+
+		count = Math.max(1, Math.min(count, order.size()));
+		regions = new Region[count];
+		regionOf.clear();
+		for (int i = 0; i < order.size(); i++) {
+			int index = (int) ((long) i * count / order.size());
+			if (regions[index] == null) {
+				regions[index] = new Region(index);
+			}
+			regions[index].locations.add(order.get(i));
+			regionOf.put(order.get(i), regions[index]);
+		}
+		if (count > 1) {
+			workers = Executors.newFixedThreadPool(count, new ThreadFactory() {
+				private int made;
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "region-" + made++);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Getter for the number of regions the locations are split into
+	 *
+	 * @return count - number of regions
+	 */
+	public int getRegionCount() {
+		return regions.length;
+	}
+
+	/**
+	 * Method used to add a move to the region that owns the location the
+	 * player or NPC is standing in
+	 *
+	 * @param loc - location the player or NPC is in
+	 * @param move - move to be made
+	 */
+	private void queueMove(Location loc, Region.Move move) {
+		Region region = loc == null ? null : regionOf.get(loc.getId());
+		if (region == null) {
+			region = regions[0];
+		}
+		region.moves.add(move);
+	}
+
+	/**
+	 * Method used to make every queued move. Each region makes its own moves,
+	 * in parallel when there is more than one region, then the moves handed
+	 * off from one region to another are made in region order. Walking players
+	 * whose step did not take them to the next tile of their path stop walking
+	 */
+	public void runMoves() {
+		boolean any = false;
+		for (Region region : regions) {
+			any |= !region.moves.isEmpty();
+		}
+		if (!any) {
+			return;
+		}
+		if (regions.length == 1) {
+			for (Region.Move move : regions[0].moves) {
+				makeMove(move);
+			}
+			regions[0].moves.clear();
+		} else {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (final Region region : regions) {
+				if (region.moves.isEmpty()) {
+					continue;
+				}
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						runRegion(region);
+						return null;
+					}
+				});
+			}
+			try {
+				for (Future<Void> f : workers.invokeAll(tasks)) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Region move failed", e.getCause());
+			}
+			for (Region region : regions) {
+				for (Region.Move move : region.outbox) {
+					makeMove(move);
+				}
+				region.outbox.clear();
+			}
+		}
+
+		for (Region.Move step : walkSteps) {
+			ArrayDeque<Tile> path = walks.get(step.player.getUserName());
+			if (path != null && (!Objects.equals(step.player.getTile(), board.getCurrentTile(step.expected)) || path.isEmpty())) {
+				walks.remove(step.player.getUserName());
+			}
+		}
+		walkSteps.clear();
+	}
+
+	/**
+	 * Method run by the worker of a region to make its moves. A move that
+	 * would change a tile or location outside of the region is put in the
+	 * outbox instead, along with any later moves of the same player or NPC so
+	 * they are still made in order
+	 *
+	 * @param region - region to move
+	 */
+	private void runRegion(Region region) {
+		Set<Object> handedOff = new HashSet<Object>();
+		for (Region.Move move : region.moves) {
+			if (handedOff.contains(move.getMover()) || !staysInRegion(move, region)) {
+				handedOff.add(move.getMover());
+				region.outbox.add(move);
+			} else {
+				makeMove(move);
+			}
+		}
+		region.moves.clear();
+	}
+
+	/**
+	 * Method used to check if a move only changes tiles and locations owned by
+	 * a region. Moving onto a door tile or into a door takes the player to the
+	 * location it leads to. The direction of an NPC is chosen here so the same
+	 * direction is used if the move is handed off
+	 *
+	 * @param move - move to check
+	 * @param region - region making the move
+	 * @return boolean - true if the region can make the move itself
+	 */
+	private boolean staysInRegion(Region.Move move, Region region) {
+		Tile to;
+		if (move.npc != null) {
+			Tile npcTile = findNPCTile(move.npc);
+			if (npcTile == null) {
+				return true;
+			}
+			if (move.direction == null) {
+				move.direction = move.npc.getDirection();
+			}
+			to = NPCs.get(move.npc).getTileInDirection(npcTile.getPos(), move.direction);
+		} else {
+			Location loc = move.player.getLocation();
+			if (loc == null) {
+				return true;
+			}
+			to = loc.getTileInDirection(move.player.getPosition(), move.direction);
+		}
+		if (to == null) {
+			return true;
+		}
+		if (!region.owns(to.getLocationID())) {
+			return false;
+		}
+		if (move.player != null && to instanceof DoorOutTile && to.getGameObject() == null) {
+			return region.owns(((DoorOutTile) to).getOutLocationID());
+		}
+		if (move.player != null && to.getGameObject() instanceof Door) {
+			return region.owns(((Door) to.getGameObject()).getLocationID());
+		}
+		return true;
+	}
+
+	/**
+	 * Method used to make a single queued move
+	 *
+	 * @param move - move to be made
+	 */
+	private void makeMove(Region.Move move) {
+		if (move.npc != null) {
+			if (move.direction == null) {
+				moveNPC(move.npc);
+			} else {
+				moveNPC(move.npc, move.direction);
+			}
+		} else {
+			movePlayer(move.player, move.direction);
+		}
 	}
 
 	/**
@@ -249,9 +660,9 @@ public class GameSystem {
 						return;
 					}
 				}
-				playerTil.setGameObject(null);
+				board.editTile(playerTil).setGameObject(null);
 				p.pickUpItem((Item) object);
-				newTile.setGameObject(p);
+				board.editTile(newTile).setGameObject(p);
 				p.setTile(newTile);
 				p.setLocation(board.getLocationById(newTile.getLocationID()));
 			}
@@ -262,9 +673,10 @@ public class GameSystem {
 					Key k = ((Key) i);
 					if (k.getCode() == c.getCode()) {
 						if (c.getContents() != null) {
-							p.getInventory().remove(i);
+							p.removeItem(i);
 							p.pickUpItem(c.getContents());
 							c.setContents(null);
+							board.tileChanged(newTile);
 							serverController.broadcastPlayerMessage(
 									"With the chest you recognise a distinct glow, a Banana!", p);
 							return;
@@ -277,17 +689,17 @@ public class GameSystem {
 
 		} else if (object instanceof Door) {
 			Door door = (Door) object;
-			p.getTile().setGameObject(null);
+			board.editTile(p.getTile()).setGameObject(null);
 			p.setLocation(door.getLocationID());
 			p.setTile(p.getLocation().getTileAtPosition(door.getDoorPosition()));
-			p.getTile().setGameObject(p);
+			board.editTile(p.getTile()).setGameObject(p);
 
 		} else if (object instanceof NPC) {
 			if (!nightTime) {
 				for (Item i : p.getInventory()) {
 					if (i instanceof Fish) {
-						p.getInventory().remove(i);
-						p.pickUpItem(new Banana("Banana"));
+						p.removeItem(i);
+						p.pickUpItem(Banana.BANANA);
 						serverController.broadcastPlayerMessage(
 								"The Pretty Penguin was overwhelmed as you handed her the fish, in response she gave you a golden reward!",
 								p);
@@ -313,8 +725,8 @@ public class GameSystem {
 	public void playerDropItem(Player p, Item i) {
 		Tile tileInFront = p.getLocation().getTileInDirection(p.getPosition(), p.getFacing());
 		if (tileInFront.getGameObject() == null) {
-			tileInFront.setGameObject(i);
-			p.getInventory().remove(i);
+			board.editTile(tileInFront).setGameObject(i);
+			p.removeItem(i);
 		}
 
 	}
@@ -330,7 +742,7 @@ public class GameSystem {
 	public boolean playerSiphonBanana(Player p, Banana b) {
 		if (p != null && b != null) {
 			p.setNumOfBananas(p.getNumOfBananas() + 1);
-			p.getInventory().remove(b);
+			p.removeItem(b);
 			if (p.getNumOfBananas() == 1) {
 				serverController.broadcastBarOnePlayer(
 						p.getUserName() + " has siphoned " + p.getNumOfBananas() + " banana, step it up soldier!", p);
@@ -355,26 +767,26 @@ public class GameSystem {
 		if (item instanceof FloatingDevice) {
 			player.setHasFloatingDevice(!player.getHasFloatingDevice());
 		} else if (item instanceof Teleporter) {
-			player.getTile().setGameObject(null);
+			board.editTile(player.getTile()).setGameObject(null);
 			player.setLocation(0);
 			Tile t;
-			if (!(player.getLocation().getTileAtPosition(new Position(5, 5)).getGameObject() instanceof Player)) {
-				player.setTile(player.getLocation().getTileAtPosition(new Position(5, 5)));
-				player.getTile().setGameObject(player);
-			} else if (!(player.getLocation().getTileAtPosition(new Position(4, 5))
+			if (!(player.getLocation().getTileAtPosition(5, 5).getGameObject() instanceof Player)) {
+				player.setTile(player.getLocation().getTileAtPosition(5, 5));
+				board.editTile(player.getTile()).setGameObject(player);
+			} else if (!(player.getLocation().getTileAtPosition(4, 5)
 					.getGameObject() instanceof Player)) {
-				player.setTile(player.getLocation().getTileAtPosition(new Position(4, 5)));
-				player.getTile().setGameObject(player);
-			} else if (!(player.getLocation().getTileAtPosition(new Position(4, 4))
+				player.setTile(player.getLocation().getTileAtPosition(4, 5));
+				board.editTile(player.getTile()).setGameObject(player);
+			} else if (!(player.getLocation().getTileAtPosition(4, 4)
 					.getGameObject() instanceof Player)) {
-				player.setTile(player.getLocation().getTileAtPosition(new Position(4, 4)));
-				player.getTile().setGameObject(player);
-			} else if (!(player.getLocation().getTileAtPosition(new Position(5, 4))
+				player.setTile(player.getLocation().getTileAtPosition(4, 4));
+				board.editTile(player.getTile()).setGameObject(player);
+			} else if (!(player.getLocation().getTileAtPosition(5, 4)
 					.getGameObject() instanceof Player)) {
-				player.setTile(player.getLocation().getTileAtPosition(new Position(5, 4)));
-				player.getTile().setGameObject(player);
+				player.setTile(player.getLocation().getTileAtPosition(5, 4));
+				board.editTile(player.getTile()).setGameObject(player);
 			}
-			player.getInventory().remove(item);
+			player.removeItem(item);
 
 		} else if (item instanceof FishingRod) {
 			if (player.getLocation().getTileInDirection(player.getTile().getPos(),
@@ -388,8 +800,8 @@ public class GameSystem {
 				if (randy == 0) {
 					serverController.broadcastPlayerMessage(
 							"You caught a fish against all odds, sadly your rod was lost in the process", player);
-					player.getInventory().remove(item);
-					player.pickUpItem(new Fish("Fish"));
+					player.removeItem(item);
+					player.pickUpItem(Fish.FISH);
 				} else {
 					serverController.broadcastPlayerMessage(
 							"A nibble felt, however sometimes we just aren't that lucky", player);
@@ -409,27 +821,36 @@ public class GameSystem {
 	 * @param npc - npc that is getting moved
 	 */
 	public void moveNPC(NPC npc) {
+		if (!nightTime && findNPCTile(npc) != null) {
+			moveNPC(npc, npc.getDirection());
+		}
+	}
+
+	/**
+	 * Method called to move an NPC in a direction that has already been
+	 * chosen by its strategy
+	 *
+	 * @param npc - npc that is getting moved
+	 * @param dir - direction to move
+	 */
+	private void moveNPC(NPC npc, Direction dir) {
 		if (!nightTime) {
-			Tile npcTile = null;
-			outer: for (Tile[] ta : NPCs.get(npc).getTiles()) {
-				for (Tile t : ta) {
-					if (t.getGameObject() != null && t.getGameObject().equals(npc)) {
-						npcTile = t;
-						break outer;
-					}
-				}
-			}
+			Tile npcTile = findNPCTile(npc);
 
 			if (npcTile != null) {
-				Direction dir = npc.getDirection();
-				npc.setFacing(dir);
+				if (npc.getFacing() != dir) {
+					npc.setFacing(dir);
+					board.tileChanged(npcTile);
+				}
+				if (!canWander(NPCs.get(npc), npcTile.getX(), npcTile.getY(), dir)) {
+					return;
+				}
 				Tile newTile = NPCs.get(npc).getTileInDirection(npcTile.getPos(), dir);
 				if (newTile != null) {
 					if (newTile.getGameObject() == null && !(newTile instanceof WaterTile)) {
-						npcTile.setGameObject(null);
-						newTile.setGameObject(npc);
+						board.editTile(npcTile).setGameObject(null);
+						board.editTile(newTile).setGameObject(npc);
 						NPCs.put(npc, board.getLocationById(newTile.getLocationID()));
-						serverController.broadcastBoard(board);
 					}
 				}
 			}
@@ -437,4 +858,51 @@ public class GameSystem {
 
 	}
 
+	/**
+	 * Method used to check that a step would not take an NPC into a location
+	 * that a paged board has dropped, NPCs treat the edge of such a location
+	 * as a wall so they do not read it in again
+	 *
+	 * @param loc - location the npc is in
+	 * @param x - x-pos of the npc
+	 * @param y - y-pos of the npc
+	 * @param dir - direction of the step
+	 * @return boolean - true if the npc may take the step
+	 */
+	private boolean canWander(Location loc, int x, int y, Direction dir) {
+		if (board.getPager() == null) {
+			return true;
+		}
+		switch (dir) {
+		case NORTH:
+			y--;
+			break;
+		case SOUTH:
+			y++;
+			break;
+		case EAST:
+			x++;
+			break;
+		default:
+			x--;
+			break;
+		}
+		return loc.withinBounds(x, y) || board.isInMemory(loc.getNeighbours().get(dir));
+	}
+
+	/**
+	 * Method used to find the tile an NPC is standing on
+	 *
+	 * @param npc - npc to find
+	 * @return tile - tile holding the npc, null if it is not in its location
+	 */
+	private Tile findNPCTile(NPC npc) {
+		for (Tile t : NPCs.get(npc).getOccupiedTiles()) {
+			if (npc.equals(t.getGameObject())) {
+				return t;
+			}
+		}
+		return null;
+	}
+
 }
\ No newline at end of file
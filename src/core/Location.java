@@ -1,10 +1,14 @@
 package core;
 
-import java.awt.Point;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import core.GameSystem.Direction;
+import gameobjects.GameObject;
+import tile.DoorOutTile;
 import tile.Tile;
 import util.Position;
 
@@ -12,7 +16,19 @@ import util.Position;
  * Location objects store a map of directions to neighbours and a 2D array of
  * Tile objects.
  *
-
+ * A location keeps a version that goes up every time one of its tiles, or
+ * the player standing on one of them, changes, along with the set of tiles
+ * that have changed since they were last taken. The board is told when a
+ * location first has changes so only changed locations need to be looked at
+ *
+ * A location can keep its tiles compactly instead, as a byte of ground for
+ * each cell and a map of the cells that have something on them, which is
+ * how the locations of a paged world are kept. It then makes a view of a
+ * cell whenever a tile is asked for, views of the same cell are equal but
+ * are not the same object, so tiles are compared with equals. getTile,
+ * getWidth and getHeight do not make the whole array of tiles, which
+ * getTiles does for a compact location
+ *
  * @author Jonathan Carr, Jack Slater and Kyal Bond
  *
  */
@@ -23,6 +39,11 @@ public class Location {
 	private String name;
 	private Board board;
 	private Map<GameSystem.Direction, Integer> neighbours;
+	private boolean sharedTiles;
+	private CompactTiles compact;
+	private int version;
+	private boolean[][] changed;
+	private List<Position> changedTiles = new ArrayList<Position>();
 
 	/**
 	 * Constructor for location class
@@ -42,15 +63,287 @@ public class Location {
 		this.id = id;
 		this.neighbours = new HashMap<GameSystem.Direction, Integer>();
 		this.board = board;
+		for (Tile[] column : tiles) {
+			for (Tile t : column) {
+				if (t != null) {
+					t.setLocation(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a location of a game played on a shared map, the tiles
+	 * of the map location are used until one of them is changed
+	 *
+	 * @param template - location of the shared map
+	 * @param board - board of the game
+	 */
+	public Location(Location template, Board board) {
+		this.name = template.name;
+		this.id = template.id;
+		this.neighbours = template.neighbours;
+		this.board = board;
+		if (template.compact != null) {
+			this.compact = template.compact.copy();
+		} else {
+			this.tiles = template.tiles;
+			this.sharedTiles = true;
+		}
+	}
+
+	/**
+	 * Keeps the tiles of the location compactly from now on, the Tile objects
+	 * are let go and views of the cells are made when tiles are asked for
+	 *
+	 * @return boolean - true if the location is compact, false if it has a
+	 *         kind of tile that cannot be kept compactly
+	 */
+	public synchronized boolean compact() {
+		if (compact == null) {
+			CompactTiles c = CompactTiles.of(tiles);
+			if (c == null) {
+				return false;
+			}
+			compact = c;
+			tiles = null;
+			sharedTiles = false;
+		}
+		return true;
 	}
 
 	/**
-	 * Get tiles of location
+	 * Checks if the tiles of the location are kept compactly
+	 *
+	 * @return boolean - true if tiles are views of the cells
+	 */
+	public boolean isCompact() {
+		return compact != null;
+	}
+
+	/**
+	 * Get a tile of the location that can be changed. A tile shared with the
+	 * other games on the map is copied first, the location takes its own copy
+	 * of the tiles array the first time one of its tiles is copied
+	 *
+	 * @param pos - position of the tile within the location
+	 * @return tile - tile at the position that belongs to this game
+	 */
+	public Tile editTile(Position pos) {
+		if (compact != null) {
+			return compact.view(this, pos.getX(), pos.getY());
+		}
+		Tile t = tiles[pos.getX()][pos.getY()];
+		if (!t.isShared()) {
+			return t;
+		}
+		if (sharedTiles) {
+			Tile[][] own = new Tile[tiles.length][];
+			for (int i = 0; i < tiles.length; i++) {
+				own[i] = tiles[i].clone();
+			}
+			tiles = own;
+			sharedTiles = false;
+		}
+		Tile copy = t.copy();
+		copy.setLocation(this);
+		tiles[pos.getX()][pos.getY()] = copy;
+		return copy;
+	}
+
+	/**
+	 * Records that the tile at a position has changed, moving the location on
+	 * to a new version. Tiles are moved by more than one thread when the board
+	 * is split into regions so this is synchronized
+	 *
+	 * @param pos - position of the tile within the location
+	 */
+	public synchronized void tileChanged(Position pos) {
+		version++;
+		if (changed == null) {
+			changed = new boolean[getWidth()][getHeight()];
+		}
+		if (changed[pos.getX()][pos.getY()]) {
+			return;
+		}
+		changed[pos.getX()][pos.getY()] = true;
+		if (changedTiles.isEmpty() && board != null) {
+			board.locationChanged(this);
+		}
+		changedTiles.add(pos);
+	}
+
+	/**
+	 * Takes the positions of the tiles that have changed since this was last
+	 * called
+	 *
+	 * @return positions - positions of the changed tiles, in the order they
+	 *         first changed
+	 */
+	public synchronized List<Position> takeChangedTiles() {
+		List<Position> taken = changedTiles;
+		changedTiles = new ArrayList<Position>();
+		for (Position pos : taken) {
+			changed[pos.getX()][pos.getY()] = false;
+		}
+		return taken;
+	}
+
+	/**
+	 * Get version of location, this goes up every time one of its tiles
+	 * changes
+	 *
+	 * @return version
+	 */
+	public synchronized int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get tiles of location. A compact location makes a new array of views
+	 * each time, changing the array does not change the location
 	 *
 	 * @return tiles
 	 */
 	public Tile[][] getTiles() {
-		return tiles;
+		if (compact == null) {
+			return tiles;
+		}
+		Tile[][] views = new Tile[compact.width][compact.height];
+		for (int x = 0; x < compact.width; x++) {
+			for (int y = 0; y < compact.height; y++) {
+				views[x][y] = compact.view(this, x, y);
+			}
+		}
+		return views;
+	}
+
+	/**
+	 * Get the tile at a position of the location
+	 *
+	 * @param x - x-pos of the tile
+	 * @param y - y-pos of the tile
+	 * @return tile - the tile, or a new view of it for a compact location
+	 */
+	public Tile getTile(int x, int y) {
+		if (compact != null) {
+			return compact.view(this, x, y);
+		}
+		return tiles[x][y];
+	}
+
+	/**
+	 * Get the number of tiles across the location
+	 *
+	 * @return width - width of the location
+	 */
+	public int getWidth() {
+		return compact != null ? compact.width : tiles.length;
+	}
+
+	/**
+	 * Get the number of tiles down the location
+	 *
+	 * @return height - height of the location
+	 */
+	public int getHeight() {
+		return compact != null ? compact.height : tiles[0].length;
+	}
+
+	/**
+	 * Get the game object on the tile at a position, without making a view
+	 * of it
+	 *
+	 * @param pos - position of the tile
+	 * @return gameObject - game object on the tile, null if there is none
+	 */
+	public GameObject getGameObject(Position pos) {
+		return getGameObject(pos.getX(), pos.getY());
+	}
+
+	/**
+	 * Get the game object on the tile at a position, without making a view
+	 * of it
+	 *
+	 * @param x - x-pos of the tile
+	 * @param y - y-pos of the tile
+	 * @return gameObject - game object on the tile, null if there is none
+	 */
+	public GameObject getGameObject(int x, int y) {
+		if (compact != null) {
+			return compact.get(x, y);
+		}
+		return tiles[x][y].getGameObject();
+	}
+
+	/**
+	 * Get the file name of the image of the ground of the tile at a
+	 * position, the same as getImage of the tile but without making a view
+	 * of it
+	 *
+	 * @param x - x-pos of the tile
+	 * @param y - y-pos of the tile
+	 * @param viewing - current viewing direction
+	 * @return fname - file name of the image
+	 */
+	public String getGroundImage(int x, int y, Direction viewing) {
+		if (compact != null) {
+			return compact.image(x, y, viewing);
+		}
+		return tiles[x][y].getImage(viewing);
+	}
+
+	/**
+	 * Put a game object on the tile at a position, the tile is recorded as
+	 * changed if the object is not already on it
+	 *
+	 * @param pos - position of the tile
+	 * @param gameObject - game object to put on the tile, null to take it off
+	 */
+	public void setGameObject(Position pos, GameObject gameObject) {
+		if (compact == null) {
+			editTile(pos).setGameObject(gameObject);
+		} else if (compact.set(pos.getX(), pos.getY(), gameObject) != gameObject) {
+			tileChanged(pos);
+		}
+	}
+
+	/**
+	 * Get the tiles that have a game object on them
+	 *
+	 * @return tiles - tiles with something on them
+	 */
+	public List<Tile> getOccupiedTiles() {
+		List<Tile> found = new ArrayList<Tile>();
+		if (compact != null) {
+			for (Position pos : compact.occupied()) {
+				found.add(compact.view(this, pos.getX(), pos.getY()));
+			}
+			return found;
+		}
+		for (Tile[] column : tiles) {
+			for (Tile t : column) {
+				if (t.getGameObject() != null) {
+					found.add(t);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Get the string of the tile at a position, the same as its toString but
+	 * without making a view of a compact tile that has nothing on it
+	 *
+	 * @param x - x-pos of the tile
+	 * @param y - y-pos of the tile
+	 * @return string - string of the tile
+	 */
+	public String getTileString(int x, int y) {
+		if (compact != null) {
+			return compact.toString(this, x, y);
+		}
+		return tiles[x][y].toSnapshotString();
 	}
 
 	/**
@@ -62,6 +355,26 @@ public class Location {
 		return name;
 	}
 
+	/**
+	 * Check if the location is the inside of a building, these are the
+	 * locations that have a door out
+	 *
+	 * @return true if any tile is a door out
+	 */
+	public boolean isInterior() {
+		if (compact != null) {
+			return compact.hasExits();
+		}
+		for (Tile[] column : tiles) {
+			for (Tile t : column) {
+				if (t instanceof DoorOutTile) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Get neighbours of location
 	 *
@@ -132,47 +445,77 @@ public class Location {
 	 * @return tile - returned tile
 	 */
 	public Tile getTileInDirection(Position pos, Direction d) {
-		Position p = null;
+		return getTileInDirection(pos.getX(), pos.getY(), d);
+	}
+
+	/**
+	 * Get the game object on the tile in the direction d from the tile at x,
+	 * y, without making a view of it. Takes into account location edges.
+	 *
+	 * @param x - current x-pos
+	 * @param y - current y-pos
+	 * @param d - direction to look in
+	 * @return gameObject - game object on the tile, null if there is none or no tile
+	 */
+	public GameObject getGameObjectInDirection(int x, int y, Direction d) {
+		int nextX = d == Direction.EAST ? x + 1 : d == Direction.WEST ? x - 1 : x;
+		int nextY = d == Direction.SOUTH ? y + 1 : d == Direction.NORTH ? y - 1 : y;
+		if (withinBounds(nextX, nextY)) {
+			return getGameObject(nextX, nextY);
+		}
+		Location nextLoc = board.getLocationById(getNeighbours().get(d));
+		if (nextLoc == null) {
+			return null;
+		}
+		nextX = d == Direction.EAST ? 0 : d == Direction.WEST ? nextLoc.getWidth() - 1 : nextX;
+		nextY = d == Direction.SOUTH ? 0 : d == Direction.NORTH ? nextLoc.getHeight() - 1 : nextY;
+		return nextLoc.getGameObject(nextX, nextY);
+	}
+
+	/**
+	 * Get the tile in the direction d from the tile at x, y. Takes into
+	 * account location edges.
+	 *
+	 * @param x - current x-pos
+	 * @param y - current y-pos
+	 * @param d - direction to be moved
+	 * @return tile - returned tile
+	 */
+	public Tile getTileInDirection(int x, int y, Direction d) {
 		if (d == Direction.NORTH) {
-			p = new Position(pos.getX(), pos.getY() - 1);
-			if (withinBounds(p)) {
-				return getTiles()[p.getX()][p.getY()];
+			if (withinBounds(x, y - 1)) {
+				return getTile(x, y - 1);
 			}
 			Location nextLoc = board.getLocationById(getNeighbours().get(Direction.NORTH));
 			if (nextLoc != null) {
-				return nextLoc.getTiles()[p.getX()][nextLoc.getTiles()[0].length - 1];
+				return nextLoc.getTile(x, nextLoc.getHeight() - 1);
 			}
 		}
 		if (d == Direction.SOUTH) {
-			p = new Position(pos.getX(), pos.getY() + 1);
-			if (withinBounds(p)) {
-				return getTiles()[p.getX()][p.getY()];
+			if (withinBounds(x, y + 1)) {
+				return getTile(x, y + 1);
 			}
 			Location nextLoc = board.getLocationById(getNeighbours().get(Direction.SOUTH));
 			if (nextLoc != null) {
-				return nextLoc.getTiles()[p.getX()][0];
+				return nextLoc.getTile(x, 0);
 			}
 		}
 		if (d == Direction.EAST) {
-			p = new Position(pos.getX() + 1, pos.getY());
-			if (withinBounds(p)) {
-				return getTiles()[p.getX()][p.getY()];
+			if (withinBounds(x + 1, y)) {
+				return getTile(x + 1, y);
 			}
-
-			board.getLocationById(null);
 			Location nextLoc = board.getLocationById(getNeighbours().get(Direction.EAST));
 			if (nextLoc != null) {
-				return nextLoc.getTiles()[0][p.getY()];
+				return nextLoc.getTile(0, y);
 			}
 		}
 		if (d == Direction.WEST) {
-			p = new Position(pos.getX() - 1, pos.getY());
-			if (withinBounds(p)) {
-				return getTiles()[p.getX()][p.getY()];
+			if (withinBounds(x - 1, y)) {
+				return getTile(x - 1, y);
 			}
 			Location nextLoc = board.getLocationById(getNeighbours().get(Direction.WEST));
 			if (nextLoc != null) {
-				return nextLoc.getTiles()[nextLoc.getTiles().length - 1][p.getY()];
+				return nextLoc.getTile(nextLoc.getWidth() - 1, y);
 			}
 		}
 		return null;
@@ -185,8 +528,18 @@ public class Location {
 	 * @return boolean - true if within bounds
 	 */
 	public boolean withinBounds(Position pos) {
-		return pos.getX() >= 0 && pos.getY() >= 0 && pos.getX() < getTiles().length
-				&& pos.getY() < getTiles()[0].length;
+		return withinBounds(pos.getX(), pos.getY());
+	}
+
+	/**
+	 * Returns true if x, y is within bounds of tiles array
+	 *
+	 * @param x - x-pos to check
+	 * @param y - y-pos to check
+	 * @return boolean - true if within bounds
+	 */
+	public boolean withinBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < getWidth() && y < getHeight();
 	}
 
 	/**
@@ -196,6 +549,13 @@ public class Location {
 	 * @return position - position of the tile
 	 */
 	public Position getPositionOfTile(Tile tile) {
+		if (compact != null) {
+			Position p = tile == null ? null : tile.getPos();
+			if (p != null && withinBounds(p) && getTile(p.getX(), p.getY()).equals(tile)) {
+				return Position.of(p.getX(), p.getY());
+			}
+			return null;
+		}
 		for (int i = 0; i < tiles.length; i++) {
 			for (int j = 0; j < tiles[0].length; j++) {
 				if (tiles[i][j] == tile) {
@@ -214,21 +574,32 @@ public class Location {
 	 * @return tile - tile that is at the required position
 	 */
 	public Tile getTileAtPosition(Position pos) {
-		Point p = new Point(pos.getX() / 10, -1 * (pos.getY() / 10));
-		if (pos.getX() < 0) {
-			p.x = p.x - 1;
+		return getTileAtPosition(pos.getX(), pos.getY());
+	}
+
+	/**
+	 * Get tile at x, y, allows indexes out of bounds, getting tiles from
+	 * neighbouring locations
+	 *
+	 * @param x - x-pos to find tile of
+	 * @param y - y-pos to find tile of
+	 * @return tile - tile that is at the required position
+	 */
+	public Tile getTileAtPosition(int x, int y) {
+		int east = x / 10;
+		int north = -1 * (y / 10);
+		if (x < 0) {
+			east = east - 1;
 		}
-		if (pos.getY() < 0) {
-			p.y = 1;
+		if (y < 0) {
+			north = 1;
 		}
-		if (p.equals(new Point(0, 0))) {
-			return tiles[pos.getX()][pos.getY()];
+		if (east == 0 && north == 0) {
+			return getTile(x, y);
 		}
-		Map<Point, Integer> map = board.mapLocations(id, 0, 0, new HashMap<Point, Integer>());
-		Location newLoc = board.getLocationById(map.get(p));
+		Location newLoc = board.getLocationAt(id, east, north);
 		if (newLoc != null) {
-			return newLoc.getTileAtPositionInLoc(
-					new Position((int) (-p.getX() * 10 + pos.getX()), (int) (10 * p.getY() + pos.getY())));
+			return newLoc.getTileAtPositionInLoc(-east * 10 + x, 10 * north + y);
 		}
 		return null;
 	}
@@ -241,8 +612,19 @@ public class Location {
 	 * @return tile at position
 	 */
 	public Tile getTileAtPositionInLoc(Position pos) {
-		if (withinBounds(pos)) {
-			return tiles[pos.getX()][pos.getY()];
+		return getTileAtPositionInLoc(pos.getX(), pos.getY());
+	}
+
+	/**
+	 * Get tile at x, y
+	 *
+	 * @param x - x-pos
+	 * @param y - y-pos
+	 * @return tile at position, null if it is outside the location
+	 */
+	public Tile getTileAtPositionInLoc(int x, int y) {
+		if (withinBounds(x, y)) {
+			return getTile(x, y);
 		}
 		return null;
 	}
@@ -292,16 +674,16 @@ public class Location {
 	 * @return direction of tile from position
 	 */
 	public Direction getDirOfTile(Position from, Tile t) {
-		if (getTileInDirection(from, Direction.NORTH) == t) {
+		if (Objects.equals(getTileInDirection(from, Direction.NORTH), t)) {
 			return Direction.NORTH;
 		}
-		if (getTileInDirection(from, Direction.SOUTH) == t) {
+		if (Objects.equals(getTileInDirection(from, Direction.SOUTH), t)) {
 			return Direction.SOUTH;
 		}
-		if (getTileInDirection(from, Direction.EAST) == t) {
+		if (Objects.equals(getTileInDirection(from, Direction.EAST), t)) {
 			return Direction.EAST;
 		}
-		if (getTileInDirection(from, Direction.WEST) == t) {
+		if (Objects.equals(getTileInDirection(from, Direction.WEST), t)) {
 			return Direction.WEST;
 		}
 		return null;
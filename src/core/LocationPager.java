@@ -0,0 +1,297 @@
+package core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import gameobjects.Player;
+import iohandling.BoardFile;
+
+/**
+ * LocationPager keeps only part of a very large world in memory. The board
+ * it pages starts with its players and no locations, a location is read from
+ * the board file the first time the board is asked for it, so everything that
+ * finds locations through Board.getLocationById, such as moving between
+ * locations and through doors, reads them in as it needs them.
+ *
+ * A location is kept while a logged in player is in it. Otherwise it is
+ * dropped once it has not been used for the idle time, and whenever more
+ * locations are held than the budget allows those used longest ago are
+ * dropped until there are a quarter fewer than the budget. Each step an NPC
+ * takes uses its location, so a location with NPCs walking about does not go
+ * idle, but it is still dropped when over the budget like any other location
+ * without a logged in player, otherwise a world full of NPCs could never be
+ * paged. A location that has changed since it was read is
+ * written back to the file before it is dropped, nothing else in the file is
+ * written, so a dropped location that is asked for again is read back as it
+ * was left.
+ *
+ * Locations are kept compactly once read, a byte for the ground of each
+ * tile and a map of the tiles that have something on them, so a budget of
+ * locations takes a fraction of the heap it would as arrays of tiles.
+ *
+ * Locations are only dropped by evict, which is called between ticks on the
+ * thread that runs the game, so no other thread can be using them.
+ *
+ */
+public class LocationPager {
+
+	private final Board board;
+	private final BoardFile file;
+	private final int budget;
+	private final long idleMillis;
+
+	private final Map<Integer, Long> lastUsed = new ConcurrentHashMap<Integer, Long>();
+	private final Map<Integer, Integer> writtenVersions = new ConcurrentHashMap<Integer, Integer>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private long nextIdleCheck;
+	private int loads;
+	private int evictions;
+
+	/**
+	 * Something told when a location is read in or dropped, such as the game
+	 * keeping track of the NPCs in the locations that are in memory
+	 */
+	public interface Listener {
+		/**
+		 * Called after a location has been read in and added to the board
+		 *
+		 * @param location - location that was read
+		 */
+		void locationLoaded(Location location);
+
+		/**
+		 * Called after a location has been taken off the board
+		 *
+		 * @param location - location that was dropped
+		 */
+		void locationEvicted(Location location);
+	}
+
+	/**
+	 * Constructor for a pager of a board from a board file
+	 *
+	 * @param board - board with no locations
+	 * @param file - board file opened for writing
+	 * @param budget - most locations to keep in memory
+	 * @param idleMillis - milliseconds a location must not be used for before it is dropped
+	 */
+	private LocationPager(Board board, BoardFile file, int budget, long idleMillis) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("Budget must be at least 1 location: " + budget);
+		}
+		this.board = board;
+		this.file = file;
+		this.budget = budget;
+		this.idleMillis = idleMillis;
+	}
+
+	/**
+	 * Makes a board whose locations are read from a board file as they are
+	 * needed. The players are read straight away
+	 *
+	 * @param file - board file opened for writing, changed locations are written back to it
+	 * @param budget - most locations to keep in memory
+	 * @param idleMillis - milliseconds a location must not be used for before it is dropped
+	 * @return board - board with the players of the file and no locations yet
+	 */
+	public static Board page(BoardFile file, int budget, long idleMillis) {
+		Board board = new Board();
+		board.setLocations(new ConcurrentHashMap<Integer, Location>());
+		file.readPlayers(board);
+		board.setPager(new LocationPager(board, file, budget, idleMillis));
+		return board;
+	}
+
+	/**
+	 * Adds something to be told when locations are read in or dropped
+	 *
+	 * @param listener - listener to add
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Get the ids of every location in the world, whether or not it is in
+	 * memory
+	 *
+	 * @return ids - ids of the locations
+	 */
+	public Set<Integer> getLocationIds() {
+		Set<Integer> ids = new HashSet<Integer>(file.getLocationIds());
+		ids.addAll(board.getLocations().keySet());
+		return ids;
+	}
+
+	/**
+	 * Reads a location in from the file, unless another thread already has
+	 *
+	 * @param id - id of the location
+	 * @return location - the location, null if there is no location with the id
+	 */
+	synchronized Location load(Integer id) {
+		Location loc = board.getLocations().get(id);
+		if (loc != null) {
+			return loc;
+		}
+		loc = file.readLocation(id, board);
+		if (loc == null) {
+			return null;
+		}
+		loc.compact();
+		writtenVersions.put(id, loc.getVersion());
+		lastUsed.put(id, System.currentTimeMillis());
+		board.getLocations().put(id, loc);
+		loads++;
+		for (Listener l : listeners) {
+			l.locationLoaded(loc);
+		}
+		return loc;
+	}
+
+	/**
+	 * Records that a location in memory has been used
+	 *
+	 * @param id - id of the location
+	 */
+	void used(Integer id) {
+		lastUsed.put(id, System.currentTimeMillis());
+	}
+
+	/**
+	 * Drops locations that have been idle for the idle time, then if more
+	 * locations are in memory than the budget allows drops those used longest
+	 * ago. Locations with logged in players are kept. Must only be called
+	 * when no other thread is using the board
+	 *
+	 * @return count - number of locations dropped
+	 * @throws IOException - if a changed location cannot be written back
+	 */
+	public synchronized int evict() throws IOException {
+		long now = System.currentTimeMillis();
+		int resident = board.getLocations().size();
+		if (resident <= budget && now < nextIdleCheck) {
+			return 0;
+		}
+		nextIdleCheck = now + Math.min(idleMillis, 1000);
+		Set<Integer> pinned = new HashSet<Integer>();
+		for (Player p : board.getPlayers().values()) {
+			if (p.isLoggedIn()) {
+				pinned.add(p.getLocationID());
+			}
+		}
+		List<Location> candidates = new ArrayList<Location>();
+		for (Location loc : board.getLocations().values()) {
+			if (!pinned.contains(loc.getId())) {
+				candidates.add(loc);
+			}
+		}
+		final Map<Integer, Long> used = new HashMap<Integer, Long>();
+		for (Location loc : candidates) {
+			Long last = lastUsed.get(loc.getId());
+			used.put(loc.getId(), last == null ? 0L : last);
+		}
+		Collections.sort(candidates, new Comparator<Location>() {
+			public int compare(Location a, Location b) {
+				return Long.compare(used.get(a.getId()), used.get(b.getId()));
+			}
+		});
+		int target = resident > budget ? budget - budget / 4 : resident;
+		int dropped = 0;
+		for (Location loc : candidates) {
+			if (resident - dropped <= target && now - used.get(loc.getId()) < idleMillis) {
+				break;
+			}
+			evict(loc);
+			dropped++;
+		}
+		return dropped;
+	}
+
+	/**
+	 * Writes every location in memory that has changed since it was read or
+	 * last written, and the players, without dropping anything
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		for (Location loc : board.getLocations().values()) {
+			writeBack(loc);
+		}
+		file.writePlayers(board);
+	}
+
+	/**
+	 * Writes back every location that has changed and the players, then
+	 * closes the board file. The board must not be used afterwards
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Get the number of locations that have been read in
+	 *
+	 * @return loads - locations read from the file
+	 */
+	public synchronized int getLoads() {
+		return loads;
+	}
+
+	/**
+	 * Get the number of locations that have been dropped
+	 *
+	 * @return evictions - locations dropped from memory
+	 */
+	public synchronized int getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Writes a location back if it has changed and takes it off the board
+	 *
+	 * @param loc - location to drop
+	 * @throws IOException - if the location cannot be written back
+	 */
+	private void evict(Location loc) throws IOException {
+		writeBack(loc);
+		board.getLocations().remove(loc.getId());
+		lastUsed.remove(loc.getId());
+		writtenVersions.remove(loc.getId());
+		evictions++;
+		for (Listener l : listeners) {
+			l.locationEvicted(loc);
+		}
+	}
+
+	/**
+	 * Writes a location to the file if it has changed since it was read or
+	 * last written
+	 *
+	 * @param loc - location to write
+	 * @throws IOException - if the location cannot be written
+	 */
+	private void writeBack(Location loc) throws IOException {
+		int version = loc.getVersion();
+		Integer written = writtenVersions.get(loc.getId());
+		if (written == null || written != version) {
+			file.writeLocation(loc);
+			writtenVersions.put(loc.getId(), version);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package core;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import gameobjects.Chest;
+import gameobjects.GameObject;
+import gameobjects.NPC;
+import items.Key;
+import iohandling.BoardFile;
+import iohandling.BoardParser;
+import tile.Tile;
+
+/**
+ * A map that has been parsed once and is shared by every game played on it.
+ * The tiles of the map are never changed, each game gets a board whose
+ * locations use the tiles of the map and only copy the tiles that change
+ * during the game, so a game costs memory for what has changed rather than
+ * for the whole map.
+ *
+ * NPCs, chests and keys change as soon as a game starts, keys and chests are
+ * given codes and NPCs keep the direction they face, so every game is given
+ * its own copies of them when its board is made
+ *
+ */
+public class MapTemplate {
+
+	private static final Map<String, MapTemplate> loaded = new HashMap<String, MapTemplate>();
+
+	private final Board map;
+
+	/**
+	 * Constructor for a template of a parsed map, every tile of the map is
+	 * marked as shared
+	 *
+	 * @param map - board parsed from the map, it must not be used for a game
+	 */
+	public MapTemplate(Board map) {
+		this.map = map;
+		for (Location loc : map.getLocations().values()) {
+			for (Tile[] column : loc.getTiles()) {
+				for (Tile t : column) {
+					t.share();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the template of a map file, the file is only parsed the first time
+	 * it is asked for. The file can be a text map or a board file
+	 *
+	 * @param fname - name of the map file
+	 * @return template - template of the map, null if the file cannot be read
+	 */
+	public static synchronized MapTemplate load(String fname) {
+		MapTemplate template = loaded.get(fname);
+		if (template == null) {
+			Board map = BoardFile.isBoardFile(fname) ? readBoardFile(fname) : BoardParser.parseBoardFName(fname);
+			if (map == null) {
+				return null;
+			}
+			template = new MapTemplate(map);
+			loaded.put(fname, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Reads every location of a board file
+	 *
+	 * @param fname - name of the board file
+	 * @return board - board read from the file, null if the file cannot be read
+	 */
+	private static Board readBoardFile(String fname) {
+		try {
+			BoardFile file = BoardFile.open(fname);
+			try {
+				return file.readBoard();
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Makes a board for a new game on the map
+	 *
+	 * @return board - board whose locations share the tiles of the map
+	 */
+	public Board newBoard() {
+		Board board = new Board();
+		for (Location loc : map.getLocations().values()) {
+			Location own = new Location(loc, board);
+			board.addLocation(own.getId(), own);
+			Tile[][] tiles = loc.getTiles();
+			for (int i = 0; i < tiles.length; i++) {
+				for (int j = 0; j < tiles[i].length; j++) {
+					GameObject copy = copyOf(tiles[i][j].getGameObject());
+					if (copy != null) {
+						own.editTile(tiles[i][j].getPos()).setGameObject(copy);
+					}
+				}
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Copies a game object that changes during a game
+	 *
+	 * @param o - game object on a tile of the map
+	 * @return copy - copy of the object, null if it never changes and can be
+	 *         shared
+	 */
+	private static GameObject copyOf(GameObject o) {
+		if (o instanceof NPC) {
+			NPC npc = (NPC) o;
+			return new NPC(npc.getStrategyType(), npc.getFacing());
+		}
+		if (o instanceof Chest) {
+			Chest chest = (Chest) o;
+			Chest copy = new Chest(chest.getContents());
+			copy.setCode(chest.getCode());
+			return copy;
+		}
+		if (o instanceof Key) {
+			Key key = (Key) o;
+			return new Key(key.getName(), key.getCode());
+		}
+		return null;
+	}
+}
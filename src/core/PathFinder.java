@@ -0,0 +1,96 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import core.GameSystem.Direction;
+import gameobjects.GameObject;
+import gameobjects.Player;
+import items.Item;
+import tile.DoorOutTile;
+import tile.Tile;
+import tile.WaterTile;
+
+/**
+ * Finds the shortest walk for a player from the tile they are on to another
+ * tile, searching only the locations the player can see. Used by the server
+ * for the goto command so a whole walk is one command from the client
+ *
+ */
+public class PathFinder {
+
+	/**
+	 * Breadth first search from the players tile to the end tile, every step
+	 * costs the same so the first path found is the shortest
+	 *
+	 * @param board - board the player is on
+	 * @param p - player that is walking
+	 * @param end - tile to walk to
+	 * @return path - tiles to step onto in order, not including the tile the
+	 *         player is on, null if there is no path
+	 */
+	public static ArrayDeque<Tile> findPath(Board board, Player p, Tile end) {
+		Tile start = p.getTile();
+		if (start == null || end == null) {
+			return null;
+		}
+		Set<Integer> locations = board.getLocationsOfInterest(p.getLocationID());
+		if (!locations.contains(end.getLocationID())) {
+			return null;
+		}
+
+		Map<Tile, Tile> from = new HashMap<Tile, Tile>();
+		ArrayDeque<Tile> fringe = new ArrayDeque<Tile>();
+		from.put(start, start);
+		fringe.add(start);
+
+		while (!fringe.isEmpty()) {
+			Tile t = fringe.poll();
+			if (t.equals(end)) {
+				ArrayDeque<Tile> path = new ArrayDeque<Tile>();
+				while (!t.equals(start)) {
+					path.addFirst(t);
+					t = from.get(t);
+				}
+				return path;
+			}
+			Location loc = board.getLocationById(t.getLocationID());
+			if (loc == null) {
+				continue;
+			}
+			for (Direction d : Direction.values()) {
+				Tile next = loc.getTileInDirection(t.getPos(), d);
+				if (next == null || from.containsKey(next) || !locations.contains(next.getLocationID())) {
+					continue;
+				}
+				// Door tiles take the player somewhere else, only walk onto one at the end
+				if (!next.equals(end) && next instanceof DoorOutTile) {
+					continue;
+				}
+				if (canWalkOnto(p, next)) {
+					from.put(next, t);
+					fringe.add(next);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if a player can step onto a tile while walking, the tile must be
+	 * empty or hold an item to pick up, and water needs something to float on
+	 *
+	 * @param p - player that is walking
+	 * @param t - tile to step onto
+	 * @return boolean - true if the player can step onto the tile
+	 */
+	public static boolean canWalkOnto(Player p, Tile t) {
+		GameObject o = t.getGameObject();
+		if (o != null && !(o instanceof Item)) {
+			return false;
+		}
+		return !(t instanceof WaterTile) || p.getHasFloatingDevice();
+	}
+}
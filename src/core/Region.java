@@ -0,0 +1,93 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import core.GameSystem.Direction;
+import gameobjects.NPC;
+import gameobjects.Player;
+import tile.Tile;
+
+/**
+ * A group of neighbouring locations owned by one worker thread. During a tick
+ * the worker is the only thread that changes the tiles of its locations and
+ * the players and NPCs standing in them, so regions can be moved in parallel.
+ * A move that would leave the region is handed off instead, it is kept in the
+ * outbox of the region and applied once every worker has finished
+ *
+ */
+class Region {
+	final int index;
+	final Set<Integer> locations = new HashSet<Integer>();
+	final List<Move> moves = new ArrayList<Move>();
+	final List<Move> outbox = new ArrayList<Move>();
+
+	/**
+	 * Constructor for an empty region
+	 *
+	 * @param index - position of the region in the order handoffs are applied
+	 */
+	Region(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Checks if a location belongs to this region
+	 *
+	 * @param id - id of the location
+	 * @return boolean - true if the worker of this region owns the location
+	 */
+	boolean owns(int id) {
+		return locations.contains(id);
+	}
+
+	/**
+	 * A player or NPC moving one tile, queued for the region it is standing
+	 * in
+	 */
+	static class Move {
+		final Player player;
+		final NPC npc;
+		Direction direction;
+		final Tile expected;
+
+		/**
+		 * Constructor for a player move
+		 *
+		 * @param player - player moving
+		 * @param direction - direction to move
+		 * @param expected - tile the player should end up on if they are
+		 *            walking to a tile, otherwise null
+		 */
+		Move(Player player, Direction direction, Tile expected) {
+			this.player = player;
+			this.npc = null;
+			this.direction = direction;
+			this.expected = expected;
+		}
+
+		/**
+		 * Constructor for an NPC move, the direction is chosen by the strategy
+		 * of the NPC when the move is made
+		 *
+		 * @param npc - npc moving
+		 */
+		Move(NPC npc) {
+			this.player = null;
+			this.npc = npc;
+			this.direction = null;
+			this.expected = null;
+		}
+
+		/**
+		 * Getter for what is moving
+		 *
+		 * @return mover - the player or NPC
+		 */
+		Object getMover() {
+			return player != null ? player : npc;
+		}
+	}
+}
@@ -13,6 +13,11 @@ import javax.imageio.ImageIO;
  *
  */
 public class Building extends GameObject {
+
+	/**
+	 * The one building every board uses
+	 */
+	public static final Building BUILDING = new Building();
 	
 	/**
 	 * Constructor that sets file name of object
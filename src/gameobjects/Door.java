@@ -53,6 +53,15 @@ public class Door extends GameObject {
 		return "Door(" + code + "," + locationID + "," + doorPosition.getX() + "," + doorPosition.getY() + ")";
 	}
 	
+	/**
+	 * Getter for the code of the door
+	 * 
+	 * @return code - code of the key that opens the door
+	 */
+	public int getCode() {
+		return code;
+	}
+
 	/**
 	 * Getter of the location id for the door
 	 * 
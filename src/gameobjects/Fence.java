@@ -8,7 +8,6 @@ import javax.imageio.ImageIO;
 
 import core.GameSystem.Direction;
 import core.Location;
-import tile.Tile;
 import util.Position;
 
 /**
@@ -18,9 +17,24 @@ import util.Position;
  *
  */
 public class Fence extends GameObject {
+
+	/**
+	 * Fence shared by every tile with a fence on it, its image depends on the tiles around it rather than on the fence
+	 */
+	public static final Fence FENCE = new Fence();
 	
-	final String IMG_PRE = "assets/game_objects/fence/fence";
-	final String IMG_POST = ".png";
+	static final String IMG_PRE = "assets/game_objects/fence/fence";
+	static final String IMG_POST = ".png";
+
+	/* The file name of every mix of fences around a fence, by a bit for each of north, east, south and west, so none is built while drawing */
+	private static final String[] IMAGES = new String[16];
+
+	static {
+		for (int around = 0; around < IMAGES.length; around++) {
+			IMAGES[around] = IMG_PRE + ((around & 1) != 0 ? "N" : "") + ((around & 2) != 0 ? "E" : "") + ((around & 4) != 0 ? "S" : "")
+					+ ((around & 8) != 0 ? "W" : "") + IMG_POST;
+		}
+	}
 	
 	//Calls super constructor
 	public Fence(){}
@@ -35,37 +49,33 @@ public class Fence extends GameObject {
 	 * @return fname - File name of the fence
 	 */
 	public String getImage(Location loc, Position pos, Direction viewing){
-		
-		String fname = IMG_PRE;
-
-		Tile n = loc.getTileInDirection(pos, Location.getRelativeDirection(Direction.NORTH, viewing));
-		if(n != null){
-			if(n.getGameObject() instanceof Fence){
-				fname += "N";
-			}
+		int around = 0;
+		if (isFence(loc, pos, Location.getRelativeDirection(Direction.NORTH, viewing))) {
+			around |= 1;
 		}
-		Tile e = loc.getTileInDirection(pos, Location.getRelativeDirection(Direction.EAST, viewing));
-		if(e != null){
-			if(e.getGameObject() instanceof Fence){
-				fname += "E";
-			}
+		if (isFence(loc, pos, Location.getRelativeDirection(Direction.EAST, viewing))) {
+			around |= 2;
 		}
-		Tile s = loc.getTileInDirection(pos, Location.getRelativeDirection(Direction.SOUTH, viewing));
-		if(s != null){
-			if(s.getGameObject() instanceof Fence){
-				fname += "S";
-			}
+		if (isFence(loc, pos, Location.getRelativeDirection(Direction.SOUTH, viewing))) {
+			around |= 4;
 		}
-		
-		Tile w = loc.getTileInDirection(pos, Location.getRelativeDirection(Direction.WEST, viewing));
-		if(w != null){
-			if(w.getGameObject() instanceof Fence){
-				fname += "W";
-			}
+		if (isFence(loc, pos, Location.getRelativeDirection(Direction.WEST, viewing))) {
+			around |= 8;
 		}
-		fname+=IMG_POST;
+		return IMAGES[around];
+	}
 
-		return fname;
+	/**
+	 * Checks if the tile next to a fence in a direction has a fence on it
+	 * 
+	 * @param loc - Location of fence
+	 * @param pos - Position of fence
+	 * @param dir - Direction of the tile next to it
+	 * 
+	 * @return boolean - true if there is a fence there
+	 */
+	private static boolean isFence(Location loc, Position pos, Direction dir) {
+		return loc.getGameObjectInDirection(pos.getX(), pos.getY(), dir) instanceof Fence;
 	}
 	
 	/**
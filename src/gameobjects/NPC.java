@@ -20,8 +20,17 @@ public class NPC extends GameObject {
 	Direction facing = Direction.NORTH;
 	NPC.Strategy strategy;
 
-	private final String IMG_PRE = "assets/game_objects/npc/npc";
-	private final String IMG_POST = ".png";
+	private static final String IMG_PRE = "assets/game_objects/npc/npc";
+	private static final String IMG_POST = ".png";
+
+	/* The file name for each direction the NPC can be seen facing, so none is built while drawing */
+	private static final String[] IMAGES = new String[Direction.values().length];
+
+	static {
+		for (Direction d : Direction.values()) {
+			IMAGES[d.ordinal()] = IMG_PRE + d.toString() + IMG_POST;
+		}
+	}
 
 	/**
 	 * Constructor that gives the required variables the correct values, and
@@ -71,6 +80,15 @@ public class NPC extends GameObject {
 		this.facing = facing;
 	}
 
+	/**
+	 * Getter for the name of the strategy the NPC moves by
+	 * 
+	 * @return strategyType - "random" or "circle"
+	 */
+	public String getStrategyType() {
+		return strategyType;
+	}
+
 	public String toString() {
 		return "NPC(" + strategyType + "," + facing.toString() + ")";
 	}
@@ -87,10 +105,7 @@ public class NPC extends GameObject {
 	 * @return fname - File name of the object
 	 */
 	public String getImage(Location loc, Position pos, Direction viewingDir) {
-		String fname = IMG_PRE;
-		fname += Location.getOtherRelativeDirection(facing, viewingDir).toString() + IMG_POST;
-
-		return fname;
+		return IMAGES[Location.getOtherRelativeDirection(facing, viewingDir).ordinal()];
 	}
 	
 	/**
@@ -20,6 +20,8 @@ import util.Position;
 /**
  * Class that holds all the information for the players within the game, such as their name and their current location
  *
+ * Whenever the state of the player that is sent to clients changes, the tile the player is standing on is recorded as changed in its location
+ *
  * @author Jack Slater
  */
 public class Player extends GameObject {
@@ -34,8 +36,21 @@ public class Player extends GameObject {
 	private int numOfBananas;
 	private boolean hasFloatingDevice = false;
 
-	private final String IMG_PRE = "assets/game_objects/player/player";
-	private final String IMG_POST = ".png";
+	private static final String IMG_PRE = "assets/game_objects/player/player";
+	private static final String IMG_POST = ".png";
+
+	/* The file name for each direction the player can be seen facing, with and without a floating device and in and out of water */
+	private static final String[][][] IMAGES = new String[2][2][Direction.values().length];
+
+	static {
+		for (int floating = 0; floating < 2; floating++) {
+			for (int water = 0; water < 2; water++) {
+				for (Direction d : Direction.values()) {
+					IMAGES[floating][water][d.ordinal()] = IMG_PRE + (floating == 1 ? "F" : "") + (water == 1 ? "W" : "") + d.toString() + IMG_POST;
+				}
+			}
+		}
+	}
 
 	private final Integer INVENTORY_LIMIT = 10;
 
@@ -64,6 +79,7 @@ public class Player extends GameObject {
 	 */
 	public void setNumOfBananas(int numOfBananas) {
 		this.numOfBananas = numOfBananas;
+		changed();
 	}
 
 	/**
@@ -100,6 +116,7 @@ public class Player extends GameObject {
 	 */
 	public void setLoggedIn(boolean loggedIn) {
 		this.loggedIn = loggedIn;
+		changed();
 	}
 
 	/**
@@ -129,6 +146,15 @@ public class Player extends GameObject {
 		return board.getLocationById(locationID);
 	}
 
+	/**
+	 * Getter for the id of the current location of the player
+	 *
+	 * @return locationID - id of the current location of the player
+	 */
+	public int getLocationID() {
+		return locationID;
+	}
+
 	/**
 	 * Setter for the current location of the player by using a location
 	 *
@@ -181,6 +207,7 @@ public class Player extends GameObject {
 	 */
 	public void increaseBananaCount(int i) {
 		numOfBananas += i;
+		changed();
 	}
 
 	/**
@@ -190,10 +217,35 @@ public class Player extends GameObject {
 	 * @return boolean - weather if adding the item is successful
 	 */
 	public boolean pickUpItem(Item item) {
+		changed();
 		return inventory.add(item);
 
 	}
 
+	/**
+	 * Removes an item from the inventory of the player
+	 *
+	 * @param item - item to be removed
+	 * @return boolean - true if the item was in the inventory
+	 */
+	public boolean removeItem(Item item) {
+		boolean removed = inventory.remove(item);
+		if (removed) {
+			changed();
+		}
+		return removed;
+	}
+
+	/**
+	 * Records the tile the player is standing on as changed, so the new state of the player is sent with the other changes to the board
+	 */
+	private void changed() {
+		Location loc = board == null ? null : getLocation();
+		if (loc != null && pos != null && loc.withinBounds(pos)) {
+			loc.tileChanged(pos);
+		}
+	}
+
 	/**
 	 * Method that gets the file name of the player to be drawn, the file name changes depending on what variables are around it
 	 *
@@ -204,16 +256,9 @@ public class Player extends GameObject {
 	 * @return fname - File name of the player
 	 */
 	public String getImage(Location loc, Position pos, Direction viewingDir) {
-		String fname = IMG_PRE;
-		if(hasFloatingDevice){
-			fname += "F";
-		}
-		if(getTile() instanceof WaterTile){
-			fname+="W";
-		}
-		fname += Location.getOtherRelativeDirection(facing, viewingDir).toString() + IMG_POST;
-
-		return fname;
+		int floating = hasFloatingDevice ? 1 : 0;
+		int water = getTile() instanceof WaterTile ? 1 : 0;
+		return IMAGES[floating][water][Location.getOtherRelativeDirection(facing, viewingDir).ordinal()];
 	}
 
 	public String toString() {
@@ -235,14 +280,33 @@ public class Player extends GameObject {
 	 * @return s - String that is used for saving
 	 */
 	public String toSaveString() {
-		String s = "Player\n{\n" + userName + "," + numOfBananas + "," + locationID + "," + pos.getX() + "," + pos.getY() + ","
-				+ facing.toString() + "," + loggedIn + "," + hasFloatingDevice + ",Inventory(";
+		StringBuilder s = new StringBuilder("Player\n{\n");
+		s.append(userName).append(',').append(numOfBananas).append(',').append(locationID).append(',').append(pos.getX()).append(',')
+				.append(pos.getY()).append(',').append(facing).append(',').append(loggedIn).append(',').append(hasFloatingDevice)
+				.append(",Inventory(");
 		for(Item i: inventory){
-			s += i.toString();
-			s += ",";
+			s.append(i.toString());
+			s.append(',');
 		}
-		s += ")\n}";
-		return s;
+		s.append(")\n}");
+		return s.toString();
+	}
+
+	/**
+	 * Copies the state of another copy of this player into this player, this is
+	 * used by the client when the server sends through a changed player
+	 *
+	 * @param other - more recent copy of this player
+	 */
+	public void updateFrom(Player other) {
+		this.numOfBananas = other.numOfBananas;
+		this.locationID = other.locationID;
+		this.pos = other.pos;
+		this.facing = other.facing;
+		this.loggedIn = other.loggedIn;
+		this.hasFloatingDevice = other.hasFloatingDevice;
+		this.inventory.clear();
+		this.inventory.addAll(other.inventory);
 	}
 
 	/**
@@ -269,7 +333,10 @@ public class Player extends GameObject {
 	 * @param dir - direction the player wants to face
 	 */
 	public void setFacing(Direction dir) {
-		facing = dir;
+		if (facing != dir) {
+			facing = dir;
+			changed();
+		}
 	}
 
 	/**
@@ -279,6 +346,7 @@ public class Player extends GameObject {
 	 */
 	public void setHasFloatingDevice(boolean b){
 		hasFloatingDevice = b;
+		changed();
 	}
 
 	/**
@@ -14,6 +14,11 @@ import javax.imageio.ImageIO;
  */
 public class Tree extends GameObject{
 
+	/**
+	 * The tree put on every tile that has one, a tree never changes so one is enough
+	 */
+	public static final Tree TREE = new Tree();
+
 	/**
 	 * Constructor that sets file name of object
 	 */
@@ -8,7 +8,6 @@ import javax.imageio.ImageIO;
 
 import core.GameSystem.Direction;
 import core.Location;
-import tile.Tile;
 import util.Position;
 
 /**
@@ -18,9 +17,24 @@ import util.Position;
  *
  */
 public class Wall extends GameObject {
+
+	/**
+	 * Wall shared by every tile with a wall on it, like a fence it is drawn from its neighbours
+	 */
+	public static final Wall WALL = new Wall();
 	
-	final String IMG_PRE = "assets/game_objects/wall/wall";
-	final String IMG_POST = ".png";
+	static final String IMG_PRE = "assets/game_objects/wall/wall";
+	static final String IMG_POST = ".png";
+
+	/* The file name of every mix of walls around a wall, by a bit for each of north, east, south and west, so none is built while drawing */
+	private static final String[] IMAGES = new String[16];
+
+	static {
+		for (int around = 0; around < IMAGES.length; around++) {
+			IMAGES[around] = IMG_PRE + ((around & 1) != 0 ? "N" : "") + ((around & 2) != 0 ? "E" : "") + ((around & 4) != 0 ? "S" : "")
+					+ ((around & 8) != 0 ? "W" : "") + IMG_POST;
+		}
+	}
 	
 	public Wall(){ }
 
@@ -34,34 +48,34 @@ public class Wall extends GameObject {
 	 * @return fname - File name of the wall
 	 */
 	public String getImage(Location loc, Position pos, Direction viewing){
-		String fname = IMG_PRE;
-		Tile n = loc.getTileInDirection(pos, Direction.NORTH);
-		if(n != null){
-			if(n.getGameObject() instanceof Wall){
-				fname += "N";
-			}
+		int around = 0;
+		if (isWall(loc, pos, Direction.NORTH)) {
+			around |= 1;
 		}
-		Tile e = loc.getTileInDirection(pos, Direction.EAST);
-		if(e != null){
-			if(e.getGameObject() instanceof Wall){
-				fname += "E";
-			}
+		if (isWall(loc, pos, Direction.EAST)) {
+			around |= 2;
 		}
-		Tile s = loc.getTileInDirection(pos, Direction.SOUTH);
-		if(s != null){
-			if(s.getGameObject() instanceof Wall){
-				fname += "S";
-			}
+		if (isWall(loc, pos, Direction.SOUTH)) {
+			around |= 4;
 		}
-		
-		Tile w = loc.getTileInDirection(pos, Direction.WEST.EAST);
-		if(w != null){
-			if(w.getGameObject() instanceof Wall){
-				fname += "W";
-			}
+		/* The west part has always been drawn for a wall to the east, the images are made for that */
+		if (isWall(loc, pos, Direction.EAST)) {
+			around |= 8;
 		}
-		fname+=IMG_POST;
-		return fname;
+		return IMAGES[around];
+	}
+
+	/**
+	 * Checks if the tile next to a wall in a direction has a wall on it
+	 * 
+	 * @param loc - Location of wall
+	 * @param pos - Position of wall
+	 * @param dir - Direction of the tile next to it
+	 * 
+	 * @return boolean - true if there is a wall there
+	 */
+	private static boolean isWall(Location loc, Position pos, Direction dir) {
+		return loc.getGameObjectInDirection(pos.getX(), pos.getY(), dir) instanceof Wall;
 	}
 	
 	/**
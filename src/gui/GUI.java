@@ -592,14 +592,14 @@ public class GUI implements KeyListener, ActionListener, MouseListener, MouseMot
 	}
 
 	/**
-	 * Moving to tile using dijkstras
+	 * Moving to tile using goto
 	 *
 	 * @param x
 	 * @param y
 	 */
 	private void checkClicked(int x, int y) {
 		if (x < 1000) {
-			controller.moveWithUltimateDijkstras(x, y);
+			controller.goToTile(x, y);
 		}
 
 	}
@@ -0,0 +1,194 @@
+package iohandling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import core.Board;
+import core.Location;
+import gameobjects.Player;
+import tile.Tile;
+import util.Position;
+
+/**
+ * BoardDeltaWriter remembers the last board state that was sent to clients and
+ * writes only the players and tiles that have changed since then. Every
+ * non-empty delta is stamped with a new board version so that clients can
+ * detect missed deltas and ask for a full board instead.
+ *
+ * Deltas use the same grammar as the map files, players are written with their
+ * save strings and tiles are written as Tile{locationID,x,y,(tile)}. The last
+ * delta is also kept by location so that clients that can only see some
+ * locations can be sent just the part of it they need.
+ *
+ * Only the tiles the locations of the board have recorded as changed are
+ * looked at, along with the players standing on them, so writing a delta
+ * costs nothing when nothing has changed. Tiles shared with the other games
+ * on the same map have never changed and are never remembered.
+ */
+public class BoardDeltaWriter {
+
+	private Map<String, String> lastPlayers;
+	private Map<String, Integer> lastPlayerLocations;
+	private Map<Integer, String[][]> lastTiles;
+	private int version;
+
+	// Parts of the last delta
+	private List<String> changedPlayers;
+	private List<Integer> changedPlayerLocations;
+	private List<Integer> previousPlayerLocations;
+	private Map<Integer, StringBuilder> changedTiles;
+
+	/**
+	 * Constructor that records the current state of the board as the state
+	 * that every client already has
+	 *
+	 * @param b - board that deltas will be written for
+	 */
+	public BoardDeltaWriter(Board b) {
+		this.lastPlayers = new HashMap<String, String>();
+		this.lastPlayerLocations = new HashMap<String, Integer>();
+		this.lastTiles = new HashMap<Integer, String[][]>();
+		this.changedPlayers = new ArrayList<String>();
+		this.changedPlayerLocations = new ArrayList<Integer>();
+		this.previousPlayerLocations = new ArrayList<Integer>();
+		this.changedTiles = new LinkedHashMap<Integer, StringBuilder>();
+		this.version = 0;
+		writeDelta(b);
+		this.version = 0;
+	}
+
+	/**
+	 * Get the version of the last delta that was written
+	 *
+	 * @return version - current board version
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Write every player and tile that has changed since the last call to a
+	 * String and move on to the next board version. The changes recorded by
+	 * the board are taken, so they are only written once
+	 *
+	 * @param b - board to be written
+	 * @return string - delta of the board or null if nothing has changed
+	 */
+	public String writeDelta(Board b) {
+		changedPlayers.clear();
+		changedPlayerLocations.clear();
+		previousPlayerLocations.clear();
+		changedTiles.clear();
+		Map<Integer, List<Position>> changed = new LinkedHashMap<Integer, List<Position>>();
+		for (Location loc : b.takeChangedLocations()) {
+			changed.put(loc.getId(), loc.takeChangedTiles());
+		}
+		if (changed.isEmpty()) {
+			return null;
+		}
+		StringBuilder print = new StringBuilder();
+		// Print changed players, these come first so tiles can refer to them
+		for (Player player : b.getPlayers().values()) {
+			if (!isChanged(changed.get(player.getLocationID()), player.getPosition())) {
+				continue;
+			}
+			String save = player.toSaveString();
+			if (!save.equals(lastPlayers.get(player.getUserName()))) {
+				lastPlayers.put(player.getUserName(), save);
+				changedPlayers.add(save);
+				changedPlayerLocations.add(player.getLocationID());
+				previousPlayerLocations.add(lastPlayerLocations.put(player.getUserName(), player.getLocationID()));
+				print.append(save);
+				print.append("\n");
+			}
+		}
+		// Print changed tiles
+		for (Map.Entry<Integer, List<Position>> entry : changed.entrySet()) {
+			Location loc = b.getLocationById(entry.getKey());
+			String[][] last = lastTiles.get(loc.getId());
+			for (Position pos : entry.getValue()) {
+				int i = pos.getX();
+				int j = pos.getY();
+				Tile t = loc.getTile(i, j);
+				if (t.isShared()) {
+					continue;
+				}
+				if (last == null) {
+					last = new String[loc.getWidth()][loc.getHeight()];
+					lastTiles.put(loc.getId(), last);
+				}
+				String tile = t.toString();
+				if (!tile.equals(last[i][j])) {
+					last[i][j] = tile;
+					StringBuilder locTiles = changedTiles.get(loc.getId());
+					if (locTiles == null) {
+						locTiles = new StringBuilder();
+						changedTiles.put(loc.getId(), locTiles);
+					}
+					locTiles.append("Tile{" + loc.getId() + "," + i + "," + j + ",(");
+					locTiles.append(tile);
+					locTiles.append(")}\n");
+				}
+			}
+		}
+		for (StringBuilder locTiles : changedTiles.values()) {
+			print.append(locTiles);
+		}
+		if (print.length() == 0) {
+			return null;
+		}
+		version++;
+		return print.toString();
+	}
+
+	/**
+	 * Checks if a position is one of the changed positions of a location
+	 *
+	 * @param positions - changed positions of the location, null if it has not changed
+	 * @param pos - position to look for
+	 * @return boolean - true if the position has changed
+	 */
+	private static boolean isChanged(List<Position> positions, Position pos) {
+		if (positions == null || pos == null) {
+			return false;
+		}
+		for (Position p : positions) {
+			if (p.getX() == pos.getX() && p.getY() == pos.getY()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Write the part of the last delta that can be seen from a set of
+	 * locations, this is every changed tile in those locations and every
+	 * changed player that is in or has just left one of them
+	 *
+	 * @param locations - ids of the locations that can be seen
+	 * @return string - part of the last delta or null if none of it can be seen
+	 */
+	public String writeDeltaFor(Set<Integer> locations) {
+		StringBuilder print = new StringBuilder();
+		for (int i = 0; i < changedPlayers.size(); i++) {
+			Integer previous = previousPlayerLocations.get(i);
+			if (locations.contains(changedPlayerLocations.get(i)) || (previous != null && locations.contains(previous))) {
+				print.append(changedPlayers.get(i));
+				print.append("\n");
+			}
+		}
+		for (Map.Entry<Integer, StringBuilder> entry : changedTiles.entrySet()) {
+			if (locations.contains(entry.getKey())) {
+				print.append(entry.getValue());
+			}
+		}
+		if (print.length() == 0) {
+			return null;
+		}
+		return print.toString();
+	}
+}
@@ -0,0 +1,317 @@
+package iohandling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import core.BoardSnapshot;
+import core.BoardSnapshot.LocationSnapshot;
+import core.BoardSnapshot.PlayerSnapshot;
+import core.GameSystem.Direction;
+
+/**
+ * BoardEncoder writes a snapshot of a board in the map file format as UTF-8
+ * straight into a ByteBuffer, without building a String of the board or of
+ * any of its tiles. When the buffer fills up it is written to a channel and
+ * used again, so a board of any size is written through a buffer of a fixed
+ * size, whether the channel is a file or a socket. Without a channel the
+ * buffer must be big enough for the whole board, length gives the number of
+ * bytes a board takes so an exact buffer can be made.
+ *
+ * Each location is encoded once and kept with its snapshot, writing a board
+ * copies the kept bytes of its locations after the save strings of its
+ * players.
+ *
+ */
+public class BoardEncoder {
+
+	private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Constructor for an encoder that writes to a channel through a buffer
+	 *
+	 * @param channel - channel the buffer is written to when it is full
+	 * @param buffer - buffer to encode into, it is used again once written
+	 */
+	public BoardEncoder(WritableByteChannel channel, ByteBuffer buffer) {
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Constructor for an encoder that only writes into a buffer
+	 *
+	 * @param buffer - buffer to encode into, it must have room for everything written
+	 */
+	public BoardEncoder(ByteBuffer buffer) {
+		this(null, buffer);
+	}
+
+	/**
+	 * Write a snapshot of a board to a file through a direct buffer of a
+	 * fixed size
+	 *
+	 * @param b - snapshot of the board to be written
+	 * @param fname - file to be written to
+	 * @throws IOException - if the file cannot be written
+	 */
+	public static void writeFile(BoardSnapshot b, String fname) throws IOException {
+		FileChannel file = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			BoardEncoder encoder = new BoardEncoder(file, ByteBuffer.allocateDirect(FILE_BUFFER_SIZE));
+			encoder.writeBoard(b, null);
+			encoder.flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Encode the part of a snapshot of a board that can be seen from a set of
+	 * locations into an array of exactly the right size
+	 *
+	 * @param b - snapshot of the board to be written
+	 * @param locations - ids of the locations to write, or null to write every location
+	 * @return bytes - UTF-8 bytes of the board
+	 */
+	public static byte[] encode(BoardSnapshot b, Set<Integer> locations) {
+		byte[] bytes = new byte[length(b, locations)];
+		try {
+			new BoardEncoder(ByteBuffer.wrap(bytes)).writeBoard(b, locations);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Encode a location, this is done once for each snapshot of a location
+	 * and kept with it
+	 *
+	 * @param loc - snapshot of the location
+	 * @return bytes - UTF-8 bytes of the location
+	 */
+	public static byte[] encodeLocation(LocationSnapshot loc) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(loc.getWidth() * loc.getHeight() * 12 + 64);
+		try {
+			BoardEncoder encoder = new BoardEncoder(Channels.newChannel(out), ByteBuffer.allocate(1024));
+			encoder.writeLocation(loc);
+			encoder.flush();
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Works out how many bytes the part of a board that can be seen from a
+	 * set of locations takes once encoded
+	 *
+	 * @param b - snapshot of the board
+	 * @param locations - ids of the locations to write, or null to write every location
+	 * @return length - number of bytes
+	 */
+	public static int length(BoardSnapshot b, Set<Integer> locations) {
+		int length = 0;
+		for (PlayerSnapshot player : b.getPlayers()) {
+			if (locations == null || locations.contains(player.getLocationID())) {
+				length += length(player.getSaveString()) + 1;
+			}
+		}
+		for (LocationSnapshot loc : b.getLocations().values()) {
+			if (locations == null || locations.contains(loc.getId())) {
+				length += loc.getBytes().length;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Write the part of a snapshot of a board that can be seen from a set of
+	 * locations, only those locations and the players in them are written
+	 *
+	 * @param b - snapshot of the board to be written
+	 * @param locations - ids of the locations to write, or null to write every location
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	public void writeBoard(BoardSnapshot b, Set<Integer> locations) throws IOException {
+		for (PlayerSnapshot player : b.getPlayers()) {
+			if (locations == null || locations.contains(player.getLocationID())) {
+				write(player.getSaveString());
+				write('\n');
+			}
+		}
+		for (LocationSnapshot loc : b.getLocations().values()) {
+			if (locations == null || locations.contains(loc.getId())) {
+				write(loc.getBytes());
+			}
+		}
+	}
+
+	/**
+	 * Write a location in the map file format
+	 *
+	 * @param loc - snapshot of the location to be written
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	public void writeLocation(LocationSnapshot loc) throws IOException {
+		write("Location{\nid: ");
+		write(Integer.toString(loc.getId()));
+		write("\nname: ?\nw: ");
+		write(Integer.toString(loc.getWidth()));
+		write("\nh: ");
+		write(Integer.toString(loc.getHeight()));
+		write('\n');
+		for (Direction d : new Direction[] { Direction.NORTH, Direction.EAST, Direction.WEST, Direction.SOUTH }) {
+			Integer neighbour = loc.getNeighbours().get(d);
+			if (neighbour != null) {
+				write(d.toString());
+				write(": ");
+				write(neighbour.toString());
+				write('\n');
+			}
+		}
+		for (int i = 0; i < loc.getWidth(); i++) {
+			for (int j = 0; j < loc.getHeight(); j++) {
+				write('(');
+				write(loc.getTile(j, i));
+				write(')');
+			}
+			write('\n');
+		}
+		write("}\n");
+	}
+
+	/**
+	 * Writes whatever is in the buffer to the channel and empties the buffer,
+	 * does nothing if there is no channel
+	 *
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	public void flush() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Makes sure the buffer has room for some bytes, writing it to the
+	 * channel if it does not
+	 *
+	 * @param n - number of bytes about to be written, no more than the size of the buffer
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	private void ensure(int n) throws IOException {
+		if (buffer.remaining() < n) {
+			if (channel == null) {
+				throw new BufferOverflowException();
+			}
+			flush();
+		}
+	}
+
+	/**
+	 * Writes bytes that are already encoded
+	 *
+	 * @param bytes - bytes to write
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	private void write(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensure(1);
+			int n = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, n);
+			offset += n;
+		}
+	}
+
+	/**
+	 * Writes a character that is a single byte in UTF-8
+	 *
+	 * @param c - character below 128
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	private void write(char c) throws IOException {
+		ensure(1);
+		buffer.put((byte) c);
+	}
+
+	/**
+	 * Writes the UTF-8 bytes of a String one character at a time
+	 *
+	 * @param s - String to write
+	 * @throws IOException - if the channel cannot be written to
+	 */
+	private void write(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				ensure(1);
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				ensure(2);
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				ensure(4);
+				buffer.put((byte) (0xF0 | cp >> 18));
+				buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | cp & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				/* A surrogate on its own is written as a question mark, the same as String.getBytes */
+				ensure(1);
+				buffer.put((byte) '?');
+			} else {
+				ensure(3);
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Works out how many bytes a String takes in UTF-8
+	 *
+	 * @param s - String to measure
+	 * @return length - number of bytes
+	 */
+	static int length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,1015 @@
+package iohandling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import core.Board;
+import core.BoardSnapshot;
+import core.GameSystem.Direction;
+import core.Location;
+import gameobjects.Building;
+import gameobjects.Chest;
+import gameobjects.Door;
+import gameobjects.Fence;
+import gameobjects.GameObject;
+import gameobjects.NPC;
+import gameobjects.Player;
+import gameobjects.Tree;
+import gameobjects.Wall;
+import items.Banana;
+import items.Fish;
+import items.FishingRod;
+import items.FloatingDevice;
+import items.Item;
+import items.Key;
+import items.Teleporter;
+import tile.DoorOutTile;
+import tile.GrassTile;
+import tile.SandTile;
+import tile.StoneTile;
+import tile.Tile;
+import tile.WaterTile;
+import tile.WoodTile;
+import util.Position;
+
+/**
+ * BoardFile reads and writes boards in a binary format that is read through a
+ * memory mapped buffer, so a single location can be read without reading the
+ * rest of the file, and a board that has been saved once is saved again by
+ * writing only the locations that have changed.
+ *
+ * The file starts with a header giving where the index and the players are,
+ * followed by the index, which gives the offset, length and room of the
+ * segment each location is written in, by location id. A location segment
+ * holds the id, size, name and neighbours of the location, then a record of
+ * TILE_RECORD_SIZE bytes for each tile, column by column, then the objects on
+ * its tiles. A tile record is the kind of tile followed by the offset of its
+ * object in the object section, or -1 if it has none, so the record of any
+ * tile can be found from its position. A door out tile refers to an exit
+ * object holding where it leads, which refers to the object on the tile.
+ * Objects that hold nothing, such as trees and walls, are written once and
+ * shared by every tile of the location they are on. The players are written
+ * in a segment of their own.
+ *
+ * Every segment is given some room to grow, a changed location is written
+ * over its old segment if it still fits and at the end of the file if it
+ * does not. Nothing is ever moved, so a save only writes what has changed
+ * and the index. BoardFile can also convert between this format and the text
+ * format of BoardParser and BoardWriter.
+ *
+ */
+public class BoardFile implements Closeable {
+
+	private static final int MAGIC = 0x53434246;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int INDEX_ENTRY_SIZE = 16;
+	private static final int TILE_RECORD_SIZE = 5;
+	private static final int NO_OBJECT = -1;
+
+	/* Kinds of tile */
+	private static final byte GRASS = 0;
+	private static final byte STONE = 1;
+	private static final byte SAND = 2;
+	private static final byte WATER = 3;
+	private static final byte WOOD = 4;
+	private static final byte DOOR_OUT = 5;
+
+	/* Kinds of object */
+	private static final byte NONE = 0;
+	private static final byte TREE = 1;
+	private static final byte FENCE = 2;
+	private static final byte WALL = 3;
+	private static final byte BUILDING = 4;
+	private static final byte DOOR = 5;
+	private static final byte CHEST = 6;
+	private static final byte NPC_OBJECT = 7;
+	private static final byte PLAYER = 8;
+	private static final byte KEY = 9;
+	private static final byte FLOATING_DEVICE = 10;
+	private static final byte FISH = 11;
+	private static final byte FISHING_ROD = 12;
+	private static final byte BANANA = 13;
+	private static final byte TELEPORTER = 14;
+	private static final byte EXIT = 15;
+
+	private static final Direction[] NEIGHBOUR_ORDER = { Direction.NORTH, Direction.EAST, Direction.WEST, Direction.SOUTH };
+
+	private final FileChannel channel;
+	private final boolean writable;
+	private MappedByteBuffer map;
+	private long end;
+
+	private final Map<Integer, Segment> locations = new LinkedHashMap<Integer, Segment>();
+	private Segment players;
+	private Segment index;
+
+	private Board saved;
+	private final Map<Integer, Integer> savedVersions = new HashMap<Integer, Integer>();
+
+	/**
+	 * Where a segment is in the file, and for a location the number of its
+	 * entry in the index
+	 */
+	private static class Segment {
+		long offset;
+		int length;
+		int capacity;
+		int slot = -1;
+
+		Segment(long offset, int length, int capacity) {
+			this.offset = offset;
+			this.length = length;
+			this.capacity = capacity;
+		}
+	}
+
+	/**
+	 * Constructor for a board file over an open channel
+	 *
+	 * @param channel - channel of the file
+	 * @param writable - true if the channel was opened for writing
+	 */
+	private BoardFile(FileChannel channel, boolean writable) {
+		this.channel = channel;
+		this.writable = writable;
+	}
+
+	/**
+	 * Opens a board file to read from
+	 *
+	 * @param fname - name of the file
+	 * @return file - the open board file
+	 * @throws IOException - if the file cannot be read or is not a board file
+	 */
+	public static BoardFile open(String fname) throws IOException {
+		return open(fname, false);
+	}
+
+	/**
+	 * Opens a board file
+	 *
+	 * @param fname - name of the file
+	 * @param writable - true to open the file so boards can be saved to it
+	 * @return file - the open board file
+	 * @throws IOException - if the file cannot be read or is not a board file
+	 */
+	public static BoardFile open(String fname, boolean writable) throws IOException {
+		FileChannel channel = writable ? FileChannel.open(Paths.get(fname), StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(Paths.get(fname), StandardOpenOption.READ);
+		BoardFile file = new BoardFile(channel, writable);
+		try {
+			file.readIndex();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (RuntimeException e) {
+			channel.close();
+			throw new IOException(fname + " is not a valid board file", e);
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a board to a new board file, replacing the file if it exists.
+	 * The file is left open so the board can be saved to it again
+	 *
+	 * @param board - board to write
+	 * @param fname - name of the file
+	 * @return file - the open board file
+	 * @throws IOException - if the file cannot be written
+	 */
+	public static BoardFile create(Board board, String fname) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fname), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		BoardFile file = new BoardFile(channel, true);
+		try {
+			file.index = new Segment(HEADER_SIZE, 0, withRoom(board.getLocations().size() * INDEX_ENTRY_SIZE));
+			file.end = file.index.offset + file.index.capacity;
+			file.save(board);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return file;
+	}
+
+	/**
+	 * Check if a file is a board file rather than a text file
+	 *
+	 * @param fname - name of the file
+	 * @return boolean - true if the file starts like a board file
+	 */
+	public static boolean isBoardFile(String fname) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(fname, "r");
+			try {
+				return file.length() >= HEADER_SIZE && file.readInt() == MAGIC;
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Converts a map in the text format to a board file
+	 *
+	 * @param textFname - name of the text file to read
+	 * @param fname - name of the board file to write
+	 * @throws IOException - if either file cannot be used
+	 */
+	public static void fromText(String textFname, String fname) throws IOException {
+		Board board = BoardParser.parseBoardFName(textFname);
+		if (board == null) {
+			throw new IOException("Cannot read " + textFname);
+		}
+		create(board, fname).close();
+	}
+
+	/**
+	 * Converts a board file to a map in the text format
+	 *
+	 * @param fname - name of the board file to read
+	 * @param textFname - name of the text file to write
+	 * @throws IOException - if either file cannot be used
+	 */
+	public static void toText(String fname, String textFname) throws IOException {
+		BoardFile file = open(fname);
+		try {
+			BoardEncoder.writeFile(BoardSnapshot.of(file.readBoard()), textFname);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Converts a map between the text format and board files, whichever
+	 * the first file is it is converted to the other
+	 *
+	 * BoardFile from to
+	 *
+	 * @param args - name of the file to convert and of the file to write
+	 * @throws IOException - if either file cannot be used
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("BoardFile from to");
+			return;
+		}
+		if (isBoardFile(args[0])) {
+			toText(args[0], args[1]);
+		} else {
+			fromText(args[0], args[1]);
+		}
+	}
+
+	/**
+	 * Get the ids of the locations in the file
+	 *
+	 * @return ids - ids of the locations, in the order they were written
+	 */
+	public synchronized Set<Integer> getLocationIds() {
+		return Collections.unmodifiableSet(new LinkedHashSet<Integer>(locations.keySet()));
+	}
+
+	/**
+	 * Reads every player and location in the file into a new board
+	 *
+	 * @return board - the board
+	 */
+	public Board readBoard() {
+		Board board = new Board();
+		readPlayers(board);
+		for (Integer id : getLocationIds()) {
+			Location location = readLocation(id, board);
+			board.addLocation(location.getId(), location);
+		}
+		return board;
+	}
+
+	/**
+	 * Reads the players in the file and adds them to a board
+	 *
+	 * @param board - board to add the players to
+	 */
+	public void readPlayers(Board board) {
+		ByteBuffer buf = segment(players);
+		int count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			String name = readString(buf);
+			int bananas = buf.getInt();
+			int locationID = buf.getInt();
+			int x = buf.getInt();
+			int y = buf.getInt();
+			Player player = new Player(name, locationID, new Position(x, y), board);
+			player.setFacing(Direction.values()[buf.get()]);
+			player.setLoggedIn(buf.get() != 0);
+			player.setHasFloatingDevice(buf.get() != 0);
+			player.setNumOfBananas(bananas);
+			int items = buf.getInt();
+			for (int j = 0; j < items; j++) {
+				player.pickUpItem(readItem(buf));
+			}
+			board.addPlayer(name, player);
+		}
+	}
+
+	/**
+	 * Reads a single location without reading the rest of the file. The
+	 * location is not added to the board, players standing in it are found
+	 * on the board so they should be read first
+	 *
+	 * @param id - id of the location
+	 * @param board - board the location belongs to
+	 * @return location - the location, null if the file has no location with the id
+	 */
+	public Location readLocation(int id, Board board) {
+		Segment s;
+		synchronized (this) {
+			s = locations.get(id);
+		}
+		if (s == null) {
+			return null;
+		}
+		ByteBuffer buf = segment(s);
+		int locationID = buf.getInt();
+		int w = buf.getInt();
+		int h = buf.getInt();
+		String name = readString(buf);
+		Map<Direction, Integer> neighbours = new HashMap<Direction, Integer>();
+		int present = buf.get();
+		for (int i = 0; i < NEIGHBOUR_ORDER.length; i++) {
+			if ((present & 1 << i) != 0) {
+				neighbours.put(NEIGHBOUR_ORDER[i], buf.getInt());
+			}
+		}
+		int tilesStart = buf.position();
+		int objectsStart = tilesStart + w * h * TILE_RECORD_SIZE;
+
+		Tile[][] tiles = new Tile[w][h];
+		for (int i = 0; i < w; i++) {
+			for (int j = 0; j < h; j++) {
+				int record = tilesStart + (i * h + j) * TILE_RECORD_SIZE;
+				Tile tile = readTile(buf, buf.get(record), buf.getInt(record + 1), objectsStart, new Position(i, j), board);
+				tile.setLocationID(locationID);
+				tiles[i][j] = tile;
+			}
+		}
+		Location location = new Location(locationID, name, tiles, board);
+		location.setNeighbours(neighbours);
+		return location;
+	}
+
+	/**
+	 * Saves a board to the file. If the board was the last one read from or
+	 * saved to the file only the locations whose version has changed since
+	 * then are written, otherwise every location is. The players and the
+	 * index are always written
+	 *
+	 * @param board - board to save
+	 * @throws IOException - if the file cannot be written
+	 */
+	public synchronized void save(Board board) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("Board file was not opened for writing");
+		}
+		if (board != saved) {
+			savedVersions.clear();
+			saved = board;
+		}
+		for (Location loc : board.getLocations().values()) {
+			int version = loc.getVersion();
+			Integer last = savedVersions.get(loc.getId());
+			if (last == null || last != version || !locations.containsKey(loc.getId())) {
+				locations.put(loc.getId(), write(locations.get(loc.getId()), encodeLocation(loc)));
+				savedVersions.put(loc.getId(), version);
+			}
+		}
+		Iterator<Integer> ids = locations.keySet().iterator();
+		while (ids.hasNext()) {
+			if (!board.getLocations().containsKey(ids.next())) {
+				ids.remove();
+			}
+		}
+		players = write(players, encodePlayers(board));
+		writeIndex();
+		map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	}
+
+	/**
+	 * Writes a single location over its old segment, or at the end of the
+	 * file if it no longer fits there, and then its entry in the index.
+	 * Nothing else in the file is written
+	 *
+	 * @param loc - location to write
+	 * @throws IOException - if the file cannot be written
+	 */
+	public synchronized void writeLocation(Location loc) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("Board file was not opened for writing");
+		}
+		Segment old = locations.get(loc.getId());
+		Segment s = write(old, encodeLocation(loc));
+		if (old != null) {
+			s.slot = old.slot;
+		}
+		locations.put(loc.getId(), s);
+		writeEntry(loc.getId(), s);
+	}
+
+	/**
+	 * Writes the players of a board, nothing else in the file is written
+	 *
+	 * @param board - board whose players are written
+	 * @throws IOException - if the file cannot be written
+	 */
+	public synchronized void writePlayers(Board board) throws IOException {
+		if (!writable) {
+			throw new IllegalStateException("Board file was not opened for writing");
+		}
+		players = write(players, encodePlayers(board));
+		writeHeader();
+	}
+
+	/**
+	 * Closes the file
+	 *
+	 * @throws IOException - if the file cannot be closed
+	 */
+	public synchronized void close() throws IOException {
+		map = null;
+		channel.close();
+	}
+
+	/**
+	 * Maps the file and reads the header and the index
+	 *
+	 * @throws IOException - if the file cannot be read or is not a board file
+	 */
+	private void readIndex() throws IOException {
+		end = channel.size();
+		if (end < HEADER_SIZE) {
+			throw new IOException("Not a board file");
+		}
+		map = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+		if (map.getInt(0) != MAGIC) {
+			throw new IOException("Not a board file");
+		}
+		if (map.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Board file version " + map.getInt(4) + " cannot be read");
+		}
+		index = new Segment(map.getInt(8), map.getInt(12), map.getInt(16));
+		players = new Segment(map.getInt(20), map.getInt(24), map.getInt(28));
+		ByteBuffer buf = segment(index);
+		while (buf.hasRemaining()) {
+			int id = buf.getInt();
+			Segment s = new Segment(buf.getInt(), buf.getInt(), buf.getInt());
+			s.slot = locations.size();
+			locations.put(id, s);
+		}
+	}
+
+	/**
+	 * Writes the index and then the header that points to it
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void writeIndex() throws IOException {
+		ByteBuffer entries = ByteBuffer.allocate(locations.size() * INDEX_ENTRY_SIZE);
+		for (Map.Entry<Integer, Segment> e : locations.entrySet()) {
+			e.getValue().slot = entries.position() / INDEX_ENTRY_SIZE;
+			putEntry(entries, e.getKey(), e.getValue());
+		}
+		index = write(index, entries.array());
+		writeHeader();
+	}
+
+	/**
+	 * Writes the entry of a single location in the index, the whole index is
+	 * written if the location is new and the index has no room for it
+	 *
+	 * @param id - id of the location
+	 * @param s - segment of the location
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void writeEntry(int id, Segment s) throws IOException {
+		if (s.slot < 0) {
+			s.slot = index.length / INDEX_ENTRY_SIZE;
+			if (index.length + INDEX_ENTRY_SIZE > index.capacity) {
+				writeIndex();
+				return;
+			}
+			index.length += INDEX_ENTRY_SIZE;
+			writeHeader();
+		}
+		ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+		putEntry(entry, id, s);
+		entry.flip();
+		writeFully(entry, index.offset + (long) s.slot * INDEX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Puts the index entry of a location in a buffer
+	 *
+	 * @param buf - buffer to put the entry in
+	 * @param id - id of the location
+	 * @param s - segment of the location
+	 */
+	private static void putEntry(ByteBuffer buf, int id, Segment s) {
+		buf.putInt(id);
+		buf.putInt((int) s.offset);
+		buf.putInt(s.length);
+		buf.putInt(s.capacity);
+	}
+
+	/**
+	 * Writes the header, which says where the index and the players are
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION);
+		header.putInt((int) index.offset).putInt(index.length).putInt(index.capacity);
+		header.putInt((int) players.offset).putInt(players.length).putInt(players.capacity);
+		header.flip();
+		writeFully(header, 0);
+	}
+
+	/**
+	 * Writes a segment over an old one if it fits, otherwise at the end of
+	 * the file with some room to grow
+	 *
+	 * @param old - where the segment was written before, or null
+	 * @param bytes - the new segment
+	 * @return segment - where the segment has been written
+	 * @throws IOException - if the file cannot be written
+	 */
+	private Segment write(Segment old, byte[] bytes) throws IOException {
+		Segment s = old;
+		if (s == null || bytes.length > s.capacity) {
+			if (end + bytes.length > Integer.MAX_VALUE) {
+				throw new IOException("Board file is too large");
+			}
+			s = new Segment(end, bytes.length, withRoom(bytes.length));
+			end += s.capacity;
+		}
+		s.length = bytes.length;
+		ByteBuffer buf = ByteBuffer.allocate(s.capacity);
+		buf.put(bytes);
+		buf.rewind();
+		writeFully(buf, s.offset);
+		return s;
+	}
+
+	/**
+	 * Writes the whole of a buffer to the file
+	 *
+	 * @param buf - buffer to write
+	 * @param offset - where in the file to write it
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void writeFully(ByteBuffer buf, long offset) throws IOException {
+		while (buf.hasRemaining()) {
+			offset += channel.write(buf, offset);
+		}
+	}
+
+	/**
+	 * Gets the room given to a segment, a quarter more than it needs
+	 *
+	 * @param length - length of the segment
+	 * @return capacity - number of bytes kept for the segment
+	 */
+	private static int withRoom(int length) {
+		return length + length / 4 + INDEX_ENTRY_SIZE;
+	}
+
+	/**
+	 * Gets a buffer over a segment of the mapped file. Each call gets a buffer
+	 * of its own, so segments can be read by many threads at once. The file
+	 * is mapped again if the segment was written past the end of the mapping
+	 *
+	 * @param s - the segment
+	 * @return buffer - buffer whose position 0 is the start of the segment
+	 */
+	private synchronized ByteBuffer segment(Segment s) {
+		if (map == null) {
+			throw new IllegalStateException("Board file is closed");
+		}
+		if (s.offset + s.length > map.capacity()) {
+			try {
+				map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} catch (IOException e) {
+				throw new IllegalStateException("Board file cannot be mapped", e);
+			}
+		}
+		ByteBuffer buf = map.duplicate();
+		buf.position((int) s.offset);
+		buf.limit((int) s.offset + s.length);
+		return buf.slice();
+	}
+
+	/**
+	 * Encodes a location as a segment
+	 *
+	 * @param loc - location to encode
+	 * @return bytes - the segment
+	 */
+	private static byte[] encodeLocation(Location loc) {
+		int w = loc.getWidth();
+		int h = w == 0 ? 0 : loc.getHeight();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + w * h * (TILE_RECORD_SIZE + 2));
+		DataOutputStream out = new DataOutputStream(bytes);
+		ObjectWriter objects = new ObjectWriter();
+		try {
+			out.writeInt(loc.getId());
+			out.writeInt(w);
+			out.writeInt(h);
+			writeString(out, loc.getName() == null ? "?" : loc.getName());
+			int present = 0;
+			for (int i = 0; i < NEIGHBOUR_ORDER.length; i++) {
+				if (loc.getNeighbours().get(NEIGHBOUR_ORDER[i]) != null) {
+					present |= 1 << i;
+				}
+			}
+			out.writeByte(present);
+			for (int i = 0; i < NEIGHBOUR_ORDER.length; i++) {
+				if ((present & 1 << i) != 0) {
+					out.writeInt(loc.getNeighbours().get(NEIGHBOUR_ORDER[i]));
+				}
+			}
+			for (int i = 0; i < w; i++) {
+				for (int j = 0; j < h; j++) {
+					Tile t = loc.getTile(i, j);
+					int object = objects.write(t.getGameObject());
+					if (t instanceof DoorOutTile) {
+						out.writeByte(DOOR_OUT);
+						out.writeInt(objects.writeExit((DoorOutTile) t, object));
+					} else {
+						out.writeByte(kindOf(t));
+						out.writeInt(object);
+					}
+				}
+			}
+			objects.bytes.writeTo(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encodes the players of a board as a segment
+	 *
+	 * @param board - board whose players are encoded
+	 * @return bytes - the segment
+	 */
+	private static byte[] encodePlayers(Board board) {
+		List<Player> list = new ArrayList<Player>(board.getPlayers().values());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(list.size());
+			for (Player p : list) {
+				writeString(out, p.getUserName());
+				out.writeInt(p.getNumOfBananas());
+				out.writeInt(p.getLocationID());
+				out.writeInt(p.getPosition().getX());
+				out.writeInt(p.getPosition().getY());
+				out.writeByte(p.getFacing().ordinal());
+				out.writeBoolean(p.isLoggedIn());
+				out.writeBoolean(p.getHasFloatingDevice());
+				out.writeInt(p.getInventory().size());
+				for (Item i : p.getInventory()) {
+					writeObject(out, i);
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the objects of a location, objects that hold nothing are only
+	 * written once
+	 */
+	private static class ObjectWriter {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		final Map<Byte, Integer> plain = new HashMap<Byte, Integer>();
+
+		/**
+		 * Writes an object
+		 *
+		 * @param o - object to write, or null
+		 * @return offset - offset of the object in the object section, NO_OBJECT if it is null
+		 * @throws IOException - never, the bytes are kept in memory
+		 */
+		int write(GameObject o) throws IOException {
+			if (o == null) {
+				return NO_OBJECT;
+			}
+			byte kind = kindOf(o);
+			boolean holdsNothing = kind == TREE || kind == FENCE || kind == WALL || kind == BUILDING;
+			if (holdsNothing && plain.containsKey(kind)) {
+				return plain.get(kind);
+			}
+			int offset = out.size();
+			writeObject(out, o);
+			if (holdsNothing) {
+				plain.put(kind, offset);
+			}
+			return offset;
+		}
+
+		/**
+		 * Writes where a door out tile leads
+		 *
+		 * @param t - door out tile
+		 * @param object - offset of the object on the tile, or NO_OBJECT
+		 * @return offset - offset of the exit in the object section
+		 * @throws IOException - never, the bytes are kept in memory
+		 */
+		int writeExit(DoorOutTile t, int object) throws IOException {
+			int offset = out.size();
+			out.writeByte(EXIT);
+			out.writeInt(t.getOutLocationID());
+			out.writeInt(t.getDoorPos().getX());
+			out.writeInt(t.getDoorPos().getY());
+			out.writeInt(object);
+			return offset;
+		}
+	}
+
+	/**
+	 * Writes an object or item, its kind followed by what it holds
+	 *
+	 * @param out - stream to write to
+	 * @param o - object to write, or null
+	 * @throws IOException - if the stream cannot be written to
+	 */
+	private static void writeObject(DataOutputStream out, GameObject o) throws IOException {
+		if (o == null) {
+			out.writeByte(NONE);
+			return;
+		}
+		byte kind = kindOf(o);
+		out.writeByte(kind);
+		switch (kind) {
+		case DOOR:
+			Door door = (Door) o;
+			out.writeInt(door.getCode());
+			out.writeInt(door.getLocationID());
+			out.writeInt(door.getDoorPosition().getX());
+			out.writeInt(door.getDoorPosition().getY());
+			break;
+		case CHEST:
+			Chest chest = (Chest) o;
+			out.writeInt(chest.getCode());
+			writeObject(out, chest.getContents());
+			break;
+		case NPC_OBJECT:
+			NPC npc = (NPC) o;
+			writeString(out, npc.getStrategyType());
+			out.writeByte(npc.getFacing().ordinal());
+			break;
+		case PLAYER:
+			writeString(out, ((Player) o).getUserName());
+			break;
+		case KEY:
+			Key key = (Key) o;
+			writeString(out, key.getName());
+			out.writeInt(key.getCode());
+			break;
+		}
+	}
+
+	/**
+	 * Gets the kind of a tile
+	 *
+	 * @param t - tile that is not a door out tile
+	 * @return kind - kind of tile
+	 */
+	private static byte kindOf(Tile t) {
+		if (t instanceof GrassTile) {
+			return GRASS;
+		} else if (t instanceof StoneTile) {
+			return STONE;
+		} else if (t instanceof SandTile) {
+			return SAND;
+		} else if (t instanceof WaterTile) {
+			return WATER;
+		} else if (t instanceof WoodTile) {
+			return WOOD;
+		}
+		throw new IllegalArgumentException("Cannot write tile " + t);
+	}
+
+	/**
+	 * Gets the kind of an object or item
+	 *
+	 * @param o - object
+	 * @return kind - kind of object
+	 */
+	private static byte kindOf(GameObject o) {
+		if (o instanceof Tree) {
+			return TREE;
+		} else if (o instanceof Fence) {
+			return FENCE;
+		} else if (o instanceof Wall) {
+			return WALL;
+		} else if (o instanceof Building) {
+			return BUILDING;
+		} else if (o instanceof Door) {
+			return DOOR;
+		} else if (o instanceof Chest) {
+			return CHEST;
+		} else if (o instanceof NPC) {
+			return NPC_OBJECT;
+		} else if (o instanceof Player) {
+			return PLAYER;
+		} else if (o instanceof Key) {
+			return KEY;
+		} else if (o instanceof FloatingDevice) {
+			return FLOATING_DEVICE;
+		} else if (o instanceof FishingRod) {
+			return FISHING_ROD;
+		} else if (o instanceof Fish) {
+			return FISH;
+		} else if (o instanceof Banana) {
+			return BANANA;
+		} else if (o instanceof Teleporter) {
+			return TELEPORTER;
+		}
+		throw new IllegalArgumentException("Cannot write object " + o);
+	}
+
+	/**
+	 * Reads a tile from its record
+	 *
+	 * @param buf - buffer over the location segment
+	 * @param kind - kind of tile
+	 * @param object - offset of the object or exit of the tile
+	 * @param objectsStart - where the object section starts in the segment
+	 * @param pos - position of the tile
+	 * @param board - board
+	 * @return tile - the tile
+	 */
+	private static Tile readTile(ByteBuffer buf, byte kind, int object, int objectsStart, Position pos, Board board) {
+		switch (kind) {
+		case GRASS:
+			return new GrassTile(pos, readObject(buf, object, objectsStart, board));
+		case STONE:
+			return new StoneTile(pos, readObject(buf, object, objectsStart, board));
+		case SAND:
+			return new SandTile(pos, readObject(buf, object, objectsStart, board));
+		case WATER:
+			return new WaterTile(pos, readObject(buf, object, objectsStart, board));
+		case WOOD:
+			return new WoodTile(pos, readObject(buf, object, objectsStart, board));
+		case DOOR_OUT:
+			buf.position(objectsStart + object);
+			if (buf.get() != EXIT) {
+				throw new IllegalStateException("Door out tile does not lead anywhere");
+			}
+			int locationID = buf.getInt();
+			int x = buf.getInt();
+			int y = buf.getInt();
+			GameObject o = readObject(buf, buf.getInt(), objectsStart, board);
+			return new DoorOutTile(pos, o, locationID, new Position(x, y));
+		}
+		throw new IllegalStateException("Not a valid tile type " + kind);
+	}
+
+	/**
+	 * Reads the object at an offset in the object section
+	 *
+	 * @param buf - buffer over the location segment
+	 * @param object - offset of the object, or NO_OBJECT
+	 * @param objectsStart - where the object section starts in the segment
+	 * @param board - board
+	 * @return object - the object, null if there is none
+	 */
+	private static GameObject readObject(ByteBuffer buf, int object, int objectsStart, Board board) {
+		if (object == NO_OBJECT) {
+			return null;
+		}
+		buf.position(objectsStart + object);
+		return readObject(buf, board);
+	}
+
+	/**
+	 * Reads an object or item from the position of a buffer
+	 *
+	 * @param buf - buffer to read
+	 * @param board - board
+	 * @return object - the object, null if NONE was written
+	 */
+	private static GameObject readObject(ByteBuffer buf, Board board) {
+		byte kind = buf.get();
+		switch (kind) {
+		case NONE:
+			return null;
+		case TREE:
+			return Tree.TREE;
+		case FENCE:
+			return Fence.FENCE;
+		case WALL:
+			return Wall.WALL;
+		case BUILDING:
+			return Building.BUILDING;
+		case DOOR:
+			Door door = new Door(buf.getInt(), buf.getInt());
+			int x = buf.getInt();
+			door.setDoorPosition(new Position(x, buf.getInt()));
+			return door;
+		case CHEST:
+			Chest chest = new Chest();
+			chest.setCode(buf.getInt());
+			chest.setContents((Item) readObject(buf, board));
+			return chest;
+		case NPC_OBJECT:
+			String type = readString(buf);
+			return new NPC(type, Direction.values()[buf.get()]);
+		case PLAYER:
+			return board.getPlayer(readString(buf));
+		case KEY:
+			String name = readString(buf);
+			return new Key(name, buf.getInt());
+		case FLOATING_DEVICE:
+			return FloatingDevice.FLOATING_DEVICE;
+		case FISH:
+			return Fish.FISH;
+		case FISHING_ROD:
+			return FishingRod.FISHING_ROD;
+		case BANANA:
+			return Banana.BANANA;
+		case TELEPORTER:
+			return Teleporter.TELEPORTER;
+		}
+		throw new IllegalStateException("Not a valid object type " + kind);
+	}
+
+	/**
+	 * Reads an item from the position of a buffer
+	 *
+	 * @param buf - buffer to read
+	 * @return item - the item
+	 */
+	private static Item readItem(ByteBuffer buf) {
+		GameObject o = readObject(buf, null);
+		if (!(o instanceof Item)) {
+			throw new IllegalStateException("Not an Item");
+		}
+		return (Item) o;
+	}
+
+	/**
+	 * Writes a String as its length in UTF-8 followed by its UTF-8 bytes
+	 *
+	 * @param out - stream to write to
+	 * @param s - String to write
+	 * @throws IOException - if the stream cannot be written to
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a String written by writeString from the position of a buffer
+	 *
+	 * @param buf - buffer to read
+	 * @return string - the String
+	 */
+	private static String readString(ByteBuffer buf) {
+		byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,319 @@
+package iohandling;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * BoardLexer splits a board String into the same tokens as the Scanner used
+ * by BoardParser, without any regular expressions. Tokens are separated by
+ * whitespace and each of { } ( ) , ; is a token of its own. The text is read
+ * once from a char array, tokens are compared to words in place and numbers
+ * are read straight from the characters, so only names are turned into
+ * Strings.
+ *
+ * A block such as a location can be split off into a lexer of its own
+ * without reading its tokens, so blocks can be parsed on other threads.
+ *
+ */
+public class BoardLexer {
+
+	private final char[] text;
+	private final int end;
+	private int pos;
+
+	/**
+	 * Constructor for a lexer over part of a char array
+	 *
+	 * @param text - characters to read
+	 * @param offset - index of the first character
+	 * @param length - number of characters
+	 */
+	public BoardLexer(char[] text, int offset, int length) {
+		this.text = text;
+		this.pos = offset;
+		this.end = offset + length;
+	}
+
+	/**
+	 * Constructor for a lexer over a String
+	 *
+	 * @param s - String to read
+	 */
+	public BoardLexer(String s) {
+		this(s.toCharArray(), 0, s.length());
+	}
+
+	/**
+	 * Makes a lexer over a text file
+	 *
+	 * @param fname - name of the file
+	 * @return lexer - lexer over the contents of the file
+	 * @throws IOException - if the file cannot be read
+	 */
+	public static BoardLexer fromFile(String fname) throws IOException {
+		return new BoardLexer(new String(Files.readAllBytes(Paths.get(fname)), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Check if there is another token
+	 *
+	 * @return boolean - true if there is another token
+	 */
+	public boolean hasNext() {
+		skipSpace();
+		return pos < end;
+	}
+
+	/**
+	 * Get the first character of the next token without consuming it, used to
+	 * choose what to parse next
+	 *
+	 * @return char - first character, 0 if there are no more tokens
+	 */
+	public char peek() {
+		skipSpace();
+		return pos < end ? text[pos] : 0;
+	}
+
+	/**
+	 * Check for next token to be equal to a word. If so, consume it and return
+	 * true.
+	 *
+	 * @param word - word to look for
+	 * @return boolean - true if the next token was the word
+	 */
+	public boolean checkFor(String word) {
+		skipSpace();
+		int tokenEnd = tokenEnd();
+		if (tokenEnd - pos != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (text[pos + i] != word.charAt(i)) {
+				return false;
+			}
+		}
+		pos = tokenEnd;
+		return true;
+	}
+
+	/**
+	 * Check for next token to be a word followed by a block in braces. If so,
+	 * consume both and return a lexer over the block, from its opening brace
+	 * to its closing brace. Only the braces are looked at to find the end of
+	 * the block, its other tokens are left for the returned lexer
+	 *
+	 * @param word - word that comes before the block
+	 * @return lexer - lexer over the block, null if the next token was not the
+	 *         word
+	 */
+	public BoardLexer nextBlock(String word) {
+		if (!checkFor(word)) {
+			return null;
+		}
+		skipSpace();
+		int start = pos;
+		int depth = 0;
+		for (int i = pos; i < end; i++) {
+			if (text[i] == '{') {
+				depth++;
+			} else if (text[i] == '}' && --depth <= 0) {
+				pos = i + 1;
+				return new BoardLexer(text, start, pos - start);
+			}
+		}
+		fail(word + " block is not closed");
+		return null;
+	}
+
+	/**
+	 * Check for next token to be a punctuation character. If so, consume it
+	 * and return true.
+	 *
+	 * @param c - one of { } ( ) , ;
+	 * @return boolean - true if the next token was the character
+	 */
+	public boolean checkFor(char c) {
+		skipSpace();
+		if (pos < end && text[pos] == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Requires next token to be equal to a word, otherwise fails parsing
+	 *
+	 * @param word - word that must come next
+	 */
+	public void require(String word) {
+		if (!checkFor(word)) {
+			fail(next() + "Did not match " + word);
+		}
+	}
+
+	/**
+	 * Requires next token to be a punctuation character, otherwise fails
+	 * parsing
+	 *
+	 * @param c - one of { } ( ) , ;
+	 */
+	public void require(char c) {
+		if (!checkFor(c)) {
+			fail(next() + "Did not match " + c);
+		}
+	}
+
+	/**
+	 * Consumes the next token
+	 *
+	 * @return token - the token, an empty String if there are no more tokens
+	 */
+	public String next() {
+		skipSpace();
+		int start = pos;
+		pos = tokenEnd();
+		return new String(text, start, pos - start);
+	}
+
+	/**
+	 * Consumes the next token as a whole number
+	 *
+	 * @return int - the number
+	 */
+	public int nextInt() {
+		skipSpace();
+		int tokenEnd = tokenEnd();
+		int i = pos;
+		boolean negative = i < tokenEnd && (text[i] == '-' || text[i] == '+');
+		if (negative) {
+			negative = text[i] == '-';
+			i++;
+		}
+		if (i == tokenEnd) {
+			fail("Not a number");
+		}
+		long value = 0;
+		for (; i < tokenEnd; i++) {
+			char c = text[i];
+			if (c < '0' || c > '9') {
+				fail("Not a number");
+			}
+			value = value * 10 + (c - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				fail("Number too large");
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			fail("Number too large");
+		}
+		pos = tokenEnd;
+		return (int) value;
+	}
+
+	/**
+	 * Consumes the next token as true or false, in any case
+	 *
+	 * @return boolean - the value
+	 */
+	public boolean nextBoolean() {
+		skipSpace();
+		int tokenEnd = tokenEnd();
+		if (matchesIgnoreCase("true", tokenEnd)) {
+			pos = tokenEnd;
+			return true;
+		}
+		if (matchesIgnoreCase("false", tokenEnd)) {
+			pos = tokenEnd;
+			return false;
+		}
+		fail("Not a boolean");
+		return false;
+	}
+
+	/**
+	 * Throw an error in the same form as BoardParser, followed by the next few
+	 * tokens
+	 *
+	 * @param message - what went wrong
+	 */
+	public void fail(String message) {
+		StringBuilder msg = new StringBuilder(message).append("\n   @ ...");
+		for (int i = 0; i < 5 && hasNext(); i++) {
+			msg.append(" ").append(next());
+		}
+		throw new ParserFailureException(msg.toString());
+	}
+
+	/**
+	 * Checks if the token from the current position is a word, ignoring case
+	 *
+	 * @param word - word to compare to
+	 * @param tokenEnd - index after the last character of the token
+	 * @return boolean - true if the token is the word
+	 */
+	private boolean matchesIgnoreCase(String word, int tokenEnd) {
+		if (tokenEnd - pos != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (Character.toLowerCase(text[pos + i]) != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves past any whitespace
+	 */
+	private void skipSpace() {
+		while (pos < end && isSpace(text[pos])) {
+			pos++;
+		}
+	}
+
+	/**
+	 * Finds the end of the token at the current position, which must not be
+	 * whitespace
+	 *
+	 * @return index - index after the last character of the token
+	 */
+	private int tokenEnd() {
+		if (pos >= end) {
+			return pos;
+		}
+		if (isPunctuation(text[pos])) {
+			return pos + 1;
+		}
+		int i = pos;
+		while (i < end && !isSpace(text[i]) && !isPunctuation(text[i])) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Checks for the whitespace characters matched by \s
+	 *
+	 * @param c - character to check
+	 * @return boolean - true if whitespace
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+	}
+
+	/**
+	 * Checks for the characters that are always tokens of their own
+	 *
+	 * @param c - character to check
+	 * @return boolean - true if punctuation
+	 */
+	private static boolean isPunctuation(char c) {
+		return c == '{' || c == '}' || c == '(' || c == ')' || c == ',' || c == ';';
+	}
+}
@@ -1,10 +1,13 @@
 package iohandling;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import core.Board;
 import core.GameSystem.Direction;
@@ -38,12 +41,25 @@ import util.Position;
  * BoardParser parses a String or text file containing a board String and
  * returns a Board object.
  *
+ * Strings, files and deltas are parsed with a BoardLexer, which reads the text
+ * in a single pass and chooses what to parse from the first character of each
+ * token.
+ *
+ * Each location in a board is a block of its own, the only thing it refers
+ * to outside itself is the players standing in it, and the players all come
+ * before the first location. A board read with a lexer is first split into
+ * its location blocks, and a board with many locations has them parsed at
+ * once on the common fork/join pool, then added to the board in the order
+ * they were written.
+ *
  * @author Jonathan
  *
  */
 
 public class BoardParser {
 
+	static final int LOCATIONS_PER_TASK = 16;
+
 	/**
 	 * Parses a board object from a text file
 	 * @param fname of text file
@@ -51,8 +67,7 @@ public class BoardParser {
 	 */
 	public static Board parseBoardFName(String fname) {
 		try {
-			Scanner s = new Scanner(new File(fname));
-			return parseBoard(s);
+			return parseBoard(BoardLexer.fromFile(fname));
 		} catch (IOException e) {
 			return null;
 		}
@@ -64,51 +79,127 @@ public class BoardParser {
 	 * @return board
 	 */
 	public static Board parseBoardString(String boardString) {
-		return parseBoard(new Scanner(boardString));
+		return parseBoard(new BoardLexer(boardString));
 	}
 
 	/**
-	 * Parse board object from Scanner
-	 * @param s - scanner
+	 * Parses a delta String written by BoardDeltaWriter and applies it to an
+	 * existing board in place. Players that already exist are updated rather
+	 * than replaced so that tiles keep referring to the same objects, players
+	 * that have moved to a location the board does not hold are removed.
+	 *
+	 * @param deltaString - String of the delta
+	 * @param board - board the delta is applied to
+	 */
+	public static void parseDeltaString(String deltaString, Board board) {
+		BoardLexer s = new BoardLexer(deltaString);
+		// Parse changed players
+		while (s.checkFor("Player")) {
+			Player player = parsePlayer(s, board);
+			Player existing = board.getPlayer(player.getUserName());
+			if (existing == null) {
+				board.addPlayer(player.getUserName(), player);
+			} else {
+				existing.updateFrom(player);
+			}
+		}
+
+		// Parse changed tiles
+		while (s.checkFor("Tile")) {
+			s.require('{');
+			int id = s.nextInt();
+			s.require(',');
+			int x = s.nextInt();
+			s.require(',');
+			int y = s.nextInt();
+			s.require(',');
+			Tile tile = parseTile(s, x, y, board);
+			tile.setLocationID(id);
+			s.require('}');
+			Location location = board.getLocationById(id);
+			if (location != null) {
+				location.getTiles()[x][y] = tile;
+			}
+		}
+
+		// Remove players that can no longer be seen
+		Iterator<Player> players = board.getPlayers().values().iterator();
+		while (players.hasNext()) {
+			if (players.next().getLocation() == null) {
+				players.remove();
+			}
+		}
+	}
+
+	/**
+	 * Parse board object from a BoardLexer, the players are parsed first so
+	 * that every location can find the players standing in it
+	 * @param s - lexer
 	 * @return board - board
 	 */
-	public static Board parseBoard(Scanner s) {
-		s.useDelimiter("\\s+|(?=[{}(),;])|(?<=[{}(),;])");
+	public static Board parseBoard(BoardLexer s) {
 		Board board = new Board();
 		// Parse Players
-		while (checkFor("Player", s)) {
+		while (s.checkFor("Player")) {
 			Player player = parsePlayer(s, board);
 			board.addPlayer(player.getUserName(), player);
 		}
 
+		// Split the locations into blocks
+		List<BoardLexer> blocks = new ArrayList<BoardLexer>();
+		BoardLexer block;
+		while ((block = s.nextBlock("Location")) != null) {
+			blocks.add(block);
+		}
+
 		// Parse locations
-		while (checkFor("Location", s)) {
-			Location location = parseLocation(s, board);
+		Location[] locations = new Location[blocks.size()];
+		if (blocks.size() > LOCATIONS_PER_TASK) {
+			ForkJoinPool.commonPool().invoke(new ParseLocations(blocks, locations, 0, blocks.size(), board));
+		} else {
+			new ParseLocations(blocks, locations, 0, blocks.size(), board).compute();
+		}
+		for (Location location : locations) {
 			board.addLocation(location.getId(), location);
 		}
 		return board;
 	}
 
 	/**
-	 * Parse player object from Scanner
-	 * @param s - scanner
+	 * Parse a location from a block of its own, failing if anything follows
+	 * the location in the block
+	 * @param block - lexer over the block
+	 * @param board - board
+	 * @return location - location
+	 */
+	static Location parseLocationBlock(BoardLexer block, Board board) {
+		Location location = parseLocation(block, board);
+		if (block.hasNext()) {
+			block.fail("Location has not ended");
+		}
+		return location;
+	}
+
+	/**
+	 * Parse player object from a BoardLexer
+	 * @param s - lexer
 	 * @param board - board
 	 * @return player - player
 	 */
-	public static Player parsePlayer(Scanner s, Board board) {
-		require("\\{", s);
+	public static Player parsePlayer(BoardLexer s, Board board) {
+		s.require('{');
 		String username = s.next().trim();
-		require(",", s);
+		s.require(',');
 		int bananas = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int locationID = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int posX = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int posY = s.nextInt();
-		require(",", s);
+		s.require(',');
 		Direction facing = parseDirection(s);
-		require(",", s);
+		s.require(',');
 		boolean loggedIn = s.nextBoolean();
 
 		Player player = new Player(username, locationID, new Position(posX, posY), board);
@@ -116,75 +207,75 @@ public class BoardParser {
 		player.setLoggedIn(loggedIn);
 		player.setNumOfBananas(bananas);
 
-		require(",", s);
+		s.require(',');
 		boolean floatingDevice = s.nextBoolean();
 		player.setHasFloatingDevice(floatingDevice);
-		require(",", s);
-		require("Inventory", s);
-		require("\\(", s);
-		while (!checkFor("\\)", s)) {
+		s.require(',');
+		s.require("Inventory");
+		s.require('(');
+		while (!s.checkFor(')')) {
 			player.pickUpItem(parseItem(s));
-			require(",", s);
+			s.require(',');
 		}
-		require("\\}", s);
+		s.require('}');
 
 		return player;
 	}
 
 	/**
-	 * Parse Direction from Scanner
-	 * @param s - scanner
+	 * Parse Direction from a BoardLexer
+	 * @param s - lexer
 	 * @return Direction - direction
 	 */
-	public static Direction parseDirection(Scanner s) {
-		if (checkFor("NORTH", s)) {
+	public static Direction parseDirection(BoardLexer s) {
+		if (s.checkFor("NORTH")) {
 			return Direction.NORTH;
-		} else if (checkFor("WEST", s)) {
+		} else if (s.checkFor("WEST")) {
 			return Direction.WEST;
-		} else if (checkFor("SOUTH", s)) {
+		} else if (s.checkFor("SOUTH")) {
 			return Direction.SOUTH;
-		} else if (checkFor("EAST", s)) {
+		} else if (s.checkFor("EAST")) {
 			return Direction.EAST;
 		} else {
-			fail("Not a valid direction", s);
+			s.fail("Not a valid direction");
 		}
 		return null;
 	}
 
 	/**
-	 * Parse Location from Scanner
-	 * @param s - scanner
+	 * Parse Location from a BoardLexer
+	 * @param s - lexer
 	 * @param board - board
 	 * @return location - location
 	 */
-	public static Location parseLocation(Scanner s, Board board) {
-		require("\\{", s);
+	public static Location parseLocation(BoardLexer s, Board board) {
+		s.require('{');
 		// Parse ID
-		require("id:", s);
+		s.require("id:");
 		int id = s.nextInt();
 
 		// Parse Name
-		require("name:", s);
+		s.require("name:");
 		String name = s.next();
 
 		// Parse Width and Height
-		require("w:", s);
+		s.require("w:");
 		int w = s.nextInt();
-		require("h:", s);
+		s.require("h:");
 		int h = s.nextInt();
 
 		// Parse Neighbours
 		Map<Direction, Integer> neighbours = new HashMap<Direction, Integer>();
-		if (checkFor("NORTH:", s)) {
+		if (s.checkFor("NORTH:")) {
 			neighbours.put(Direction.NORTH, s.nextInt());
 		}
-		if (checkFor("EAST:", s)) {
+		if (s.checkFor("EAST:")) {
 			neighbours.put(Direction.EAST, s.nextInt());
 		}
-		if (checkFor("WEST:", s)) {
+		if (s.checkFor("WEST:")) {
 			neighbours.put(Direction.WEST, s.nextInt());
 		}
-		if (checkFor("SOUTH:", s)) {
+		if (s.checkFor("SOUTH:")) {
 			neighbours.put(Direction.SOUTH, s.nextInt());
 		}
 
@@ -197,263 +288,309 @@ public class BoardParser {
 				tiles[i][j] = tile;
 			}
 		}
-		require("\\}", s);
+		s.require('}');
 		Location location = new Location(id, name, tiles, board);
 		location.setNeighbours(neighbours);
 		return location;
 	}
 
 	/**
-	 * Parse tile from Scanner
-	 * @param s - scanner
+	 * Parse tile from a BoardLexer, the tile type is chosen by its first
+	 * character
+	 * @param s - lexer
 	 * @param i - x component of position
 	 * @param j - y component of position
 	 * @param board - board
 	 * @return tile - tile
 	 */
-	public static Tile parseTile(Scanner s, int i, int j, Board board) {
-		require("\\(", s);
+	public static Tile parseTile(BoardLexer s, int i, int j, Board board) {
+		s.require('(');
 		Tile tile = null;
 
 		// Parse tile type
-		if (checkFor("Grass", s)) {
-			tile = new GrassTile(new Position(i, j), null);
-		} else if (checkFor("Grass", s)) {
-			tile = new GrassTile(new Position(i, j), null);
-		} else if (checkFor("Sand", s)) {
-			tile = new SandTile(new Position(i, j), null);
-		} else if (checkFor("Stone", s)) {
-			tile = new StoneTile(new Position(i, j), null);
-		} else if (checkFor("Wood", s)) {
-			tile = new WoodTile(new Position(i, j), null);
-		} else if (checkFor("Water", s)) {
-			tile = new WaterTile(new Position(i, j), null);
-		} else if (checkFor("DoorOut", s)) {
-			tile = parseDoorOut(s, i, j);
-		} else {
-			fail("Not a valid tile type", s);
+		switch (s.peek()) {
+		case 'G':
+			if (s.checkFor("Grass")) {
+				tile = new GrassTile(new Position(i, j), null);
+			}
+			break;
+		case 'S':
+			if (s.checkFor("Stone")) {
+				tile = new StoneTile(new Position(i, j), null);
+			} else if (s.checkFor("Sand")) {
+				tile = new SandTile(new Position(i, j), null);
+			}
+			break;
+		case 'W':
+			if (s.checkFor("Water")) {
+				tile = new WaterTile(new Position(i, j), null);
+			} else if (s.checkFor("Wood")) {
+				tile = new WoodTile(new Position(i, j), null);
+			}
+			break;
+		case 'D':
+			if (s.checkFor("DoorOut")) {
+				tile = parseDoorOut(s, i, j);
+			}
+			break;
+		}
+		if (tile == null) {
+			s.fail("Not a valid tile type");
 		}
 
 		// Parse game object
-		if (checkFor("\\(", s)) {
+		if (s.checkFor('(')) {
 			tile.setGameObject(parseGameObject(s, board));
-			require("\\)", s);
+			s.require(')');
 		}
 
-		require("\\)", s);
+		s.require(')');
 		return tile;
 	}
 
 	/**
-	 * Parse DoorOutTile from Scanner
-	 * @param s - scanner
+	 * Parse DoorOutTile from a BoardLexer
+	 * @param s - lexer
 	 * @param i - x coordinate of position
 	 * @param j - y coordinate of position
 	 * @return DoorOutTile - tile
 	 */
-	public static DoorOutTile parseDoorOut(Scanner s, int i, int j) {
-		require("\\(", s);
+	public static DoorOutTile parseDoorOut(BoardLexer s, int i, int j) {
+		s.require('(');
 		int locationID = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int x = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int y = s.nextInt();
-		require("\\)", s);
-		DoorOutTile doorOut = new DoorOutTile(new Position(i, j), null, locationID, new Position(x, y));
-		return doorOut;
+		s.require(')');
+		return new DoorOutTile(new Position(i, j), null, locationID, new Position(x, y));
 	}
 
 	/**
-	 * Parse Game Object from Scanner
-	 * @param s - scanner
+	 * Parse Game Object from a BoardLexer, the kind of object is chosen by its
+	 * first character
+	 * @param s - lexer
 	 * @param board - board
 	 * @return game object - gameObject
 	 */
-	public static GameObject parseGameObject(Scanner s, Board board) {
-		if (checkFor("Tree", s)) {
-			return new Tree();
-		} else if (checkFor("Fence", s)) {
-			return new Fence();
-		} else if (checkFor("Wall", s)) {
-			return new Wall();
-		} else if (checkFor("Player", s)) {
-			return parsePlayerOnBoard(s, board);
-		} else if (checkFor("Building", s)) {
-			return new Building();
-		} else if (checkFor("Door", s)) {
-			return parseDoor(s, board);
-		} else if (checkFor("Chest", s)) {
-			return parseChest(s, board);
-		} else if (checkFor("Key", s)) {
-			return parseKey(s);
-		} else if (checkFor("FloatingDevice", s)) {
-			return new FloatingDevice("Floating Device");
-		} else if (checkFor("Banana", s)) {
-			return new Banana("Banana");
-		} else if (checkFor("Teleporter", s)) {
-			return new Teleporter("Teleporter");
-		} else if (checkFor("NPC", s)) {
-			return parseNPC(s, board);
-		} else if (checkFor("Fish", s)) {
-			return new Fish("Fish");
-		} else if (checkFor("FishingRod", s)) {
-			return new FishingRod("Fishing Rod");
-		} else {
-			fail("Not a GameObject", s);
+	public static GameObject parseGameObject(BoardLexer s, Board board) {
+		switch (s.peek()) {
+		case 'T':
+			if (s.checkFor("Tree")) {
+				return Tree.TREE;
+			}
+			break;
+		case 'F':
+			if (s.checkFor("Fence")) {
+				return Fence.FENCE;
+			}
+			break;
+		case 'W':
+			if (s.checkFor("Wall")) {
+				return Wall.WALL;
+			}
+			break;
+		case 'P':
+			if (s.checkFor("Player")) {
+				return parsePlayerOnBoard(s, board);
+			}
+			break;
+		case 'B':
+			if (s.checkFor("Building")) {
+				return Building.BUILDING;
+			}
+			break;
+		case 'D':
+			if (s.checkFor("Door")) {
+				return parseDoor(s, board);
+			}
+			break;
+		case 'C':
+			if (s.checkFor("Chest")) {
+				return parseChest(s, board);
+			}
+			break;
+		case 'N':
+			if (s.checkFor("NPC")) {
+				return parseNPC(s, board);
+			}
+			break;
 		}
-		return null;
+		Item item = parseItemOrNull(s);
+		if (item == null) {
+			s.fail("Not a GameObject");
+		}
+		return item;
 	}
 
 	/**
-	 * Parse NPCfrom Scanner
-	 * @param s - scanner
+	 * Parse NPC from a BoardLexer
+	 * @param s - lexer
 	 * @param board - board
 	 * @return NPC - NPC
 	 */
-	public static GameObject parseNPC(Scanner s, Board board) {
-		require("\\(", s);
+	public static GameObject parseNPC(BoardLexer s, Board board) {
+		s.require('(');
 		String type = s.next();
-		require("\\,", s);
+		s.require(',');
 		Direction d = parseDirection(s);
-		require("\\)", s);
+		s.require(')');
 		return new NPC(type, d);
 	}
 
 	/**
-	 * Parse Door from Scanner
-	 * @param s - scanner
+	 * Parse Door from a BoardLexer
+	 * @param s - lexer
 	 * @param b - board
 	 * @return door - door
 	 */
-	public static Door parseDoor(Scanner s, Board b) {
-		require("\\(", s);
+	public static Door parseDoor(BoardLexer s, Board b) {
+		s.require('(');
 		int code = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int locationID = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int x = s.nextInt();
-		require(",", s);
+		s.require(',');
 		int y = s.nextInt();
-		require("\\)", s);
+		s.require(')');
 		Door door = new Door(code, locationID);
 		door.setDoorPosition(new Position(x, y));
 		return door;
 	}
 
 	/**
-	 * Parse player object on baord
-	 * @param s - scanner
+	 * Parse player object on board from a BoardLexer
+	 * @param s - lexer
 	 * @param board - board
 	 * @return player - player
 	 */
-	public static Player parsePlayerOnBoard(Scanner s, Board board) {
-		require("\\(", s);
+	public static Player parsePlayerOnBoard(BoardLexer s, Board board) {
+		s.require('(');
 		String name = s.next();
-		require("\\)", s);
+		s.require(')');
 		return board.getPlayer(name);
 	}
 
 	/**
-	 * Parse chest from Scanner
-	 * @param s - scanner
+	 * Parse chest from a BoardLexer
+	 * @param s - lexer
 	 * @param board - board
 	 * @return chest - chest
 	 */
-	public static Chest parseChest(Scanner s, Board board) {
+	public static Chest parseChest(BoardLexer s, Board board) {
 		Chest chest = new Chest();
-		require("\\(", s);
+		s.require('(');
 		int code = s.nextInt();
 		chest.setCode(code);
-		if (checkFor(",", s)) {
+		if (s.checkFor(',')) {
 			chest.setContents(parseItem(s));
 		}
-		require("\\)", s);
+		s.require(')');
 		return chest;
 	}
 
 	/**
-	 * Parse Item from Scanner
-	 * @param s - scanner
+	 * Parse Item from a BoardLexer
+	 * @param s - lexer
 	 * @return item - item
 	 */
-	public static Item parseItem(Scanner s) {
-		if (checkFor("Key", s)) {
-			return parseKey(s);
-		} else if (checkFor("FloatingDevice", s)) {
-			return new FloatingDevice("Floating Device");
-		} else if (checkFor("Banana", s)) {
-			return new Banana("Banana");
-		} else if (checkFor("Teleporter", s)) {
-			return new Teleporter("Teleporter");
-		} else if (checkFor("Fish", s)) {
-			return new Fish("Fish");
-		} else if (checkFor("FishingRod", s)) {
-			return new FishingRod("Fishing Rod");
-		} else {
-			fail("Not an Item", s);
+	public static Item parseItem(BoardLexer s) {
+		Item item = parseItemOrNull(s);
+		if (item == null) {
+			s.fail("Not an Item");
+		}
+		return item;
+	}
+
+	/**
+	 * Parse Item from a BoardLexer if the next token is one, the kind of item
+	 * is chosen by its first character
+	 * @param s - lexer
+	 * @return item - item, null if the next token is not an item
+	 */
+	private static Item parseItemOrNull(BoardLexer s) {
+		switch (s.peek()) {
+		case 'K':
+			if (s.checkFor("Key")) {
+				return parseKey(s);
+			}
+			break;
+		case 'F':
+			if (s.checkFor("FloatingDevice")) {
+				return FloatingDevice.FLOATING_DEVICE;
+			} else if (s.checkFor("Fish")) {
+				return Fish.FISH;
+			} else if (s.checkFor("FishingRod")) {
+				return FishingRod.FISHING_ROD;
+			}
+			break;
+		case 'B':
+			if (s.checkFor("Banana")) {
+				return Banana.BANANA;
+			}
+			break;
+		case 'T':
+			if (s.checkFor("Teleporter")) {
+				return Teleporter.TELEPORTER;
+			}
+			break;
 		}
 		return null;
 	}
 
 	/**
-	 * Parse key from Scanner
-	 * @param s - scanner
+	 * Parse key from a BoardLexer
+	 * @param s - lexer
 	 * @return key - key
 	 */
-	public static Key parseKey(Scanner s) {
-		require("\\(", s);
+	public static Key parseKey(BoardLexer s) {
+		s.require('(');
 		String name = s.next();
-		require(",", s);
+		s.require(',');
 		int code = s.nextInt();
-		require("\\)", s);
+		s.require(')');
 		return new Key(name, code);
 	}
+}
 
-	/**
-	 * Requires next token to be equal to p, otherwise fails parsing
-	 * @param p - string
-	 * @param s - scanner
-	 * @return string - string
-	 */
-	public static String require(String p, Scanner s) {
-		if (s.hasNext(p)) {
-			return s.next();
-		}
-		fail(s.next() + "Did not match " + p, s);
-		return null;
-	}
+/**
+ * Task that parses a range of location blocks, splitting the range in half
+ * until each task has only a few locations to parse
+ */
+@SuppressWarnings("serial")
+class ParseLocations extends RecursiveAction {
+	private final List<BoardLexer> blocks;
+	private final Location[] locations;
+	private final int from;
+	private final int to;
+	private final Board board;
 
 	/**
-	 * Check for next token to be equal to p. If so, consume it and return true.
-	 * @param p - string
-	 * @param s - scanner
-	 * @return String - string
+	 * Constructor for a task parsing a range of blocks
+	 * @param blocks - every location block of the board
+	 * @param locations - array the locations are put in, in the same order as the blocks
+	 * @param from - index of the first block to parse
+	 * @param to - index after the last block to parse
+	 * @param board - board
 	 */
-	static boolean checkFor(String p, Scanner s) {
-		if (s.hasNext(p)) {
-			s.next();
-			return true;
-		} else {
-			return false;
-		}
+	ParseLocations(List<BoardLexer> blocks, Location[] locations, int from, int to, Board board) {
+		this.blocks = blocks;
+		this.locations = locations;
+		this.from = from;
+		this.to = to;
+		this.board = board;
 	}
 
-	/**
-	 * Throw an error
-	 *
-	 */
-	public static void fail(String message, Scanner s) {
-		String msg = message + "\n   @ ...";
-		for (int i = 0; i < 5 && s.hasNext(); i++) {
-			msg += " " + s.next();
+	@Override
+	protected void compute() {
+		if (to - from <= BoardParser.LOCATIONS_PER_TASK) {
+			for (int i = from; i < to; i++) {
+				locations[i] = BoardParser.parseLocationBlock(blocks.get(i), board);
+			}
+			return;
 		}
-		throw new ParserFailureException(msg);
-	}
-}
-
-@SuppressWarnings("serial")
-class ParserFailureException extends RuntimeException {
-	public ParserFailureException(String msg) {
-		super(msg);
+		int middle = (from + to) >>> 1;
+		invokeAll(new ParseLocations(blocks, locations, from, middle, board), new ParseLocations(blocks, locations, middle, to, board));
 	}
 }
@@ -1,16 +1,16 @@
 package iohandling;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 import core.Board;
-import core.GameSystem.Direction;
-import core.Location;
-import gameobjects.Player;
+import core.BoardSnapshot;
 
 /**
- * BoardWriter writes the board object to a String or text file.
+ * BoardWriter writes the board object to a String or text file. A board is
+ * written from a snapshot of it, so that a snapshot taken by the game can be
+ * written on another thread, and is encoded by BoardEncoder.
  * @author Jonathan
  *
  */
@@ -24,43 +24,20 @@ public class BoardWriter {
 	 * @param fname - file to be written to
 	 */
 	public static void writeBoard(Board b, String fname) {
+		writeBoard(BoardSnapshot.of(b), fname);
+	}
+
+	/**
+	 * Write a snapshot of a board to a text file, this can be done on any
+	 * thread while the game goes on. The file is written through a buffer of
+	 * a fixed size however big the board is
+	 *
+	 * @param b - snapshot of the board to be written
+	 * @param fname - file to be written to
+	 */
+	public static void writeBoard(BoardSnapshot b, String fname) {
 		try {
-			//Create PrintWriter object
-			PrintWriter print = new PrintWriter(new File(fname));
-			//Write player information
-			for (Player player : b.getPlayers().values()) {
-				print.println(player.toSaveString());
-			}
-			//Write location objects based on toString methods.
-			for (Location loc : b.getLocations().values()) {
-				print.println("Location{");
-				print.println("id: " + loc.getId());
-				print.println("name: ?");
-				print.println("w: " + loc.getTiles().length);
-				print.println("h: " + loc.getTiles()[0].length);
-				if(loc.getNeighbours().get(Direction.NORTH) != null){
-					print.println("NORTH: " + loc.getNeighbours().get(Direction.NORTH));
-				}
-				if(loc.getNeighbours().get(Direction.EAST) != null){
-					print.println("EAST: " + loc.getNeighbours().get(Direction.EAST));
-				}
-				if(loc.getNeighbours().get(Direction.WEST) != null){
-					print.println("WEST: " + loc.getNeighbours().get(Direction.WEST));
-				}
-				if(loc.getNeighbours().get(Direction.SOUTH) != null){
-					print.println("SOUTH: " + loc.getNeighbours().get(Direction.SOUTH));
-				}
-				for (int i = 0; i < loc.getTiles().length; i++) {
-					for (int j = 0; j < loc.getTiles()[0].length; j++) {
-						print.print("(");
-						print.print(loc.getTiles()[j][i].toString());
-						print.print(")");
-					}
-					print.print("\n");
-				}
-				print.println("}");
-			}
-			print.close();
+			BoardEncoder.writeFile(b, fname);
 		} catch (IOException e) {
 
 		}
@@ -73,45 +50,32 @@ public class BoardWriter {
 	 * @return string - string that holds the board
 	 */
 	public static String writeBoardToString(Board b) {
-		//Create StringBuilder
-		StringBuilder print = new StringBuilder();
-		//Print player save strings
-		for (Player player : b.getPlayers().values()) {
-			print.append(player.toSaveString());
-			print.append("\n");
-		}
-		//Print locations objects based on toString moethods.
-		for (Location loc : b.getLocations().values()) {
-			print.append("Location{" + "\n");
-			print.append("id: " + loc.getId() + "\n");
-			print.append("name: ?" + "\n");
-			print.append("w: " + loc.getTiles().length + "\n");
-			print.append("h: " + loc.getTiles()[0].length + "\n");
-			if(loc.getNeighbours().get(Direction.NORTH) != null){
-				print.append("NORTH: " + loc.getNeighbours().get(Direction.NORTH) + "\n");
-			}
-			if(loc.getNeighbours().get(Direction.EAST) != null){
-				print.append("EAST: " + loc.getNeighbours().get(Direction.EAST) + "\n");
-			}
-			if(loc.getNeighbours().get(Direction.WEST) != null){
-				print.append("WEST: " + loc.getNeighbours().get(Direction.WEST) + "\n");
-			}
-			if(loc.getNeighbours().get(Direction.SOUTH) != null){
-				print.append("SOUTH: " + loc.getNeighbours().get(Direction.SOUTH) + "\n");
-			}
-			for (int i = 0; i < loc.getTiles().length; i++) {
-				for (int j = 0; j < loc.getTiles()[0].length; j++) {
-					print.append("(");
-					print.append(loc.getTiles()[j][i].toString());
-					print.append(")");
-				}
-				print.append("\n");
-			}
-			print.append("}\n");
-
-		}
+		return writeBoardToString(b, null);
+	}
 
-		return print.toString();
+	/**
+	 * Write the part of a board object that can be seen from a set of
+	 * locations to a String, only those locations and the players in them are
+	 * written
+	 *
+	 * @param b - board to be written
+	 * @param locations - ids of the locations to write, or null to write every location
+	 * @return string - string that holds the board
+	 */
+	public static String writeBoardToString(Board b, Set<Integer> locations) {
+		return writeBoardToString(BoardSnapshot.of(b), locations);
+	}
 
+	/**
+	 * Write the part of a snapshot of a board that can be seen from a set of
+	 * locations to a String, this can be done on any thread while the game
+	 * goes on
+	 *
+	 * @param b - snapshot of the board to be written
+	 * @param locations - ids of the locations to write, or null to write every location
+	 * @return string - string that holds the board
+	 */
+	public static String writeBoardToString(BoardSnapshot b, Set<Integer> locations) {
+		return new String(BoardEncoder.encode(b, locations), StandardCharsets.UTF_8);
 	}
 }
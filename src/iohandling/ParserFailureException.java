@@ -0,0 +1,12 @@
+package iohandling;
+
+/**
+ * Thrown when a text board does not follow the grammar of a board, the message says what was expected and shows the tokens where it
+ * went wrong
+ */
+@SuppressWarnings("serial")
+class ParserFailureException extends RuntimeException {
+	public ParserFailureException(String msg) {
+		super(msg);
+	}
+}
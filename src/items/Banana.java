@@ -15,6 +15,15 @@ import javax.imageio.ImageIO;
 public class Banana extends Item{
 	public static String siphonMessage = "You siphon the power from the radiating member, Haramabe is within your grasp! Carry on Soldier!";
 
+	/**
+	 * Banana given out by chests and picked up by players, every banana is the same so they are all this one
+	 */
+	public static final Banana BANANA = new Banana("Banana");
+
+	static {
+		BANANA.share();
+	}
+
 	/**
 	 * Method that calls the super constructor of the item
 	 * 
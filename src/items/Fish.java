@@ -9,6 +9,15 @@ package items;
  */
 public class Fish extends Item{
 
+	/**
+	 * Fish caught with a rod or found on the map
+	 */
+	public static final Fish FISH = new Fish("Fish");
+
+	static {
+		FISH.share();
+	}
+
 	/**
 	 * Method that calls the super constructor of the item
 	 * 
@@ -9,6 +9,15 @@ package items;
  */
 public class FishingRod extends Item{
 
+	/**
+	 * Shared fishing rod, a rod is not used up when it is used
+	 */
+	public static final FishingRod FISHING_ROD = new FishingRod("Fishing Rod");
+
+	static {
+		FISHING_ROD.share();
+	}
+
 	/**
 	 * Method that calls the super constructor of the item
 	 * 
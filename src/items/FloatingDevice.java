@@ -12,6 +12,15 @@ import javax.imageio.ImageIO;
  *
  */
 public class FloatingDevice extends Item {
+
+	/**
+	 * Shared floating device
+	 */
+	public static final FloatingDevice FLOATING_DEVICE = new FloatingDevice("Floating Device");
+
+	static {
+		FLOATING_DEVICE.share();
+	}
 	
 	/**
 	 * Method that calls the super constructor of the item
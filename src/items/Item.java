@@ -5,6 +5,8 @@ import gameobjects.GameObject;
  * Class that holds all the information for an item, this is an abstract class that holds all the information for each of the items on the map, maining
  * their name and their description
  * 
+ * An item that has nothing of its own, such as a banana, is shared by every board and inventory it is in, a shared item cannot be changed
+ * 
  * @author Jack Slater
  *
  */
@@ -13,6 +15,7 @@ public abstract class Item extends GameObject {
 	protected String name;
 	private String description;
 	private boolean usable;
+	private boolean shared;
 
 	/**
 	 * Constructor that sets the variables for each item when it is created
@@ -51,6 +54,7 @@ public abstract class Item extends GameObject {
 	 * @param description - New description of item
 	 */
 	public void setDescription(String description) {
+		checkNotShared();
 		this.description = description;
 	}
 	
@@ -69,7 +73,33 @@ public abstract class Item extends GameObject {
 	 * @param name - New name of item
 	 */
 	public void setName(String name) {
+		checkNotShared();
 		this.name = name;
 	}
 
+	/**
+	 * Marks the item as shared by every board and inventory it is in, from then on it cannot be changed
+	 */
+	public void share() {
+		shared = true;
+	}
+
+	/**
+	 * Checks if the item is shared by every board and inventory it is in
+	 * 
+	 * @return boolean - true if the item cannot be changed
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Throws if the item is shared
+	 */
+	private void checkNotShared() {
+		if (shared) {
+			throw new IllegalStateException(name + " is shared and cannot be changed");
+		}
+	}
+
 }
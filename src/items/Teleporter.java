@@ -8,6 +8,15 @@ package items;
  *
  */
 public class Teleporter extends Item{
+
+	/**
+	 * Shared teleporter, where it sends a player is chosen when it is used
+	 */
+	public static final Teleporter TELEPORTER = new Teleporter("Teleporter");
+
+	static {
+		TELEPORTER.share();
+	}
 	
 	/**
 	 * Method that calls the super constructor of the item
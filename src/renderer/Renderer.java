@@ -17,9 +17,11 @@ import javax.imageio.ImageIO;
 import core.Board;
 import core.GameSystem.Direction;
 import core.Location;
+import gameobjects.GameObject;
 import gameobjects.Player;
-import tile.DoorOutTile;
 import tile.Tile;
+import util.IntObjectMap;
+import util.PackedPosition;
 import util.Position;
 
 /**
@@ -119,7 +121,8 @@ public class Renderer {
 		g.fillRect(0, 0, image.getWidth(), image.getHeight());
 
 		Location loc = player.getLocation();
-		Map<Point, Integer> map = board.mapLocations(loc.getId(), 0, 0, new HashMap<Point, Integer>());
+		/* Only the locations next to the player are drawn, so only they are looked up */
+		IntObjectMap<Location> grid = board.mapLocationGrid(loc.getId(), 1);
 
 		// Determine order to draw neighbouring locations
 		int[] drawOrderX = null;
@@ -153,22 +156,15 @@ public class Renderer {
 
 		// Draw neighbouring locations in order
 		for (int i = 0; i < drawOrderX.length; i++) {
-			Point p = new Point(drawOrderX[i], drawOrderY[i]);
-			drawBoard(g, board, map, w, h, p, player);
+			drawBoard(g, grid, w, h, drawOrderX[i], drawOrderY[i], player);
 		}
 		int alpha = 0;
 
 		// Check if player is indoors.
 		boolean indoor = false;
-		Location playerLoc = player.getLocation();
-		Map<Point, Integer> locations = board.mapLocations(playerLoc.getId(), 0, 0, new HashMap<Point, Integer>());
-		for (Integer i : locations.values()) {
-			for (Tile[] ta : board.getLocationById(i).getTiles()) {
-				for (Tile t : ta) {
-					if (t instanceof DoorOutTile) {
-						indoor = true;
-					}
-				}
+		for (int key : grid.keys()) {
+			if (grid.get(key).isInterior()) {
+				indoor = true;
 			}
 		}
 
@@ -235,7 +231,7 @@ public class Renderer {
 		Graphics2D g = image.createGraphics();
 		g.setColor(new Color(5, 26, 37));
 		g.fillRect(0, 0, image.getWidth(), image.getHeight());
-		Map<Point, Integer> map = loc.getBoard().mapLocations(loc.getId(), 0, 0, new HashMap<Point, Integer>());
+		IntObjectMap<Location> grid = loc.getBoard().mapLocationGrid(loc.getId(), 1);
 		int[] drawOrderX = null;
 		int[] drawOrderY = null;
 		switch (viewingDir) {
@@ -265,8 +261,7 @@ public class Renderer {
 			break;
 		}
 		for (int i = 0; i < drawOrderX.length; i++) {
-			Point p = new Point(drawOrderX[i], drawOrderY[i]);
-			drawBoard(g, loc.getBoard(), map, w, h, p, null);
+			drawBoard(g, grid, w, h, drawOrderX[i], drawOrderY[i], null);
 		}
 		return image;
 	}
@@ -275,30 +270,31 @@ public class Renderer {
 	 * Draw board object from the correct perspective.
 	 *
 	 * @param g - graphics object
-	 * @param board - board to be drawn
-	 * @param map - map
+	 * @param grid - locations by offset packed by PackedPosition.packOffset
 	 * @param w - width
 	 * @param h - height
-	 * @param p - poit
+	 * @param px - locations east of the centre
+	 * @param py - locations north of the centre
 	 * @param player - player
 	 */
-	public void drawBoard(Graphics2D g, Board board, Map<Point, Integer> map, int w, int h, Point p, Player player) {
-		if (!map.containsKey(p)) {
+	public void drawBoard(Graphics2D g, IntObjectMap<Location> grid, int w, int h, int px, int py, Player player) {
+		Location loc = grid.get(PackedPosition.packOffset(px, py));
+		if (loc == null) {
 			return;
 		}
-		calculateOffsets(board.getLocationById(map.get(new Point(0, 0))), w, h);
+		calculateOffsets(grid.get(PackedPosition.packOffset(0, 0)), w, h);
 		switch (viewingDir) {
 		case NORTH:
-			drawBoardFromNorth(g, board, map, w, h, p, player);
+			drawBoardFromNorth(g, loc, px, py, player);
 			break;
 		case SOUTH:
-			drawBoardFromSouth(g, board, map, w, h, p, player);
+			drawBoardFromSouth(g, loc, px, py, player);
 			break;
 		case EAST:
-			drawBoardFromEast(g, board, map, w, h, p, player);
+			drawBoardFromEast(g, loc, px, py, player);
 			break;
 		case WEST:
-			drawBoardFromWest(g, board, map, w, h, p, player);
+			drawBoardFromWest(g, loc, px, py, player);
 			break;
 		}
 		drawSelected(g);
@@ -309,27 +305,20 @@ public class Renderer {
 	 * Draw location (all tiles and objects) from North perspective.
 	 *
 	 * @param g - graphics object
-	 * @param board - board
-	 * @param map - map
-	 * @param w - width
-	 * @param h - height
-	 * @param p - point
+	 * @param loc - location
+	 * @param px - locations east of the centre
+	 * @param py - locations north of the centre
 	 * @param player - player
 	 */
-	public void drawBoardFromNorth(Graphics2D g, Board board, Map<Point, Integer> map, int w, int h, Point p,
-			Player player) {
-		for (int i = 0; i < board.getLocationById(map.get(p)).getTiles().length; i++) {
-			for (int j = 0; j < board.getLocationById(map.get(p)).getTiles()[0].length; j++) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawTile(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso, board.getLocationById(map.get(p)),
-						new Position(i, j));
+	public void drawBoardFromNorth(Graphics2D g, Location loc, int px, int py, Player player) {
+		for (int i = 0; i < loc.getWidth(); i++) {
+			for (int j = 0; j < loc.getHeight(); j++) {
+				drawTile(g, loc, i, j, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10));
 			}
 		}
-		for (int i = 0; i < board.getLocationById(map.get(p)).getTiles().length; i++) {
-			for (int j = 0; j < board.getLocationById(map.get(p)).getTiles()[0].length; j++) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawObject(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso,
-						board.getLocationById(map.get(p)), new Position(i, j), player);
+		for (int i = 0; i < loc.getWidth(); i++) {
+			for (int j = 0; j < loc.getHeight(); j++) {
+				drawObject(g, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10), loc, i, j, player);
 			}
 		}
 	}
@@ -338,27 +327,20 @@ public class Renderer {
 	 * Draw location (all tiles and objects) from East perspective.
 	 *
 	 * @param g - graphics
-	 * @param board - board
-	 * @param map - map
-	 * @param w - width
-	 * @param h - height
-	 * @param p - point
+	 * @param loc - location
+	 * @param px - locations east of the centre
+	 * @param py - locations north of the centre
 	 * @param player - player
 	 */
-	public void drawBoardFromEast(Graphics2D g, Board board, Map<Point, Integer> map, int w, int h, Point p,
-			Player player) {
-		for (int j = 0; j < board.getLocationById(map.get(p)).getTiles()[0].length; j++) {
+	public void drawBoardFromEast(Graphics2D g, Location loc, int px, int py, Player player) {
+		for (int j = 0; j < loc.getHeight(); j++) {
 			for (int i = 9; i >= 0; i--) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawTile(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso, board.getLocationById(map.get(p)),
-						new Position(i, j));
+				drawTile(g, loc, i, j, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10));
 			}
 		}
-		for (int j = 0; j < board.getLocationById(map.get(p)).getTiles()[0].length; j++) {
+		for (int j = 0; j < loc.getHeight(); j++) {
 			for (int i = 9; i >= 0; i--) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawObject(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso,
-						board.getLocationById(map.get(p)), new Position(i, j), player);
+				drawObject(g, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10), loc, i, j, player);
 			}
 		}
 	}
@@ -367,27 +349,20 @@ public class Renderer {
 	 * Draw location (all tiles and objects) from South perspective.
 	 *
 	 * @param g - graphics
-	 * @param board - board
-	 * @param map - map
-	 * @param w - width
-	 * @param h - height
-	 * @param p - point
+	 * @param loc - location
+	 * @param px - locations east of the centre
+	 * @param py - locations north of the centre
 	 * @param player - player
 	 */
-	public void drawBoardFromSouth(Graphics2D g, Board board, Map<Point, Integer> map, int w, int h, Point p,
-			Player player) {
+	public void drawBoardFromSouth(Graphics2D g, Location loc, int px, int py, Player player) {
 		for (int i = 9; i >= 0; i--) {
 			for (int j = 9; j >= 0; j--) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawTile(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso, board.getLocationById(map.get(p)),
-						new Position(i, j));
+				drawTile(g, loc, i, j, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10));
 			}
 		}
 		for (int i = 9; i >= 0; i--) {
 			for (int j = 9; j >= 0; j--) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawObject(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso,
-						board.getLocationById(map.get(p)), new Position(i, j), player);
+				drawObject(g, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10), loc, i, j, player);
 			}
 		}
 	}
@@ -396,27 +371,20 @@ public class Renderer {
 	 * Draw location (all tiles and objects) from West perspective.
 	 *
 	 * @param g - graphics
-	 * @param board - board
-	 * @param map - map
-	 * @param w - width
-	 * @param h - height
-	 * @param p - point
+	 * @param loc - location
+	 * @param px - locations east of the centre
+	 * @param py - locations north of the centre
 	 * @param player - player
 	 */
-	public void drawBoardFromWest(Graphics2D g, Board board, Map<Point, Integer> map, int w, int h, Point p,
-			Player player) {
+	public void drawBoardFromWest(Graphics2D g, Location loc, int px, int py, Player player) {
 		for (int j = 9; j >= 0; j--) {
-			for (int i = 0; i < board.getLocationById(map.get(p)).getTiles().length; i++) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawTile(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso, board.getLocationById(map.get(p)),
-						new Position(i, j));
+			for (int i = 0; i < loc.getWidth(); i++) {
+				drawTile(g, loc, i, j, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10));
 			}
 		}
 		for (int j = 9; j >= 0; j--) {
-			for (int i = 0; i < board.getLocationById(map.get(p)).getTiles().length; i++) {
-				Point iso = twoDToIso((int) (i + p.getX() * 10), (int) (j - p.getY() * 10));
-				drawObject(g, board.getLocationById(map.get(p)).getTiles()[i][j], iso,
-						board.getLocationById(map.get(p)), new Position(i, j), player);
+			for (int i = 0; i < loc.getWidth(); i++) {
+				drawObject(g, isoX(i + px * 10, j - py * 10), isoY(i + px * 10, j - py * 10), loc, i, j, player);
 			}
 		}
 	}
@@ -425,21 +393,21 @@ public class Renderer {
 	 * Draw object of tile at position
 	 *
 	 * @param g - graphics
-	 * @param tile - tile
-	 * @param iso - iso
+	 * @param x - x on screen
+	 * @param y - y on screen
 	 * @param loc - location
-	 * @param pos - position
+	 * @param i - x-pos of the tile
+	 * @param j - y-pos of the tile
 	 * @param player - player
 	 */
-	private void drawObject(Graphics2D g, Tile tile, Point iso, Location loc, Position pos, Player player) {
-		if (tile.getGameObject() != null) {
-			if (tile.getGameObject() instanceof Player) {
-				if (tile.getGameObject() == player) {
-					g.drawImage(playerSelect, iso.x, iso.y - playerSelect.getHeight(), null);
-				}
+	private void drawObject(Graphics2D g, int x, int y, Location loc, int i, int j, Player player) {
+		GameObject o = loc.getGameObject(i, j);
+		if (o != null) {
+			if (o == player) {
+				g.drawImage(playerSelect, x, y - playerSelect.getHeight(), null);
 			}
-			BufferedImage gameObject = getImage(tile.getGameObject().getImage(loc, pos, viewingDir));
-			g.drawImage(gameObject, iso.x, iso.y - gameObject.getHeight(), null);
+			BufferedImage gameObject = getImage(o.getImage(loc, Position.of(i, j), viewingDir));
+			g.drawImage(gameObject, x, y - gameObject.getHeight(), null);
 		}
 	}
 
@@ -451,15 +419,16 @@ public class Renderer {
 	 * @return image
 	 */
 	private BufferedImage getImage(String fname) {
-		if (images.containsKey(fname)) {
-			return images.get(fname);
-		} else {
-			try {
-				images.put(fname, ImageIO.read(new File(fname)));
-				return images.get(fname);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		BufferedImage image = images.get(fname);
+		if (image != null) {
+			return image;
+		}
+		try {
+			image = ImageIO.read(new File(fname));
+			images.put(fname, image);
+			return image;
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 		return null;
 	}
@@ -468,18 +437,20 @@ public class Renderer {
 	 * Draw tile at position
 	 *
 	 * @param g - graphics
-	 * @param tile - tile
-	 * @param iso - iso
 	 * @param loc - location
-	 * @param pos - position
+	 * @param i - x-pos of the tile
+	 * @param j - y-pos of the tile
+	 * @param x - x on screen
+	 * @param y - y on screen
 	 */
-	private void drawTile(Graphics2D g, Tile tile, Point iso, Location loc, Position pos) {
-		BufferedImage floor = getImage(tile.getImage(viewingDir));
-		if (tile == selected) {
-			selectedPoint = iso;
+	private void drawTile(Graphics2D g, Location loc, int i, int j, int x, int y) {
+		BufferedImage floor = getImage(loc.getGroundImage(i, j, viewingDir));
+		/* Only the tile at the position of the selected tile is looked up, a compact location makes a view of it */
+		if (selected != null && selected.getX() == i && selected.getY() == j && loc.getTile(i, j).equals(selected)) {
+			selectedPoint = new Point(x, y);
 		}
 		if (floor != null) {
-			g.drawImage(floor, iso.x, iso.y - floor.getHeight(), null);
+			g.drawImage(floor, x, y - floor.getHeight(), null);
 		}
 
 	}
@@ -534,7 +505,7 @@ public class Renderer {
 	 * @param h - height
 	 */
 	public void calculateOffsets(Location loc, int w, int h) {
-		int boardHeight = (int) ((loc.getTiles().length + loc.getTiles()[0].length - 1) * TILE_WIDTH
+		int boardHeight = (int) ((loc.getWidth() + loc.getHeight() - 1) * TILE_WIDTH
 				* Math.sin(Math.PI / 6));
 		xOffset = (int) (w / 2 - 2 * TILE_WIDTH * Math.sin(Math.PI / 6));
 		yOffset = (int) ((h - boardHeight) / 2 + TILE_WIDTH * Math.cos(Math.PI / 6));
@@ -548,29 +519,71 @@ public class Renderer {
 	 * @return point on screen
 	 */
 	public Point twoDToIso(int i, int j) {
-		int x = 0, y = 0;
+		return new Point(isoX(i, j), isoY(i, j));
+	}
+
+	/**
+	 * Return x position on screen to display tile at index (i, j), without
+	 * making a point
+	 *
+	 * @param i - x
+	 * @param j - y
+	 * @return x on screen
+	 */
+	private int isoX(int i, int j) {
+		return xOffset + (rotatedX(i, j) - rotatedY(i, j));
+	}
+
+	/**
+	 * Return y position on screen to display tile at index (i, j), without
+	 * making a point
+	 *
+	 * @param i - x
+	 * @param j - y
+	 * @return y on screen
+	 */
+	private int isoY(int i, int j) {
+		return yOffset + ((rotatedX(i, j) + rotatedY(i, j)) / 2);
+	}
+
+	/**
+	 * Return x of index (i, j) turned to the viewing direction, in pixels
+	 *
+	 * @param i - x
+	 * @param j - y
+	 * @return turned x
+	 */
+	private int rotatedX(int i, int j) {
 		switch (viewingDir) {
-		case NORTH:
-			x = TILE_WIDTH * i;
-			y = TILE_WIDTH * j;
-			break;
 		case SOUTH:
-			x = TILE_WIDTH * (10 - i - 1);
-			y = TILE_WIDTH * (10 - j - 1);
-			break;
+			return TILE_WIDTH * (10 - i - 1);
 		case EAST:
-			x = TILE_WIDTH * j;
-			y = TILE_WIDTH * (10 - i - 1);
-			break;
+			return TILE_WIDTH * j;
 		case WEST:
-			x = TILE_WIDTH * (10 - j - 1);
-			y = TILE_WIDTH * i;
-			break;
+			return TILE_WIDTH * (10 - j - 1);
+		default:
+			return TILE_WIDTH * i;
+		}
+	}
+
+	/**
+	 * Return y of index (i, j) turned to the viewing direction, in pixels
+	 *
+	 * @param i - x
+	 * @param j - y
+	 * @return turned y
+	 */
+	private int rotatedY(int i, int j) {
+		switch (viewingDir) {
+		case SOUTH:
+			return TILE_WIDTH * (10 - j - 1);
+		case EAST:
+			return TILE_WIDTH * (10 - i - 1);
+		case WEST:
+			return TILE_WIDTH * i;
+		default:
+			return TILE_WIDTH * j;
 		}
-		Point tempPt = new Point(0, 0);
-		tempPt.x = xOffset + (x - y);
-		tempPt.y = yOffset + ((x + y) / 2);
-		return (tempPt);
 	}
 
 	/**
@@ -603,8 +616,7 @@ public class Renderer {
 			j = (int) Math.round(-1 * a / TILE_WIDTH + 9);
 			break;
 		}
-		Position index = new Position(i, j);
-		return index;
+		return Position.of(i, j);
 	}
 
 	/**
@@ -634,9 +646,9 @@ public class Renderer {
 	 * @return tile
 	 */
 	public Tile getTileAtPos(Position pos, Location loc) {
-		if (pos.getX() >= 0 && pos.getY() >= 0 && pos.getX() < loc.getTiles().length
-				&& pos.getY() < loc.getTiles()[0].length) {
-			return loc.getTiles()[pos.getX()][pos.getY()];
+		if (pos.getX() >= 0 && pos.getY() >= 0 && pos.getX() < loc.getWidth()
+				&& pos.getY() < loc.getHeight()) {
+			return loc.getTile(pos.getX(), pos.getY());
 		}
 		return null;
 	}
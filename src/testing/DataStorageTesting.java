@@ -1,10 +1,19 @@
 package testing;
 
-import java.util.Scanner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
 
 import org.junit.Test;
 
 import core.Board;
+import core.BoardSnapshot;
+import core.Location;
+import core.LocationPager;
 import core.GameSystem.Direction;
 import gameobjects.Building;
 import gameobjects.Chest;
@@ -13,6 +22,10 @@ import gameobjects.GameObject;
 import gameobjects.NPC;
 import gameobjects.Player;
 import gameobjects.Tree;
+import iohandling.BoardDeltaWriter;
+import iohandling.BoardEncoder;
+import iohandling.BoardFile;
+import iohandling.BoardLexer;
 import iohandling.BoardParser;
 import iohandling.BoardWriter;
 import items.Banana;
@@ -49,14 +62,28 @@ public class DataStorageTesting {
 	}
 
 	/**
-	 * helper method to create scanner
-	 * @param string - string to be scanned
-	 * @return Scanner - scanner
+	 * helper method to create lexer
+	 * @param string - string to be read
+	 * @return BoardLexer - lexer
 	 */
-	public Scanner createScanner(String string) {
-		Scanner s = new Scanner(string);
-		s.useDelimiter("\\s+|(?=[{}(),;])|(?<=[{}(),;])");
-		return s;
+	public BoardLexer createLexer(String string) {
+		return new BoardLexer(string);
+	}
+
+	/**
+	 * Test that the lexer reads the map as the Scanner it replaced did, which wrote map-new.txt back exactly as it is checked in, and that it
+	 * fails on a board it cannot parse
+	 */
+	public @Test void testLexerParsesMap() throws IOException {
+		String fileString = new String(Files.readAllBytes(Paths.get("map-new.txt")), StandardCharsets.UTF_8);
+		assert (fileString.equals(BoardWriter.writeBoardToString(BoardParser.parseBoardString(fileString))));
+		assert (fileString.equals(BoardWriter.writeBoardToString(loadBoard())));
+		try {
+			BoardParser.parseBoardString("Location{\nid: 0\nname: ?\nw: 1\nh: 1\n(Lava)\n}");
+			assert false;
+		} catch (RuntimeException e) {
+			assert (e.getMessage().startsWith("Not a valid tile type"));
+		}
 	}
 
 	/**
@@ -69,11 +96,157 @@ public class DataStorageTesting {
 		assert boardString.equals(BoardWriter.writeBoardToString(loadedBoard));
 	}
 
+	/**
+	 * Test writing a delta of a changed board and applying it to a copy of the board
+	 */
+	public @Test void testWriteDelta() {
+		Board board = loadBoard();
+		Board copy = BoardParser.parseBoardString(BoardWriter.writeBoardToString(board));
+		BoardDeltaWriter deltaWriter = new BoardDeltaWriter(board);
+		Player player = new Player("Legendonger", 0, new Position(5, 5), board);
+		board.addPlayer("Legendonger", player);
+		board.getLocationById(0).getTiles()[5][5].setGameObject(player);
+		board.getLocationById(0).getTiles()[5][4].setGameObject(new Tree());
+		String delta = deltaWriter.writeDelta(board);
+		assert (deltaWriter.getVersion() == 1);
+		BoardParser.parseDeltaString(delta, copy);
+		assert (copy.getLocationById(0).getTiles()[5][5].getGameObject() == copy.getPlayer("Legendonger"));
+		assert (BoardWriter.writeBoardToString(board).equals(BoardWriter.writeBoardToString(copy)));
+	}
+
+	/**
+	 * Test that clients are only sent the part of a delta and the board they can see
+	 */
+	public @Test void testWriteDeltaForLocations() {
+		Board board = loadBoard();
+		BoardDeltaWriter deltaWriter = new BoardDeltaWriter(board);
+		board.getLocationById(0).getTiles()[5][4].setGameObject(new Tree());
+		board.getLocationById(11).getTiles()[5][4].setGameObject(new Tree());
+		deltaWriter.writeDelta(board);
+		Set<Integer> near = board.getLocationsOfInterest(0);
+		String part = deltaWriter.writeDeltaFor(near);
+		assert (part.contains("Tile{0,5,4,"));
+		assert (!part.contains("Tile{11,"));
+		assert (deltaWriter.writeDeltaFor(Collections.singleton(14)) == null);
+		Board copy = BoardParser.parseBoardString(BoardWriter.writeBoardToString(board, near));
+		assert (copy.getLocations().keySet().equals(near));
+	}
+
+	/**
+	 * Test that a snapshot is not changed by later changes to the board, and that the next snapshot reuses the locations that have not changed
+	 */
+	public @Test void testSnapshot() {
+		Board board = loadBoard();
+		BoardSnapshot first = BoardSnapshot.of(board);
+		assert (BoardSnapshot.take(board, first) == first);
+		String before = BoardWriter.writeBoardToString(first, null);
+		board.getLocationById(0).getTiles()[5][4].setGameObject(new Tree());
+		BoardSnapshot second = BoardSnapshot.take(board, first);
+		assert (BoardWriter.writeBoardToString(first, null).equals(before));
+		assert (BoardWriter.writeBoardToString(second, null).equals(BoardWriter.writeBoardToString(board)));
+		assert (second.getLocationById(0) != first.getLocationById(0));
+		assert (second.getLocationById(11) == first.getLocationById(11));
+	}
+
+	/**
+	 * Test that the encoded bytes kept with a location are written again once it changes and kept for the locations that have not, so the
+	 * board encoded from a later snapshot matches the board
+	 */
+	public @Test void testSnapshotKeepsLocationBytes() {
+		Board board = loadBoard();
+		BoardSnapshot first = BoardSnapshot.of(board);
+		BoardEncoder.encode(first, null);
+		byte[] changedBefore = first.getLocationById(0).getBytes();
+		byte[] unchangedBefore = first.getLocationById(11).getBytes();
+		board.getLocationById(0).editTile(new Position(5, 4)).setGameObject(new Tree());
+		BoardSnapshot second = BoardSnapshot.take(board, first);
+		assert (second.getLocationById(0).getBytes() != changedBefore);
+		assert (!new String(second.getLocationById(0).getBytes(), StandardCharsets.UTF_8).equals(new String(changedBefore,
+				StandardCharsets.UTF_8)));
+		assert (second.getLocationById(11).getBytes() == unchangedBefore);
+		assert (new String(BoardEncoder.encode(second, null), StandardCharsets.UTF_8).equals(BoardWriter.writeBoardToString(board)));
+	}
+
+	/**
+	 * Test that a board file reads back the board it was made from, one location on its own, and the board it was saved with
+	 */
+	public @Test void testBoardFile() throws IOException {
+		File f = File.createTempFile("board", ".map");
+		f.deleteOnExit();
+		Board board = loadBoard();
+		BoardFile file = BoardFile.create(board, f.getPath());
+		assert (BoardWriter.writeBoardToString(file.readBoard()).equals(BoardWriter.writeBoardToString(board)));
+		board.getLocationById(0).editTile(new Position(5, 4)).setGameObject(new Tree());
+		file.save(board);
+		file.close();
+		assert (BoardFile.isBoardFile(f.getPath()));
+		file = BoardFile.open(f.getPath());
+		Board single = new Board();
+		String location = BoardWriter.writeBoardToString(board, Collections.singleton(0));
+		single.addLocation(0, file.readLocation(0, single));
+		assert (BoardWriter.writeBoardToString(single).equals(location.substring(location.indexOf("Location{"))));
+		assert (BoardWriter.writeBoardToString(file.readBoard()).equals(BoardWriter.writeBoardToString(board)));
+		file.close();
+	}
+
+	/**
+	 * Test that a paged board reads locations in from the file as they are asked for, and writes changes back when it drops them
+	 */
+	public @Test void testPagedBoard() throws IOException {
+		File f = File.createTempFile("paged", ".map");
+		f.deleteOnExit();
+		Board whole = loadBoard();
+		BoardFile.create(whole, f.getPath()).close();
+		BoardFile file = BoardFile.open(f.getPath(), true);
+		Board board = LocationPager.page(file, 2, 0);
+		assert (board.getLocations().isEmpty());
+		assert (board.getLocationIds().equals(whole.getLocations().keySet()));
+
+		Location start = board.getLocationById(0);
+		start.editTile(new Position(5, 4)).setGameObject(new Tree());
+		Direction d = start.getNeighbours().keySet().iterator().next();
+		int w = start.getTiles().length;
+		int h = start.getTiles()[0].length;
+		Position edge = d == Direction.SOUTH ? new Position(0, h - 1) : d == Direction.EAST ? new Position(w - 1, 0) : new Position(0, 0);
+		Tile next = start.getTileInDirection(edge, d);
+		assert (next.getLocationID() == start.getNeighbours().get(d));
+		assert (board.getLocations().size() == 2);
+
+		board.evictLocations();
+		assert (board.getLocations().isEmpty());
+		assert (board.getLocationById(0) != start);
+		assert (board.getLocationById(0).getTiles()[5][4].getGameObject() instanceof Tree);
+		assert (board.getPager().getLoads() == 3 && board.getPager().getEvictions() == 2);
+		file.close();
+	}
+
+	/**
+	 * Test that the encoder writes exactly the length it works out for a board, including names that take more than a byte a character
+	 */
+	public @Test void testEncodeExactLength() {
+		Board board = new Board();
+		board.addPlayer("Caf\u00e9", new Player("Caf\u00e9", 0, new Position(1, 2), board));
+		BoardSnapshot snapshot = BoardSnapshot.of(board);
+		byte[] bytes = BoardEncoder.encode(snapshot, null);
+		assert (bytes.length == BoardEncoder.length(snapshot, null));
+		assert (new String(bytes, StandardCharsets.UTF_8).equals(board.getPlayer("Caf\u00e9").toSaveString() + "\n"));
+	}
+
+	/**
+	 * Test that no delta is written when the board has not changed
+	 */
+	public @Test void testWriteDeltaUnchanged() {
+		Board board = loadBoard();
+		BoardDeltaWriter deltaWriter = new BoardDeltaWriter(board);
+		assert (deltaWriter.writeDelta(board) == null);
+		assert (deltaWriter.getVersion() == 0);
+	}
+
 	/**
 	 * Test parsing player
 	 */
 	public @Test void testParsePlayer() {
-		Player player = BoardParser.parsePlayer(createScanner(PLAYER_STRING), loadBoard());
+		Player player = BoardParser.parsePlayer(createLexer(PLAYER_STRING), loadBoard());
 		assert (player.getUserName().equals("Legendonger"));
 		assert (player.getNumOfBananas() == 1);
 		assert (player.getLocation().getId() == 2);
@@ -88,7 +261,7 @@ public class DataStorageTesting {
 	 * Test parsing direction
 	 */
 	public @Test void testParseDirection() {
-		Direction d = BoardParser.parseDirection(createScanner(DIRECTION_STRING));
+		Direction d = BoardParser.parseDirection(createLexer(DIRECTION_STRING));
 		assert (d == Direction.NORTH);
 	}
 
@@ -96,7 +269,7 @@ public class DataStorageTesting {
 	 * Test parsing tile
 	 */
 	public @Test void testParseTile1() {
-		Tile t = BoardParser.parseTile(createScanner(GRASSTILE_STRING), 0, 0, loadBoard());
+		Tile t = BoardParser.parseTile(createLexer(GRASSTILE_STRING), 0, 0, loadBoard());
 		assert (t instanceof GrassTile);
 	}
 
@@ -104,7 +277,7 @@ public class DataStorageTesting {
 	 * Test parsing tile
 	 */
 	public @Test void testParseTile2() {
-		Tile t = BoardParser.parseTile(createScanner(WATERTILE_STRING), 0, 0, loadBoard());
+		Tile t = BoardParser.parseTile(createLexer(WATERTILE_STRING), 0, 0, loadBoard());
 		assert (t instanceof WaterTile);
 	}
 
@@ -112,7 +285,7 @@ public class DataStorageTesting {
 	 * Test parsing DoorOutTile
 	 */
 	public @Test void testParseDoorOut() {
-		DoorOutTile t = BoardParser.parseDoorOut(createScanner(DOOROUT_STRING), 0, 0);
+		DoorOutTile t = BoardParser.parseDoorOut(createLexer(DOOROUT_STRING), 0, 0);
 		assert (t.getLocationID() == 18);
 		assert (t.getDoorPos().getX() == 2);
 		assert (t.getDoorPos().getY() == 7);
@@ -122,7 +295,7 @@ public class DataStorageTesting {
 	 * Test parsing GameObject
 	 */
 	public @Test void testParseGameObject() {
-		GameObject t = BoardParser.parseGameObject(createScanner(TREE_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(TREE_STRING), loadBoard());
 		assert (t instanceof Tree);
 	}
 
@@ -130,7 +303,7 @@ public class DataStorageTesting {
 	 * Test parsing Chest
 	 */
 	public @Test void testParseChest() {
-		GameObject t = BoardParser.parseGameObject(createScanner(CHEST_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(CHEST_STRING), loadBoard());
 		assert (t instanceof Chest);
 		Chest c = (Chest) t;
 		assert (c.getContents() == null);
@@ -141,7 +314,7 @@ public class DataStorageTesting {
 	 * Test parsing Key
 	 */
 	public @Test void testParseKey() {
-		GameObject t = BoardParser.parseGameObject(createScanner(KEY_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(KEY_STRING), loadBoard());
 		assert (t instanceof Key);
 		Key k = (Key) t;
 		assert (k.getCode() == 0);
@@ -151,7 +324,7 @@ public class DataStorageTesting {
 	 * Test parsing NPC
 	 */
 	public @Test void testParseNPC() {
-		GameObject t = BoardParser.parseGameObject(createScanner(NPC_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(NPC_STRING), loadBoard());
 		assert (t instanceof NPC);
 		NPC n = (NPC) t;
 	}
@@ -160,7 +333,7 @@ public class DataStorageTesting {
 	 * Test parsing Door
 	 */
 	public @Test void testParseDoor() {
-		GameObject t = BoardParser.parseGameObject(createScanner(DOOR_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(DOOR_STRING), loadBoard());
 		assert (t instanceof Door);
 		Door d = (Door) t;
 		assert (d.getDoorPosition().getX() == 5);
@@ -172,7 +345,7 @@ public class DataStorageTesting {
 	 * Test parsing Banana
 	 */
 	public @Test void testParseBanana() {
-		GameObject t = BoardParser.parseGameObject(createScanner(BANANA_STRING), loadBoard());
+		GameObject t = BoardParser.parseGameObject(createLexer(BANANA_STRING), loadBoard());
 		assert (t instanceof Banana);
 	}
 
@@ -180,10 +353,29 @@ public class DataStorageTesting {
 	 * Test parsing Fishing rod
 	 */
 	public @Test void testParseFishingRod() {
-		GameObject t = BoardParser.parseItem(createScanner(FISHINGROD_STRING));
+		GameObject t = BoardParser.parseItem(createLexer(FISHINGROD_STRING));
 		assert (t instanceof FishingRod);
 	}
 
+	/**
+	 * Test that trees and items with nothing of their own are the same object
+	 * wherever they are parsed, and that a shared item cannot be changed
+	 */
+	public @Test void testSharedObjects() {
+		Board b = BoardParser.parseBoardString("Location{\nid: 0\nname: ?\nw: 2\nh: 1\n(Grass(Tree))\n(Sand(Tree))\n}");
+		Location l = b.getLocationById(0);
+		assert (l.getTile(0, 0).getGameObject() == Tree.TREE);
+		assert (l.getTile(1, 0).getGameObject() == Tree.TREE);
+		assert (BoardParser.parseItem(createLexer(BANANA_STRING)) == Banana.BANANA);
+		assert (BoardParser.parseItem(createLexer(FISHINGROD_STRING)) == FishingRod.FISHING_ROD);
+		try {
+			Banana.BANANA.setName("Plantain");
+			assert false;
+		} catch (IllegalStateException e) {
+			assert (Banana.BANANA.getName().equals("Banana"));
+		}
+	}
+
 	/**
 	 * Test saving player
 	 */
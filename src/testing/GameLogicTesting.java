@@ -2,19 +2,50 @@ package testing;
 
 import static org.junit.Assert.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
+import clientserver.Frame;
+import clientserver.FrameCodec;
+import clientserver.MovePredictor;
+import clientserver.OutboundQueue;
+import clientserver.Packet;
 import clientserver.PlayerCommand;
+import clientserver.Room;
 import clientserver.Server;
 import clientserver.ServerController;
+import clientserver.TickScheduler;
 import core.Board;
+import core.BoardSnapshot;
+import core.Location;
 import core.GameSystem.Direction;
 import exceptions.GameLogicException;
 import gameobjects.Chest;
 import gameobjects.NPC;
 import gameobjects.Player;
+import iohandling.BoardFile;
 import iohandling.BoardParser;
 import items.*;
+import tile.DoorOutTile;
+import tile.Tile;
 import tile.WaterTile;
 import util.Position;
 
@@ -25,6 +56,9 @@ import util.Position;
  */
 public class GameLogicTesting {
 
+	/* Port of the server started by a room test */
+	private int port;
+
 	/**
 	 * Test that makes a player and check it made it correctly
 	 */
@@ -256,7 +290,7 @@ public class GameLogicTesting {
 	public @Test void checkingPickingUpItem(){
 		ServerController s = new ServerController(new Server(1000));
 		s.parseInput(new PlayerCommand("login Simon"));
-		s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).setGameObject(new Banana("Banana"));
+		s.requestBoard().getLocationById(0).editTile(new Position(5,4)).setGameObject(new Banana("Banana"));
 		assertTrue(s.getPlayerByUserName("Simon").getInventory().isEmpty());
 		s.parseInput(new PlayerCommand("move Simon north"));
 		assertFalse(s.getPlayerByUserName("Simon").getInventory().isEmpty());
@@ -268,7 +302,7 @@ public class GameLogicTesting {
 	public @Test void checkingPickingUpItemFalseFullInventory(){
 		ServerController s = new ServerController(new Server(1000));
 		s.parseInput(new PlayerCommand("login Simon"));
-		s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).setGameObject(new Banana("Banana"));
+		s.requestBoard().getLocationById(0).editTile(new Position(5,4)).setGameObject(new Banana("Banana"));
 		for(int i = 0; i < 10; i ++){
 			s.getPlayerByUserName("Simon").getInventory().add(new Banana("Banana"));
 		}
@@ -336,7 +370,7 @@ public class GameLogicTesting {
 		s.parseInput(new PlayerCommand("login Simon"));
 		s.getPlayerByUserName("Simon").getInventory().add(new Fish("fishy"));
 		NPC npc = new NPC("random", Direction.SOUTH);
-		s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).setGameObject(npc);
+		s.requestBoard().getLocationById(0).editTile(new Position(5,4)).setGameObject(npc);
 		s.parseInput(new PlayerCommand("move Simon north"));
 		assertTrue(s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,5)).getGameObject() != null);
 		s.parseInput(new PlayerCommand("siphon Simon 0"));
@@ -351,7 +385,7 @@ public class GameLogicTesting {
 		s.parseInput(new PlayerCommand("login Simon"));
 		Chest chest = new Chest(new Banana("Banana"));
 		chest.setCode(0);
-		s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).setGameObject(chest);
+		s.requestBoard().getLocationById(0).editTile(new Position(5,4)).setGameObject(chest);
 		s.getPlayerByUserName("Simon").getInventory().add(new Key("key", 0));
 		s.parseInput(new PlayerCommand("move Simon north"));
 		assertEquals(s.getPlayerByUserName("Simon").getInventory().get(0).getName(), "Banana");
@@ -365,7 +399,7 @@ public class GameLogicTesting {
 		s.parseInput(new PlayerCommand("login Simon"));
 		Chest chest = new Chest(new Banana("Banana"));
 		chest.setCode(1);
-		s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).setGameObject(chest);
+		s.requestBoard().getLocationById(0).editTile(new Position(5,4)).setGameObject(chest);
 		s.getPlayerByUserName("Simon").getInventory().add(new Key("key", 0));
 		s.parseInput(new PlayerCommand("move Simon north"));
 		assertNotEquals(s.getPlayerByUserName("Simon").getInventory().get(0).getName(), "Banana");
@@ -413,6 +447,786 @@ public class GameLogicTesting {
 		assertTrue(s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,4)).getGameObject() != null);
 	}
 
+	/**
+	 * Checks that commands come back the same after being sent as frames, including ones that are not in the usual form
+	 */
+	public @Test void checkCommandFramesRoundTrip() throws Exception {
+		String[] messages = { "login Simon", "move Simon NORTH", "drop Simon 300", "pickup Simon", "goto Simon 3 4 12", "room join match1", "close", "room join", "move Simon up", "hello there" };
+		for (String message : messages) {
+			byte[] frame = FrameCodec.encode(new PlayerCommand(message));
+			PlayerCommand decoded = FrameCodec.decodeCommand(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH);
+			assertEquals(message, decoded.getMessage());
+		}
+		assertEquals(PlayerCommand.MOVE, new PlayerCommand("move Simon NORTH").getAction());
+		assertEquals(PlayerCommand.TEXT, new PlayerCommand("loginSimon").getAction());
+		byte[] frame = FrameCodec.encode(new PlayerCommand("move Simon NORTH", 300));
+		assertEquals(300, FrameCodec.decodeCommand(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH).getSequence());
+	}
+
+	/**
+	 * Checks that goto walks the player one step each tick until they arrive
+	 */
+	public @Test void checkParsingGotoWalksEachTick(){
+		ServerController s = new ServerController(new Server(1000));
+		s.parseInput(new PlayerCommand("login Simon"));
+		assertEquals("true", s.parseInput(new PlayerCommand("goto Simon 5 7 0")));
+		assertTrue(s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,5)).getGameObject() != null);
+		s.step();
+		assertTrue(s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,6)).getGameObject() != null);
+		s.step();
+		assertTrue(s.requestBoard().getLocationById(0).getTileAtPosition(new Position(5,7)).getGameObject() != null);
+		assertEquals(7, s.getPlayerByUserName("Simon").getPosition().getY());
+	}
+
+	/**
+	 * Checks that any other command from the player stops a goto
+	 */
+	public @Test void checkParsingGotoCancelledByCommand(){
+		ServerController s = new ServerController(new Server(1000));
+		s.parseInput(new PlayerCommand("login Simon"));
+		s.parseInput(new PlayerCommand("goto Simon 5 8 0"));
+		s.step();
+		s.parseInput(new PlayerCommand("pickup Simon"));
+		s.step();
+		assertEquals(6, s.getPlayerByUserName("Simon").getPosition().getY());
+		assertEquals("false", s.parseInput(new PlayerCommand("goto Simon 5 8 99")));
+	}
+
+	/**
+	 * Checks that moves split across regions are only made once they are run, and that every NPC is still on exactly one tile after the
+	 * regions have moved them
+	 */
+	public @Test void checkQueuedMovesInRegions(){
+		ServerController s = new ServerController(new Server(1000));
+		s.setRegionCount(4);
+		s.parseInput(new PlayerCommand("login Simon"));
+		int npcs = countNPCs(s.requestBoard());
+		assertEquals("true", s.queueMove(new PlayerCommand("move Simon south")));
+		assertEquals(5, s.getPlayerByUserName("Simon").getPosition().getY());
+		s.runQueuedMoves();
+		assertEquals(6, s.getPlayerByUserName("Simon").getPosition().getY());
+		assertEquals("true", s.parseInput(new PlayerCommand("goto Simon 5 8 0")));
+		s.step();
+		s.step();
+		assertEquals(8, s.getPlayerByUserName("Simon").getPosition().getY());
+		for (int i = 0; i < 50; i++) {
+			s.tick(i);
+		}
+		assertEquals(npcs, countNPCs(s.requestBoard()));
+		s.setRegionCount(1);
+	}
+
+	/**
+	 * Checks that a move records the tiles the player left and moved to as changed in its location, and that changes are only taken once
+	 */
+	public @Test void checkMoveRecordsChangedTiles(){
+		ServerController s = new ServerController(new Server(1000));
+		s.parseInput(new PlayerCommand("login Simon"));
+		Board board = s.requestBoard();
+		for (Location loc : board.takeChangedLocations()) {
+			loc.takeChangedTiles();
+		}
+		assertFalse(board.hasChanges());
+		Location start = board.getLocationById(0);
+		int version = start.getVersion();
+		s.parseInput(new PlayerCommand("move Simon south"));
+		assertTrue(board.hasChanges());
+		assertTrue(start.getVersion() > version);
+		assertEquals(1, board.takeChangedLocations().size());
+		List<Position> changed = start.takeChangedTiles();
+		assertEquals(2, changed.size());
+		assertEquals(5, changed.get(0).getY());
+		assertEquals(6, changed.get(1).getY());
+		assertTrue(start.takeChangedTiles().isEmpty());
+		assertFalse(board.hasChanges());
+	}
+
+	/**
+	 * Counts the NPCs standing on a board
+	 *
+	 * @param board - board to count
+	 * @return count - number of tiles holding an NPC
+	 */
+	private int countNPCs(Board board) {
+		int count = 0;
+		for (Location loc : board.getLocations().values()) {
+			for (Tile[] column : loc.getTiles()) {
+				for (Tile t : column) {
+					if (t.getGameObject() instanceof NPC) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks that packets come back the same after being sent as frames
+	 */
+	public @Test void checkPacketFramesRoundTrip() throws Exception {
+		byte[] frame = FrameCodec.encode(new Packet(Packet.DELTA, "Tile{0,1,2,(G)}", null, 1000, 70000));
+		Packet decoded = FrameCodec.decodePacket(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH);
+		assertEquals(Packet.DELTA, decoded.getType());
+		assertEquals("Tile{0,1,2,(G)}", decoded.getBoard());
+		assertEquals(1000, decoded.getTime());
+		assertEquals(70000, decoded.getVersion());
+		frame = FrameCodec.encode(new Packet(Packet.POPUP, null, "hello", 0));
+		decoded = FrameCodec.decodePacket(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH);
+		assertEquals("hello", decoded.getMessage());
+		frame = FrameCodec.encode(new Packet(Packet.ACK, 42, 70000));
+		decoded = FrameCodec.decodePacket(frame, FrameCodec.HEADER_LENGTH, frame.length - FrameCodec.HEADER_LENGTH);
+		assertEquals(42, decoded.getSequence());
+		assertEquals(70000, decoded.getVersion());
+	}
+
+	/**
+	 * Checks that predicted moves are kept until the board reaches the version they were acknowledged with, and are then not applied twice
+	 */
+	public @Test void checkPredictedMovesAckBeforeBoard(){
+		Board b = BoardParser.parseBoardFName("map-new.txt");
+		Player p = placePredictedPlayer(b);
+		int x = p.getPosition().getX();
+		MovePredictor predictor = new MovePredictor();
+		predictor.predict(b, "Simon", 1, Direction.EAST);
+		predictor.predict(b, "Simon", 2, Direction.EAST);
+		assertEquals(x + 2, p.getPosition().getX());
+		assertEquals(2, predictor.getPendingCount());
+
+		/* The first move is acknowledged with version 5, but the board is still at version 4 */
+		predictor.acknowledge(1, 5);
+		predictor.rewind();
+		assertEquals(x, p.getPosition().getX());
+		predictor.replay(b, "Simon", 4);
+		assertEquals(2, predictor.getPendingCount());
+		assertEquals(x + 2, p.getPosition().getX());
+
+		/* The delta to version 5 holds the first move, only the second is replayed */
+		predictor.rewind();
+		serverMove(b, p, x + 1);
+		predictor.replay(b, "Simon", 5);
+		assertEquals(1, predictor.getPendingCount());
+		assertEquals(x + 2, p.getPosition().getX());
+		assertTrue(b.getLocationById(0).getTile(x + 2, p.getPosition().getY()).getGameObject() == p);
+		assertEquals(null, b.getLocationById(0).getTile(x + 1, p.getPosition().getY()).getGameObject());
+	}
+
+	/**
+	 * Checks that an acknowledgement arriving after the board that holds its move removes the move straight away
+	 */
+	public @Test void checkPredictedMovesAckAfterBoard(){
+		Board b = BoardParser.parseBoardFName("map-new.txt");
+		Player p = placePredictedPlayer(b);
+		int x = p.getPosition().getX();
+		MovePredictor predictor = new MovePredictor();
+		predictor.predict(b, "Simon", 1, Direction.EAST);
+		predictor.predict(b, "Simon", 2, Direction.EAST);
+
+		/* The delta to version 5 with the first move comes first, both moves are still pending on top of it */
+		predictor.rewind();
+		serverMove(b, p, x + 1);
+		predictor.replay(b, "Simon", 5);
+		assertEquals(2, predictor.getPendingCount());
+
+		/* Then the acknowledgement of the first move with version 5 */
+		predictor.acknowledge(1, 5);
+		predictor.rewind();
+		assertEquals(x + 1, p.getPosition().getX());
+		predictor.replay(b, "Simon", 5);
+		assertEquals(1, predictor.getPendingCount());
+		assertEquals(x + 2, p.getPosition().getX());
+
+		/* The second move is acknowledged and arrives, nothing is left to replay */
+		predictor.rewind();
+		serverMove(b, p, x + 2);
+		predictor.acknowledge(2, 6);
+		predictor.rewind();
+		predictor.replay(b, "Simon", 6);
+		assertEquals(0, predictor.getPendingCount());
+		assertEquals(x + 2, p.getPosition().getX());
+	}
+
+	/**
+	 * Helper method for putting a player on the first of three empty tiles in a row of location 0, so they can be moved east twice
+	 *
+	 * @param b - Board to put the player on
+	 * @return Player - player put on the board
+	 */
+	private Player placePredictedPlayer(Board b){
+		Location loc = b.getLocationById(0);
+		for (int y = 0; y < loc.getHeight(); y++) {
+			for (int x = 0; x + 2 < loc.getWidth(); x++) {
+				if (emptyGround(loc.getTile(x, y)) && emptyGround(loc.getTile(x + 1, y)) && emptyGround(loc.getTile(x + 2, y))) {
+					Player p = new Player("Simon", 0, new Position(x, y), b);
+					b.addPlayer("Simon", p);
+					loc.getTile(x, y).setGameObject(p);
+					p.setFacing(Direction.NORTH);
+					return p;
+				}
+			}
+		}
+		throw new AssertionError("No three empty tiles in a row");
+	}
+
+	/**
+	 * Helper method for checking a tile can be walked over without anything happening
+	 *
+	 * @param t - Tile to check
+	 * @return boolean - true if the tile is empty ground
+	 */
+	private boolean emptyGround(Tile t){
+		return t.getGameObject() == null && !(t instanceof WaterTile) && !(t instanceof DoorOutTile);
+	}
+
+	/**
+	 * Helper method for moving a player along their row the way a delta from the server would
+	 *
+	 * @param b - Board the player is on
+	 * @param p - Player to move
+	 * @param x - x-pos the server has the player at
+	 */
+	private void serverMove(Board b, Player p, int x){
+		Location loc = b.getLocationById(0);
+		int y = p.getPosition().getY();
+		loc.getTile(p.getPosition().getX(), y).setGameObject(null);
+		loc.getTile(x, y).setGameObject(p);
+		p.setPosition(new Position(x, y));
+	}
+
+	/**
+	 * Checks that rooms can be created and joined by name, and that a name can only be created once
+	 */
+	public @Test void checkRoomCreateAndJoin() throws Exception {
+		Server server = startServer();
+		try {
+			RoomClient a = new RoomClient(port);
+			RoomClient b = new RoomClient(port);
+			assertEquals("Joined room cave", a.room("room create cave"));
+			assertEquals("Room cave already exists", b.room("room create cave"));
+			assertEquals("Joined room cave", b.room("room join cave"));
+			assertEquals(2, server.getRoomCount());
+			assertEquals("Joined room beach", b.room("room join beach"));
+			assertEquals(3, server.getRoomCount());
+			assertTrue(a.room("room cave").startsWith("Use room create or room join"));
+			a.close();
+			b.close();
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that a room that already has LOGIN_LIMIT clients cannot be joined
+	 */
+	public @Test void checkRoomJoinFull() throws Exception {
+		Server server = startServer();
+		try {
+			RoomClient[] clients = new RoomClient[5];
+			for (int i = 0; i < clients.length; i++) {
+				clients[i] = new RoomClient(port);
+			}
+			for (int i = 0; i < 4; i++) {
+				assertEquals("Joined room cave", clients[i].room("room join cave"));
+			}
+			assertEquals("Room cave is full", clients[4].room("room join cave"));
+			for (RoomClient c : clients) {
+				c.close();
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that a client that has logged in cannot change room, but one that has not can
+	 */
+	public @Test void checkRoomSwitchRefusedAfterLogin() throws Exception {
+		Server server = startServer();
+		try {
+			RoomClient a = new RoomClient(port);
+			assertEquals("Joined room cave", a.room("room join cave"));
+			assertEquals("Joined room beach", a.room("room join beach"));
+			/* The room left behind was empty so it is closed */
+			assertEquals(2, server.getRoomCount());
+			a.send("login Simon");
+			a.waitFor(Packet.BOARD);
+			assertEquals("You are already playing in room beach", a.room("room join cave"));
+			a.close();
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that a room is closed once its last client has disconnected, and the main room is not
+	 */
+	public @Test void checkRoomClosedWhenEmpty() throws Exception {
+		Server server = startServer();
+		try {
+			RoomClient a = new RoomClient(port);
+			RoomClient b = new RoomClient(port);
+			RoomClient c = new RoomClient(port);
+			assertEquals("Joined room cave", a.room("room join cave"));
+			assertEquals("Joined room cave", b.room("room join cave"));
+			a.send("login Simon");
+			a.waitFor(Packet.BOARD);
+			c.send("login Jack");
+			c.waitFor(Packet.BOARD);
+			assertEquals(2, server.getRoomCount());
+			a.close();
+			assertFalse(waitForRooms(server, 1));
+			b.close();
+			assertTrue(waitForRooms(server, 1));
+			c.close();
+			assertFalse(waitForRooms(server, 0));
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that the commands a client sends are applied in the order they arrived, moves and other commands alike, and that the commands it
+	 * sent before disconnecting are applied before it is logged out. The room's own ticks are stopped so the test runs each tick itself
+	 */
+	public @Test void checkRoomCommandsInOrder() throws Exception {
+		Server server = startServer();
+		try {
+			Room room = server.getRoom(Server.MAIN_ROOM);
+			room.stop();
+			RoomClient a = new RoomClient(port);
+			a.send("login Simon");
+			a.send("move Simon EAST");
+			a.send("move Simon EAST");
+			a.send("move Simon SOUTH");
+			a.close();
+			/* Tick until the disconnect has been applied, the commands may arrive over more than one tick but stay in order */
+			String simon = null;
+			for (int i = 0; i < 200 && (simon == null || simon.contains(",true,")); i++) {
+				room.tick(i);
+				BoardSnapshot snapshot = server.getSnapshot(Server.MAIN_ROOM);
+				simon = snapshot.getPlayers().isEmpty() ? null : snapshot.getPlayers().get(0).getSaveString();
+				Thread.sleep(10);
+			}
+			/* Had a move run before the login it would have been lost, had the moves run in another order a tree would have stopped one, and had
+			 * the disconnect run before the moves they would have put Simon back on the board */
+			assertEquals("Player\n{\nSimon,0,0,7,6,SOUTH,false,", simon.substring(0, simon.indexOf("false,") + 6));
+			assertEquals("Stone", server.getSnapshot(Server.MAIN_ROOM).getLocationById(0).getTile(7, 6));
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Checks that the main room of a server given a paged world plays on the board file, holding only a few of its locations in memory, and
+	 * that the players are written back to the file when the server stops
+	 */
+	public @Test void checkPagedMainRoom() throws Exception {
+		File f = File.createTempFile("paged", ".map");
+		f.deleteOnExit();
+		Board whole = BoardParser.parseBoardFName("map-new.txt");
+		BoardFile.create(whole, f.getPath()).close();
+		Server server = startServer(f.getPath());
+		try {
+			RoomClient a = new RoomClient(port);
+			a.send("login Simon");
+			a.waitFor(Packet.BOARD);
+			BoardSnapshot snapshot = server.getSnapshot(Server.MAIN_ROOM);
+			assertTrue(snapshot.getLocations().containsKey(0));
+			assertTrue(snapshot.getLocations().size() < whole.getLocations().size());
+			a.close();
+		} finally {
+			server.stop();
+		}
+		BoardFile file = BoardFile.open(f.getPath());
+		Board players = new Board();
+		file.readPlayers(players);
+		file.close();
+		assertNotNull(players.getPlayer("Simon"));
+	}
+
+	/**
+	 * Helper method for starting a server on a free port and waiting until it has opened the main room, the port is kept for the clients
+	 *
+	 * @return Server - the running server
+	 * @throws Exception - if no port can be found
+	 */
+	private Server startServer() throws Exception {
+		return startServer(null);
+	}
+
+	/**
+	 * Helper method for starting a server on a free port whose main room plays a paged world, and waiting until it has opened the main room
+	 *
+	 * @param pagedWorld - board file of the main room, null to play the map
+	 * @return Server - the running server
+	 * @throws Exception - if no port can be found or the board file cannot be opened
+	 */
+	private Server startServer(String pagedWorld) throws Exception {
+		ServerSocket free = new ServerSocket(0);
+		port = free.getLocalPort();
+		free.close();
+		final Server server = new Server(port);
+		if (pagedWorld != null) {
+			server.setPagedWorld(pagedWorld, 4, 1000);
+		}
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				server.start();
+			}
+		});
+		t.setDaemon(true);
+		t.start();
+		assertTrue(waitForRooms(server, 1));
+		return server;
+	}
+
+	/**
+	 * Helper method for waiting up to two seconds for a server to have a number of rooms open
+	 *
+	 * @param server - Server to check
+	 * @param rooms - Number of rooms to wait for
+	 * @return boolean - true if the server had that many rooms before the time ran out
+	 * @throws InterruptedException - if interrupted while waiting
+	 */
+	private boolean waitForRooms(Server server, int rooms) throws InterruptedException {
+		for (int i = 0; i < 200; i++) {
+			if (server.getRoomCount() == rooms) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return false;
+	}
+
+	/**
+	 * A client of a server started by a test, it sends commands and reads the packets sent back
+	 */
+	private static class RoomClient {
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+
+		/**
+		 * Constructor that connects to a server on this machine
+		 *
+		 * @param port - Port of the server to connect to
+		 * @throws IOException - if the connection cannot be made
+		 */
+		RoomClient(int port) throws IOException {
+			socket = new Socket("localhost", port);
+			socket.setSoTimeout(5000);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * Sends a command to the server
+		 *
+		 * @param command - Command to send
+		 * @throws IOException - if the command cannot be sent
+		 */
+		void send(String command) throws IOException {
+			FrameCodec.writeFrame(out, new PlayerCommand(command));
+		}
+
+		/**
+		 * Sends a room command and reads the reply
+		 *
+		 * @param command - Room command to send
+		 * @return String - message the server replied with
+		 * @throws IOException - if nothing is sent back
+		 */
+		String room(String command) throws IOException {
+			send(command);
+			return waitFor(Packet.POPUP_ONE).getMessage();
+		}
+
+		/**
+		 * Reads packets until one of a kind arrives
+		 *
+		 * @param type - Kind of packet to wait for
+		 * @return Packet - the packet
+		 * @throws IOException - if the server stops sending before one arrives
+		 */
+		Packet waitFor(byte type) throws IOException {
+			while (true) {
+				Packet p = FrameCodec.readPacket(in);
+				if (p.getType() == type) {
+					return p;
+				}
+			}
+		}
+
+		/**
+		 * Disconnects from the server
+		 *
+		 * @throws IOException - if the socket cannot be closed
+		 */
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Checks that queued boards, deltas and times are dropped once a newer frame replaces them
+	 */
+	public @Test void checkOutboundQueueDropsReplacedFrames(){
+		OutboundQueue q = new OutboundQueue(new ManualClock());
+		assertTrue(q.offer(frame(Packet.BOARD, 100, 1)));
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 2)));
+		assertTrue(q.offer(frame(Packet.TIME, 0, 0)));
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 4)));
+		assertTrue(q.offer(frame(Packet.TIME, 0, 0)));
+		/* The board at version 3 replaces the older board, the delta to version 2 and nothing newer */
+		assertTrue(q.offer(frame(Packet.BOARD, 100, 3)));
+		/* A delta at or below the queued board is already in it */
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 3)));
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 2)));
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 5)));
+		assertEquals("DELTA 4, TIME 0, BOARD 3, DELTA 5", drain(q));
+		assertEquals(0, q.getQueuedBytes());
+	}
+
+	/**
+	 * Checks that a client over the soft budget is only disconnected once the grace period has passed
+	 */
+	public @Test void checkOutboundQueueSoftBudgetGrace(){
+		ManualClock clock = new ManualClock();
+		OutboundQueue q = new OutboundQueue(clock);
+		assertTrue(q.offer(frame(Packet.DELTA, OutboundQueue.MAX_QUEUED_BYTES / 2, 1)));
+		assertTrue(q.offer(frame(Packet.DELTA, OutboundQueue.MAX_QUEUED_BYTES / 2, 2)));
+		assertTrue(q.getQueuedBytes() > OutboundQueue.MAX_QUEUED_BYTES);
+		clock.advance(OutboundQueue.GRACE_MILLIS);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 3)));
+		clock.advance(1);
+		assertFalse(q.offer(frame(Packet.DELTA, 10, 4)));
+
+		/* Catching up before the grace period ends starts it again */
+		q = new OutboundQueue(clock);
+		assertTrue(q.offer(frame(Packet.DELTA, OutboundQueue.MAX_QUEUED_BYTES + 1, 1)));
+		clock.advance(OutboundQueue.GRACE_MILLIS);
+		drain(q);
+		assertTrue(q.offer(frame(Packet.DELTA, OutboundQueue.MAX_QUEUED_BYTES + 1, 2)));
+		clock.advance(OutboundQueue.GRACE_MILLIS);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 3)));
+	}
+
+	/**
+	 * Checks that a client with more than the hard limit queued is disconnected straight away
+	 */
+	public @Test void checkOutboundQueueHardLimit(){
+		OutboundQueue q = new OutboundQueue(new ManualClock());
+		int part = OutboundQueue.HARD_QUEUED_BYTES / 4;
+		for (int i = 1; i < 4; i++) {
+			assertTrue(q.offer(frame(Packet.DELTA, part, i)));
+		}
+		assertTrue(q.getQueuedBytes() < OutboundQueue.HARD_QUEUED_BYTES);
+		assertFalse(q.offer(frame(Packet.DELTA, part, 4)));
+	}
+
+	/**
+	 * Checks that a client whose frames wait too long is disconnected once the grace period has passed, even while a frame is being written
+	 */
+	public @Test void checkOutboundQueueLatency(){
+		ManualClock clock = new ManualClock();
+		OutboundQueue q = new OutboundQueue(clock);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 1)));
+		clock.advance(OutboundQueue.MAX_LATENCY_MILLIS);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 2)));
+		/* Taken but never completed, as when the client stops reading */
+		assertNotNull(q.poll());
+		clock.advance(1);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 3)));
+		clock.advance(OutboundQueue.GRACE_MILLIS);
+		assertTrue(q.offer(frame(Packet.DELTA, 10, 4)));
+		clock.advance(1);
+		assertFalse(q.offer(frame(Packet.DELTA, 10, 5)));
+	}
+
+	/**
+	 * Checks that a tick taking longer than the tick period is counted as an overrun and the next runs straight away, and that a tick is due
+	 * a period after the last one was due rather than a period after it finished
+	 */
+	public @Test void checkTickOverrun() {
+		ManualClock clock = new ManualClock();
+		RecordingPool pool = new RecordingPool();
+		TimedTicks ticks = new TimedTicks(clock, 150, 30);
+		TickScheduler scheduler = new TickScheduler(10, ticks, pool, clock);
+		scheduler.start();
+		pool.runNext();
+		pool.runNext();
+		assertEquals(Arrays.asList(0L, 1L), ticks.seen);
+		assertEquals(2, scheduler.getTicks());
+		assertEquals(1, scheduler.getOverruns());
+		assertEquals(0, scheduler.getSkipped());
+		/* The second tick was due 200 ms after the start and finished at 180 ms */
+		assertEquals(Arrays.asList(0L, 0L, TimeUnit.MILLISECONDS.toNanos(20)), pool.delays);
+	}
+
+	/**
+	 * Checks that when a tick falls several periods behind the ticks it missed are skipped and counted, and the tick numbers count them
+	 */
+	public @Test void checkTickFallsBehind() {
+		ManualClock clock = new ManualClock();
+		RecordingPool pool = new RecordingPool();
+		TimedTicks ticks = new TimedTicks(clock, 350, 30);
+		TickScheduler scheduler = new TickScheduler(10, ticks, pool, clock);
+		scheduler.start();
+		pool.runNext();
+		pool.runNext();
+		/* The first tick ended at 350 ms, past the ticks due at 100 and 200 ms, so the next is the one due at 300 ms */
+		assertEquals(Arrays.asList(0L, 3L), ticks.seen);
+		assertEquals(2, scheduler.getTicks());
+		assertEquals(1, scheduler.getOverruns());
+		assertEquals(2, scheduler.getSkipped());
+		assertEquals(Arrays.asList(0L, 0L, TimeUnit.MILLISECONDS.toNanos(20)), pool.delays);
+	}
+
+	/**
+	 * Checks that once a scheduler is stopped, whether between ticks or during one, no tick runs and no more are scheduled
+	 */
+	public @Test void checkTickStop() {
+		ManualClock clock = new ManualClock();
+		RecordingPool pool = new RecordingPool();
+		TimedTicks ticks = new TimedTicks(clock, 10);
+		TickScheduler scheduler = new TickScheduler(10, ticks, pool, clock);
+		scheduler.start();
+		pool.runNext();
+		scheduler.stop();
+		pool.runNext();
+		assertEquals(Arrays.asList(0L), ticks.seen);
+		assertEquals(2, pool.delays.size());
+
+		pool = new RecordingPool();
+		ticks = new TimedTicks(clock, 10);
+		scheduler = new TickScheduler(10, ticks, pool, clock);
+		ticks.stopping = scheduler;
+		scheduler.start();
+		pool.runNext();
+		assertEquals(Arrays.asList(0L), ticks.seen);
+		assertEquals(1, pool.delays.size());
+	}
+
+	/**
+	 * Helper method for making a frame of about a given size
+	 *
+	 * @param type - Kind of packet
+	 * @param size - Number of characters of board in the packet
+	 * @param version - Board version of the packet
+	 * @return Frame - encoded frame
+	 */
+	private Frame frame(byte type, int size, int version){
+		char[] board = new char[size];
+		Arrays.fill(board, 'G');
+		return new Frame(new Packet(type, type == Packet.TIME ? null : new String(board), null, 0, version));
+	}
+
+	/**
+	 * Helper method for writing out everything queued
+	 *
+	 * @param q - Queue to drain
+	 * @return String - kind and version of each frame taken, in order
+	 */
+	private String drain(OutboundQueue q){
+		StringBuilder sb = new StringBuilder();
+		for (Frame f = q.poll(); f != null; f = q.poll()) {
+			q.completed();
+			sb.append(sb.length() == 0 ? "" : ", ").append(f.getType() == Packet.BOARD ? "BOARD" : f.getType() == Packet.DELTA ? "DELTA" : "TIME")
+					.append(" ").append(f.getVersion());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Pool that keeps the tick a scheduler hands it instead of running it, so a test can run each tick itself
+	 */
+	private static class RecordingPool extends ScheduledThreadPoolExecutor {
+		private final List<Long> delays = new ArrayList<Long>();
+		private Runnable next;
+
+		RecordingPool() {
+			super(1);
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			delays.add(unit.toNanos(delay));
+			next = command;
+			return null;
+		}
+
+		/**
+		 * Runs the last tick that was scheduled
+		 */
+		void runNext() {
+			assertNotNull(next);
+			Runnable r = next;
+			next = null;
+			r.run();
+		}
+	}
+
+	/**
+	 * Tick that records its number and moves a clock on by how long it takes, the last time given is used for every later tick
+	 */
+	private static class TimedTicks implements TickScheduler.Tickable {
+		private final ManualClock clock;
+		private final long[] millis;
+		private final List<Long> seen = new ArrayList<Long>();
+		private TickScheduler stopping;
+
+		/**
+		 * Constructor for the ticks
+		 *
+		 * @param clock - clock to move on
+		 * @param millis - milliseconds each tick takes
+		 */
+		TimedTicks(ManualClock clock, long... millis) {
+			this.clock = clock;
+			this.millis = millis;
+		}
+
+		public void tick(long tick) {
+			clock.advance(millis[Math.min(seen.size(), millis.length - 1)]);
+			seen.add(tick);
+			if (stopping != null) {
+				stopping.stop();
+			}
+		}
+	}
+
+	/**
+	 * Clock that only moves when told to, so the time limits of a queue and a scheduler can be tested without waiting
+	 */
+	private static class ManualClock extends Clock {
+		private long millis = 1000000;
+
+		/**
+		 * Moves the clock on
+		 *
+		 * @param by - milliseconds to move it by
+		 */
+		void advance(long by) {
+			millis += by;
+		}
+
+		public long millis() {
+			return millis;
+		}
+
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+
 	/**
 	 * Helper method for creating a player
 	 *
@@ -3,6 +3,13 @@ package testing;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 import clientserver.Server;
@@ -11,8 +18,13 @@ import core.Location;
 import core.Board;
 import core.GameSystem.Direction;
 import gameobjects.Player;
+import gameobjects.Tree;
+import iohandling.BoardParser;
+import iohandling.BoardWriter;
 import junit.framework.AssertionFailedError;
 import tile.Tile;
+import util.IntObjectMap;
+import util.PackedPosition;
 import util.Position;
 
 public class LocationTesting {
@@ -154,5 +166,119 @@ public class LocationTesting {
 
 	}
 
+	/**
+	 * Tests that only the locations around the player, or just the interior, can be seen
+	 */
+	public @Test void testLocationsOfInterest(){
+		Board b = new ServerController(new Server(1000)).requestBoard();
+		Set<Integer> outside = b.getLocationsOfInterest(0);
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 5, 6, 7, 8, 9, 12)), outside);
+		assertEquals(new HashSet<Integer>(Arrays.asList(14)), b.getLocationsOfInterest(14));
+		assertTrue(b.getLocationsOfInterest(1000).isEmpty());
+	}
+
+	/**
+	 * Tests that a compact location gives views of the same tiles, that
+	 * views of the same tile are equal, and that putting an object on a view
+	 * changes the location
+	 */
+	public @Test void testCompactLocation(){
+		Board b = new ServerController(new Server(1000)).requestBoard();
+		String before = BoardWriter.writeBoardToString(b);
+		assertEquals(b.getLocations().size(), b.compact());
+		assertEquals(before, BoardWriter.writeBoardToString(b));
+
+		Location l = b.getLocationById(0);
+		assertTrue(l.isCompact());
+		Tile t = l.getTileAtPosition(new Position(5,5));
+		assertTrue(t != l.getTile(5, 5));
+		assertEquals(t, l.getTile(5, 5));
+		assertEquals(t.hashCode(), l.getTile(5, 5).hashCode());
+		assertEquals(l.getDirOfTile(t.getPos(), l.getTileAtPosition(new Position(6,5))),Direction.EAST);
+		assertEquals(b.getLocationById(9).getTileAtPositionInLoc(new Position(1,5)),l.getTileAtPosition(new Position(11,5)));
+
+		int version = l.getVersion();
+		int occupied = l.getOccupiedTiles().size();
+		Tile empty = null;
+		for (int i = 0; i < l.getWidth() && empty == null; i++) {
+			for (int j = 0; j < l.getHeight() && empty == null; j++) {
+				if (l.getTile(i, j).getGameObject() == null) {
+					empty = l.getTile(i, j);
+				}
+			}
+		}
+		Tree tree = new Tree();
+		b.editTile(empty).setGameObject(tree);
+		assertEquals(tree, l.getGameObject(empty.getPos()));
+		assertEquals(tree, b.getCurrentTile(empty).getGameObject());
+		assertEquals(occupied + 1, l.getOccupiedTiles().size());
+		assertEquals(version + 1, l.getVersion());
+		assertTrue(l.getTileString(empty.getPos().getX(), empty.getPos().getY()).endsWith("(Tree)"));
+	}
+
+	/**
+	 * Tests that packed positions unpack to what was packed, and that the
+	 * grid of locations and the primitive lookups agree with those that take
+	 * objects
+	 */
+	public @Test void testPackedPositions(){
+		long packed = PackedPosition.pack(123456, 9, 65535);
+		assertEquals(123456, PackedPosition.locationID(packed));
+		assertEquals(9, PackedPosition.x(packed));
+		assertEquals(65535, PackedPosition.y(packed));
+		int offset = PackedPosition.packOffset(-16384, 16383);
+		assertTrue(offset >= 0);
+		assertEquals(-16384, PackedPosition.offsetX(offset));
+		assertEquals(16383, PackedPosition.offsetY(offset));
+		assertTrue(Position.of(3, 4) == Position.of(3, 4));
+
+		Board b = new ServerController(new Server(1000)).requestBoard();
+		Map<Point, Integer> all = b.mapLocations(0, 0, 0, new HashMap<Point, Integer>());
+		IntObjectMap<Location> grid = b.mapLocationGrid(0, 1);
+		for (Map.Entry<Point, Integer> e : all.entrySet()) {
+			Location found = grid.get(PackedPosition.packOffset(e.getKey().x, e.getKey().y));
+			if (Math.abs(e.getKey().x) <= 1 && Math.abs(e.getKey().y) <= 1) {
+				assertEquals(e.getValue().intValue(), found.getId());
+				assertEquals(found, b.getLocationAt(0, e.getKey().x, e.getKey().y));
+			} else {
+				assertEquals(null, found);
+			}
+		}
+
+		Location l = b.getLocationById(0);
+		Tile t = l.getTile(5, 5);
+		assertEquals(PackedPosition.pack(0, 5, 5), t.getPackedPosition());
+		for (Direction d : Direction.values()) {
+			assertEquals(l.getTileInDirection(t.getPos(), d), l.getTileInDirection(5, 5, d));
+		}
+		assertEquals(l.getTileAtPosition(new Position(11, 5)), l.getTileAtPosition(11, 5));
+		assertEquals(l.getTileAtPosition(new Position(-1, 5)), l.getTileAtPosition(-1, 5));
+	}
+
+	/**
+	 * Tests that the lookups drawing uses instead of making views agree with
+	 * the tiles, on a compact board and on a board of arrays of tiles
+	 */
+	public @Test void testLookupsWithoutViews(){
+		Board compact = new ServerController(new Server(1000)).requestBoard();
+		compact.compact();
+		assertTrue(compact.getLocationById(0).isCompact());
+		for (Board b : new Board[] { compact, BoardParser.parseBoardFName("map-new.txt") }) {
+			for (Location l : b.getLocations().values()) {
+				for (int x = 0; x < l.getWidth(); x++) {
+					for (int y = 0; y < l.getHeight(); y++) {
+						Tile t = l.getTile(x, y);
+						assertEquals(t.getGameObject(), l.getGameObject(x, y));
+						for (Direction d : Direction.values()) {
+							assertEquals(t.getImage(d), l.getGroundImage(x, y, d));
+							Tile next = l.getTileInDirection(x, y, d);
+							assertEquals(next == null ? null : next.getGameObject(), l.getGameObjectInDirection(x, y, d));
+						}
+					}
+				}
+			}
+		}
+	}
+
 
 }
@@ -17,8 +17,17 @@ public class DoorOutTile extends Tile {
 
 	Position doorPos;
 
-	final String IMG_PRE = "assets/tiles/doorOut/doorOut";
-	final String IMG_POST = ".png";
+	static final String IMG_PRE = "assets/tiles/doorOut/doorOut";
+	static final String IMG_POST = ".png";
+
+	/* The file name for each viewing direction, so none is built while drawing */
+	private static final String[] IMAGES = new String[Direction.values().length];
+
+	static {
+		for (Direction d : Direction.values()) {
+			IMAGES[d.ordinal()] = IMG_PRE + d.toString() + IMG_POST;
+		}
+	}
 
 	public DoorOutTile(Position pos, GameObject gameObject, int locationID, Position doorPos) {
 		super(pos, gameObject);
@@ -51,8 +60,9 @@ public class DoorOutTile extends Tile {
 	 */
 	public String toString() {
 		String s = "DoorOut(" + outLocationID + "," + doorPos.getX() + "," + doorPos.getY() + ")";
-		if (gameObject != null) {
-			s += "(" + gameObject.toString() + ")";
+		GameObject object = getGameObject();
+		if (object != null) {
+			s += "(" + object.toString() + ")";
 
 		}
 		return s;
@@ -63,7 +73,17 @@ public class DoorOutTile extends Tile {
 	 * @return toString
 	 */
 	public String getImage(Direction viewing) {
-		fname = IMG_PRE + viewing.toString() + IMG_POST;
+		fname = image(viewing);
 		return fname;
 	}
+
+	/**
+	 * Gets the file name of the image of a door out, without needing one
+	 *
+	 * @param viewing - current viewing direction
+	 * @return fname - file name of the image
+	 */
+	public static String image(Direction viewing) {
+		return IMAGES[viewing.ordinal()];
+	}
 }
@@ -17,6 +17,9 @@ import util.Position;
  */
 public class GrassTile extends Tile {
 
+	/* The file name of the image of the tile, also drawn for compact tiles without making one */
+	public static final String IMAGE = "assets/tiles/grassTile.png";
+
 	/**
 	 * Constructor that calls the super constructor
 	 * 
@@ -25,13 +28,14 @@ public class GrassTile extends Tile {
 	 */
 	public GrassTile(Position pos, GameObject gameObject) {
 		super(pos, gameObject);
-		fname = "assets/tiles/grassTile.png";
+		fname = IMAGE;
 	}
 
 	public String toString() {
 		String s = "Grass";
-		if (gameObject != null) {
-			s += "(" + gameObject.toString() + ")";
+		GameObject object = getGameObject();
+		if (object != null) {
+			s += "(" + object.toString() + ")";
 		}
 		return s;
 	}
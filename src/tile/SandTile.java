@@ -16,6 +16,9 @@ import util.Position;
  *
  */
 public class SandTile extends Tile {
+
+	/* The file name of the image of the tile, also drawn for compact tiles without making one */
+	public static final String IMAGE = "assets/tiles/sandTile.png";
 	
 	/**
 	 * Constructor that calls the super constructor
@@ -25,13 +28,14 @@ public class SandTile extends Tile {
 	 */
 	public SandTile(Position pos, GameObject gameObject) {
 		super(pos, gameObject);
-		fname = "assets/tiles/sandTile.png";
+		fname = IMAGE;
 	}
 
 	public String toString() {
 		String s = "Sand";
-		if (gameObject != null) {
-			s += "(" + gameObject.toString() + ")";
+		GameObject object = getGameObject();
+		if (object != null) {
+			s += "(" + object.toString() + ")";
 		}
 		return s;
 	}
@@ -16,6 +16,9 @@ import util.Position;
  *
  */
 public class StoneTile extends Tile {
+
+	/* The file name of the image of the tile, also drawn for compact tiles without making one */
+	public static final String IMAGE = "assets/tiles/stoneTile.png";
 	
 	/**
 	 * Constructor that calls the super constructor
@@ -25,13 +28,14 @@ public class StoneTile extends Tile {
 	 */
 	public StoneTile(Position pos, GameObject gameObject) {
 		super(pos, gameObject);
-		fname = "assets/tiles/stoneTile.png";
+		fname = IMAGE;
 	}
 
 	public String toString() {
 		String s = "Stone";
-		if(gameObject!=null){
-			s+= "(" + gameObject.toString() + ")";
+		GameObject object = getGameObject();
+		if(object!=null){
+			s+= "(" + object.toString() + ")";
 		}
 		return s;
 	}
@@ -3,21 +3,36 @@ package tile;
 import java.awt.image.BufferedImage;
 
 import core.GameSystem.Direction;
+import core.Location;
 import gameobjects.GameObject;
+import util.PackedPosition;
 import util.Position;
 
 /**
  * Class that holds all the information for an tile, this is an abstract class that holds all the information for each of the tiles on the map
  * 
+ * A tile can be shared by every game played on the same map, a shared tile cannot be changed and is copied by its location before anything is
+ * put on it or taken off it
+ * 
+ * A tile that belongs to a location tells it whenever its game object changes, so the location can keep track of what has changed since the
+ * changes were last sent out
+ * 
+ * A tile can also be a view of a cell of a location that keeps its tiles compactly, the view is made when it is asked for and holds nothing
+ * of its own, its game object is kept by the location. Two views of the same cell are equal
+ * 
  * @author Jack Slater
  *
  */
-public abstract class Tile {
+public abstract class Tile implements Cloneable {
 
 	protected Position pos;
 	protected GameObject gameObject;
 	protected String fname;
 	protected int locationID;
+	private boolean shared;
+	private String sharedString;
+	private Location location;
+	private boolean view;
 	
 	/**
 	 * Constructor that puts the parameters into local variables
@@ -39,6 +54,34 @@ public abstract class Tile {
 		return pos;
 	}
 
+	/**
+	 * Getter for the x part of the position of the tile, without going through the Position
+	 * 
+	 * @return x - x-pos of the tile
+	 */
+	public int getX() {
+		return pos.getX();
+	}
+
+	/**
+	 * Getter for the y part of the position of the tile, without going through the Position
+	 * 
+	 * @return y - y-pos of the tile
+	 */
+	public int getY() {
+		return pos.getY();
+	}
+
+	/**
+	 * Gets the location and position of the tile packed into a long, two tiles at the same place have the same packed position even if
+	 * they are different objects
+	 * 
+	 * @return packed - position packed by PackedPosition.pack
+	 */
+	public long getPackedPosition() {
+		return PackedPosition.pack(locationID, pos.getX(), pos.getY());
+	}
+
 	/**
 	 * Setter for the position of the tile
 	 * 
@@ -54,6 +97,9 @@ public abstract class Tile {
 	 * @return gameObject - game object on the tile
 	 */
 	public GameObject getGameObject() {
+		if (view) {
+			return location.getGameObject(pos);
+		}
 		return gameObject;
 	}
 	
@@ -63,9 +109,123 @@ public abstract class Tile {
 	 * @param gameObject - game object you are trying to put onto the tile
 	 */
 	public void setGameObject(GameObject gameObject) {
+		if (shared) {
+			throw new IllegalStateException("Tile " + pos.getX() + "," + pos.getY() + " of location " + locationID + " is shared by every game on the map");
+		}
+		if (view) {
+			location.setGameObject(pos, gameObject);
+			return;
+		}
+		if (this.gameObject != gameObject && location != null) {
+			location.tileChanged(pos);
+		}
 		this.gameObject = gameObject;
 	}
+
+	/**
+	 * Setter for the location the tile belongs to, the location is told whenever the game object on the tile changes
+	 * 
+	 * @param location - location holding the tile
+	 */
+	public void setLocation(Location location) {
+		this.location = location;
+	}
+
+	/**
+	 * Makes the tile a view of a cell of a location that keeps its tiles compactly, the game object of the tile is then got from and set on
+	 * the location
+	 * 
+	 * @param location - location the tile is a view of
+	 */
+	public void makeView(Location location) {
+		this.location = location;
+		this.locationID = location.getId();
+		this.gameObject = null;
+		this.view = true;
+	}
+
+	/**
+	 * Checks if the tile is a view of a cell of a location that keeps its tiles compactly
+	 * 
+	 * @return boolean - true if the tile is a view
+	 */
+	public boolean isView() {
+		return view;
+	}
+
+	/**
+	 * Checks if the tile is a view of a cell of a particular location
+	 * 
+	 * @param location - location to check
+	 * @return boolean - true if the tile is a view of one of the cells of the location
+	 */
+	public boolean isViewOf(Location location) {
+		return view && this.location == location;
+	}
+
+	/**
+	 * Checks if the tile is shared by every game played on its map
+	 * 
+	 * @return boolean - true if the tile cannot be changed
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Marks the tile as shared by every game played on its map, from then on it cannot be changed
+	 */
+	public void share() {
+		shared = true;
+		sharedString = toString();
+	}
+
+	/**
+	 * Gets the string of the tile, the same as toString but a shared tile never changes so its string is only made once
+	 * 
+	 * @return string - string of the tile
+	 */
+	public String toSnapshotString() {
+		return shared ? sharedString : toString();
+	}
+
+	/**
+	 * Makes a copy of the tile that can be changed, the game object on the tile is not copied
+	 * 
+	 * @return tile - copy of the tile
+	 */
+	public Tile copy() {
+		try {
+			Tile copy = (Tile) super.clone();
+			copy.shared = false;
+			copy.sharedString = null;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
 	
+	/**
+	 * A view is equal to any other view of the same cell of the same location, any other tile is only equal to itself
+	 */
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!view || !(o instanceof Tile)) {
+			return false;
+		}
+		Tile t = (Tile) o;
+		return t.view && t.location == location && t.pos.getX() == pos.getX() && t.pos.getY() == pos.getY();
+	}
+
+	public int hashCode() {
+		if (!view) {
+			return super.hashCode();
+		}
+		return (System.identityHashCode(location) * 31 + pos.getX()) * 31 + pos.getY();
+	}
+
 	/**
 	 * Gets the filename of the tile you are trying to draw
 	 * 
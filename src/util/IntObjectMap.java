@@ -0,0 +1,198 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys that are never negative to objects, kept in two arrays
+ * with open addressing so no key is boxed and no entry object is made. It is
+ * used where there would otherwise be a HashMap of Integer keys with few
+ * entries for each of a great many owners, such as the game objects on the
+ * tiles of a location.
+ *
+ * It is not synchronized.
+ *
+ * @param <V> - type of the values
+ */
+public class IntObjectMap<V> {
+
+	private static final int EMPTY = -1;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+
+	/**
+	 * Constructor for an empty map
+	 */
+	public IntObjectMap() {
+		this(4);
+	}
+
+	/**
+	 * Constructor for an empty map with room for a number of entries before
+	 * it has to grow
+	 *
+	 * @param expected - number of entries expected
+	 */
+	public IntObjectMap(int expected) {
+		int capacity = 4;
+		while (capacity * 3 / 4 < expected) {
+			capacity *= 2;
+		}
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Constructor for a copy of another map, the values themselves are not
+	 * copied
+	 *
+	 * @param other - map to copy
+	 */
+	public IntObjectMap(IntObjectMap<V> other) {
+		keys = other.keys.clone();
+		values = other.values.clone();
+		size = other.size;
+	}
+
+	/**
+	 * Gets the value of a key
+	 *
+	 * @param key - key to look up, not negative
+	 * @return value - value of the key, null if it has none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+			if (keys[i] == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Sets the value of a key, a null value removes the key
+	 *
+	 * @param key - key to set, not negative
+	 * @param value - value of the key
+	 * @return old - value the key had, null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Key must not be negative: " + key);
+		}
+		if (value == null) {
+			return remove(key);
+		}
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length * 3 / 4) {
+			grow();
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a key, the entries after it in its run are moved back so no
+	 * marker is left behind
+	 *
+	 * @param key - key to remove
+	 * @return old - value the key had, null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != key) {
+			if (keys[i] == EMPTY) {
+				return null;
+			}
+			i = (i + 1) & mask;
+		}
+		V old = (V) values[i];
+		size--;
+		/* Move back any later entry of the run that would no longer be found past the gap */
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = hash(keys[j]) & mask;
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		values[i] = null;
+		return old;
+	}
+
+	/**
+	 * Get the number of keys in the map
+	 *
+	 * @return size - number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the keys of the map, in no particular order
+	 *
+	 * @return keys - a new array of the keys
+	 */
+	public int[] keys() {
+		int[] found = new int[size];
+		int n = 0;
+		for (int k : keys) {
+			if (k != EMPTY) {
+				found[n++] = k;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Doubles the size of the arrays and puts every entry back
+	 */
+	@SuppressWarnings("unchecked")
+	private void grow() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		values = new Object[oldKeys.length * 2];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], (V) oldValues[i]);
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a key, keys next to each other would otherwise fill
+	 * a run of slots
+	 *
+	 * @param key - key to hash
+	 * @return hash - hash of the key
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ h >>> 16;
+	}
+}
@@ -0,0 +1,94 @@
+package util;
+
+/**
+ * Coordinates packed into a single primitive, so they can be passed around,
+ * compared and used as keys without making an object.
+ *
+ * A tile is packed into a long of its location id and its x and y within the
+ * location, 32 bits for the id and 16 bits for each of x and y. An offset of
+ * one location from another is packed into an int of 15 bits for each of x
+ * and y, moved so that the int is never negative and can be used as a key of
+ * an IntObjectMap.
+ *
+ */
+public final class PackedPosition {
+
+	private static final int OFFSET_BIAS = 1 << 14;
+	private static final int OFFSET_MASK = (1 << 15) - 1;
+
+	private PackedPosition() {
+	}
+
+	/**
+	 * Packs the position of a tile
+	 *
+	 * @param locationID - id of the location of the tile
+	 * @param x - x-pos of the tile, 0 to 65535
+	 * @param y - y-pos of the tile, 0 to 65535
+	 * @return packed - the packed position
+	 */
+	public static long pack(int locationID, int x, int y) {
+		return (long) locationID << 32 | (long) (x & 0xFFFF) << 16 | y & 0xFFFF;
+	}
+
+	/**
+	 * Gets the location id of a packed tile position
+	 *
+	 * @param packed - packed position
+	 * @return locationID - id of the location
+	 */
+	public static int locationID(long packed) {
+		return (int) (packed >> 32);
+	}
+
+	/**
+	 * Gets the x-pos of a packed tile position
+	 *
+	 * @param packed - packed position
+	 * @return x - x-pos within the location
+	 */
+	public static int x(long packed) {
+		return (int) (packed >>> 16) & 0xFFFF;
+	}
+
+	/**
+	 * Gets the y-pos of a packed tile position
+	 *
+	 * @param packed - packed position
+	 * @return y - y-pos within the location
+	 */
+	public static int y(long packed) {
+		return (int) packed & 0xFFFF;
+	}
+
+	/**
+	 * Packs the offset of one location from another
+	 *
+	 * @param x - locations east, negative for west, no more than 16383 either way
+	 * @param y - locations north, negative for south, no more than 16383 either way
+	 * @return packed - the packed offset, never negative
+	 */
+	public static int packOffset(int x, int y) {
+		return (x + OFFSET_BIAS & OFFSET_MASK) << 15 | y + OFFSET_BIAS & OFFSET_MASK;
+	}
+
+	/**
+	 * Gets the x part of a packed offset
+	 *
+	 * @param packed - packed offset
+	 * @return x - locations east, negative for west
+	 */
+	public static int offsetX(int packed) {
+		return (packed >>> 15 & OFFSET_MASK) - OFFSET_BIAS;
+	}
+
+	/**
+	 * Gets the y part of a packed offset
+	 *
+	 * @param packed - packed offset
+	 * @return y - locations north, negative for south
+	 */
+	public static int offsetY(int packed) {
+		return (packed & OFFSET_MASK) - OFFSET_BIAS;
+	}
+}
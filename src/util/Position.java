@@ -7,6 +7,18 @@ package util;
  *
  */
 public class Position {
+	/* Positions within a location are asked for far more often than any other, so one of each is kept */
+	private static final int CACHED = 32;
+	private static final Position[] cache = new Position[CACHED * CACHED];
+
+	static {
+		for (int i = 0; i < CACHED; i++) {
+			for (int j = 0; j < CACHED; j++) {
+				cache[i * CACHED + j] = new Position(i, j);
+			}
+		}
+	}
+
 	private final int x;
 	private final int y;
 	
@@ -21,6 +33,21 @@ public class Position {
 		this.y = y;		
 	}
 	
+	/**
+	 * Gets a position, positions are never changed so those within the size
+	 * of a location are shared rather than made every time
+	 * 
+	 * @param x - x-pos of the position
+	 * @param y - y-pos of the position
+	 * @return position - the position
+	 */
+	public static Position of(int x, int y) {
+		if (x >= 0 && y >= 0 && x < CACHED && y < CACHED) {
+			return cache[x * CACHED + y];
+		}
+		return new Position(x, y);
+	}
+
 	/**
 	 * Getter for the x part of the position
 	 * 
@@ -168,13 +168,13 @@ public class WorldEditor {
 			if (tool.equals("Add Game Object")) {
 				switch (gameObject) {
 				case "tree":
-					tile.setGameObject(new Tree());
+					tile.setGameObject(Tree.TREE);
 					break;
 				case "wall":
-					tile.setGameObject(new Wall());
+					tile.setGameObject(Wall.WALL);
 					break;
 				case "fence":
-					tile.setGameObject(new Fence());
+					tile.setGameObject(Fence.FENCE);
 					break;
 				case "chest":
 					tile.setGameObject(new Chest());
@@ -183,13 +183,13 @@ public class WorldEditor {
 					tile.setGameObject(new Key("Key", 0));
 					break;
 				case "floaty":
-					tile.setGameObject(new FloatingDevice("Floating Device"));
+					tile.setGameObject(FloatingDevice.FLOATING_DEVICE);
 					break;
 				case "banana":
-					tile.setGameObject(new Banana("Banana"));
+					tile.setGameObject(Banana.BANANA);
 					break;
 				case "building":
-					tile.setGameObject(new Building());
+					tile.setGameObject(Building.BUILDING);
 					break;
 				case "door":
 					int id = createIndoorLocation();
@@ -203,17 +203,17 @@ public class WorldEditor {
 
 					break;
 				case "teleporter":
-					tile.setGameObject(new Teleporter("Teleporter"));
+					tile.setGameObject(Teleporter.TELEPORTER);
 					break;
 
 				case "NPC":
 					tile.setGameObject(new NPC("random", Direction.NORTH));
 					break;
 				case "fish":
-					tile.setGameObject(new Fish("Fish"));
+					tile.setGameObject(Fish.FISH);
 					break;
 				case "fishingrod":
-					tile.setGameObject(new FishingRod("Fishing Rod"));
+					tile.setGameObject(FishingRod.FISHING_ROD);
 					break;
 				}
 